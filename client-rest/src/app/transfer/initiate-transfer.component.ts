@@ -39,16 +39,18 @@ export class InitiateTransferComponent implements OnInit {
     initiate() {
         // Poll until a worker public key is available, indicating a worker has been assigned for our transfer job.
         // Once we have this key, we'll use it to encrypt the user's export and import auth credentials and start the
-        // transfer job.
-        let pollAttempt = 0;
-        let maxPollAttempts = 20;
-        let pollForWorkerKey = Observable.interval(1500)
-            .switchMap(() => this.transferService.getReservedWorker({id: this.progressService.transferId()}))
-            .take(maxPollAttempts)
+        // transfer job. Each request may wait on the server for the worker, but the server answers right away when it
+        // doesn't hold requests, so polling is bounded by time rather than by a number of requests. A new request is
+        // only sent once the previous one has answered.
+        let deadline = Date.now() + 30000;
+        let pollForWorkerKey = Observable.interval(1000)
+            .exhaustMap(() => {
+                let waitSeconds = Math.max(1, Math.min(10, Math.ceil((deadline - Date.now()) / 1000)));
+                return this.transferService.getReservedWorker({id: this.progressService.transferId(), waitSeconds: waitSeconds});
+            })
             .subscribe(
                 reservedWorker => {
                     console.log("polling for assigned transfer worker");
-                    pollAttempt++;
                     if (reservedWorker.publicKey) {
                         pollForWorkerKey.unsubscribe();
                         this.progressService.workerReserved(reservedWorker.publicKey);
@@ -57,7 +59,8 @@ export class InitiateTransferComponent implements OnInit {
                         } else {
                             this.encryptAndStartTransfer();
                         }
-                    } else if (pollAttempt == maxPollAttempts) {
+                    } else if (Date.now() >= deadline) {
+                        pollForWorkerKey.unsubscribe();
                         alert(`Timed out getting a worker for this data transfer`);
                     }
                 }, transportError);
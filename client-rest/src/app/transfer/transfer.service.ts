@@ -26,7 +26,8 @@ export class TransferService {
     }
 
     getReservedWorker(getWorker: GetReservedWorker): Observable<ReservedWorker> {
-        return this.http.get(`${environment.apiBaseUrl}/api/transfer/worker/${getWorker.id}`) as Observable<ReservedWorker>;
+        let wait = getWorker.waitSeconds ? `?wait=${getWorker.waitSeconds}` : "";
+        return this.http.get(`${environment.apiBaseUrl}/api/transfer/worker/${getWorker.id}${wait}`) as Observable<ReservedWorker>;
     }
 
     startTransferJob(start: StartTransferJob): Observable<TransferJob> {
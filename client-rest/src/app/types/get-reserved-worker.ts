@@ -3,4 +3,6 @@
 */
 export interface GetReservedWorker {
     id: string;
+    /** How long the server may wait for a worker to be reserved before answering. */
+    waitSeconds?: number;
 }
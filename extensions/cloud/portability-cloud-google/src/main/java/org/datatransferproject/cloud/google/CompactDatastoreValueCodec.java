@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.cloud.google;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.datastore.Blob;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link DatastoreValueCodec} writing a version byte and a type tag, followed by a binary
+ * encoding for common types, or by JSON for other types that Jackson reads back as equal values.
+ * Only values Jackson can't handle are still written with Java serialization. Whether Jackson
+ * reads values back as equal is checked on the first value of each class only.
+ *
+ * <p>Blobs written by earlier releases, which were Java serialized as a whole, are recognized by
+ * the serialization stream magic and still decoded. While instances of an earlier release may
+ * still read them, {@code writeJavaSerialization} keeps writing that format; it can be turned off
+ * once all instances decode the new one.
+ */
+final class CompactDatastoreValueCodec implements DatastoreValueCodec {
+  // Java serialization streams start with this, which is never a version of this codec
+  private static final int JAVA_STREAM_MAGIC = 0xACED;
+  private static final int VERSION_1 = 1;
+
+  private static final int TAG_LONG = 1;
+  private static final int TAG_TIME_ZONE = 2;
+  private static final int TAG_LOCALE = 3;
+  private static final int TAG_BYTES = 4;
+  private static final int TAG_JSON = 5;
+  private static final int TAG_JAVA = 6;
+
+  private final ObjectMapper objectMapper;
+  private final boolean writeJavaSerialization;
+  // Whether Jackson read back the first value of a class as it was
+  private final Map<Class<?>, Boolean> jsonClasses = new ConcurrentHashMap<>();
+
+  CompactDatastoreValueCodec(ObjectMapper objectMapper, boolean writeJavaSerialization) {
+    this.objectMapper = objectMapper;
+    this.writeJavaSerialization = writeJavaSerialization;
+  }
+
+  @Override
+  public Blob encode(Object value) throws IOException {
+    if (writeJavaSerialization) {
+      return Blob.copyFrom(javaSerialize(value));
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(VERSION_1);
+    if (value instanceof Long) {
+      out.writeByte(TAG_LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof TimeZone) {
+      out.writeByte(TAG_TIME_ZONE);
+      out.writeUTF(((TimeZone) value).getID());
+    } else if (value instanceof Locale) {
+      out.writeByte(TAG_LOCALE);
+      out.writeUTF(((Locale) value).toLanguageTag());
+    } else if (value instanceof byte[]) {
+      out.writeByte(TAG_BYTES);
+      out.write((byte[]) value);
+    } else {
+      byte[] json = toJson(value);
+      if (json != null) {
+        out.writeByte(TAG_JSON);
+        out.writeUTF(value.getClass().getName());
+        out.write(json);
+      } else {
+        out.writeByte(TAG_JAVA);
+        out.write(javaSerialize(value));
+      }
+    }
+    out.flush();
+    return Blob.copyFrom(bytes.toByteArray());
+  }
+
+  @Override
+  public Object decode(Blob blob) throws IOException {
+    ByteBuffer start = blob.asReadOnlyByteBuffer();
+    DataInputStream in = new DataInputStream(blob.asInputStream());
+    if (start.remaining() >= 2 && (start.getShort(0) & 0xFFFF) == JAVA_STREAM_MAGIC) {
+      return javaDeserialize(in);
+    }
+    int version = in.readUnsignedByte();
+    if (version != VERSION_1) {
+      throw new IOException("Unknown value encoding version " + version);
+    }
+    int tag = in.readUnsignedByte();
+    switch (tag) {
+      case TAG_LONG:
+        return in.readLong();
+      case TAG_TIME_ZONE:
+        return TimeZone.getTimeZone(in.readUTF());
+      case TAG_LOCALE:
+        return Locale.forLanguageTag(in.readUTF());
+      case TAG_BYTES:
+        return in.readAllBytes();
+      case TAG_JSON:
+        String className = in.readUTF();
+        try {
+          return objectMapper.readValue(in, Class.forName(className, true, getClassLoader()));
+        } catch (ClassNotFoundException e) {
+          throw new IOException("Unknown value class " + className, e);
+        }
+      case TAG_JAVA:
+        return javaDeserialize(in);
+      default:
+        throw new IOException("Unknown value type tag " + tag);
+    }
+  }
+
+  /**
+   * Returns the JSON of {@code value}, or null if Jackson doesn't read values of its class back as
+   * equal values. Values of classes without {@code equals} are never equal, so they are Java
+   * serialized.
+   */
+  private byte[] toJson(Object value) {
+    Class<?> type = value.getClass();
+    Boolean json = jsonClasses.get(type);
+    if (Boolean.FALSE.equals(json)) {
+      return null;
+    }
+    try {
+      byte[] bytes = objectMapper.writeValueAsBytes(value);
+      if (json == null) {
+        json = value.equals(objectMapper.readValue(bytes, type));
+        jsonClasses.put(type, json);
+      }
+      return json ? bytes : null;
+    } catch (IOException | RuntimeException e) {
+      // Jackson can't write or create values of the class
+      jsonClasses.put(type, false);
+      return null;
+    }
+  }
+
+  private static byte[] javaSerialize(Object value) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+      out.writeObject(value);
+    }
+    return bos.toByteArray();
+  }
+
+  private static Object javaDeserialize(InputStream in) throws IOException {
+    try (ObjectInputStream objectIn = new ObjectInputStream(in)) {
+      return objectIn.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Unable to deserialize value", e);
+    }
+  }
+
+  private static ClassLoader getClassLoader() {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    return classLoader != null ? classLoader : CompactDatastoreValueCodec.class.getClassLoader();
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.cloud.google;
+
+import com.google.cloud.datastore.Blob;
+import java.io.IOException;
+
+/**
+ * Encodes the entity property values that have no Datastore value type of their own, see {@link
+ * GoogleCloudUtils#createEntityBuilder}, as blobs.
+ */
+interface DatastoreValueCodec {
+
+  Blob encode(Object value) throws IOException;
+
+  /** Decodes a blob written by this codec, or by an earlier encoding it migrates from. */
+  Object decode(Blob blob) throws IOException;
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.cloud.google;
+
+import com.google.cloud.datastore.Batch;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.datatransferproject.api.launcher.Monitor;
+
+/**
+ * Buffers Datastore puts and deletes and commits them in non-transactional batches, once {@code
+ * maxBufferedWrites} writes are buffered or the oldest buffered write is older than {@code
+ * maxDelay}, or when {@link #flush} is called. The age of the oldest write is also checked in the
+ * background, so writes are committed after {@code maxDelay} even if no other write follows.
+ *
+ * <p>Buffered writes are lost if the process dies before they are flushed.
+ */
+final class DatastoreWriteBuffer {
+  // Datastore rejects commits with more mutations than this
+  static final int MAX_MUTATIONS_PER_COMMIT = 500;
+  // Shared by all buffers, as each of them only schedules a check while it holds writes
+  private static final ScheduledExecutorService FLUSHER =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder()
+              .setNameFormat("datastore-write-flusher")
+              .setDaemon(true)
+              .build());
+
+  private final Datastore datastore;
+  private final Monitor monitor;
+  private final int maxBufferedWrites;
+  private final long maxDelayNanos;
+  private final Ticker ticker;
+  // Commits must reach Datastore in the order the writes were buffered
+  private final Object commitLock = new Object();
+
+  private Map<Key, Entity> puts = new LinkedHashMap<>();
+  private Set<Key> deletes = new LinkedHashSet<>();
+  private long oldestWriteNanos;
+
+  DatastoreWriteBuffer(
+      Datastore datastore, Monitor monitor, int maxBufferedWrites, Duration maxDelay) {
+    this(datastore, monitor, maxBufferedWrites, maxDelay, Ticker.systemTicker());
+  }
+
+  DatastoreWriteBuffer(
+      Datastore datastore,
+      Monitor monitor,
+      int maxBufferedWrites,
+      Duration maxDelay,
+      Ticker ticker) {
+    Preconditions.checkArgument(maxBufferedWrites > 0, "maxBufferedWrites must be positive");
+    this.datastore = datastore;
+    this.monitor = monitor;
+    this.maxBufferedWrites = maxBufferedWrites;
+    this.maxDelayNanos = maxDelay.toNanos();
+    this.ticker = ticker;
+  }
+
+  void put(Entity entity) {
+    boolean flushNeeded;
+    synchronized (this) {
+      deletes.remove(entity.getKey());
+      puts.put(entity.getKey(), entity);
+      flushNeeded = recordWrite();
+    }
+    if (flushNeeded) {
+      flush();
+    }
+  }
+
+  void delete(Key key) {
+    boolean flushNeeded;
+    synchronized (this) {
+      puts.remove(key);
+      deletes.add(key);
+      flushNeeded = recordWrite();
+    }
+    if (flushNeeded) {
+      flush();
+    }
+  }
+
+  /** Commits every buffered write. Commit failures are logged and the failed writes dropped. */
+  void flush() {
+    synchronized (commitLock) {
+      List<Entity> toPut;
+      List<Key> toDelete;
+      synchronized (this) {
+        if (puts.isEmpty() && deletes.isEmpty()) {
+          return;
+        }
+        toPut = new ArrayList<>(puts.values());
+        toDelete = new ArrayList<>(deletes);
+        puts = new LinkedHashMap<>();
+        deletes = new LinkedHashSet<>();
+      }
+      commit(datastore, monitor, toPut, toDelete);
+    }
+  }
+
+  /** Returns whether a write of {@code key} is buffered or being committed. */
+  boolean holds(Key key) {
+    // Waits for the commit in progress, whose writes aren't visible in Datastore yet
+    synchronized (commitLock) {
+      synchronized (this) {
+        return puts.containsKey(key) || deletes.contains(key);
+      }
+    }
+  }
+
+  /** Returns whether the buffer should be flushed after the write just buffered. */
+  private boolean recordWrite() {
+    long now = ticker.read();
+    int bufferedWrites = puts.size() + deletes.size();
+    if (bufferedWrites == 1) {
+      oldestWriteNanos = now;
+      FLUSHER.schedule(this::flushIfDue, maxDelayNanos, TimeUnit.NANOSECONDS);
+    }
+    return bufferedWrites >= maxBufferedWrites || now - oldestWriteNanos >= maxDelayNanos;
+  }
+
+  /** Flushes the buffer if its oldest write is older than {@code maxDelay}. */
+  private void flushIfDue() {
+    boolean due;
+    synchronized (this) {
+      // Otherwise the buffer was flushed since, and its first write scheduled a check of its own
+      due =
+          !(puts.isEmpty() && deletes.isEmpty())
+              && ticker.read() - oldestWriteNanos >= maxDelayNanos;
+    }
+    if (!due) {
+      return;
+    }
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      monitor.severe(() -> "Unable to flush buffered datastore writes", e);
+    }
+  }
+
+  /**
+   * Commits {@code toPut} and {@code toDelete} in as few batches as Datastore allows. The writes
+   * are independent, so batches aren't transactional. Commit failures are logged and the failed
+   * writes dropped.
+   */
+  static void commit(Datastore datastore, Monitor monitor, List<Entity> toPut, List<Key> toDelete) {
+    int putIndex = 0;
+    int deleteIndex = 0;
+    while (putIndex < toPut.size() || deleteIndex < toDelete.size()) {
+      int putCount = Math.min(MAX_MUTATIONS_PER_COMMIT, toPut.size() - putIndex);
+      int deleteCount =
+          Math.min(MAX_MUTATIONS_PER_COMMIT - putCount, toDelete.size() - deleteIndex);
+      try {
+        Batch batch = datastore.newBatch();
+        if (putCount > 0) {
+          batch.put(toPut.subList(putIndex, putIndex + putCount).toArray(new Entity[0]));
+        }
+        if (deleteCount > 0) {
+          batch.delete(
+              toDelete.subList(deleteIndex, deleteIndex + deleteCount).toArray(new Key[0]));
+        }
+        batch.submit();
+      } catch (DatastoreException e) {
+        int failedWrites = putCount + deleteCount;
+        monitor.severe(
+            () -> "Error writing " + failedWrites + " entities to datastore: " + e);
+      }
+      putIndex += putCount;
+      deleteIndex += deleteCount;
+    }
+  }
+}
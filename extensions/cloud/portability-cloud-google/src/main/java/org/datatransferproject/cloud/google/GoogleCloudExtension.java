@@ -30,6 +30,12 @@ import org.datatransferproject.spi.cloud.storage.JobStore;
 
 /** {@link CloudExtension} for Google Cloud Platform. */
 public class GoogleCloudExtension implements CloudExtension {
+  /**
+   * Keeps writing Datastore values without a type of their own with Java serialization, which
+   * instances of earlier releases read, instead of the {@link CompactDatastoreValueCodec} format.
+   */
+  static final String LEGACY_VALUE_ENCODING_SETTING = "datastoreLegacyValueEncoding";
+
   private Injector injector;
   private boolean initialized = false;
 
@@ -49,9 +55,16 @@ public class GoogleCloudExtension implements CloudExtension {
     String cloud = context.cloud();
     Constants.Environment environment = context.environment();
     Monitor monitor = context.getMonitor();
+    boolean legacyValueEncoding = context.getSetting(LEGACY_VALUE_ENCODING_SETTING, true);
     GoogleCloudExtensionModule module =
         new GoogleCloudExtensionModule(
-            httpTransport, jsonFactory, objectMapper, cloud, environment, monitor);
+            httpTransport,
+            jsonFactory,
+            objectMapper,
+            cloud,
+            environment,
+            monitor,
+            legacyValueEncoding);
     injector = Guice.createInjector(module);
     initialized = true;
   }
@@ -64,6 +64,7 @@ final class GoogleCloudExtensionModule extends CloudExtensionModule {
   private final Monitor monitor;
   private final String cloud;
   private final Environment environment;
+  private final boolean legacyValueEncoding;
 
   GoogleCloudExtensionModule(
       HttpTransport httpTransport,
@@ -71,13 +72,15 @@ final class GoogleCloudExtensionModule extends CloudExtensionModule {
       ObjectMapper objectMapper,
       String cloud,
       Environment environment,
-      Monitor monitor) {
+      Monitor monitor,
+      boolean legacyValueEncoding) {
     this.httpTransport = httpTransport;
     this.jsonFactory = jsonFactory;
     this.objectMapper = objectMapper;
     this.cloud = cloud;
     this.environment = environment;
     this.monitor = monitor;
+    this.legacyValueEncoding = legacyValueEncoding;
   }
 
   /**
@@ -216,6 +219,12 @@ final class GoogleCloudExtensionModule extends CloudExtensionModule {
     return monitor;
   }
 
+  @Provides
+  @Singleton
+  DatastoreValueCodec getDatastoreValueCodec() {
+    return new CompactDatastoreValueCodec(objectMapper, legacyValueEncoding);
+  }
+
   /**
    * Validate we are using Google Cloud. Should be called in all Providers in this module.
    *
@@ -6,25 +6,53 @@ import com.google.cloud.datastore.*;
 import com.google.cloud.datastore.StructuredQuery.CompositeFilter;
 import com.google.cloud.datastore.StructuredQuery.PropertyFilter;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.ItemImportResult;
+import org.datatransferproject.types.common.ImportableItem;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 
 import static java.lang.String.format;
 
+/**
+ * An {@link IdempotentImportExecutor} persisting results and errors in Datastore.
+ *
+ * <p>By default every result and error is committed before the import continues. In write-behind
+ * mode they are buffered and committed in batches instead, see {@link DatastoreWriteBuffer}. A
+ * batch is committed once it holds {@code writeBehindBatchSize} writes, once its oldest write is
+ * older than {@code writeBehindMaxDelay}, at the end of every imported page and on {@link
+ * #getErrors}. If the worker dies, the results of at most one batch are lost and those items are
+ * imported again when the job is resumed.
+ *
+ * <p>By default {@link #setJobId} loads every result of the job. In lazy lookup mode it only
+ * builds a bloom filter of the idempotent ids of the job with a keys-only query; results are then
+ * looked up on demand, in batches through {@link #prefetchKeys}, and kept in an LRU cache of
+ * {@code lookupCacheSize} entries.
+ */
 public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExecutor {
 
   private static final String IDEMPOTENT_RESULTS_KIND = "IdempotentResults";
@@ -34,23 +62,71 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
   private static final String JOB_ID_FIELD = "job_id";
   private static final String IDEMPOTENT_ID_FIELD = "idempotent_id";
   private static final String ERROR_FIELD = "error_details";
+  // Datastore rejects lookups of more keys than this
+  private static final int MAX_KEYS_PER_LOOKUP = 1000;
+  private static final double KNOWN_IDS_FALSE_POSITIVE_RATE = 0.01;
+  // Returned by lookUp for items not imported yet, as results may be null
+  private static final Object NOT_IMPORTED = new Object();
 
   private final Datastore datastore;
   private final Monitor monitor;
   private final ObjectMapper objectMapper;
+  private final DatastoreValueCodec valueCodec;
+  @Nullable private final DatastoreWriteBuffer writeBuffer;
+  private final int lookupCacheSize;
 
   // These are all variables corresponding to the job state. Only initialized when setJobId() is called
   private Map<String, Serializable> knownValues;
   private Map<String, ErrorDetail> errors;
+  // Only used in lazy lookup mode, where knownValues merely caches the results of the job
+  @Nullable private BloomFilter<String> knownIds;
   private UUID jobId;
   private String jobIdPrefix;
 
   public GoogleCloudIdempotentImportExecutor(Datastore datastore, Monitor monitor) {
+    this(datastore, monitor, 0, Duration.ZERO, 0);
+  }
+
+  /**
+   * @param writeBehindBatchSize number of writes to buffer before committing them, 0 commits every
+   *     write right away
+   * @param writeBehindMaxDelay maximum time a write is buffered while imports continue
+   * @param lookupCacheSize number of results to cache in lazy lookup mode, 0 loads every result
+   *     of the job up front
+   */
+  public GoogleCloudIdempotentImportExecutor(
+      Datastore datastore,
+      Monitor monitor,
+      int writeBehindBatchSize,
+      Duration writeBehindMaxDelay,
+      int lookupCacheSize) {
+    this(datastore, monitor, writeBehindBatchSize, writeBehindMaxDelay, lookupCacheSize, false);
+  }
+
+  /**
+   * @param legacyValueEncoding whether to write results that aren't strings with Java
+   *     serialization, see {@link CompactDatastoreValueCodec}
+   */
+  public GoogleCloudIdempotentImportExecutor(
+      Datastore datastore,
+      Monitor monitor,
+      int writeBehindBatchSize,
+      Duration writeBehindMaxDelay,
+      int lookupCacheSize,
+      boolean legacyValueEncoding) {
+    Preconditions.checkArgument(lookupCacheSize >= 0, "lookupCacheSize must not be negative");
     this.datastore = datastore;
     this.monitor = monitor;
+    this.lookupCacheSize = lookupCacheSize;
+    this.writeBuffer =
+        writeBehindBatchSize > 0
+            ? new DatastoreWriteBuffer(
+                datastore, monitor, writeBehindBatchSize, writeBehindMaxDelay)
+            : null;
     this.objectMapper = new ObjectMapper();
     this.objectMapper.registerModule(new JavaTimeModule());
     this.objectMapper.registerSubtypes(ErrorDetail.class);
+    this.valueCodec = new CompactDatastoreValueCodec(objectMapper, legacyValueEncoding);
   }
 
   @Override
@@ -69,14 +145,16 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
       String idempotentId, String itemName, Callable<T> callable) throws Exception {
     Preconditions.checkNotNull(jobId, "executing a callable before initialization of a job");
 
-    if (knownValues.containsKey(idempotentId)) {
+    Object knownValue = lookUp(idempotentId);
+    if (knownValue != NOT_IMPORTED) {
       monitor.debug(
           () ->
               jobIdPrefix
                   + format("Using cached key %s from cache for %s", idempotentId, itemName));
-      return (T) knownValues.get(idempotentId);
+      return (T) knownValue;
     }
 
+    IdempotentImportExecutor.checkNotInterrupted(itemName);
     try {
       T result = callable.call();
       monitor.debug(
@@ -99,6 +177,17 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
   private <T extends Serializable> void addResult(String idempotentId, T result)
       throws IOException {
     knownValues.put(idempotentId, result);
+    if (knownIds != null) {
+      knownIds.put(idempotentId);
+    }
+
+    if (writeBuffer != null) {
+      writeBuffer.put(createResultEntity(idempotentId, result));
+      if (errors.remove(idempotentId) != null) {
+        writeBuffer.delete(getErrorKey(idempotentId, jobId));
+      }
+      return;
+    }
 
     try {
       Transaction transaction = datastore.newTransaction();
@@ -117,6 +206,10 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
 
   private void addError(String idempotentId, ErrorDetail errorDetail) throws IOException {
     errors.put(idempotentId, errorDetail);
+    if (writeBuffer != null) {
+      writeBuffer.put(createErrorEntity(idempotentId, errorDetail));
+      return;
+    }
     try {
       Transaction transaction = datastore.newTransaction();
       transaction.put(createErrorEntity(idempotentId, errorDetail));
@@ -126,36 +219,156 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
     }
   }
 
+  /**
+   * Records the results of a batch of items, committing all of them together, or buffering them
+   * in write-behind mode.
+   */
+  @Override
+  public <T extends ImportableItem, R extends Serializable> void recordResults(
+      List<T> items, Map<String, ItemImportResult<R>> results) {
+    Preconditions.checkNotNull(jobId, "recording results before initialization of a job");
+    List<Entity> toPut = new ArrayList<>();
+    List<Key> toDelete = new ArrayList<>();
+    for (T item : items) {
+      String idempotentId = item.getIdempotentId();
+      ItemImportResult<R> result = results.get(idempotentId);
+      if (result == null) {
+        continue;
+      }
+      try {
+        if (result.getStatus() == ItemImportResult.Status.SUCCESS) {
+          knownValues.put(idempotentId, result.getData());
+          if (knownIds != null) {
+            knownIds.put(idempotentId);
+          }
+          toPut.add(createResultEntity(idempotentId, result.getData()));
+          if (errors.remove(idempotentId) != null) {
+            toDelete.add(getErrorKey(idempotentId, jobId));
+          }
+        } else {
+          ErrorDetail errorDetail =
+              ErrorDetail.builder()
+                  .setId(idempotentId)
+                  .setTitle(item.getName())
+                  .setException(Throwables.getStackTraceAsString(result.getException()))
+                  .build();
+          errors.put(idempotentId, errorDetail);
+          monitor.severe(() -> jobIdPrefix + "Problem with importing item: " + errorDetail);
+          toPut.add(createErrorEntity(idempotentId, errorDetail));
+        }
+      } catch (IOException e) {
+        monitor.severe(() -> jobIdPrefix + "Unable to serialize result of " + idempotentId, e);
+      }
+    }
+
+    if (writeBuffer != null) {
+      toPut.forEach(writeBuffer::put);
+      toDelete.forEach(writeBuffer::delete);
+      return;
+    }
+    DatastoreWriteBuffer.commit(datastore, monitor, toPut, toDelete);
+  }
+
   @Override
   public <T extends Serializable> T getCachedValue(String idempotentId)
       throws IllegalArgumentException {
-    if (!knownValues.containsKey(idempotentId)) {
-      throw new IllegalArgumentException(
-          idempotentId
-              + " is not a known key, known keys: "
-              + Joiner.on(", ").join(knownValues.keySet()));
+    Object knownValue = lookUp(idempotentId);
+    if (knownValue == NOT_IMPORTED) {
+      throw IdempotentImportExecutor.unknownKey(idempotentId, knownValues);
     }
-    return (T) knownValues.get(idempotentId);
+    return (T) knownValue;
   }
 
   @Override
   public boolean isKeyCached(String idempotentId) {
-    return knownValues.containsKey(idempotentId);
+    return lookUp(idempotentId) != NOT_IMPORTED;
+  }
+
+  /** Loads the results of {@code idempotentIds} with batched lookups in lazy lookup mode. */
+  @Override
+  public void prefetchKeys(Collection<String> idempotentIds) {
+    if (knownIds == null) {
+      return;
+    }
+    List<Key> keys = new ArrayList<>();
+    for (String idempotentId : idempotentIds) {
+      if (!knownValues.containsKey(idempotentId) && knownIds.mightContain(idempotentId)) {
+        keys.add(getResultsKey(idempotentId, jobId));
+      }
+    }
+    if (keys.isEmpty()) {
+      return;
+    }
+    if (writeBuffer != null && keys.stream().anyMatch(writeBuffer::holds)) {
+      flush();
+    }
+    for (List<Key> batch : Iterables.partition(keys, MAX_KEYS_PER_LOOKUP)) {
+      Iterator<Entity> results = datastore.get(batch);
+      while (results.hasNext()) {
+        Entity result = results.next();
+        knownValues.put(result.getString(IDEMPOTENT_ID_FIELD), getResult(result));
+      }
+    }
+  }
+
+  /**
+   * Returns the result of {@code idempotentId}, which may be null, or {@link #NOT_IMPORTED} if it
+   * hasn't been imported yet.
+   */
+  @Nullable
+  private Object lookUp(String idempotentId) {
+    synchronized (knownValues) {
+      if (knownValues.containsKey(idempotentId)) {
+        return knownValues.get(idempotentId);
+      }
+    }
+    if (knownIds == null || !knownIds.mightContain(idempotentId)) {
+      return NOT_IMPORTED;
+    }
+    Key key = getResultsKey(idempotentId, jobId);
+    // The result may be buffered but evicted from the cache already
+    if (writeBuffer != null && writeBuffer.holds(key)) {
+      flush();
+    }
+    Entity result = datastore.get(key);
+    if (result == null) {
+      return NOT_IMPORTED;
+    }
+    Serializable knownValue = getResult(result);
+    knownValues.put(idempotentId, knownValue);
+    return knownValue;
   }
 
   @Override
   public Collection<ErrorDetail> getErrors() {
+    flush();
     return ImmutableList.copyOf(errors.values());
   }
 
+  @Override
+  public void flush() {
+    if (writeBuffer != null) {
+      writeBuffer.flush();
+    }
+  }
+
   // In non-tests setJobId is only ever called once per executor, so the initialization of
   // knownValues and errors only happens once
   @Override
   public void setJobId(UUID jobId) {
     Preconditions.checkNotNull(jobId);
+    // Writes buffered for the previous job must be visible to the queries below
+    flush();
     this.jobId = jobId;
-    this.knownValues = getKnownValuesForJob(jobId);
-    this.errors = getErrorDetailsForJob(jobId);
+    // Synchronized as copiers may run several import iterations of a job at once
+    if (lookupCacheSize > 0) {
+      this.knownIds = getKnownIdsForJob(jobId);
+      this.knownValues = Collections.synchronizedMap(new LruMap<>(lookupCacheSize));
+    } else {
+      this.knownIds = null;
+      this.knownValues = Collections.synchronizedMap(getKnownValuesForJob(jobId));
+    }
+    this.errors = Collections.synchronizedMap(getErrorDetailsForJob(jobId));
     jobIdPrefix = "Job " + jobId + ": ";
   }
 
@@ -170,13 +383,35 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
 
     while (results.hasNext()) {
       Entity result = results.next();
-      dataStoreKnownValues.put(
-          result.getString(IDEMPOTENT_ID_FIELD), result.getString(RESULTS_FIELD));
+      dataStoreKnownValues.put(result.getString(IDEMPOTENT_ID_FIELD), getResult(result));
     }
 
     return dataStoreKnownValues;
   }
 
+  private BloomFilter<String> getKnownIdsForJob(UUID jobId) {
+    List<String> idempotentIds = new ArrayList<>();
+    String keyPrefix = jobId + "_";
+    Query<Key> query =
+        Query.newKeyQueryBuilder()
+            .setKind(IDEMPOTENT_RESULTS_KIND)
+            .setFilter(CompositeFilter.and(PropertyFilter.eq(JOB_ID_FIELD, String.valueOf(jobId))))
+            .build();
+    QueryResults<Key> results = datastore.run(query);
+    while (results.hasNext()) {
+      idempotentIds.add(results.next().getName().substring(keyPrefix.length()));
+    }
+
+    // Leave room for the ids of the items still to be imported
+    BloomFilter<String> knownIds =
+        BloomFilter.create(
+            Funnels.stringFunnel(StandardCharsets.UTF_8),
+            Math.max(2 * idempotentIds.size(), lookupCacheSize),
+            KNOWN_IDS_FALSE_POSITIVE_RATE);
+    idempotentIds.forEach(knownIds::put);
+    return knownIds;
+  }
+
   private Map<String, ErrorDetail> getErrorDetailsForJob(UUID jobId) {
     Map<String, ErrorDetail> datastoreKnownErrors = new HashMap<>();
     Query<Entity> query =
@@ -210,14 +445,37 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
   @VisibleForTesting
   <T extends Serializable> Entity createResultEntity(String idempotentId, UUID jobId, T result)
       throws IOException {
+    ImmutableMap.Builder<String, Object> properties =
+        ImmutableMap.<String, Object>builder()
+            .put(JOB_ID_FIELD, jobId.toString())
+            .put(IDEMPOTENT_ID_FIELD, idempotentId);
+    // Null results are stored without a result field
+    if (result != null) {
+      properties.put(RESULTS_FIELD, result);
+    }
     return GoogleCloudUtils.createEntityBuilder(
-        getResultsKey(idempotentId, jobId),
-        ImmutableMap.of(
-            RESULTS_FIELD, result, JOB_ID_FIELD, jobId.toString(), IDEMPOTENT_ID_FIELD,
-            idempotentId))
+        getResultsKey(idempotentId, jobId), properties.build(), valueCodec)
         .build();
   }
 
+  /**
+   * Returns the result stored in {@code entity}, a string, a value encoded by the codec or null.
+   */
+  @Nullable
+  private Serializable getResult(Entity entity) {
+    if (!entity.contains(RESULTS_FIELD)) {
+      return null;
+    }
+    if (entity.getValue(RESULTS_FIELD) instanceof StringValue) {
+      return entity.getString(RESULTS_FIELD);
+    }
+    try {
+      return (Serializable) valueCodec.decode(entity.getBlob(RESULTS_FIELD));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to decode the result of " + entity.getKey(), e);
+    }
+  }
+
   private Key getResultsKey(String idempotentId, UUID jobId) {
     return datastore
         .newKeyFactory()
@@ -240,7 +498,8 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
             JOB_ID_FIELD,
             jobId.toString(),
             IDEMPOTENT_ID_FIELD,
-            idempotentId))
+            idempotentId),
+        valueCodec)
         .build();
   }
 
@@ -250,4 +509,19 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
         .setKind(IDEMPONTENT_ERRORS_KIND)
         .newKey(jobId + "_" + idempotentId);
   }
+
+  /** A map evicting its least recently accessed entry once it holds more than maxSize. */
+  private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+    private final int maxSize;
+
+    private LruMap(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > maxSize;
+    }
+  }
 }
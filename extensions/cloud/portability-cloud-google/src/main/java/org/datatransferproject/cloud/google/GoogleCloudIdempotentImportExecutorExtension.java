@@ -4,6 +4,7 @@ import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.datastore.Datastore;
 import com.google.cloud.datastore.DatastoreOptions;
 import java.io.IOException;
+import java.time.Duration;
 import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
@@ -12,13 +13,31 @@ import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportE
 public class GoogleCloudIdempotentImportExecutorExtension implements
     IdempotentImportExecutorExtension {
 
+  /** Number of idempotent results and errors to buffer before committing them, 0 disables it. */
+  static final String WRITE_BEHIND_BATCH_SIZE_SETTING = "idempotentWriteBehindBatchSize";
+
+  /** Maximum time in milliseconds a buffered idempotent result or error waits for its commit. */
+  static final String WRITE_BEHIND_MAX_DELAY_SETTING = "idempotentWriteBehindMaxDelayMillis";
+
+  /**
+   * Number of idempotent results to cache when looking them up on demand, 0 (the default) loads
+   * every result of a job when it starts.
+   */
+  static final String LOOKUP_CACHE_SIZE_SETTING = "idempotentLookupCacheSize";
+
   private Datastore datastore;
 
   @Override
   public IdempotentImportExecutor getIdempotentImportExecutor(ExtensionContext extensionContext) {
     Monitor monitor = extensionContext.getMonitor();
     try {
-      return new GoogleCloudIdempotentImportExecutor(getDatastore(), monitor);
+      return new GoogleCloudIdempotentImportExecutor(
+          getDatastore(),
+          monitor,
+          extensionContext.getSetting(WRITE_BEHIND_BATCH_SIZE_SETTING, 0),
+          Duration.ofMillis(extensionContext.getSetting(WRITE_BEHIND_MAX_DELAY_SETTING, 5000)),
+          extensionContext.getSetting(LOOKUP_CACHE_SIZE_SETTING, 0),
+          extensionContext.getSetting(GoogleCloudExtension.LEGACY_VALUE_ENCODING_SETTING, true));
     } catch (IOException e) {
       monitor.severe(() -> "Error initializing datastore: " + e);
       throw new IllegalStateException(e);
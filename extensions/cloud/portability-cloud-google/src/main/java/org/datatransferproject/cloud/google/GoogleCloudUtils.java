@@ -1,12 +1,9 @@
 package org.datatransferproject.cloud.google;
 
 import com.google.cloud.Timestamp;
-import com.google.cloud.datastore.Blob;
 import com.google.cloud.datastore.Entity;
 import com.google.cloud.datastore.Key;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.util.Map;
 
 public class GoogleCloudUtils {
@@ -20,9 +17,10 @@ public class GoogleCloudUtils {
 
   /**
    * Creates an Entity Builder for the given key and properties. Converts the objects to the proper
-   * datastore values
+   * datastore values, values without a datastore type of their own are encoded with {@code codec}
    */
-  static Entity.Builder createEntityBuilder(Key key, Map<String, Object> data) throws IOException {
+  static Entity.Builder createEntityBuilder(
+      Key key, Map<String, Object> data, DatastoreValueCodec codec) throws IOException {
     Entity.Builder builder = Entity.newBuilder(key);
 
     for (Map.Entry<String, Object> entry : data.entrySet()) {
@@ -37,11 +35,7 @@ public class GoogleCloudUtils {
       } else if (entry.getValue() instanceof Timestamp) {
         builder.set(entry.getKey(), (Timestamp) entry.getValue()); // TimestampValue
       } else {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
-          out.writeObject(entry.getValue());
-        }
-        builder.set(entry.getKey(), Blob.copyFrom(bos.toByteArray())); // BlobValue
+        builder.set(entry.getKey(), codec.encode(entry.getValue())); // BlobValue
       }
     }
     return builder;
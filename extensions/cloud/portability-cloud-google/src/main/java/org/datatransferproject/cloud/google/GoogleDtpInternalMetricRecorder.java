@@ -21,6 +21,7 @@ import io.opencensus.common.Scope;
 import io.opencensus.exporter.stats.stackdriver.StackdriverStatsConfiguration;
 import io.opencensus.exporter.stats.stackdriver.StackdriverStatsExporter;
 import io.opencensus.stats.Aggregation;
+import io.opencensus.stats.BucketBoundaries;
 import io.opencensus.stats.Measure;
 import io.opencensus.stats.Stats;
 import io.opencensus.stats.StatsRecorder;
@@ -53,11 +54,27 @@ class GoogleDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
   private static final TagKey KEY_IMPORT_SERVICE = TagKey.create("import_service");
   private static final TagKey KEY_EXPORT_SERVICE = TagKey.create("export_service");
   private static final TagKey KEY_SUCCESS = TagKey.create("success");
+  private static final TagKey KEY_SERVICE = TagKey.create("service");
+  private static final TagKey KEY_CACHED = TagKey.create("cached");
 
   private static final TagKey KEY_GENERIC_SERVICE = TagKey.create("generic_service");
   private static final TagKey KEY_GENERIC_TAG = TagKey.create("generic_tag");
   private static final TagKey KEY_GENERIC_BOOL = TagKey.create("generic_bool");
 
+  // Exponential buckets, so that item level measures are exported as latency distributions
+  private static final Aggregation MS_DISTRIBUTION =
+      Aggregation.Distribution.create(
+          BucketBoundaries.create(
+              ImmutableList.of(
+                  0.0, 5.0, 10.0, 25.0, 50.0, 100.0, 250.0, 500.0, 1000.0, 2500.0, 5000.0,
+                  10000.0, 30000.0, 60000.0, 300000.0)));
+  private static final Aggregation BYTES_DISTRIBUTION =
+      Aggregation.Distribution.create(
+          BucketBoundaries.create(
+              ImmutableList.of(
+                  0.0, 1024.0, 16384.0, 131072.0, 1048576.0, 4194304.0, 16777216.0, 67108864.0,
+                  268435456.0, 1073741824.0)));
+
   private static final TagMetadata TAG_METADATA =
       TagMetadata.create(TagMetadata.TagTtl.UNLIMITED_PROPAGATION);
 
@@ -76,6 +93,17 @@ class GoogleDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
       "Duration of a job in MS",
       "ms");
 
+  private static final Measure.MeasureLong JOB_CLAIM_ATTEMPT = Measure.MeasureLong.create(
+      "job_claim_attempt",
+      "Number of attempts of workers to claim a job",
+      "count");
+
+  private static final Measure.MeasureLong JOB_CLAIM_ATTEMPT_JOB_AGE =
+      Measure.MeasureLong.create(
+          "job_claim_attempt_job_age",
+          "Time since the job a worker tried to claim was created in MS",
+          "ms");
+
   private static final Measure.MeasureLong EXPORT_PAGE_ATTEMPT = Measure.MeasureLong.create(
       "export_page_attempt",
       "A single export attempt",
@@ -120,6 +148,41 @@ class GoogleDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
           "Duration of an import page including retries in MS",
           "ms");
 
+  private static final Measure.MeasureLong ITEM_DOWNLOAD = Measure.MeasureLong.create(
+      "item_download",
+      "Number of item downloads",
+      "count");
+
+  private static final Measure.MeasureLong ITEM_DOWNLOAD_DURATION = Measure.MeasureLong.create(
+      "item_download_duration",
+      "Duration of an item download in MS",
+      "ms");
+
+  private static final Measure.MeasureLong ITEM_DOWNLOAD_BYTES = Measure.MeasureLong.create(
+      "item_download_bytes",
+      "Bytes of an item download",
+      "By");
+
+  private static final Measure.MeasureLong ITEM_IMPORT = Measure.MeasureLong.create(
+      "item_import",
+      "Number of item imports, including the ones found in the idempotent executor's cache",
+      "count");
+
+  private static final Measure.MeasureLong ITEM_IMPORT_DURATION = Measure.MeasureLong.create(
+      "item_import_duration",
+      "Duration of an item import in MS",
+      "ms");
+
+  private static final Measure.MeasureLong RETRY = Measure.MeasureLong.create(
+      "retry",
+      "Number of retried attempts",
+      "count");
+
+  private static final Measure.MeasureLong RETRY_DELAY = Measure.MeasureLong.create(
+      "retry_delay",
+      "Delay before retrying an attempt in MS",
+      "ms");
+
   private static final Measure.MeasureLong GENERIC_COUNT = Measure.MeasureLong.create(
       "generic_count",
       "A generic counter that services can use to hold arbitrary metrics",
@@ -176,6 +239,9 @@ class GoogleDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
         KEY_IMPORT_SERVICE,
         KEY_SUCCESS);
 
+    setupView(JOB_CLAIM_ATTEMPT, KEY_DATA_TYPE, KEY_SUCCESS);
+    setupView(JOB_CLAIM_ATTEMPT_JOB_AGE, KEY_DATA_TYPE, KEY_SUCCESS);
+
     setupView(EXPORT_PAGE_ATTEMPT, KEY_DATA_TYPE, KEY_EXPORT_SERVICE, KEY_SUCCESS);
     setupView(EXPORT_PAGE_ATTEMPT_DURATION, KEY_DATA_TYPE, KEY_EXPORT_SERVICE, KEY_SUCCESS);
 
@@ -188,6 +254,22 @@ class GoogleDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
     setupView(IMPORT_PAGE, KEY_DATA_TYPE, KEY_EXPORT_SERVICE, KEY_SUCCESS);
     setupView(IMPORT_PAGE_DURATION, KEY_DATA_TYPE, KEY_EXPORT_SERVICE, KEY_SUCCESS);
 
+    setupView(ITEM_DOWNLOAD, KEY_DATA_TYPE, KEY_SERVICE, KEY_SUCCESS);
+    setupView(ITEM_DOWNLOAD_DURATION, MS_DISTRIBUTION, KEY_DATA_TYPE, KEY_SERVICE, KEY_SUCCESS);
+    setupView(ITEM_DOWNLOAD_BYTES, BYTES_DISTRIBUTION, KEY_DATA_TYPE, KEY_SERVICE, KEY_SUCCESS);
+
+    setupView(ITEM_IMPORT, KEY_DATA_TYPE, KEY_IMPORT_SERVICE, KEY_SUCCESS, KEY_CACHED);
+    setupView(
+        ITEM_IMPORT_DURATION,
+        MS_DISTRIBUTION,
+        KEY_DATA_TYPE,
+        KEY_IMPORT_SERVICE,
+        KEY_SUCCESS,
+        KEY_CACHED);
+
+    setupView(RETRY, KEY_DATA_TYPE, KEY_SERVICE);
+    setupView(RETRY_DELAY, MS_DISTRIBUTION, KEY_DATA_TYPE, KEY_SERVICE);
+
     setupView(GENERIC_COUNT, KEY_DATA_TYPE, KEY_GENERIC_SERVICE, KEY_GENERIC_TAG);
     setupView(
         GENERIC_BOOLEAN,
@@ -199,13 +281,17 @@ class GoogleDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
   }
 
   private void setupView(Measure measure, TagKey... keys) {
+    setupView(measure, Aggregation.Count.create(), keys);
+  }
+
+  private void setupView(Measure measure, Aggregation aggregation, TagKey... keys) {
     // Register the view. It is imperative that this step exists,
     // otherwise recorded metrics will be dropped and never exported.
     View view = View.create(
         View.Name.create(NAME_BASE + measure.getName()),
         measure.getDescription(),
         measure,
-        Aggregation.Count.create(),
+        aggregation,
         ImmutableList.copyOf(keys));
 
     viewManager.registerView(view);
@@ -223,6 +309,20 @@ class GoogleDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
     }
   }
 
+  @Override
+  public void jobClaimAttempted(DataVertical dataType, boolean claimed, Duration jobAge) {
+    TagContext tctx = tagger.emptyBuilder()
+        .put(KEY_DATA_TYPE, TagValue.create(dataType.getDataType()), TAG_METADATA)
+        .put(KEY_SUCCESS, TagValue.create(Boolean.toString(claimed)), TAG_METADATA)
+        .build();
+    try (Scope ss = tagger.withTagContext(tctx)) {
+      STATS_RECORDER.newMeasureMap()
+          .put(JOB_CLAIM_ATTEMPT, 1)
+          .put(JOB_CLAIM_ATTEMPT_JOB_AGE, jobAge.toMillis())
+          .record();
+    }
+  }
+
   @Override
   public void exportPageAttemptFinished(
       DataVertical dataType,
@@ -299,6 +399,54 @@ class GoogleDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
     }
   }
 
+  @Override
+  public void itemDownloaded(
+      DataVertical dataType, String service, boolean success, long bytes, Duration duration) {
+    TagContext tctx = tagger.emptyBuilder()
+        .put(KEY_DATA_TYPE, TagValue.create(dataType.getDataType()), TAG_METADATA)
+        .put(KEY_SERVICE, TagValue.create(service), TAG_METADATA)
+        .put(KEY_SUCCESS, TagValue.create(Boolean.toString(success)), TAG_METADATA)
+        .build();
+    try (Scope ss = tagger.withTagContext(tctx)) {
+      STATS_RECORDER.newMeasureMap()
+          .put(ITEM_DOWNLOAD, 1)
+          .put(ITEM_DOWNLOAD_DURATION, duration.toMillis())
+          .put(ITEM_DOWNLOAD_BYTES, bytes)
+          .record();
+    }
+  }
+
+  @Override
+  public void itemImportFinished(
+      DataVertical dataType, String service, boolean success, boolean cached, Duration duration) {
+    TagContext tctx = tagger.emptyBuilder()
+        .put(KEY_DATA_TYPE, TagValue.create(dataType.getDataType()), TAG_METADATA)
+        .put(KEY_IMPORT_SERVICE, TagValue.create(service), TAG_METADATA)
+        .put(KEY_SUCCESS, TagValue.create(Boolean.toString(success)), TAG_METADATA)
+        .put(KEY_CACHED, TagValue.create(Boolean.toString(cached)), TAG_METADATA)
+        .build();
+    try (Scope ss = tagger.withTagContext(tctx)) {
+      STATS_RECORDER.newMeasureMap()
+          .put(ITEM_IMPORT, 1)
+          .put(ITEM_IMPORT_DURATION, duration.toMillis())
+          .record();
+    }
+  }
+
+  @Override
+  public void retryScheduled(DataVertical dataType, String service, int attempt, Duration delay) {
+    TagContext tctx = tagger.emptyBuilder()
+        .put(KEY_DATA_TYPE, TagValue.create(dataType.getDataType()), TAG_METADATA)
+        .put(KEY_SERVICE, TagValue.create(service), TAG_METADATA)
+        .build();
+    try (Scope ss = tagger.withTagContext(tctx)) {
+      STATS_RECORDER.newMeasureMap()
+          .put(RETRY, 1)
+          .put(RETRY_DELAY, delay.toMillis())
+          .record();
+    }
+  }
+
   @Override
   public void finishedJob(
       DataVertical dataType,
@@ -17,7 +17,6 @@ package org.datatransferproject.cloud.google;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.Timestamp;
-import com.google.cloud.datastore.Blob;
 import com.google.cloud.datastore.BooleanValue;
 import com.google.cloud.datastore.Datastore;
 import com.google.cloud.datastore.DatastoreException;
@@ -26,6 +25,7 @@ import com.google.cloud.datastore.Entity;
 import com.google.cloud.datastore.Key;
 import com.google.cloud.datastore.LongValue;
 import com.google.cloud.datastore.PathElement;
+import com.google.cloud.datastore.ProjectionEntity;
 import com.google.cloud.datastore.Query;
 import com.google.cloud.datastore.QueryResults;
 import com.google.cloud.datastore.StringValue;
@@ -39,9 +39,10 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -60,6 +61,7 @@ public final class GoogleJobStore extends JobStoreWithValidator {
   private static final String ERROR_KIND = "error";
   private static final String COUNTS_KIND = "counts";
   private static final String CREATED_FIELD = "created";
+  private static final String KEY_PROPERTY = "__key__";
   private static final String LAST_UPDATE_FIELD = "lastUpdated";
   // Field name for entities to store generic json data.
   private static final String JSON_DATA_FIELD = "jsonData";
@@ -69,13 +71,27 @@ public final class GoogleJobStore extends JobStoreWithValidator {
   // TODO: refactor googleTempFileStore into separate interface
   private final GoogleTempFileStore googleTempFileStore;
   private final ObjectMapper objectMapper;
+  private final DatastoreValueCodec valueCodec;
 
-  @Inject
   public GoogleJobStore(
       Datastore datastore, GoogleTempFileStore googleTempFileStore, ObjectMapper objectMapper) {
+    this(
+        datastore,
+        googleTempFileStore,
+        objectMapper,
+        new CompactDatastoreValueCodec(objectMapper, false));
+  }
+
+  @Inject
+  GoogleJobStore(
+      Datastore datastore,
+      GoogleTempFileStore googleTempFileStore,
+      ObjectMapper objectMapper,
+      DatastoreValueCodec valueCodec) {
     this.datastore = datastore;
     this.googleTempFileStore = googleTempFileStore;
     this.objectMapper = objectMapper;
+    this.valueCodec = valueCodec;
   }
 
   @VisibleForTesting
@@ -83,8 +99,7 @@ public final class GoogleJobStore extends JobStoreWithValidator {
     return String.format("%s-%s", jobId, key);
   }
 
-  private static Map<String, Object> getProperties(Entity entity)
-      throws IOException, ClassNotFoundException {
+  private Map<String, Object> getProperties(Entity entity) throws IOException {
     if (entity == null) {
       return null;
     }
@@ -103,12 +118,7 @@ public final class GoogleJobStore extends JobStoreWithValidator {
       } else if (entity.getValue(property) instanceof TimestampValue) {
         builder.put(property, (Timestamp) entity.getTimestamp(property));
       } else {
-        Blob blob = entity.getBlob(property);
-        Object obj = null;
-        try (ObjectInputStream in = new ObjectInputStream(blob.asInputStream())) {
-          obj = in.readObject();
-        }
-        builder.put(property, obj); // BlobValue
+        builder.put(property, valueCodec.decode(entity.getBlob(property))); // BlobValue
       }
     }
 
@@ -202,7 +212,8 @@ public final class GoogleJobStore extends JobStoreWithValidator {
                   ImmutableMap.of(
                       JSON_DATA_FIELD,
                       // TODO: encrypt this data
-                      objectMapper.writeValueAsString(errorDetail)))
+                      objectMapper.writeValueAsString(errorDetail)),
+                  valueCodec)
               .build());
     }
     datastore.add(entities.toArray(new Entity[entities.size()]));
@@ -231,12 +242,31 @@ public final class GoogleJobStore extends JobStoreWithValidator {
     }
     try {
       return PortabilityJob.fromMap(getProperties(entity));
-    } catch (IOException | ClassNotFoundException e) {
+    } catch (IOException e) {
       // TODO: Rethrow as IOException and propagate to callers
       throw new RuntimeException(e);
     }
   }
 
+  /**
+   * Reads only the state of the job, through a projection query, rather than the whole job.
+   * Projection queries are eventually consistent, so a new state may be returned a little late.
+   */
+  @Override
+  public PortabilityJob.State findJobState(UUID jobId) {
+    Query<ProjectionEntity> query =
+        Query.newProjectionEntityQueryBuilder()
+            .setKind(JOB_KIND)
+            .setFilter(PropertyFilter.eq(KEY_PROPERTY, getJobKey(jobId)))
+            .setProjection(PortabilityJob.JOB_STATE)
+            .build();
+    QueryResults<ProjectionEntity> results = datastore.run(query);
+    if (!results.hasNext()) {
+      return null;
+    }
+    return PortabilityJob.State.valueOf(results.next().getString(PortabilityJob.JOB_STATE));
+  }
+
   /**
    * Finds the ID of the first {@link PortabilityJob} in state {@code jobState} in Datastore, or
    * null if none found.
@@ -343,19 +373,28 @@ public final class GoogleJobStore extends JobStoreWithValidator {
 
     Transaction transaction = datastore.newTransaction();
 
+    // Read all current counts in one lookup, within the transaction so concurrent updates conflict
+    Map<Key, Integer> oldCounts = new HashMap<>();
     for (String dataType : newCounts.keySet()) {
-      Key key = getCountsKey(jobId, dataType);
-      Entity current = datastore.get(key);
-      Integer oldCount = 0;
-
-      if (current != null && current.getNames().contains(COUNTS_FIELD)) {
+      oldCounts.put(getCountsKey(jobId, dataType), 0);
+    }
+    Iterator<Entity> currentCounts = transaction.get(oldCounts.keySet().toArray(new Key[0]));
+    while (currentCounts.hasNext()) {
+      Entity current = currentCounts.next();
+      if (current.getNames().contains(COUNTS_FIELD)) {
         // Datastore only allows Long properties, but we only ever write Integers through this
         // interface so the conversion is OK
-        oldCount = Math.toIntExact(current.getLong(COUNTS_FIELD));
+        oldCounts.put(current.getKey(), Math.toIntExact(current.getLong(COUNTS_FIELD)));
       }
+    }
+
+    for (String dataType : newCounts.keySet()) {
+      Key key = getCountsKey(jobId, dataType);
       transaction.put(
           GoogleCloudUtils.createEntityBuilder(
-                  key, ImmutableMap.of(COUNTS_FIELD, oldCount + newCounts.get(dataType)))
+                  key,
+                  ImmutableMap.of(COUNTS_FIELD, oldCounts.get(key) + newCounts.get(dataType)),
+                  valueCodec)
               .build());
     }
     transaction.commit();
@@ -385,14 +424,14 @@ public final class GoogleJobStore extends JobStoreWithValidator {
   private Entity createNewEntity(UUID jobId, Map<String, Object> data) throws IOException {
     Timestamp createdTime = Timestamp.now();
 
-    return GoogleCloudUtils.createEntityBuilder(getJobKey(jobId), data)
+    return GoogleCloudUtils.createEntityBuilder(getJobKey(jobId), data, valueCodec)
         .set(CREATED_FIELD, createdTime)
         .set(LAST_UPDATE_FIELD, createdTime)
         .build();
   }
 
   private Entity createUpdatedEntity(Key key, Map<String, Object> data) throws IOException {
-    return GoogleCloudUtils.createEntityBuilder(key, data)
+    return GoogleCloudUtils.createEntityBuilder(key, data, valueCodec)
         .set(LAST_UPDATE_FIELD, Timestamp.now())
         .build();
   }
@@ -10,13 +10,22 @@ import com.google.cloud.logging.Payload;
 import com.google.cloud.logging.Severity;
 import com.google.common.base.Throwables;
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.function.Supplier;
 import org.datatransferproject.api.launcher.JobAwareMonitor;
+import org.datatransferproject.launcher.monitor.ConsoleMonitor;
+import org.datatransferproject.launcher.monitor.MonitorEvent;
+import org.datatransferproject.launcher.monitor.MonitorEventSink;
 import org.datatransferproject.launcher.monitor.events.EventCode;
 
-class StackdriverMonitor implements JobAwareMonitor {
+/**
+ * Logs to Stackdriver, either directly as a {@link JobAwareMonitor} or, as a {@link
+ * MonitorEventSink}, one batch of entries per write.
+ */
+class StackdriverMonitor implements JobAwareMonitor, MonitorEventSink {
 
   private static final String LOG_NAME = "worker-instance-log";
   private final Logging logging;
@@ -44,6 +53,31 @@ class StackdriverMonitor implements JobAwareMonitor {
   }
 
   private void log(Severity severity, Supplier<String> supplier, Object... data) {
+    write(Collections.singleton(toLogEntry(severity, jobId, supplier.get(), data)));
+  }
+
+  @Override
+  public void write(List<MonitorEvent> events) {
+    List<LogEntry> entries = new ArrayList<>(events.size());
+    for (MonitorEvent event : events) {
+      entries.add(
+          toLogEntry(
+              toSeverity(event.getLevel()), event.getJobId(), event.getMessage(), event.getData()));
+    }
+    write(entries);
+  }
+
+  private void write(Iterable<LogEntry> entries) {
+    try {
+      // Writes the log entries asynchronously
+      logging.write(entries);
+    } catch (Throwable t) {
+      System.out.println("Problem logging: " + t.getMessage());
+      t.printStackTrace(System.out);
+    }
+  }
+
+  private LogEntry toLogEntry(Severity severity, String jobId, String message, Object... data) {
     MonitoredResource.Builder resourceBuilder =
         MonitoredResource.newBuilder("generic_task")
             .addLabel("project_id", projectId)
@@ -57,7 +91,7 @@ class StackdriverMonitor implements JobAwareMonitor {
     }
 
     StringBuilder logMessage = new StringBuilder();
-    logMessage.append(supplier.get());
+    logMessage.append(message);
 
     if (data != null) {
       for (Object datum : data) {
@@ -73,19 +107,21 @@ class StackdriverMonitor implements JobAwareMonitor {
       }
     }
 
-    LogEntry entry =
-        LogEntry.newBuilder(Payload.StringPayload.of(logMessage.toString()))
-            .setSeverity(severity)
-            .setLogName(LOG_NAME)
-            .setResource(resourceBuilder.build())
-            .build();
+    return LogEntry.newBuilder(Payload.StringPayload.of(logMessage.toString()))
+        .setSeverity(severity)
+        .setLogName(LOG_NAME)
+        .setResource(resourceBuilder.build())
+        .build();
+  }
 
-    try {
-      // Writes the log entry asynchronously
-      logging.write(Collections.singleton(entry));
-    } catch (Throwable t) {
-      System.out.println("Problem logging: " + t.getMessage());
-      t.printStackTrace(System.out);
+  private static Severity toSeverity(ConsoleMonitor.Level level) {
+    switch (level) {
+      case SEVERE:
+        return Severity.ERROR;
+      case INFO:
+        return Severity.INFO;
+      default:
+        return Severity.NOTICE;
     }
   }
 
@@ -108,4 +144,9 @@ class StackdriverMonitor implements JobAwareMonitor {
   public void flushLogs() {
     logging.flush();
   }
+
+  @Override
+  public void flush() {
+    logging.flush();
+  }
 }
@@ -6,6 +6,7 @@ import com.google.cloud.logging.LoggingOptions;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.api.launcher.MonitorExtension;
 import org.datatransferproject.launcher.monitor.ConsoleMonitor;
+import org.datatransferproject.launcher.monitor.MonitorLoader;
 import org.datatransferproject.launcher.monitor.MultiplexMonitor;
 
 import java.io.IOException;
@@ -22,12 +23,16 @@ public class StackdriverMonitorExtension implements MonitorExtension {
   @Override
   public Monitor getMonitor() {
     checkState(logging != null, "logging must be initialized first");
+    StackdriverMonitor stackdriverMonitor =
+        new StackdriverMonitor(this.logging, GoogleCloudUtils.getProjectId());
     // Include the console monitor for extra debugging.
-    //return new ConsoleMonitor(ConsoleMonitor.Level.DEBUG);
-    return new MultiplexMonitor(new StackdriverMonitor(
-        this.logging,
-        GoogleCloudUtils.getProjectId()),
-        new ConsoleMonitor(ConsoleMonitor.Level.INFO));
+    if (MonitorLoader.isAsync()) {
+      return new MultiplexMonitor(
+          MonitorLoader.createAsyncMonitor(stackdriverMonitor, ConsoleMonitor.Level.DEBUG),
+          MonitorLoader.createConsoleMonitor(ConsoleMonitor.Level.INFO));
+    }
+    return new MultiplexMonitor(
+        stackdriverMonitor, new ConsoleMonitor(ConsoleMonitor.Level.INFO));
   }
 
   @Override
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.cloud.google;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.datastore.Blob;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TimeZone;
+import org.junit.jupiter.api.Test;
+
+public class CompactDatastoreValueCodecTest {
+  private final CompactDatastoreValueCodec codec =
+      new CompactDatastoreValueCodec(new ObjectMapper(), false);
+
+  @Test
+  public void decodesEncodedValues() throws IOException {
+    TimeZone timeZone = TimeZone.getTimeZone("Europe/Rome");
+
+    assertThat(codec.decode(codec.encode(timeZone))).isEqualTo(timeZone);
+    assertThat(codec.decode(codec.encode(Locale.CANADA_FRENCH))).isEqualTo(Locale.CANADA_FRENCH);
+    assertThat(codec.decode(codec.encode(42L))).isEqualTo(42L);
+    JsonResult jsonResult = (JsonResult) codec.decode(codec.encode(new JsonResult("id1", 97L)));
+    assertThat(jsonResult.id).isEqualTo("id1");
+    assertThat(jsonResult.bytes).isEqualTo(97L);
+    SerializableResult serializableResult =
+        (SerializableResult) codec.decode(codec.encode(new SerializableResult("id2")));
+    assertThat(serializableResult.id).isEqualTo("id2");
+  }
+
+  @Test
+  public void decodesJavaSerializedValues() throws IOException {
+    TimeZone timeZone = TimeZone.getTimeZone("Europe/Rome");
+
+    assertThat(codec.decode(Blob.copyFrom(javaSerialize(timeZone)))).isEqualTo(timeZone);
+    assertThat(codec.decode(new CompactDatastoreValueCodec(new ObjectMapper(), true).encode(42L)))
+        .isEqualTo(42L);
+  }
+
+  @Test
+  public void encodesSmallerThanJavaSerialization() throws IOException {
+    TimeZone timeZone = TimeZone.getTimeZone("Europe/Rome");
+    JsonResult jsonResult = new JsonResult("id1", 97L);
+
+    assertThat(codec.encode(timeZone).length()).isLessThan(javaSerialize(timeZone).length);
+    assertThat(codec.encode(jsonResult).length()).isLessThan(javaSerialize(jsonResult).length);
+  }
+
+  @Test
+  public void javaSerializesValuesJacksonDoesNotReadBackEqual() throws IOException {
+    LossyResult lossyResult = new LossyResult("id3", "kept");
+
+    assertThat(codec.decode(codec.encode(lossyResult))).isEqualTo(lossyResult);
+  }
+
+  private static byte[] javaSerialize(Object value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(value);
+    }
+    return bytes.toByteArray();
+  }
+
+  static class JsonResult implements Serializable {
+    @JsonProperty("id")
+    final String id;
+
+    @JsonProperty("bytes")
+    final long bytes;
+
+    @JsonCreator
+    JsonResult(@JsonProperty("id") String id, @JsonProperty("bytes") long bytes) {
+      this.id = id;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof JsonResult)) {
+        return false;
+      }
+      JsonResult that = (JsonResult) o;
+      return id.equals(that.id) && bytes == that.bytes;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, bytes);
+    }
+  }
+
+  /** Jackson drops its note, so it's Java serialized. */
+  static class LossyResult implements Serializable {
+    @JsonProperty("id")
+    final String id;
+
+    @JsonIgnore final String note;
+
+    @JsonCreator
+    LossyResult(@JsonProperty("id") String id) {
+      this(id, null);
+    }
+
+    LossyResult(String id, String note) {
+      this.id = id;
+      this.note = note;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof LossyResult)) {
+        return false;
+      }
+      LossyResult that = (LossyResult) o;
+      return id.equals(that.id) && Objects.equals(note, that.note);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, note);
+    }
+  }
+
+  /** Jackson can't create it, so it's Java serialized. */
+  static class SerializableResult implements Serializable {
+    private final String id;
+
+    SerializableResult(String id) {
+      this.id = id;
+    }
+  }
+}
@@ -2,11 +2,13 @@ package org.datatransferproject.cloud.google;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.google.cloud.datastore.Datastore;
 import com.google.cloud.datastore.Transaction;
 import com.google.cloud.datastore.testing.LocalDatastoreHelper;
+import com.google.common.collect.ImmutableList;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,7 +16,9 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 
 
 
@@ -80,6 +84,118 @@ public class GoogleCloudIdempotentImportExecutorTest {
     assertEquals(googleExecutor.getErrors().size(), 0);
   }
 
+  @Test
+  public void writeBehindCommitsBufferedResultsOnFlush() throws Exception {
+    GoogleCloudIdempotentImportExecutor writeBehindExecutor =
+        new GoogleCloudIdempotentImportExecutor(datastore, monitor, 10, Duration.ofMinutes(1), 0);
+    writeBehindExecutor.setJobId(JOB_ID);
+    writeBehindExecutor.executeAndSwallowIOExceptions("id1", ITEM_NAME, () -> "idempotentId1");
+    assertTrue(writeBehindExecutor.isKeyCached("id1"));
+
+    googleExecutor.setJobId(JOB_ID);
+    assertFalse(googleExecutor.isKeyCached("id1"));
+
+    writeBehindExecutor.flush();
+    googleExecutor.setJobId(JOB_ID);
+    assertEquals(googleExecutor.getCachedValue("id1"), "idempotentId1");
+  }
+
+  @Test
+  public void writeBehindCommitsOnceBatchIsFull() throws Exception {
+    GoogleCloudIdempotentImportExecutor writeBehindExecutor =
+        new GoogleCloudIdempotentImportExecutor(datastore, monitor, 2, Duration.ofMinutes(1), 0);
+    writeBehindExecutor.setJobId(JOB_ID);
+    writeBehindExecutor.executeAndSwallowIOExceptions("id1", ITEM_NAME, () -> "idempotentId1");
+    writeBehindExecutor.executeAndSwallowIOExceptions("id2", ITEM_NAME, () -> "idempotentId2");
+
+    googleExecutor.setJobId(JOB_ID);
+    assertEquals(googleExecutor.getCachedValue("id1"), "idempotentId1");
+    assertEquals(googleExecutor.getCachedValue("id2"), "idempotentId2");
+  }
+
+  @Test
+  public void writeBehindCommitsAfterMaxDelay() throws Exception {
+    GoogleCloudIdempotentImportExecutor writeBehindExecutor =
+        new GoogleCloudIdempotentImportExecutor(datastore, monitor, 10, Duration.ofMillis(50), 0);
+    writeBehindExecutor.setJobId(JOB_ID);
+    writeBehindExecutor.executeAndSwallowIOExceptions("id1", ITEM_NAME, () -> "idempotentId1");
+
+    // No other write follows, so the result is committed in the background
+    long deadline = System.currentTimeMillis() + 10_000;
+    do {
+      Thread.sleep(50);
+      googleExecutor.setJobId(JOB_ID);
+    } while (!googleExecutor.isKeyCached("id1") && System.currentTimeMillis() < deadline);
+    assertEquals(googleExecutor.getCachedValue("id1"), "idempotentId1");
+  }
+
+  @Test
+  public void lazyLookupFindsResultsOnDemand() throws Exception {
+    initializeDS();
+    GoogleCloudIdempotentImportExecutor lazyExecutor =
+        new GoogleCloudIdempotentImportExecutor(datastore, monitor, 0, Duration.ZERO, 2);
+    lazyExecutor.setJobId(JOB_ID);
+
+    assertEquals(lazyExecutor.getCachedValue("id1"), "idempotentId1");
+    assertEquals(lazyExecutor.getCachedValue("id2"), "idempotentId2");
+    assertEquals(lazyExecutor.getCachedValue("id3"), "idempotentId3");
+    // id1 was evicted from the cache, so it is looked up again
+    assertTrue(lazyExecutor.isKeyCached("id1"));
+    assertFalse(lazyExecutor.isKeyCached("id1_job2"));
+    assertFalse(lazyExecutor.isKeyCached("id5"));
+    assertEquals(lazyExecutor.getErrors().size(), 1);
+  }
+
+  @Test
+  public void lazyLookupPrefetchesResults() throws Exception {
+    initializeDS();
+    GoogleCloudIdempotentImportExecutor lazyExecutor =
+        new GoogleCloudIdempotentImportExecutor(datastore, monitor, 0, Duration.ZERO, 10);
+    lazyExecutor.setJobId(JOB_ID);
+    lazyExecutor.prefetchKeys(ImmutableList.of("id1", "id2", "id5"));
+
+    assertEquals(lazyExecutor.getCachedValue("id1"), "idempotentId1");
+    assertEquals(lazyExecutor.getCachedValue("id2"), "idempotentId2");
+    assertFalse(lazyExecutor.isKeyCached("id5"));
+  }
+
+  @Test
+  public void nullResultsAreNotRecomputed() throws Exception {
+    GoogleCloudIdempotentImportExecutor lazyExecutor =
+        new GoogleCloudIdempotentImportExecutor(datastore, monitor, 10, Duration.ofMinutes(1), 1);
+    lazyExecutor.setJobId(JOB_ID);
+    int[] calls = {0};
+    Callable<String> importItem =
+        () -> {
+          calls[0]++;
+          return null;
+        };
+
+    lazyExecutor.executeOrThrowException("id1", ITEM_NAME, importItem);
+    // Evicts id1 from the cache, so it is looked up in Datastore
+    lazyExecutor.executeOrThrowException("id2", ITEM_NAME, () -> "idempotentId2");
+    assertNull(lazyExecutor.executeOrThrowException("id1", ITEM_NAME, importItem));
+
+    assertEquals(calls[0], 1);
+    assertTrue(lazyExecutor.isKeyCached("id1"));
+    assertNull(lazyExecutor.getCachedValue("id1"));
+    assertTrue(lazyExecutor.getErrors().isEmpty());
+  }
+
+  @Test
+  public void lazyLookupOnlyFlushesBufferedResults() throws Exception {
+    initializeDS();
+    GoogleCloudIdempotentImportExecutor lazyExecutor =
+        new GoogleCloudIdempotentImportExecutor(datastore, monitor, 10, Duration.ofMinutes(1), 1);
+    lazyExecutor.setJobId(JOB_ID);
+    lazyExecutor.executeAndSwallowIOExceptions("id5", ITEM_NAME, () -> "idempotentId5");
+
+    assertEquals(lazyExecutor.getCachedValue("id1"), "idempotentId1");
+
+    googleExecutor.setJobId(JOB_ID);
+    assertFalse(googleExecutor.isKeyCached("id5"));
+  }
+
   private void initializeDS() throws IOException {
     Transaction t = datastore.newTransaction();
     t.put(googleExecutor.createResultEntity("id1", JOB_ID, "idempotentId1"));
@@ -15,6 +15,7 @@
  */
 package org.datatransferproject.cloud.local;
 
+import java.nio.file.Paths;
 import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.cloud.extension.CloudExtension;
@@ -24,11 +25,15 @@ import org.datatransferproject.spi.cloud.storage.JobStore;
 /** */
 public class LocalCloudExtension implements CloudExtension {
 
+  private static final String TEMP_FILE_ROOT_SETTING = "localTempFileRoot";
+  private static final String TEMP_MEMORY_MAPPED_READS_SETTING = "localTempMemoryMappedReads";
+
   private Monitor monitor;
+  private LocalTempFileStore localTempFileStore;
 
   @Override
   public JobStore getJobStore() {
-    return new LocalJobStore(monitor);
+    return new LocalJobStore(monitor, localTempFileStore);
   }
 
   @Override
@@ -40,5 +45,11 @@ public class LocalCloudExtension implements CloudExtension {
   @Override
   public void initialize(ExtensionContext context) {
     monitor = context.getMonitor();
+    String tempFileRoot = context.getSetting(TEMP_FILE_ROOT_SETTING, null);
+    boolean memoryMappedReads = context.getSetting(TEMP_MEMORY_MAPPED_READS_SETTING, false);
+    localTempFileStore =
+        new LocalTempFileStore(
+            tempFileRoot == null ? LocalTempFileStore.DEFAULT_ROOT : Paths.get(tempFileRoot),
+            memoryMappedReads);
   }
 }
@@ -22,32 +22,60 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Stack;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.storage.JobStoreWithValidator;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.JobAuthorization.State;
+import org.datatransferproject.spi.cloud.types.JobStackDelta;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.models.DataModel;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 
-/** An in-memory {@link JobStore} implementation that uses a concurrent map as its store. */
+/**
+ * An in-memory {@link JobStore} implementation that uses a concurrent map as its store.
+ *
+ * <p>Jobs are kept as immutable {@link PortabilityJob}s. To find the first job in a state workers
+ * poll for without scanning all jobs, the IDs of jobs are also queued whenever a job enters such a
+ * state, and dropped when it leaves it. Jobs stay in the other states, e.g. {@code TIMED_OUT}, for
+ * good, so those are looked up by scanning the jobs instead.
+ *
+ * <p>The queue of {@code CREDS_AVAILABLE} jobs also hands jobs out to workers: leased jobs are
+ * skipped until their lease ends, and workers waiting for a job are woken up as soon as one
+ * becomes available.
+ */
 public final class LocalJobStore extends JobStoreWithValidator {
-  private static ConcurrentHashMap<UUID, Map<String, Object>> JOB_MAP = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<UUID, PortabilityJob> JOB_MAP = new ConcurrentHashMap<>();
+  private static final Set<State> POLLED_STATES = EnumSet.of(State.CREDS_AVAILABLE);
+  private static final Map<State, Queue<UUID>> JOBS_BY_STATE = createJobsByState();
+  // Lease expiry System.nanoTime()s by job ID, only changed while holding the available job queue
+  private static final Map<UUID, Long> JOB_LEASES = new ConcurrentHashMap<>();
   private static ConcurrentHashMap<String, Map<Class<? extends DataModel>, DataModel>> DATA_MAP =
       new ConcurrentHashMap<>();
-  private static LocalTempFileStore localTempFileStore = new LocalTempFileStore();
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
   private final Monitor monitor;
+  private final LocalTempFileStore localTempFileStore;
   private final ConcurrentHashMap<UUID, ConcurrentHashMap<String, Integer>> counts;
   private final ConcurrentHashMap<UUID, LongAdder> bytesMap = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<UUID, Stack<ExportInformation>> jobStacks =
+      new ConcurrentHashMap<>();
 
   /** Ctor for testing with a null monitor. */
   public LocalJobStore() {
@@ -55,7 +83,12 @@ public final class LocalJobStore extends JobStoreWithValidator {
   }
 
   public LocalJobStore(Monitor monitor) {
+    this(monitor, new LocalTempFileStore());
+  }
+
+  public LocalJobStore(Monitor monitor, LocalTempFileStore localTempFileStore) {
     this.monitor = monitor;
+    this.localTempFileStore = localTempFileStore;
     counts = new ConcurrentHashMap<>();
   }
 
@@ -71,10 +104,10 @@ public final class LocalJobStore extends JobStoreWithValidator {
   public void createJob(UUID jobId, PortabilityJob job) throws IOException {
     Preconditions.checkNotNull(jobId);
     monitor.debug(() -> format("Creating job %s in local storage", jobId));
-    if (JOB_MAP.get(jobId) != null) {
+    if (JOB_MAP.putIfAbsent(jobId, job) != null) {
       throw new IOException("An entry already exists for jobId: " + jobId);
     }
-    JOB_MAP.put(jobId, job.toMap());
+    enqueue(jobId, job.jobAuthorization().state());
   }
 
   /**
@@ -102,15 +135,24 @@ public final class LocalJobStore extends JobStoreWithValidator {
   protected synchronized void updateJob(
       UUID jobId, PortabilityJob job, JobUpdateValidator validator) throws IOException {
     Preconditions.checkNotNull(jobId);
+    PortabilityJob previousJob = JOB_MAP.get(jobId);
+    if (previousJob == null) {
+      throw new IOException("jobId: " + jobId + " didn't exist in the map");
+    }
     try {
-      Map<String, Object> previousEntry = JOB_MAP.replace(jobId, job.toMap());
-      if (previousEntry == null) {
-        throw new IOException("jobId: " + jobId + " didn't exist in the map");
-      }
       if (validator != null) {
-        PortabilityJob previousJob = PortabilityJob.fromMap(previousEntry);
+        // Validate before replacing, so a rejected update doesn't change the job
         validator.validate(previousJob, job);
       }
+      State state = job.jobAuthorization().state();
+      JOB_MAP.put(jobId, job);
+      if (state != previousJob.jobAuthorization().state()) {
+        dequeue(jobId, previousJob.jobAuthorization().state());
+        enqueue(jobId, state);
+        if (previousJob.jobAuthorization().state() == State.CREDS_AVAILABLE) {
+          releaseJobLease(jobId);
+        }
+      }
     } catch (NullPointerException | IllegalStateException e) {
       throw new IOException("Couldn't update jobId: " + jobId, e);
     }
@@ -135,10 +177,26 @@ public final class LocalJobStore extends JobStoreWithValidator {
   @Override
   public void remove(UUID jobId) throws IOException {
     monitor.debug(() -> format("Remove job %s from local storage", jobId));
-    Map<String, Object> previous = JOB_MAP.remove(jobId);
+    PortabilityJob previous = JOB_MAP.remove(jobId);
     if (previous == null) {
       throw new IOException("jobId: " + jobId + " didn't exist in the map");
     }
+    dequeue(jobId, previous.jobAuthorization().state());
+    releaseJobLease(jobId);
+    removeJobData(jobId);
+  }
+
+  /**
+   * Marks the job as finished, and deletes the data stored for it, which isn't needed anymore. The
+   * data is also deleted when the job can't be marked, e.g. as it was canceled meanwhile.
+   */
+  @Override
+  public void markJobAsFinished(UUID jobId, PortabilityJob.State state) throws IOException {
+    try {
+      super.markJobAsFinished(jobId, state);
+    } finally {
+      removeJobData(jobId);
+    }
   }
 
   /**
@@ -148,10 +206,7 @@ public final class LocalJobStore extends JobStoreWithValidator {
    */
   @Override
   public PortabilityJob findJob(UUID jobId) {
-    if (!JOB_MAP.containsKey(jobId)) {
-      return null;
-    }
-    return PortabilityJob.fromMap(JOB_MAP.get(jobId));
+    return JOB_MAP.get(jobId);
   }
 
   /**
@@ -159,24 +214,109 @@ public final class LocalJobStore extends JobStoreWithValidator {
    * if none found.
    */
   @Override
-  public synchronized UUID findFirst(JobAuthorization.State jobState) {
-    // Mimic an index lookup
-    for (Entry<UUID, Map<String, Object>> job : JOB_MAP.entrySet()) {
-      Map<String, Object> properties = job.getValue();
-      State state = State.valueOf(properties.get(PortabilityJob.AUTHORIZATION_STATE).toString());
-      UUID jobKey = job.getKey();
-      monitor.debug(
-          () ->
-              format(
-                  "Looking up first job in state %s: found job %s (state %s)",
-                  jobState, jobKey, state));
-      if (state == jobState) {
-        return jobKey;
+  public UUID findFirst(JobAuthorization.State jobState) {
+    Queue<UUID> jobIds = JOBS_BY_STATE.get(jobState);
+    if (jobIds == null) {
+      return JOB_MAP.entrySet().stream()
+          .filter(entry -> entry.getValue().jobAuthorization().state() == jobState)
+          .map(Map.Entry::getKey)
+          .findFirst()
+          .orElse(null);
+    }
+    // Jobs are queued without locking, only dropping entries has to happen one at a time
+    synchronized (jobIds) {
+      UUID jobId;
+      while ((jobId = jobIds.peek()) != null) {
+        PortabilityJob job = JOB_MAP.get(jobId);
+        if (job != null && job.jobAuthorization().state() == jobState) {
+          return jobId;
+        }
+        // The job left the state, or was removed, since it was queued
+        jobIds.poll();
       }
     }
     return null;
   }
 
+  @Override
+  public UUID leaseAvailableJob(Duration leaseDuration, Duration timeout)
+      throws InterruptedException {
+    Queue<UUID> jobIds = JOBS_BY_STATE.get(State.CREDS_AVAILABLE);
+    long deadline = System.nanoTime() + timeout.toNanos();
+    synchronized (jobIds) {
+      while (true) {
+        long now = System.nanoTime();
+        // Wake up when the first lease expires at the latest, its job is available again then
+        long wakeUp = deadline;
+        Iterator<UUID> iterator = jobIds.iterator();
+        boolean atHead = true;
+        while (iterator.hasNext()) {
+          UUID jobId = iterator.next();
+          PortabilityJob job = JOB_MAP.get(jobId);
+          if (job == null || job.jobAuthorization().state() != State.CREDS_AVAILABLE) {
+            if (atHead) {
+              // The job left the state, or was removed, since it was queued
+              iterator.remove();
+            }
+            continue;
+          }
+          atHead = false;
+          Long leaseExpiry = JOB_LEASES.get(jobId);
+          if (leaseExpiry == null || leaseExpiry - now <= 0) {
+            JOB_LEASES.put(jobId, now + leaseDuration.toNanos());
+            return jobId;
+          }
+          if (leaseExpiry - wakeUp < 0) {
+            wakeUp = leaseExpiry;
+          }
+        }
+        if (deadline - now <= 0) {
+          return null;
+        }
+        TimeUnit.NANOSECONDS.timedWait(jobIds, wakeUp - now);
+      }
+    }
+  }
+
+  @Override
+  public void releaseJobLease(UUID jobId) {
+    Queue<UUID> jobIds = JOBS_BY_STATE.get(State.CREDS_AVAILABLE);
+    synchronized (jobIds) {
+      if (JOB_LEASES.remove(jobId) != null) {
+        jobIds.notifyAll();
+      }
+    }
+  }
+
+  private static void enqueue(UUID jobId, State state) {
+    Queue<UUID> jobIds = JOBS_BY_STATE.get(state);
+    if (jobIds == null) {
+      return;
+    }
+    jobIds.add(jobId);
+    if (state == State.CREDS_AVAILABLE) {
+      // Waiting workers check the queue while holding its lock, so they can't miss the job
+      synchronized (jobIds) {
+        jobIds.notifyAll();
+      }
+    }
+  }
+
+  private static void dequeue(UUID jobId, State state) {
+    Queue<UUID> jobIds = JOBS_BY_STATE.get(state);
+    if (jobIds != null) {
+      jobIds.remove(jobId);
+    }
+  }
+
+  private static Map<State, Queue<UUID>> createJobsByState() {
+    Map<State, Queue<UUID>> jobsByState = new EnumMap<>(State.class);
+    for (State state : POLLED_STATES) {
+      jobsByState.put(state, new ConcurrentLinkedQueue<>());
+    }
+    return jobsByState;
+  }
+
   @Override
   public void addCounts(UUID jobId, Map<String, Integer> newCounts) {
     if (newCounts == null) {
@@ -192,7 +332,8 @@ public final class LocalJobStore extends JobStoreWithValidator {
 
   @Override
   public Map<String, Integer> getCounts(UUID jobId) {
-    return counts.computeIfAbsent(jobId, k -> new ConcurrentHashMap<>());
+    // Reading doesn't add an entry, which would outlive the job
+    return counts.getOrDefault(jobId, new ConcurrentHashMap<>());
   }
 
   @Override
@@ -209,6 +350,33 @@ public final class LocalJobStore extends JobStoreWithValidator {
     return bytesMap.getOrDefault(jobId, new LongAdder()).longValue();
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public Optional<Stack<ExportInformation>> loadJobStack(UUID jobId) {
+    Stack<ExportInformation> stack = jobStacks.get(jobId);
+    if (stack == null) {
+      return Optional.empty();
+    }
+    synchronized (stack) {
+      return Optional.of((Stack<ExportInformation>) stack.clone());
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void storeJobStack(UUID jobId, Stack<ExportInformation> stack) {
+    jobStacks.put(jobId, (Stack<ExportInformation>) stack.clone());
+  }
+
+  /** Applies {@code delta} to the stored stack in place rather than copying the whole stack. */
+  @Override
+  public void appendJobStackDelta(UUID jobId, JobStackDelta delta) {
+    Stack<ExportInformation> stack = jobStacks.computeIfAbsent(jobId, k -> new Stack<>());
+    synchronized (stack) {
+      delta.applyTo(stack);
+    }
+  }
+
   @Override
   public <T extends DataModel> void create(UUID jobId, String key, T model) {
     if (!DATA_MAP.containsKey(createFullKey(jobId, key))) {
@@ -236,23 +404,41 @@ public final class LocalJobStore extends JobStoreWithValidator {
     return (T) DATA_MAP.get(createFullKey(jobId, key)).get(type);
   }
 
+  @Override
+  public void removeData(UUID jobId, String key) {
+    DATA_MAP.remove(createFullKey(jobId, key));
+    try {
+      localTempFileStore.remove(jobId, key);
+    } catch (IOException e) {
+      monitor.info(() -> format("Unable to remove data %s of job %s", key, jobId), e);
+    }
+  }
+
   @Override
   public void create(UUID jobId, String key, InputStream stream) throws IOException {
-    localTempFileStore.writeInputStream(makeFileName(jobId, key), stream);
+    localTempFileStore.writeInputStream(jobId, key, stream);
   }
 
   @Override
   public InputStreamWrapper getStream(UUID jobId, String key) throws IOException {
-    return localTempFileStore.getInputStream(makeFileName(jobId, key));
+    return localTempFileStore.getInputStream(jobId, key);
+  }
+
+  private void removeJobData(UUID jobId) {
+    String keyPrefix = jobId + "-";
+    DATA_MAP.keySet().removeIf(fullKey -> fullKey.startsWith(keyPrefix));
+    jobStacks.remove(jobId);
+    counts.remove(jobId);
+    bytesMap.remove(jobId);
+    try {
+      localTempFileStore.removeJob(jobId);
+    } catch (IOException e) {
+      monitor.info(() -> format("Unable to remove the temporary files of job %s", jobId), e);
+    }
   }
 
   private static String createFullKey(UUID jobId, String key) {
     Preconditions.checkArgument(!Strings.isNullOrEmpty(key));
     return format("%s-%s", jobId.toString(), key);
   }
-
-  private static String makeFileName(UUID jobId, String inputName) {
-    String replace = inputName.replace("/", "_");
-    return createFullKey(jobId, replace);
-  }
 }
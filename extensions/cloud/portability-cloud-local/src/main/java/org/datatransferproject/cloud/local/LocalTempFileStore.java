@@ -16,32 +16,159 @@
 
 package org.datatransferproject.cloud.local;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 
+/**
+ * Stores the temporary files of jobs on the local disk, in a directory per job under a root
+ * directory, so that all files of a job can be deleted at once when it's done.
+ */
 public class LocalTempFileStore {
+  static final Path DEFAULT_ROOT = Paths.get(System.getProperty("java.io.tmpdir"), "dtp");
+  private static final int COPY_BUFFER_BYTES = 256 * 1024;
+
+  private final Path root;
+  private final boolean memoryMappedReads;
+
+  /** Creates a store under the {@code dtp} directory of the system temp directory. */
+  public LocalTempFileStore() {
+    this(DEFAULT_ROOT, false);
+  }
 
-  private String TEMP_DIR = "/tmp/";
+  /**
+   * Creates a store under {@code root}. With {@code memoryMappedReads}, files are read through a
+   * memory mapping rather than file reads, which saves copies for files read from start to end.
+   */
+  public LocalTempFileStore(Path root, boolean memoryMappedReads) {
+    this.root = root;
+    this.memoryMappedReads = memoryMappedReads;
+  }
+
+  void writeInputStream(UUID jobId, String key, InputStream inputStream) throws IOException {
+    Path jobDirectory = Files.createDirectories(getJobDirectory(jobId));
+    Path file = jobDirectory.resolve(makeFileName(key));
+    // Readers see either the previous file or the complete new one, never a partial write
+    Path partialFile = Files.createTempFile(jobDirectory, file.getFileName().toString(), ".part");
+    try {
+      try (OutputStream outputStream = Files.newOutputStream(partialFile)) {
+        byte[] buffer = new byte[COPY_BUFFER_BYTES];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+          outputStream.write(buffer, 0, bytesRead);
+        }
+      }
+      Files.move(partialFile, file, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(partialFile);
+    }
+  }
 
-  void writeInputStream(String filename, InputStream inputStream) throws IOException {
-    File file = new File(TEMP_DIR + filename);
-    file.createNewFile();
-    try (OutputStream outputStream = new FileOutputStream(file)) {
-      byte[] buffer = new byte[1024];
-      int bytesRead;
-      while ((bytesRead = inputStream.read(buffer)) != -1) {
-        outputStream.write(buffer, 0, bytesRead);
+  InputStreamWrapper getInputStream(UUID jobId, String key) throws IOException {
+    Path file = getJobDirectory(jobId).resolve(makeFileName(key));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (memoryMappedReads && size > 0 && size <= Integer.MAX_VALUE) {
+        // The mapping stays valid after the channel is closed
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        return new InputStreamWrapper(new ByteBufferInputStream(buffer), size);
       }
+    } catch (NoSuchFileException e) {
+      // Importers tell missing items apart by the exception FileInputStream used to throw
+      FileNotFoundException notFound = new FileNotFoundException(file.toString());
+      notFound.initCause(e);
+      throw notFound;
+    }
+    return new InputStreamWrapper(Files.newInputStream(file), Files.size(file));
+  }
+
+  void remove(UUID jobId, String key) throws IOException {
+    Files.deleteIfExists(getJobDirectory(jobId).resolve(makeFileName(key)));
+  }
+
+  /** Deletes all files of a job. */
+  void removeJob(UUID jobId) throws IOException {
+    Path jobDirectory = getJobDirectory(jobId);
+    if (!Files.exists(jobDirectory)) {
+      return;
+    }
+    // Files before the directory holding them
+    try (Stream<Path> paths = Files.walk(jobDirectory).sorted(Comparator.reverseOrder())) {
+      paths.forEach(
+          path -> {
+            try {
+              Files.deleteIfExists(path);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
     }
   }
 
-  InputStreamWrapper getInputStream(String filename) throws IOException {
-    File file = new File(TEMP_DIR + filename);
-    return new InputStreamWrapper(new FileInputStream(file), file.length());
+  private Path getJobDirectory(UUID jobId) {
+    return root.resolve(jobId.toString());
+  }
+
+  private static String makeFileName(String key) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(key));
+    return key.replace("/", "_");
+  }
+
+  /** Reads a buffer, used for memory-mapped files. */
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public long skip(long n) {
+      int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
   }
 }
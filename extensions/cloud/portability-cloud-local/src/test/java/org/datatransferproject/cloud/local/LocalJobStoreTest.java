@@ -16,12 +16,24 @@
 
 package org.datatransferproject.cloud.local;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.Map;
 import java.util.UUID;
+import org.datatransferproject.spi.cloud.types.JobAuthorization;
+import org.datatransferproject.spi.cloud.types.JobAuthorization.State;
+import org.datatransferproject.spi.cloud.types.JobStackDelta;
+import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.datatransferproject.types.common.models.DataVertical;
+import org.datatransferproject.types.common.ExportInformation;
+import org.datatransferproject.types.common.models.IdOnlyContainerResource;
 import org.junit.jupiter.api.Test;
 
 public class LocalJobStoreTest {
@@ -54,6 +66,234 @@ public class LocalJobStoreTest {
     Truth.assertThat(counts.get(ITEM_NAME)).isEqualTo(2);
   }
 
+  @Test
+  public void loadJobStackReplaysAppendedDeltas() {
+    ExportInformation album1 = new ExportInformation(null, new IdOnlyContainerResource("album1"));
+    ExportInformation album2 = new ExportInformation(null, new IdOnlyContainerResource("album2"));
+
+    localJobStore.appendJobStackDelta(
+        jobId, JobStackDelta.create(null, ImmutableList.of(album2, album1)));
+    localJobStore.appendJobStackDelta(jobId, JobStackDelta.create(album2, ImmutableList.of()));
+
+    Truth.assertThat(localJobStore.loadJobStack(jobId).get()).containsExactly(album1);
+
+    localJobStore.appendJobStackDelta(jobId, JobStackDelta.create(album1, ImmutableList.of()));
+
+    Truth.assertThat(localJobStore.loadJobStack(jobId).get()).isEmpty();
+  }
+
+  @Test
+  public void removeDropsTheCountsAndStackOfTheJob() throws IOException {
+    localJobStore.createJob(jobId, createJob());
+    addItemToJobStoreCounts(ITEM_NAME);
+    localJobStore.addBytes(jobId, 32L);
+    localJobStore.appendJobStackDelta(
+        jobId,
+        JobStackDelta.create(
+            null,
+            ImmutableList.of(
+                new ExportInformation(null, new IdOnlyContainerResource("album1")))));
+
+    localJobStore.remove(jobId);
+
+    Truth.assertThat(localJobStore.getCounts(jobId)).isEmpty();
+    Truth.assertThat(localJobStore.getBytes(jobId)).isEqualTo(0L);
+    Truth.assertThat(localJobStore.loadJobStack(jobId).isPresent()).isFalse();
+  }
+
+  @Test
+  public void findFirstReturnsJobsInTheOrderTheyEnteredTheState() throws IOException {
+    UUID firstJobId = UUID.randomUUID();
+    UUID secondJobId = UUID.randomUUID();
+    localJobStore.createJob(firstJobId, createJob());
+    localJobStore.createJob(secondJobId, createJob());
+
+    localJobStore.updateJobAuthStateToCredsAvailable(secondJobId);
+    localJobStore.updateJobAuthStateToCredsAvailable(firstJobId);
+    Truth.assertThat(localJobStore.findFirst(State.CREDS_AVAILABLE)).isEqualTo(secondJobId);
+
+    PortabilityJob secondJob = localJobStore.findJob(secondJobId);
+    localJobStore.claimJob(
+        secondJobId,
+        secondJob.toBuilder()
+            .setAndValidateJobAuthorization(
+                secondJob.jobAuthorization().toBuilder()
+                    .setState(State.CREDS_ENCRYPTION_KEY_GENERATED)
+                    .setAuthPublicKey("publicKey")
+                    .build())
+            .build());
+    Truth.assertThat(localJobStore.findFirst(State.CREDS_AVAILABLE)).isEqualTo(firstJobId);
+
+    localJobStore.remove(firstJobId);
+    localJobStore.remove(secondJobId);
+    Truth.assertThat(localJobStore.findFirst(State.CREDS_AVAILABLE)).isNull();
+  }
+
+  @Test
+  public void findFirstFindsJobsInStatesThatAreNotQueued() throws IOException {
+    UUID jobId = UUID.randomUUID();
+    PortabilityJob job = createJob();
+    localJobStore.createJob(
+        jobId,
+        job.toBuilder()
+            .setAndValidateJobAuthorization(
+                job.jobAuthorization().toBuilder().setState(State.TIMED_OUT).build())
+            .build());
+
+    Truth.assertThat(localJobStore.findFirst(State.TIMED_OUT)).isEqualTo(jobId);
+
+    localJobStore.remove(jobId);
+    Truth.assertThat(localJobStore.findFirst(State.TIMED_OUT)).isNull();
+  }
+
+  @Test
+  public void rejectedUpdateDoesNotChangeTheJob() throws IOException {
+    UUID jobId = UUID.randomUUID();
+    PortabilityJob job = createJob();
+    localJobStore.createJob(jobId, job);
+
+    // Only jobs with available credentials can be claimed
+    assertThrows(IOException.class, () -> localJobStore.claimJob(jobId, job));
+
+    Truth.assertThat(localJobStore.findJob(jobId)).isSameAs(job);
+    localJobStore.remove(jobId);
+  }
+
+  @Test
+  public void leasedJobsAreSkippedUntilReleased() throws Exception {
+    UUID firstJobId = UUID.randomUUID();
+    UUID secondJobId = UUID.randomUUID();
+    localJobStore.createJob(firstJobId, createJob());
+    localJobStore.createJob(secondJobId, createJob());
+    localJobStore.updateJobAuthStateToCredsAvailable(firstJobId);
+    localJobStore.updateJobAuthStateToCredsAvailable(secondJobId);
+    Duration lease = Duration.ofMinutes(1);
+
+    Truth.assertThat(localJobStore.leaseAvailableJob(lease, Duration.ZERO)).isEqualTo(firstJobId);
+    Truth.assertThat(localJobStore.leaseAvailableJob(lease, Duration.ZERO)).isEqualTo(secondJobId);
+    Truth.assertThat(localJobStore.leaseAvailableJob(lease, Duration.ZERO)).isNull();
+
+    localJobStore.releaseJobLease(firstJobId);
+    Truth.assertThat(localJobStore.leaseAvailableJob(lease, Duration.ZERO)).isEqualTo(firstJobId);
+
+    localJobStore.remove(firstJobId);
+    localJobStore.remove(secondJobId);
+  }
+
+  @Test
+  public void leaseAvailableJobWaitsForAJob() throws Exception {
+    UUID jobId = UUID.randomUUID();
+    localJobStore.createJob(jobId, createJob());
+    Thread api =
+        new Thread(
+            () -> {
+              try {
+                localJobStore.updateJobAuthStateToCredsAvailable(jobId);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+
+    api.start();
+    UUID leasedJobId =
+        localJobStore.leaseAvailableJob(Duration.ofMinutes(1), Duration.ofSeconds(30));
+    api.join();
+
+    Truth.assertThat(leasedJobId).isEqualTo(jobId);
+    localJobStore.remove(jobId);
+  }
+
+  @Test
+  public void awaitJobReturnsOnceTheJobIsClaimed() throws Exception {
+    UUID jobId = UUID.randomUUID();
+    localJobStore.createJob(jobId, createJob());
+    localJobStore.updateJobAuthStateToCredsAvailable(jobId);
+    PortabilityJob job = localJobStore.findJob(jobId);
+    Thread claimer =
+        new Thread(
+            () -> {
+              try {
+                localJobStore.claimJob(
+                    jobId,
+                    job.toBuilder()
+                        .setAndValidateJobAuthorization(
+                            job.jobAuthorization().toBuilder()
+                                .setState(State.CREDS_ENCRYPTION_KEY_GENERATED)
+                                .setAuthPublicKey("publicKey")
+                                .build())
+                        .build());
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+
+    claimer.start();
+    // Without the claim reported by the store, this would wait for the next read in an hour
+    PortabilityJob claimedJob =
+        localJobStore.awaitJob(
+            jobId,
+            awaited -> awaited.jobAuthorization().authPublicKey() != null,
+            Duration.ofSeconds(30),
+            Duration.ofHours(1));
+    claimer.join();
+
+    Truth.assertThat(claimedJob.jobAuthorization().authPublicKey()).isEqualTo("publicKey");
+    localJobStore.remove(jobId);
+  }
+
+  @Test
+  public void awaitJobSeesClaimsMadeThroughAnotherStore() throws Exception {
+    // The API and the worker each get their own store from the cloud extension
+    LocalJobStore workerJobStore = new LocalJobStore();
+    UUID jobId = UUID.randomUUID();
+    localJobStore.createJob(jobId, createJob());
+    localJobStore.updateJobAuthStateToCredsAvailable(jobId);
+    PortabilityJob job = localJobStore.findJob(jobId);
+    Thread claimer =
+        new Thread(
+            () -> {
+              try {
+                workerJobStore.claimJob(
+                    jobId,
+                    job.toBuilder()
+                        .setAndValidateJobAuthorization(
+                            job.jobAuthorization().toBuilder()
+                                .setState(State.CREDS_ENCRYPTION_KEY_GENERATED)
+                                .setAuthPublicKey("publicKey")
+                                .build())
+                        .build());
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+
+    claimer.start();
+    PortabilityJob claimedJob =
+        localJobStore.awaitJob(
+            jobId,
+            awaited -> awaited.jobAuthorization().authPublicKey() != null,
+            Duration.ofSeconds(30),
+            Duration.ofHours(1));
+    claimer.join();
+
+    Truth.assertThat(claimedJob.jobAuthorization().authPublicKey()).isEqualTo("publicKey");
+    localJobStore.remove(jobId);
+  }
+
+  private static PortabilityJob createJob() {
+    return PortabilityJob.builder()
+        .setTransferDataType(DataVertical.PHOTOS)
+        .setExportService("DummyExportService")
+        .setImportService("DummyImportService")
+        .setAndValidateJobAuthorization(
+            JobAuthorization.builder()
+                .setEncryptionScheme("cleartext")
+                .setState(State.INITIAL)
+                .setSessionSecretKey("fooBar")
+                .build())
+        .build();
+  }
+
   private void addItemToJobStoreCounts(final String itemName) {
     localJobStore.addCounts(
         jobId, new ImmutableMap.Builder<String, Integer>().put(itemName, 1).build());
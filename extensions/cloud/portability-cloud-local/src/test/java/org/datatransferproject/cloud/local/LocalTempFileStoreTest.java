@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.cloud.local;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LocalTempFileStoreTest {
+  private static final byte[] DATA = {0, 1, 2, 3, 4};
+
+  private final UUID jobId = UUID.randomUUID();
+
+  @TempDir Path root;
+
+  @Test
+  public void readsWrittenData() throws IOException {
+    for (boolean memoryMappedReads : new boolean[] {false, true}) {
+      LocalTempFileStore store = new LocalTempFileStore(root, memoryMappedReads);
+      store.writeInputStream(jobId, "http://example.com/1.jpg", new ByteArrayInputStream(DATA));
+
+      InputStreamWrapper wrapper = store.getInputStream(jobId, "http://example.com/1.jpg");
+      try (InputStream stream = wrapper.getStream()) {
+        assertThat(stream.readAllBytes()).isEqualTo(DATA);
+      }
+      assertThat(wrapper.getBytes()).isEqualTo(5L);
+    }
+  }
+
+  @Test
+  public void removedDataIsNotFound() throws IOException {
+    LocalTempFileStore store = new LocalTempFileStore(root, false);
+    store.writeInputStream(jobId, "key", new ByteArrayInputStream(DATA));
+
+    store.remove(jobId, "key");
+
+    assertThrows(FileNotFoundException.class, () -> store.getInputStream(jobId, "key"));
+  }
+
+  @Test
+  public void removeJobDeletesItsDirectoryOnly() throws IOException {
+    LocalTempFileStore store = new LocalTempFileStore(root, false);
+    UUID otherJobId = UUID.randomUUID();
+    store.writeInputStream(jobId, "key1", new ByteArrayInputStream(DATA));
+    store.writeInputStream(jobId, "key2", new ByteArrayInputStream(DATA));
+    store.writeInputStream(otherJobId, "key1", new ByteArrayInputStream(DATA));
+
+    store.removeJob(jobId);
+
+    assertThat(Files.exists(root.resolve(jobId.toString()))).isFalse();
+    assertThat(store.getInputStream(otherJobId, "key1").getBytes()).isEqualTo(5L);
+  }
+}
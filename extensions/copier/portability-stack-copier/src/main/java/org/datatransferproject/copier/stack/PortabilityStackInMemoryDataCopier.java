@@ -16,23 +16,40 @@
 
 package org.datatransferproject.copier.stack;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Provider;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Stack;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.inject.Inject;
 import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
+import org.datatransferproject.spi.cloud.storage.JobCounterAggregator;
 import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.cloud.types.JobStackDelta;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.Exporter;
 import org.datatransferproject.spi.transfer.provider.Importer;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.spi.transfer.types.CopyException;
+import org.datatransferproject.transfer.JobMetadata;
 import org.datatransferproject.transfer.copier.InMemoryDataCopier;
 import org.datatransferproject.transfer.copier.PortabilityAbstractInMemoryDataCopier;
 import org.datatransferproject.types.common.ExportInformation;
@@ -41,12 +58,29 @@ import org.datatransferproject.types.transfer.auth.AuthData;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
 
-/** Implementation of {@link InMemoryDataCopier}. */
+/**
+ * Implementation of {@link InMemoryDataCopier}.
+ *
+ * <p>How the stack is drained is controlled by {@link StackCopierSettings}:
+ *
+ * <ul>
+ *   <li>When the container concurrency for the job's service pair is greater than 1, up to that
+ *       many stack entries (e.g. sibling albums) are copied at once. An entry stays in the
+ *       checkpointed job stack until its iteration completes, so a resumed job redoes the
+ *       in-flight ones.
+ *   <li>Otherwise, when the export look-ahead is positive, exports run on a separate thread and
+ *       may get up to that many pages ahead of the page currently being imported. Pages are still
+ *       imported in exactly the order the sequential copier would import them, and the job stack
+ *       checkpoint is only advanced past a page once it has been imported.
+ *   <li>Otherwise the stack is drained one page at a time.
+ * </ul>
+ *
+ * <p>The job stack is checkpointed as one {@link JobStackDelta} per copy iteration rather than as
+ * a snapshot of the whole stack, and all per-job state lives in a {@link StackCopierJobState}.
+ */
 public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMemoryDataCopier {
 
-  private static final AtomicInteger COPY_ITERATION_COUNTER = new AtomicInteger();
-
-  private Stack<ExportInformation> exportInfoStack = new Stack<>();
+  private final StackCopierSettings settings;
 
   @Inject
   public PortabilityStackInMemoryDataCopier(
@@ -56,7 +90,56 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
       Monitor monitor,
       IdempotentImportExecutor idempotentImportExecutor,
       DtpInternalMetricRecorder dtpInternalMetricRecorder,
-      JobStore jobStore) {
+      JobStore jobStore,
+      JobCounterAggregator counterAggregator,
+      ConnectionProvider connectionProvider,
+      ExtensionContext context) {
+    this(
+        exporterProvider,
+        importerProvider,
+        retryStrategyLibraryProvider,
+        monitor,
+        idempotentImportExecutor,
+        dtpInternalMetricRecorder,
+        jobStore,
+        counterAggregator,
+        connectionProvider,
+        StackCopierSettings.fromContext(context));
+  }
+
+  public PortabilityStackInMemoryDataCopier(
+      Provider<Exporter> exporterProvider,
+      Provider<Importer> importerProvider,
+      Provider<RetryStrategyLibrary> retryStrategyLibraryProvider,
+      Monitor monitor,
+      IdempotentImportExecutor idempotentImportExecutor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      JobStore jobStore,
+      StackCopierSettings settings) {
+    this(
+        exporterProvider,
+        importerProvider,
+        retryStrategyLibraryProvider,
+        monitor,
+        idempotentImportExecutor,
+        dtpInternalMetricRecorder,
+        jobStore,
+        JobCounterAggregator.writeThrough(jobStore, monitor),
+        new ConnectionProvider(jobStore),
+        settings);
+  }
+
+  public PortabilityStackInMemoryDataCopier(
+      Provider<Exporter> exporterProvider,
+      Provider<Importer> importerProvider,
+      Provider<RetryStrategyLibrary> retryStrategyLibraryProvider,
+      Monitor monitor,
+      IdempotentImportExecutor idempotentImportExecutor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      JobStore jobStore,
+      JobCounterAggregator counterAggregator,
+      ConnectionProvider connectionProvider,
+      StackCopierSettings settings) {
     super(
         exporterProvider,
         importerProvider,
@@ -64,13 +147,15 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
         monitor,
         idempotentImportExecutor,
         dtpInternalMetricRecorder,
-        jobStore);
+        jobStore,
+        counterAggregator,
+        connectionProvider);
+    this.settings = settings;
   }
 
+  /** Copy iterations are counted per job and start over on every call to {@link #copy}. */
   @Override
-  public void resetCopyIterationCounter() {
-    COPY_ITERATION_COUNTER.set(0);
-  }
+  public void resetCopyIterationCounter() {}
 
   /**
    * Transfers data from the given {@code exporter} optionally starting at the point specified in
@@ -90,44 +175,64 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
       Optional<ExportInformation> exportInfo)
       throws CopyException {
     idempotentImportExecutor.setJobId(jobId);
-    String jobIdPrefix = "Job " + jobId + ": ";
 
+    // load stack from partially completed transfer, if any
     Optional<Stack<ExportInformation>> maybeLoadedStack = jobStore.loadJobStack(jobId);
+    List<ExportInformation> loadedStack =
+        maybeLoadedStack.<List<ExportInformation>>map(ArrayList::new).orElse(ImmutableList.of());
+    StackCopierJobState state = new StackCopierJobState(jobId, loadedStack);
 
-    if (maybeLoadedStack.isPresent()) {
-      // load stack from partially completed transfer
-      exportInfoStack = maybeLoadedStack.get();
-    } else {
+    int containerConcurrency =
+        settings.hasContainerConcurrencyOverrides()
+            ? settings.getContainerConcurrency(
+                JobMetadata.getExportService(), JobMetadata.getImportService())
+            : settings.getContainerConcurrency();
+    if (containerConcurrency <= 1 && settings.getExportLookAhead() > 0) {
+      copyPipelined(
+          state, exportAuthData, importAuthData, !maybeLoadedStack.isPresent(), exportInfo);
+      return idempotentImportExecutor.getErrors();
+    }
+
+    if (!maybeLoadedStack.isPresent()) {
       // start new transfer
-      int initialCopyIteration = COPY_ITERATION_COUNTER.incrementAndGet();
+      int initialCopyIteration = state.nextCopyIteration();
       ExportResult<?> initialExportResult =
           copyIteration(
-              jobId, exportAuthData, importAuthData, exportInfo, jobIdPrefix, initialCopyIteration);
+              jobId,
+              exportAuthData,
+              importAuthData,
+              exportInfo,
+              state.getJobIdPrefix(),
+              initialCopyIteration);
       // Import and Export were successful, determine what to do next
       ContainerResource exportContainerResource =
           exportInfo.map(ExportInformation::getContainerResource).orElse(null);
       updateStackAfterCopyIteration(
-          jobId,
-          jobIdPrefix,
+          state,
+          null,
           exportContainerResource,
           initialCopyIteration,
           initialExportResult.getContinuationData());
     }
-    while (!exportInfoStack.isEmpty()) {
-      int copyIteration = COPY_ITERATION_COUNTER.incrementAndGet();
-      ExportInformation currentExportInfo = exportInfoStack.pop();
+    if (containerConcurrency > 1) {
+      copyConcurrently(state, exportAuthData, importAuthData, containerConcurrency);
+      return idempotentImportExecutor.getErrors();
+    }
+    while (state.hasPendingEntries()) {
+      int copyIteration = state.nextCopyIteration();
+      ExportInformation currentExportInfo = state.pop();
       ExportResult<?> exportResult =
           copyIteration(
               jobId,
               exportAuthData,
               importAuthData,
               Optional.of(currentExportInfo),
-              jobIdPrefix,
+              state.getJobIdPrefix(),
               copyIteration);
       // Import and Export were successful, determine what to do next
       updateStackAfterCopyIteration(
-          jobId,
-          jobIdPrefix,
+          state,
+          currentExportInfo,
           currentExportInfo.getContainerResource(),
           copyIteration,
           exportResult.getContinuationData());
@@ -135,12 +240,204 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
     return idempotentImportExecutor.getErrors();
   }
 
+  /**
+   * Runs the copy with exports on a separate thread, buffering at most {@link
+   * StackCopierSettings#getExportLookAhead()} exported pages while the calling thread imports
+   * them in order. {@code state} is owned by the export thread until it finishes.
+   *
+   * @param startNewTransfer whether to export {@code initialExportInfo} first, false when resuming
+   *     from a loaded stack
+   * @param initialExportInfo where a new transfer starts
+   */
+  private void copyPipelined(
+      StackCopierJobState state,
+      AuthData exportAuthData,
+      AuthData importAuthData,
+      boolean startNewTransfer,
+      Optional<ExportInformation> initialExportInfo)
+      throws CopyException {
+    UUID jobId = state.getJobId();
+    BlockingQueue<ExportedPage> exportedPages =
+        new ArrayBlockingQueue<>(settings.getExportLookAhead());
+    ExecutorService exportExecutor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("export-" + jobId).setDaemon(true).build());
+    Future<?> exportFuture =
+        exportExecutor.submit(
+            JobMetadata.withCurrentJob(
+                () -> {
+                  exportPages(
+                      state, exportAuthData, startNewTransfer, initialExportInfo, exportedPages);
+                  return null;
+                }));
+    try {
+      ExportedPage page = exportedPages.take();
+      while (!page.isLast()) {
+        processExportResult(
+            jobId, importAuthData, page.exportResult, state.getJobIdPrefix(), page.copyIteration);
+        jobStore.appendJobStackDelta(jobId, page.jobStackDelta);
+        page = exportedPages.take();
+      }
+      page.rethrowFailure();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CopyException(
+          state.getJobIdPrefix() + "Interrupted while waiting for an export", e);
+    } finally {
+      exportFuture.cancel(true);
+      exportExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Exports pages in the same order as the sequential copier, pushing each page's continuation
+   * data onto the stack as soon as its export completes so the next export can start right away.
+   * Every exported page carries the stack delta the sequential copier would checkpoint once that
+   * page is imported.
+   */
+  private void exportPages(
+      StackCopierJobState state,
+      AuthData exportAuthData,
+      boolean startNewTransfer,
+      Optional<ExportInformation> initialExportInfo,
+      BlockingQueue<ExportedPage> exportedPages)
+      throws InterruptedException {
+    String jobIdPrefix = state.getJobIdPrefix();
+    try {
+      boolean exportInitialInfo = startNewTransfer;
+      while (exportInitialInfo || state.hasPendingEntries()) {
+        Optional<ExportInformation> currentExportInfo;
+        ExportInformation completedEntry;
+        if (exportInitialInfo) {
+          currentExportInfo = initialExportInfo;
+          completedEntry = null;
+          exportInitialInfo = false;
+        } else {
+          completedEntry = state.pop();
+          currentExportInfo = Optional.of(completedEntry);
+        }
+        int copyIteration = state.nextCopyIteration();
+        monitor.debug(() -> jobIdPrefix + "Copy iteration: " + copyIteration);
+        ExportResult<?> exportResult =
+            exportIteration(
+                state.getJobId(), exportAuthData, currentExportInfo, jobIdPrefix, copyIteration);
+        List<ExportInformation> pushedEntries =
+            pushContinuationData(
+                state,
+                currentExportInfo.map(ExportInformation::getContainerResource).orElse(null),
+                copyIteration,
+                exportResult.getContinuationData());
+        exportedPages.put(
+            new ExportedPage(
+                copyIteration, exportResult, JobStackDelta.create(completedEntry, pushedEntries)));
+      }
+      exportedPages.put(ExportedPage.finished(null));
+    } catch (CopyException | RuntimeException e) {
+      exportedPages.put(ExportedPage.finished(e));
+    }
+  }
+
+  /**
+   * Drains the stack with up to {@code concurrency} copy iterations running at once. {@code state}
+   * is only touched by the calling thread: it pops entries to hand to the pool and pushes the
+   * continuation data of each iteration as it completes.
+   */
+  private void copyConcurrently(
+      StackCopierJobState state,
+      AuthData exportAuthData,
+      AuthData importAuthData,
+      int concurrency)
+      throws CopyException {
+    UUID jobId = state.getJobId();
+    String jobIdPrefix = state.getJobIdPrefix();
+    ExecutorService copyExecutor =
+        Executors.newFixedThreadPool(
+            concurrency,
+            new ThreadFactoryBuilder()
+                .setNameFormat("copy-" + jobId + "-%d")
+                .setDaemon(true)
+                .build());
+    CompletionService<ExportResult<?>> completionService =
+        new ExecutorCompletionService<>(copyExecutor);
+    Map<Future<ExportResult<?>>, InFlightIteration> inFlight = new HashMap<>();
+    try {
+      while (state.hasPendingEntries() || !inFlight.isEmpty()) {
+        while (inFlight.size() < concurrency && state.hasPendingEntries()) {
+          ExportInformation currentExportInfo = state.pop();
+          int copyIteration = state.nextCopyIteration();
+          Future<ExportResult<?>> future =
+              completionService.submit(
+                  JobMetadata.withCurrentJob(
+                      () ->
+                          copyIteration(
+                              jobId,
+                              exportAuthData,
+                              importAuthData,
+                              Optional.of(currentExportInfo),
+                              jobIdPrefix,
+                              copyIteration)));
+          inFlight.put(future, new InFlightIteration(currentExportInfo, copyIteration));
+        }
+
+        Future<ExportResult<?>> completed = completionService.take();
+        InFlightIteration iteration = inFlight.remove(completed);
+        ExportResult<?> exportResult = getCompletedIteration(completed, jobIdPrefix);
+        updateStackAfterCopyIteration(
+            state,
+            iteration.exportInfo,
+            iteration.exportInfo.getContainerResource(),
+            iteration.copyIteration,
+            exportResult.getContinuationData());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CopyException(jobIdPrefix + "Interrupted while waiting for a copy iteration", e);
+    } finally {
+      copyExecutor.shutdownNow();
+    }
+  }
+
+  private static ExportResult<?> getCompletedIteration(
+      Future<ExportResult<?>> completed, String jobIdPrefix)
+      throws CopyException, InterruptedException {
+    try {
+      return completed.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CopyException) {
+        throw (CopyException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new CopyException(jobIdPrefix + "Error happened during a copy iteration", cause);
+    }
+  }
+
+  /**
+   * Pushes the continuation data of a completed iteration and checkpoints the change.
+   *
+   * @param completedEntry the stack entry the iteration copied, or null for the first iteration
+   */
   private void updateStackAfterCopyIteration(
-      UUID jobId,
-      String jobIdPrefix,
+      StackCopierJobState state,
+      ExportInformation completedEntry,
       ContainerResource exportContainerResource,
       int copyIteration,
       ContinuationData continuationData) {
+    List<ExportInformation> pushedEntries =
+        pushContinuationData(state, exportContainerResource, copyIteration, continuationData);
+    jobStore.appendJobStackDelta(
+        state.getJobId(), JobStackDelta.create(completedEntry, pushedEntries));
+  }
+
+  /** Pushes the continuation data onto the stack and returns the pushed entries in push order. */
+  private List<ExportInformation> pushContinuationData(
+      StackCopierJobState state,
+      ContainerResource exportContainerResource,
+      int copyIteration,
+      ContinuationData continuationData) {
+    String jobIdPrefix = state.getJobIdPrefix();
+    List<ExportInformation> pushedEntries = new ArrayList<>();
 
     // NOTE: order is important below: we process next page before sub-resources, so we push them
     // on the stack in reverse order.
@@ -156,7 +453,7 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
                   jobIdPrefix
                       + "Pushing to the stack a new copy iteration with a new container resource, copy iteration: "
                       + copyIteration);
-          exportInfoStack.push((new ExportInformation(null, subResources.get(i))));
+          pushedEntries.add(new ExportInformation(null, subResources.get(i)));
         }
       }
 
@@ -167,10 +464,66 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
                 jobIdPrefix
                     + "Pushing to the stack a new copy iteration with pagination info, copy iteration: "
                     + copyIteration);
-        exportInfoStack.push(
+        pushedEntries.add(
             new ExportInformation(continuationData.getPaginationData(), exportContainerResource));
       }
     }
-    jobStore.storeJobStack(jobId, (Stack<ExportInformation>) exportInfoStack.clone());
+    pushedEntries.forEach(state::push);
+    return pushedEntries;
+  }
+
+  /** A stack entry whose copy iteration is running on the pool. */
+  private static final class InFlightIteration {
+    private final ExportInformation exportInfo;
+    private final int copyIteration;
+
+    private InFlightIteration(ExportInformation exportInfo, int copyIteration) {
+      this.exportInfo = exportInfo;
+      this.copyIteration = copyIteration;
+    }
+  }
+
+  /** A page handed from the export thread to the importing thread. */
+  private static final class ExportedPage {
+    private final int copyIteration;
+    private final ExportResult<?> exportResult;
+    private final JobStackDelta jobStackDelta;
+    private final Exception failure;
+    private final boolean last;
+
+    private ExportedPage(
+        int copyIteration, ExportResult<?> exportResult, JobStackDelta jobStackDelta) {
+      this(copyIteration, exportResult, jobStackDelta, null, false);
+    }
+
+    private ExportedPage(
+        int copyIteration,
+        ExportResult<?> exportResult,
+        JobStackDelta jobStackDelta,
+        Exception failure,
+        boolean last) {
+      this.copyIteration = copyIteration;
+      this.exportResult = exportResult;
+      this.jobStackDelta = jobStackDelta;
+      this.failure = failure;
+      this.last = last;
+    }
+
+    /** Marks the end of the export, either because the stack is drained or {@code failure}. */
+    private static ExportedPage finished(Exception failure) {
+      return new ExportedPage(0, null, null, failure, true);
+    }
+
+    private boolean isLast() {
+      return last;
+    }
+
+    private void rethrowFailure() throws CopyException {
+      if (failure instanceof CopyException) {
+        throw (CopyException) failure;
+      } else if (failure != null) {
+        throw (RuntimeException) failure;
+      }
+    }
   }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.copier.stack;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import org.datatransferproject.types.common.ExportInformation;
+
+/**
+ * The state of a single job being copied by {@link PortabilityStackInMemoryDataCopier}. A new
+ * instance is created for every call to copy, so one copier can serve several jobs at once.
+ *
+ * <p>Not thread safe: an instance is confined to one thread at a time, handed over through the
+ * executors the copier uses.
+ */
+final class StackCopierJobState {
+  private final UUID jobId;
+  private final String jobIdPrefix;
+  private final Deque<ExportInformation> exportInfoStack = new ArrayDeque<>();
+  private int copyIteration;
+
+  /**
+   * @param loadedStack the stack of a partially completed transfer, bottom first as returned by
+   *     the {@code JobStore}, or an empty list for a new transfer
+   */
+  StackCopierJobState(UUID jobId, List<ExportInformation> loadedStack) {
+    this.jobId = jobId;
+    this.jobIdPrefix = "Job " + jobId + ": ";
+    loadedStack.forEach(exportInfoStack::push);
+  }
+
+  UUID getJobId() {
+    return jobId;
+  }
+
+  String getJobIdPrefix() {
+    return jobIdPrefix;
+  }
+
+  int nextCopyIteration() {
+    return ++copyIteration;
+  }
+
+  boolean hasPendingEntries() {
+    return !exportInfoStack.isEmpty();
+  }
+
+  ExportInformation pop() {
+    return exportInfoStack.pop();
+  }
+
+  void push(ExportInformation exportInfo) {
+    exportInfoStack.push(exportInfo);
+  }
+}
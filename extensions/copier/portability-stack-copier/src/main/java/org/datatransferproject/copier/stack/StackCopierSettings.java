@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.copier.stack;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import org.datatransferproject.api.launcher.ExtensionContext;
+
+/** Settings controlling how {@link PortabilityStackInMemoryDataCopier} schedules its work. */
+public final class StackCopierSettings {
+
+  /**
+   * Number of exported pages that may be buffered ahead of the page being imported. 0 (the
+   * default) runs exports and imports strictly one after the other.
+   */
+  public static final String EXPORT_LOOK_AHEAD_SETTING = "exportLookAhead";
+
+  /**
+   * Number of stack entries, e.g. sibling albums, that may be copied concurrently. 1 (the default)
+   * drains the stack one entry at a time.
+   */
+  public static final String CONTAINER_CONCURRENCY_SETTING = "containerConcurrency";
+
+  /**
+   * Per service pair overrides of {@link #CONTAINER_CONCURRENCY_SETTING}, keyed by {@code
+   * "<export service>:<import service>"}. Only enable concurrency for pairs whose exporter and
+   * importer don't depend on sibling containers being processed in order.
+   */
+  public static final String CONTAINER_CONCURRENCY_OVERRIDES_SETTING =
+      "containerConcurrencyOverrides";
+
+  private final int exportLookAhead;
+  private final int containerConcurrency;
+  private final ImmutableMap<String, Integer> containerConcurrencyOverrides;
+
+  public StackCopierSettings(
+      int exportLookAhead,
+      int containerConcurrency,
+      Map<String, Integer> containerConcurrencyOverrides) {
+    checkArgument(exportLookAhead >= 0, "%s must not be negative", EXPORT_LOOK_AHEAD_SETTING);
+    checkArgument(containerConcurrency > 0, "%s must be positive", CONTAINER_CONCURRENCY_SETTING);
+    ImmutableMap.Builder<String, Integer> overrides = ImmutableMap.builder();
+    containerConcurrencyOverrides.forEach(
+        (servicePair, concurrency) -> {
+          checkArgument(concurrency > 0, "Concurrency for %s must be positive", servicePair);
+          overrides.put(servicePair.toLowerCase(), concurrency);
+        });
+    this.exportLookAhead = exportLookAhead;
+    this.containerConcurrency = containerConcurrency;
+    this.containerConcurrencyOverrides = overrides.build();
+  }
+
+  /** Settings that copy one page at a time, exactly like the original stack copier. */
+  public static StackCopierSettings sequential() {
+    return new StackCopierSettings(0, 1, ImmutableMap.of());
+  }
+
+  public static StackCopierSettings fromContext(ExtensionContext context) {
+    return new StackCopierSettings(
+        context.getSetting(EXPORT_LOOK_AHEAD_SETTING, 0),
+        context.getSetting(CONTAINER_CONCURRENCY_SETTING, 1),
+        context.getSetting(CONTAINER_CONCURRENCY_OVERRIDES_SETTING, ImmutableMap.of()));
+  }
+
+  public int getExportLookAhead() {
+    return exportLookAhead;
+  }
+
+  public boolean hasContainerConcurrencyOverrides() {
+    return !containerConcurrencyOverrides.isEmpty();
+  }
+
+  /** Returns the container concurrency used when no service pair override applies. */
+  public int getContainerConcurrency() {
+    return containerConcurrency;
+  }
+
+  /**
+   * Returns the container concurrency for jobs from {@code exportService} to {@code
+   * importService}.
+   */
+  public int getContainerConcurrency(String exportService, String importService) {
+    return containerConcurrencyOverrides.getOrDefault(
+        (exportService + ":" + importService).toLowerCase(), containerConcurrency);
+  }
+}
@@ -23,7 +23,9 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.util.List;
+import okhttp3.OkHttpClient;
 import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.backblaze.common.BackblazeDataTransferClientFactory;
 import org.datatransferproject.datatransfer.backblaze.photos.BackblazePhotosImporter;
@@ -77,16 +79,23 @@ public class BackblazeTransferExtension implements TransferExtension {
     ImmutableMap.Builder<DataVertical, Importer> importerBuilder = ImmutableMap.builder();
     BackblazeDataTransferClientFactory backblazeDataTransferClientFactory =
             new BackblazeDataTransferClientFactory(monitor);
-    ConnectionProvider isProvider = new ConnectionProvider(jobStore);
+    OkHttpClient client = context.getService(OkHttpClient.class);
+    MetricRecorder metricRecorder = context.getService(MetricRecorder.class);
 
     importerBuilder.put(
             PHOTOS,
             new BackblazePhotosImporter(
-                    monitor, jobStore, isProvider, backblazeDataTransferClientFactory));
+                    monitor,
+                    jobStore,
+                    new ConnectionProvider(jobStore, client, metricRecorder, PHOTOS),
+                    backblazeDataTransferClientFactory));
     importerBuilder.put(
             VIDEOS,
             new BackblazeVideosImporter(
-                    monitor, jobStore, isProvider, backblazeDataTransferClientFactory));
+                    monitor,
+                    jobStore,
+                    new ConnectionProvider(jobStore, client, metricRecorder, VIDEOS),
+                    backblazeDataTransferClientFactory));
     importerMap = importerBuilder.build();
     initialized = true;
   }
@@ -16,14 +16,23 @@
 
 package org.datatransferproject.datatransfer.backblaze.common;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.backblaze.exception.BackblazeCredentialsException;
@@ -36,6 +45,7 @@ import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.Bucket;
 import software.amazon.awssdk.services.s3.model.BucketAlreadyExistsException;
 import software.amazon.awssdk.services.s3.model.BucketAlreadyOwnedByYouException;
@@ -60,8 +70,19 @@ public class BackblazeDataTransferClient {
   private final List<String> BACKBLAZE_REGIONS =
       Arrays.asList("us-west-000", "us-west-001", "us-west-002", "eu-central-003");
 
+  // The maximum number of parts of an S3 multipart upload
+  private static final long MAX_PARTS_PER_UPLOAD = 10_000;
+  private static final int MAX_PART_UPLOAD_ATTEMPTS = 3;
+  private static final long PART_RETRY_DELAY_MILLIS = 100;
+  private static final int DEFAULT_PART_UPLOAD_CONCURRENCY = 4;
+  // Shared by all clients, each upload is limited to partUploadConcurrency parts at once
+  private static final ExecutorService PART_UPLOAD_EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setNameFormat("b2-part-upload-%d").setDaemon(true).build());
+
   private final long sizeThresholdForMultipartUpload;
   private final long partSizeForMultiPartUpload;
+  private final int partUploadConcurrency;
   private final BackblazeS3ClientFactory backblazeS3ClientFactory;
   private final Monitor monitor;
   private S3Client s3Client;
@@ -72,13 +93,30 @@ public class BackblazeDataTransferClient {
           BackblazeS3ClientFactory backblazeS3ClientFactory,
           long sizeThresholdForMultipartUpload,
           long partSizeForMultiPartUpload) {
+    this(
+        monitor,
+        backblazeS3ClientFactory,
+        sizeThresholdForMultipartUpload,
+        partSizeForMultiPartUpload,
+        DEFAULT_PART_UPLOAD_CONCURRENCY);
+  }
+
+  public BackblazeDataTransferClient(
+          Monitor monitor,
+          BackblazeS3ClientFactory backblazeS3ClientFactory,
+          long sizeThresholdForMultipartUpload,
+          long partSizeForMultiPartUpload,
+          int partUploadConcurrency) {
     this.monitor = monitor;
     this.backblazeS3ClientFactory = backblazeS3ClientFactory;
     // Avoid infinite loops
     if (partSizeForMultiPartUpload <= 0)
       throw new IllegalArgumentException("Part size for multipart upload must be positive.");
+    if (partUploadConcurrency <= 0)
+      throw new IllegalArgumentException("Part upload concurrency must be positive.");
     this.sizeThresholdForMultipartUpload = sizeThresholdForMultipartUpload;
     this.partSizeForMultiPartUpload = partSizeForMultiPartUpload;
+    this.partUploadConcurrency = partUploadConcurrency;
   }
 
   public void init(String keyId, String applicationKey, String exportService)
@@ -158,33 +196,54 @@ public class BackblazeDataTransferClient {
 
   private String uploadFileUsingMultipartUpload(String fileKey, File file, long contentLength)
       throws IOException, AwsServiceException, SdkClientException {
-    List<CompletedPart> completedParts = new ArrayList<>();
-
     CreateMultipartUploadRequest createMultipartUploadRequest =
         CreateMultipartUploadRequest.builder().bucket(bucketName).key(fileKey).build();
     CreateMultipartUploadResponse createMultipartUploadResponse =
         s3Client.createMultipartUpload(createMultipartUploadRequest);
+    String uploadId = createMultipartUploadResponse.uploadId();
 
-    long filePosition = 0;
-    try (InputStream fileInputStream = new FileInputStream(file)) {
-      for (int i = 1; filePosition < contentLength; i++) {
-        // Because the last part could be smaller than others, adjust the part size as needed
-        long partSize = Math.min(partSizeForMultiPartUpload, (contentLength - filePosition));
-
-        UploadPartRequest uploadRequest =
-            UploadPartRequest.builder()
-                .bucket(bucketName)
-                .key(fileKey)
-                .uploadId(createMultipartUploadResponse.uploadId())
-                .partNumber(i)
-                .build();
-        RequestBody requestBody = RequestBody.fromInputStream(fileInputStream, partSize);
-
-        UploadPartResponse uploadPartResponse = s3Client.uploadPart(uploadRequest, requestBody);
-        completedParts.add(
-            CompletedPart.builder().partNumber(i).eTag(uploadPartResponse.eTag()).build());
+    // Grow the parts of large files to stay within the maximum number of parts
+    long minimumPartSize = (contentLength + MAX_PARTS_PER_UPLOAD - 1) / MAX_PARTS_PER_UPLOAD;
+    long partSize = Math.max(partSizeForMultiPartUpload, minimumPartSize);
+    int partCount = (int) ((contentLength + partSize - 1) / partSize);
+    CompletedPart[] completedParts = new CompletedPart[partCount];
 
-        filePosition += partSize;
+    try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      // Parts are read from the shared channel at their own position, so they can be sent at once
+      CompletionService<CompletedPart> partUploads =
+          new ExecutorCompletionService<>(PART_UPLOAD_EXECUTOR);
+      List<Future<CompletedPart>> pendingParts = new ArrayList<>();
+      int nextPart = 0;
+      int uploadedParts = 0;
+      try {
+        while (uploadedParts < partCount) {
+          while (nextPart < partCount && pendingParts.size() < partUploadConcurrency) {
+            long partPosition = nextPart * partSize;
+            // Because the last part could be smaller than others, adjust the part size as needed
+            long partLength = Math.min(partSize, contentLength - partPosition);
+            int partNumber = nextPart + 1;
+            pendingParts.add(
+                partUploads.submit(
+                    () ->
+                        uploadPart(
+                            fileKey, uploadId, partNumber, fileChannel, partPosition, partLength)));
+            nextPart++;
+          }
+          Future<CompletedPart> uploadedPart = partUploads.take();
+          pendingParts.remove(uploadedPart);
+          CompletedPart completedPart = uploadedPart.get();
+          completedParts[completedPart.partNumber() - 1] = completedPart;
+          uploadedParts++;
+        }
+      } catch (InterruptedException | ExecutionException e) {
+        pendingParts.forEach(pendingPart -> pendingPart.cancel(true));
+        abortMultipartUpload(fileKey, uploadId);
+        if (e instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+        }
+        Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+        throw new IOException(
+            String.format("Error while uploading parts of file, fileKey: %s", fileKey), cause);
       }
     }
 
@@ -192,14 +251,74 @@ public class BackblazeDataTransferClient {
         CompleteMultipartUploadRequest.builder()
             .bucket(bucketName)
             .key(fileKey)
-            .uploadId(createMultipartUploadResponse.uploadId())
-            .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+            .uploadId(uploadId)
+            .multipartUpload(
+                CompletedMultipartUpload.builder().parts(Arrays.asList(completedParts)).build())
             .build();
 
-    CompleteMultipartUploadResponse completeMultipartUploadResponse =
-        s3Client.completeMultipartUpload(completeMultipartUploadRequest);
+    try {
+      CompleteMultipartUploadResponse completeMultipartUploadResponse =
+          s3Client.completeMultipartUpload(completeMultipartUploadRequest);
+      return completeMultipartUploadResponse.versionId();
+    } catch (AwsServiceException | SdkClientException e) {
+      abortMultipartUpload(fileKey, uploadId);
+      throw e;
+    }
+  }
 
-    return completeMultipartUploadResponse.versionId();
+  private CompletedPart uploadPart(
+      String fileKey,
+      String uploadId,
+      int partNumber,
+      FileChannel fileChannel,
+      long partPosition,
+      long partLength)
+      throws InterruptedException {
+    UploadPartRequest uploadRequest =
+        UploadPartRequest.builder()
+            .bucket(bucketName)
+            .key(fileKey)
+            .uploadId(uploadId)
+            .partNumber(partNumber)
+            .build();
+    for (int attempt = 1; ; attempt++) {
+      try {
+        RequestBody requestBody =
+            RequestBody.fromInputStream(
+                new FileChannelPartInputStream(fileChannel, partPosition, partLength), partLength);
+        UploadPartResponse uploadPartResponse = s3Client.uploadPart(uploadRequest, requestBody);
+        return CompletedPart.builder()
+            .partNumber(partNumber)
+            .eTag(uploadPartResponse.eTag())
+            .build();
+      } catch (AwsServiceException | SdkClientException e) {
+        if (attempt >= MAX_PART_UPLOAD_ATTEMPTS) {
+          throw e;
+        }
+        int failedAttempt = attempt;
+        monitor.debug(
+            () ->
+                String.format(
+                    "Retrying part %d of '%s' after attempt %d failed",
+                    partNumber, fileKey, failedAttempt),
+            e);
+        Thread.sleep(PART_RETRY_DELAY_MILLIS * attempt);
+      }
+    }
+  }
+
+  private void abortMultipartUpload(String fileKey, String uploadId) {
+    try {
+      s3Client.abortMultipartUpload(
+          AbortMultipartUploadRequest.builder()
+              .bucket(bucketName)
+              .key(fileKey)
+              .uploadId(uploadId)
+              .build());
+    } catch (AwsServiceException | SdkClientException e) {
+      // Unfinished uploads are eventually cleaned up by the bucket lifecycle rules
+      monitor.info(() -> String.format("Unable to abort multipart upload of '%s'", fileKey), e);
+    }
   }
 
   private String getOrCreateBucket(
@@ -246,4 +365,41 @@ public class BackblazeDataTransferClient {
       throw new IOException("Error while creating bucket", e);
     }
   }
+
+  /** Reads a region of a file with positional reads, leaving the channel position untouched. */
+  private static final class FileChannelPartInputStream extends InputStream {
+    private final FileChannel fileChannel;
+    private long position;
+    private final long end;
+
+    private FileChannelPartInputStream(FileChannel fileChannel, long position, long length) {
+      this.fileChannel = fileChannel;
+      this.position = position;
+      this.end = position + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] singleByte = new byte[1];
+      return read(singleByte, 0, 1) == -1 ? -1 : singleByte[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (position >= end) {
+        return -1;
+      }
+      int toRead = (int) Math.min(len, end - position);
+      int read = fileChannel.read(ByteBuffer.wrap(b, off, toRead), position);
+      if (read > 0) {
+        position += read;
+      }
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+  }
 }
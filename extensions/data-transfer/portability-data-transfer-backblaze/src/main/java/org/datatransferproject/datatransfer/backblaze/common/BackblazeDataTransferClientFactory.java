@@ -31,6 +31,7 @@ public class BackblazeDataTransferClientFactory {
 
   private static final long SIZE_THRESHOLD_FOR_MULTIPART_UPLOAD = 20 * 1024 * 1024; // 20 MB.
   private static final long PART_SIZE_FOR_MULTIPART_UPLOAD = 5 * 1024 * 1024; // 5 MB.
+  private static final int PART_UPLOAD_CONCURRENCY = 4;
 
   public BackblazeDataTransferClientFactory(Monitor monitor) {
     this.monitor = monitor;
@@ -46,7 +47,8 @@ public class BackblazeDataTransferClientFactory {
                       monitor,
                       new BaseBackblazeS3ClientFactory(),
                       SIZE_THRESHOLD_FOR_MULTIPART_UPLOAD,
-                      PART_SIZE_FOR_MULTIPART_UPLOAD);
+                      PART_SIZE_FOR_MULTIPART_UPLOAD,
+                      PART_UPLOAD_CONCURRENCY);
       String exportService = JobMetadata.getExportService();
       backblazeDataTransferClient.init(authData.getToken(), authData.getSecret(), exportService);
       backblazeDataTransferClientMap.put(jobId, backblazeDataTransferClient);
@@ -22,6 +22,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +40,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.Bucket;
 import software.amazon.awssdk.services.s3.model.BucketAlreadyExistsException;
 import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
@@ -223,4 +225,49 @@ public class BackblazeDataTransferClientTest {
       client.uploadFile(FILE_KEY, testFile);
     });
   }
+
+  @Test
+  public void testUploadFileMultipartRetriesFailedPart()
+      throws BackblazeCredentialsException, IOException {
+    final String expectedVersionId = "123";
+    createValidBucketList();
+    when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+        .thenReturn(CreateMultipartUploadResponse.builder().uploadId("xyz").build());
+    when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+        .thenThrow(AwsServiceException.builder().build())
+        .thenReturn(UploadPartResponse.builder().build());
+    when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+        .thenReturn(CompleteMultipartUploadResponse.builder().versionId(expectedVersionId).build());
+    final long partSize = 10;
+    final long fileSize = testFile.length();
+    final long expectedParts = fileSize / partSize + (fileSize % partSize == 0 ? 0 : 1);
+    BackblazeDataTransferClient client =
+        new BackblazeDataTransferClient(monitor, backblazeS3ClientFactory, fileSize / 2, partSize);
+    client.init(KEY_ID, APP_KEY, EXPORT_SERVICE);
+    String actualVersionId = client.uploadFile(FILE_KEY, testFile);
+    verify(s3Client, times((int) expectedParts + 1))
+        .uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+    verify(s3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    assertEquals(expectedVersionId, actualVersionId);
+  }
+
+  @Test
+  public void testUploadFileMultipartExceptionAbortsUpload()
+      throws BackblazeCredentialsException, IOException {
+    createValidBucketList();
+    when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+        .thenReturn(CreateMultipartUploadResponse.builder().uploadId("xyz").build());
+    when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+        .thenThrow(AwsServiceException.builder().build());
+    final long fileSize = testFile.length();
+    BackblazeDataTransferClient client =
+        new BackblazeDataTransferClient(monitor, backblazeS3ClientFactory, fileSize / 2,
+            fileSize / 2);
+    client.init(KEY_ID, APP_KEY, EXPORT_SERVICE);
+    assertThrows(IOException.class, () -> {
+      client.uploadFile(FILE_KEY, testFile);
+    });
+    verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+  }
 }
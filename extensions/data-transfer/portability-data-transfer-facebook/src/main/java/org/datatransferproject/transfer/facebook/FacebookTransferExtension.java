@@ -23,8 +23,11 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
+import okhttp3.OkHttpClient;
 import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.types.common.models.DataVertical;
@@ -87,11 +90,16 @@ public class FacebookTransferExtension implements TransferExtension {
     importerBuilder.put(VIDEOS, new FacebookVideosImporter(appCredentials));
     importerMap = importerBuilder.build();
 
+    TemporaryPerJobDataStore store = context.getService(TemporaryPerJobDataStore.class);
+    ConnectionProvider connectionProvider =
+        new ConnectionProvider(
+            store,
+            context.getService(OkHttpClient.class),
+            context.getService(MetricRecorder.class),
+            PHOTOS);
     ImmutableMap.Builder<DataVertical, Exporter> exporterBuilder = ImmutableMap.builder();
     exporterBuilder.put(
-        PHOTOS,
-        new FacebookPhotosExporter(
-            appCredentials, monitor, context.getService(TemporaryPerJobDataStore.class)));
+        PHOTOS, new FacebookPhotosExporter(appCredentials, monitor, store, connectionProvider));
     exporterBuilder.put(VIDEOS, new FacebookVideosExporter(appCredentials, monitor));
     exporterMap = exporterBuilder.build();
 
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.facebook.photos;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import org.apache.commons.imaging.ImageReadException;
+import org.apache.commons.imaging.ImageWriteException;
+import org.apache.commons.imaging.Imaging;
+import org.apache.commons.imaging.common.ImageMetadata;
+import org.apache.commons.imaging.formats.jpeg.JpegImageMetadata;
+import org.apache.commons.imaging.formats.jpeg.exif.ExifRewriter;
+import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
+import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
+
+/**
+ * Sets the original date of a JPEG stream in its EXIF data. Only the APPn segments at the start of
+ * the JPEG, where the EXIF APP1 segment lives, are held in memory and rewritten; the rest of the
+ * image is passed through as it's read.
+ */
+final class ExifDateWriter {
+  static final byte[] JPEG_SOI = {(byte) 0xFF, (byte) 0xD8};
+
+  private static final byte[] JPEG_EOI = {(byte) 0xFF, (byte) 0xD9};
+  private static final int MARKER_PREFIX = 0xFF;
+  private static final int FIRST_APP_MARKER = 0xE0;
+  private static final int LAST_APP_MARKER = 0xEF;
+  // Segments are at most 64KB, this leaves room for EXIF, XMP and ICC profile segments
+  private static final int MAX_HEADER_BYTES = 1024 * 1024;
+
+  private ExifDateWriter() {}
+
+  /**
+   * Returns the content of {@code jpeg} with its DateTimeOriginal EXIF tag set to {@code
+   * dateTimeOriginal}. The stream must start with the JPEG SOI marker, and is read further as the
+   * returned stream is.
+   */
+  static InputStream setDateTimeOriginal(InputStream jpeg, String dateTimeOriginal)
+      throws IOException, ImageReadException, ImageWriteException {
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    if (!startsWith(jpeg, JPEG_SOI)) {
+      throw new ImageReadException("Not a JPEG stream");
+    }
+    header.write(JPEG_SOI);
+
+    // The first marker that isn't an APPn segment, or that doesn't fit the header anymore
+    byte[] nextMarker;
+    while (true) {
+      nextMarker = readMarker(jpeg);
+      int markerType = nextMarker[1] & 0xFF;
+      if (markerType < FIRST_APP_MARKER || markerType > LAST_APP_MARKER) {
+        break;
+      }
+      byte[] length = readFully(jpeg, 2);
+      int segmentLength = ((length[0] & 0xFF) << 8) | (length[1] & 0xFF);
+      if (segmentLength < 2) {
+        throw new ImageReadException("Invalid JPEG segment length " + segmentLength);
+      }
+      if (header.size() + segmentLength + 2 > MAX_HEADER_BYTES) {
+        jpeg = new SequenceInputStream(new ByteArrayInputStream(length), jpeg);
+        break;
+      }
+      header.write(nextMarker);
+      header.write(length);
+      header.write(readFully(jpeg, segmentLength - 2));
+    }
+
+    // Commons Imaging only handles complete images, end the header like one
+    header.write(JPEG_EOI);
+    byte[] headerBytes = header.toByteArray();
+    ByteArrayOutputStream rewrittenHeader = new ByteArrayOutputStream(headerBytes.length + 256);
+    new ExifRewriter()
+        .updateExifMetadataLossless(
+            headerBytes, rewrittenHeader, getOutputSet(headerBytes, dateTimeOriginal));
+    byte[] rewritten = rewrittenHeader.toByteArray();
+
+    return new SequenceInputStream(
+        new ByteArrayInputStream(rewritten, 0, rewritten.length - JPEG_EOI.length),
+        new SequenceInputStream(new ByteArrayInputStream(nextMarker), jpeg));
+  }
+
+  private static TiffOutputSet getOutputSet(byte[] headerBytes, String dateTimeOriginal)
+      throws IOException, ImageReadException, ImageWriteException {
+    final ImageMetadata metadata = Imaging.getMetadata(headerBytes);
+    TiffOutputSet outputSet = null;
+    if (metadata instanceof JpegImageMetadata) {
+      // note that exif might be null if no Exif metadata is found.
+      final TiffImageMetadata exif = ((JpegImageMetadata) metadata).getExif();
+      if (null != exif) {
+        outputSet = exif.getOutputSet();
+      }
+    }
+    if (null == outputSet) {
+      outputSet = new TiffOutputSet();
+    }
+    final TiffOutputDirectory exifDirectory = outputSet.getOrCreateExifDirectory();
+    exifDirectory.removeField(ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL);
+    exifDirectory.add(ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL, dateTimeOriginal);
+    return outputSet;
+  }
+
+  /** Reads the next marker, skipping the fill bytes that may precede it. */
+  private static byte[] readMarker(InputStream jpeg) throws IOException, ImageReadException {
+    int value = readByte(jpeg);
+    if (value != MARKER_PREFIX) {
+      throw new ImageReadException("Expected a JPEG marker but got " + value);
+    }
+    do {
+      value = readByte(jpeg);
+    } while (value == MARKER_PREFIX);
+    return new byte[] {(byte) MARKER_PREFIX, (byte) value};
+  }
+
+  private static boolean startsWith(InputStream in, byte[] prefix)
+      throws IOException, ImageReadException {
+    for (byte expected : prefix) {
+      if (readByte(in) != (expected & 0xFF)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int readByte(InputStream in) throws IOException, ImageReadException {
+    int value = in.read();
+    if (value == -1) {
+      throw new ImageReadException("Unexpected end of the JPEG header");
+    }
+    return value;
+  }
+
+  private static byte[] readFully(InputStream in, int length)
+      throws IOException, ImageReadException {
+    byte[] bytes = in.readNBytes(length);
+    if (bytes.length != length) {
+      throw new ImageReadException("Unexpected end of the JPEG header");
+    }
+    return bytes;
+  }
+}
@@ -23,26 +23,17 @@ import com.restfb.Connection;
 import com.restfb.exception.FacebookGraphException;
 import com.restfb.types.Album;
 import com.restfb.types.Photo;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.apache.commons.imaging.ImageReadException;
 import org.apache.commons.imaging.ImageWriteException;
-import org.apache.commons.imaging.Imaging;
-import org.apache.commons.imaging.common.ImageMetadata;
-import org.apache.commons.imaging.formats.jpeg.JpegImageMetadata;
-import org.apache.commons.imaging.formats.jpeg.exif.ExifRewriter;
-import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
-import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
-import org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory;
-import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
-import org.apache.commons.io.IOUtils;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
@@ -68,6 +59,7 @@ public class FacebookPhotosExporter
   static final String PHOTO_TOKEN_PREFIX = "media:";
   private final Monitor monitor;
   private final TemporaryPerJobDataStore store;
+  private final ConnectionProvider connectionProvider;
 
   private AppCredentials appCredentials;
   private FacebookPhotosInterface photosInterface;
@@ -76,10 +68,12 @@ public class FacebookPhotosExporter
   public FacebookPhotosExporter(
       AppCredentials appCredentials,
       Monitor monitor,
-      TemporaryPerJobDataStore store) {
+      TemporaryPerJobDataStore store,
+      ConnectionProvider connectionProvider) {
     this.appCredentials = appCredentials;
     this.monitor = monitor;
     this.store = store;
+    this.connectionProvider = connectionProvider;
   }
 
   @VisibleForTesting
@@ -87,11 +81,13 @@ public class FacebookPhotosExporter
       AppCredentials appCredentials,
       FacebookPhotosInterface photosInterface,
       Monitor monitor,
-      TemporaryPerJobDataStore store) {
+      TemporaryPerJobDataStore store,
+      ConnectionProvider connectionProvider) {
     this.appCredentials = appCredentials;
     this.photosInterface = photosInterface;
     this.monitor = monitor;
     this.store = store;
+    this.connectionProvider = connectionProvider;
   }
 
   @Override
@@ -253,7 +249,8 @@ public class FacebookPhotosExporter
 
   /**
    * This method fetches the image from the specified URL, modifies the EXIF to include the created
-   * date, and then stores the modified photo via the store on the local filesystem.
+   * date, and then stores the modified photo via the store on the local filesystem. The photo is
+   * streamed to the store, only the EXIF header of JPEG photos is rewritten in memory.
    *
    * @param jobId          Id for the current transfer
    * @param photo          The photo model returned from the API
@@ -264,53 +261,26 @@ public class FacebookPhotosExporter
    */
   private boolean modifyExifAndStorePhoto(
       UUID jobId, Photo photo, String url, String blindedPhotoId) throws IOException {
-    try (InputStream inputStream = ConnectionProvider.getConnection(url).getInputStream()) {
-      final byte[] bytes = IOUtils.toByteArray(inputStream);
-      if (bytes.length == 0) {
+    try (InputStream inputStream =
+        new BufferedInputStream(connectionProvider.getInputStreamForUrl(url).getStream())) {
+      inputStream.mark(ExifDateWriter.JPEG_SOI.length);
+      final byte[] start = inputStream.readNBytes(ExifDateWriter.JPEG_SOI.length);
+      inputStream.reset();
+      if (start.length == 0) {
         // We should not upload an empty photo and Google cannot handle it.
         return true;
       }
 
-      if (null == photo.getCreatedTime()) {
-        try (ByteArrayInputStream unmodifiedInputStream = new ByteArrayInputStream(bytes)) {
-          store.create(jobId, blindedPhotoId, unmodifiedInputStream);
-        }
+      // Only JPEG photos carry EXIF data
+      if (null == photo.getCreatedTime() || !Arrays.equals(start, ExifDateWriter.JPEG_SOI)) {
+        store.create(jobId, blindedPhotoId, inputStream);
         return false;
       }
 
-      final ImageMetadata metadata = Imaging.getMetadata(bytes);
-      final JpegImageMetadata jpegMetadata = (JpegImageMetadata) metadata;
-      TiffOutputSet outputSet = null;
-      if (null != jpegMetadata) {
-        // note that exif might be null if no Exif metadata is found.
-        final TiffImageMetadata exif = jpegMetadata.getExif();
-
-        if (null != exif) {
-          // TiffImageMetadata class is immutable (read-only).
-          // TiffOutputSet class represents the Exif data to write.
-          //
-          // Usually, we want to update existing Exif metadata by
-          // changing
-          // the values of a few fields, or adding a field.
-          // In these cases, it is easiest to use getOutputSet() to
-          // start with a "copy" of the fields read from the image.
-          outputSet = exif.getOutputSet();
-        }
-      }
-      if (null == outputSet) {
-        outputSet = new TiffOutputSet();
-      }
-      final TiffOutputDirectory exifDirectory = outputSet.getOrCreateExifDirectory();
-      exifDirectory.removeField(ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL);
-      exifDirectory.add(
-          ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL,
-          exifDateFormat.format(photo.getCreatedTime()));
-      try (final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length)) {
-        new ExifRewriter().updateExifMetadataLossless(bytes, outputStream, outputSet);
-        try (ByteArrayInputStream modifiedInputStream =
-            new ByteArrayInputStream(outputStream.toByteArray())) {
-          store.create(jobId, blindedPhotoId, modifiedInputStream);
-        }
+      try (InputStream modifiedInputStream =
+          ExifDateWriter.setDateTimeOriginal(
+              inputStream, exifDateFormat.format(photo.getCreatedTime()))) {
+        store.create(jobId, blindedPhotoId, modifiedInputStream);
       }
     } catch (ImageReadException | ImageWriteException e) {
       monitor.severe(
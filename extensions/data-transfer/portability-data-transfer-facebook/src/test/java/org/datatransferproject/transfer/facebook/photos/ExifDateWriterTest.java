@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.facebook.photos;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.apache.commons.imaging.ImageReadException;
+import org.apache.commons.imaging.Imaging;
+import org.apache.commons.imaging.formats.jpeg.JpegImageMetadata;
+import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class ExifDateWriterTest {
+
+  // Offset of the DQT segment following the JFIF and EXIF segments of test.jpeg
+  private static final int TEST_JPEG_IMAGE_DATA_OFFSET = 0x2C;
+
+  @Test
+  public void setsDateAndKeepsImageData() throws Exception {
+    byte[] original =
+        IOUtils.toByteArray(getClass().getClassLoader().getResourceAsStream("test.jpeg"));
+
+    byte[] modified;
+    try (InputStream modifiedStream =
+        ExifDateWriter.setDateTimeOriginal(
+            new ByteArrayInputStream(original), "2009:02:13 23:31:30")) {
+      modified = IOUtils.toByteArray(modifiedStream);
+    }
+
+    JpegImageMetadata metadata = (JpegImageMetadata) Imaging.getMetadata(modified);
+    assertThat(metadata.getExif().getFieldValue(ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL))
+        .asList()
+        .containsExactly("2009:02:13 23:31:30");
+    byte[] imageData =
+        Arrays.copyOfRange(original, TEST_JPEG_IMAGE_DATA_OFFSET, original.length);
+    byte[] modifiedImageData =
+        Arrays.copyOfRange(modified, modified.length - imageData.length, modified.length);
+    assertThat(modifiedImageData).isEqualTo(imageData);
+  }
+
+  @Test
+  public void rejectsTruncatedHeader() {
+    byte[] truncated = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE1, 0x00, 0x16, 0x45};
+
+    assertThrows(
+        ImageReadException.class,
+        () ->
+            ExifDateWriter.setDateTimeOriginal(
+                new ByteArrayInputStream(truncated), "2009:02:13 23:31:30"));
+  }
+}
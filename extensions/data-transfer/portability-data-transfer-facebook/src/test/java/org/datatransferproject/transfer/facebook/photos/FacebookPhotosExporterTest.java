@@ -31,13 +31,13 @@ import com.restfb.types.Album;
 import com.restfb.types.Photo;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Optional;
 import java.util.UUID;
 import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.types.CopyExceptionWithFailureReason;
 import org.datatransferproject.types.common.ExportInformation;
@@ -48,10 +48,8 @@ import org.datatransferproject.types.common.models.photos.PhotoModel;
 import org.datatransferproject.types.common.models.photos.PhotosContainerResource;
 import org.datatransferproject.types.transfer.auth.AppCredentials;
 import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
-import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 
 public class FacebookPhotosExporterTest {
@@ -67,7 +65,6 @@ public class FacebookPhotosExporterTest {
 
   private FacebookPhotosExporter facebookPhotosExporter;
   private UUID uuid = UUID.randomUUID();
-  private MockedStatic<ConnectionProvider> connectionProviderMock;
 
   @Before
   public void setUp() throws IOException {
@@ -106,13 +103,9 @@ public class FacebookPhotosExporterTest {
     when(photoConnection.getData()).thenReturn(photos);
 
     InputStream inputStream = getClass().getClassLoader().getResourceAsStream("test.jpeg");
-    HttpURLConnection connection = mock(HttpURLConnection.class);
-    when(connection.getInputStream()).thenReturn(inputStream);
-
-    connectionProviderMock = Mockito.mockStatic(ConnectionProvider.class);
-    connectionProviderMock
-        .when(() -> ConnectionProvider.getConnection(anyString()))
-        .thenReturn(connection);
+    ConnectionProvider connectionProvider = mock(ConnectionProvider.class);
+    when(connectionProvider.getInputStreamForUrl(anyString()))
+        .thenReturn(new InputStreamWrapper(inputStream));
 
     final TemporaryPerJobDataStore store = mock(TemporaryPerJobDataStore.class);
 
@@ -121,12 +114,8 @@ public class FacebookPhotosExporterTest {
             new AppCredentials("key", "secret"),
             photosInterface,
             null,
-            store);
-  }
-
-  @After
-  public void tearDown() {
-    connectionProviderMock.close();
+            store,
+            connectionProvider);
   }
 
   @Test
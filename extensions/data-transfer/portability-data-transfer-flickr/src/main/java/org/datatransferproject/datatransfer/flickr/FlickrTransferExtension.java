@@ -22,10 +22,13 @@ import static org.datatransferproject.types.common.models.DataVertical.PHOTOS;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import java.util.Set;
+import okhttp3.OkHttpClient;
 import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.flickr.photos.FlickrPhotosExporter;
 import org.datatransferproject.datatransfer.flickr.photos.FlickrPhotosImporter;
+import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.types.common.models.DataVertical;
@@ -89,7 +92,16 @@ public class FlickrTransferExtension implements TransferExtension {
 
     TransferServiceConfig serviceConfig = context.getService(TransferServiceConfig.class);
 
-    importer = new FlickrPhotosImporter(appCredentials, jobStore, monitor, serviceConfig);
+    OkHttpClient client = context.getService(OkHttpClient.class);
+    MetricRecorder metricRecorder = context.getService(MetricRecorder.class);
+
+    importer =
+        new FlickrPhotosImporter(
+            appCredentials,
+            jobStore,
+            new ConnectionProvider(jobStore, client, metricRecorder, PHOTOS),
+            monitor,
+            serviceConfig);
     exporter = new FlickrPhotosExporter(appCredentials, serviceConfig);
     initialized = true;
   }
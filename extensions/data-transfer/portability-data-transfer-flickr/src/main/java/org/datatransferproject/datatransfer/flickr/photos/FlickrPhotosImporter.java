@@ -63,12 +63,13 @@ public class FlickrPhotosImporter implements Importer<AuthData, PhotosContainerR
   public FlickrPhotosImporter(
       AppCredentials appCredentials,
       TemporaryPerJobDataStore jobStore,
+      ConnectionProvider connectionProvider,
       Monitor monitor,
       TransferServiceConfig serviceConfig) {
     this.jobStore = jobStore;
     this.flickr = new Flickr(appCredentials.getKey(), appCredentials.getSecret(), new REST());
     this.uploader = flickr.getUploader();
-    this.connectionProvider = new ConnectionProvider(jobStore);
+    this.connectionProvider = connectionProvider;
     this.photosetsInterface = flickr.getPhotosetsInterface();
     this.monitor = monitor;
     this.perUserRateLimiter = serviceConfig.getPerUserRateLimiter();
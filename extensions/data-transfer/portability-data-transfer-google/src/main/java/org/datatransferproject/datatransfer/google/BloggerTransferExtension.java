@@ -24,11 +24,15 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
+import okhttp3.OkHttpClient;
 import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.google.blogger.GoogleBloggerImporter;
 import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
+import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.types.common.models.DataVertical;
 import org.datatransferproject.spi.transfer.extension.TransferExtension;
 import org.datatransferproject.spi.transfer.provider.Exporter;
@@ -103,7 +107,14 @@ public class BloggerTransferExtension implements TransferExtension {
 
     ImmutableMap.Builder<DataVertical, Importer> importerBuilder = ImmutableMap.builder();
 
-    importerBuilder.put(SOCIAL_POSTS, new GoogleBloggerImporter(credentialFactory));
+    ConnectionProvider connectionProvider =
+        new ConnectionProvider(
+            context.getService(TemporaryPerJobDataStore.class),
+            context.getService(OkHttpClient.class),
+            context.getService(MetricRecorder.class),
+            SOCIAL_POSTS);
+    importerBuilder.put(
+        SOCIAL_POSTS, new GoogleBloggerImporter(credentialFactory, connectionProvider));
 
     importerMap = importerBuilder.build();
 
@@ -15,7 +15,9 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
+import okhttp3.OkHttpClient;
 import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.google.calendar.GoogleCalendarExporter;
 import org.datatransferproject.datatransfer.google.calendar.GoogleCalendarImporter;
@@ -33,6 +35,7 @@ import org.datatransferproject.datatransfer.google.tasks.GoogleTasksExporter;
 import org.datatransferproject.datatransfer.google.tasks.GoogleTasksImporter;
 import org.datatransferproject.datatransfer.google.videos.GoogleVideosExporter;
 import org.datatransferproject.datatransfer.google.videos.GoogleVideosImporter;
+import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.types.common.models.DataVertical;
@@ -84,6 +87,8 @@ public class GoogleTransferExtension implements TransferExtension {
     JobStore jobStore = context.getService(JobStore.class);
     HttpTransport httpTransport = context.getService(HttpTransport.class);
     JsonFactory jsonFactory = context.getService(JsonFactory.class);
+    OkHttpClient client = context.getService(OkHttpClient.class);
+    MetricRecorder metricRecorder = context.getService(MetricRecorder.class);
 
     AppCredentials appCredentials;
     try {
@@ -117,9 +122,16 @@ public class GoogleTransferExtension implements TransferExtension {
             credentialFactory,
             jobStore,
             jsonFactory,
+            new ConnectionProvider(jobStore, client, metricRecorder, PHOTOS),
             monitor,
             context.getSetting("googleWritesPerSecond", 1.0)));
-    importerBuilder.put(VIDEOS, new GoogleVideosImporter(appCredentials, jobStore, monitor));
+    importerBuilder.put(
+        VIDEOS,
+        new GoogleVideosImporter(
+            appCredentials,
+            jobStore,
+            new ConnectionProvider(jobStore, client, metricRecorder, VIDEOS),
+            monitor));
     importerMap = importerBuilder.build();
 
     ImmutableMap.Builder<DataVertical, Exporter> exporterBuilder = ImmutableMap.builder();
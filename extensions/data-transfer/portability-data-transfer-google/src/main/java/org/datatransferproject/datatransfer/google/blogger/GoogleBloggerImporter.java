@@ -29,7 +29,6 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.time.LocalDate;
 import java.util.Collection;
 import java.util.UUID;
@@ -52,14 +51,17 @@ import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
 public class GoogleBloggerImporter
     implements Importer<TokensAndUrlAuthData, SocialActivityContainerResource> {
   private final GoogleCredentialFactory credentialFactory;
+  private final ConnectionProvider connectionProvider;
   // Don't access this directly, instead access via getOrCreateBloggerService.
   private Blogger blogger;
   // Don't access this directly, instead access via getOrCreateDriveService.
   // Used for image upload/hosting.
   private Drive driveInterface;
 
-  public GoogleBloggerImporter(GoogleCredentialFactory credentialFactory) {
+  public GoogleBloggerImporter(
+      GoogleCredentialFactory credentialFactory, ConnectionProvider connectionProvider) {
     this.credentialFactory = credentialFactory;
+    this.connectionProvider = connectionProvider;
 
     // lazily initialized for the given request
     this.blogger = null;
@@ -204,13 +206,12 @@ public class GoogleBloggerImporter
     String description =
         imageObject.getName() != null ? imageObject.getName() : ("Imported photo from: " + url);
 
-    HttpURLConnection conn = ConnectionProvider.getConnection(url);
-    InputStream inputStream = conn.getInputStream();
     File driveFile = new File().setName(description).setParents(ImmutableList.of(parentFolderId));
-    InputStreamContent content = new InputStreamContent(null, inputStream);
-    File newFile = driveService.files().create(driveFile, content).setFields("id").execute();
-
-    return "https://drive.google.com/thumbnail?id=" + newFile.getId();
+    try (InputStream inputStream = connectionProvider.getInputStreamForUrl(url).getStream()) {
+      InputStreamContent content = new InputStreamContent(null, inputStream);
+      File newFile = driveService.files().create(driveFile, content).setFields("id").execute();
+      return "https://drive.google.com/thumbnail?id=" + newFile.getId();
+    }
   }
 
   private Blogger getOrCreateBloggerService(TokensAndUrlAuthData authData) {
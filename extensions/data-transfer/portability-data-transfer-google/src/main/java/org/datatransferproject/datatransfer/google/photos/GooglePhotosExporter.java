@@ -27,6 +27,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -37,6 +38,7 @@ import org.datatransferproject.datatransfer.google.mediaModels.AlbumListResponse
 import org.datatransferproject.datatransfer.google.mediaModels.GoogleAlbum;
 import org.datatransferproject.datatransfer.google.mediaModels.GoogleMediaItem;
 import org.datatransferproject.datatransfer.google.mediaModels.MediaItemSearchResponse;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataCache;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.ExportResult.ResultType;
@@ -64,8 +66,13 @@ public class GooglePhotosExporter
   static final String ALBUM_TOKEN_PREFIX = "album:";
   static final String PHOTO_TOKEN_PREFIX = "media:";
 
+  // The contained photo ids of a job are read once, and kept while its photos are exported
+  private static final int TEMP_DATA_CACHE_SIZE = 16;
+  private static final Duration TEMP_DATA_CACHE_EXPIRY = Duration.ofHours(1);
+
   private final GoogleCredentialFactory credentialFactory;
   private final TemporaryPerJobDataStore jobStore;
+  private final TemporaryPerJobDataCache tempDataCache;
   private final JsonFactory jsonFactory;
   private volatile GooglePhotosInterface photosInterface;
 
@@ -78,6 +85,8 @@ public class GooglePhotosExporter
       Monitor monitor) {
     this.credentialFactory = credentialFactory;
     this.jobStore = jobStore;
+    this.tempDataCache =
+        new TemporaryPerJobDataCache(jobStore, TEMP_DATA_CACHE_SIZE, TEMP_DATA_CACHE_EXPIRY);
     this.jsonFactory = jsonFactory;
     this.monitor = monitor;
   }
@@ -91,6 +100,8 @@ public class GooglePhotosExporter
       Monitor monitor) {
     this.credentialFactory = credentialFactory;
     this.jobStore = jobStore;
+    this.tempDataCache =
+        new TemporaryPerJobDataCache(jobStore, TEMP_DATA_CACHE_SIZE, TEMP_DATA_CACHE_EXPIRY);
     this.jsonFactory = jsonFactory;
     this.photosInterface = photosInterface;
     this.monitor = monitor;
@@ -305,8 +316,7 @@ public class GooglePhotosExporter
 
     // TODO: if we see complaints about objects being too large for JobStore in other places, we
     // should consider putting logic in JobStore itself to handle it
-    InputStream stream = convertJsonToInputStream(tempPhotosData);
-    jobStore.create(jobId, createCacheKey(), stream);
+    tempDataCache.create(jobId, createCacheKey(), tempPhotosData);
   }
 
   @VisibleForTesting
@@ -332,12 +342,8 @@ public class GooglePhotosExporter
       Optional<String> albumId, GoogleMediaItem[] mediaItems, UUID jobId) throws IOException {
     List<PhotoModel> photos = new ArrayList<>(mediaItems.length);
 
-    TempPhotosData tempPhotosData = null;
-    InputStream stream = jobStore.getStream(jobId, createCacheKey()).getStream();
-    if (stream != null) {
-      tempPhotosData = new ObjectMapper().readValue(stream, TempPhotosData.class);
-      stream.close();
-    }
+    TempPhotosData tempPhotosData =
+        tempDataCache.get(jobId, createCacheKey(), TempPhotosData.class);
 
     for (GoogleMediaItem mediaItem : mediaItems) {
       if (mediaItem.getMediaMetadata().getPhoto() != null) {
@@ -59,7 +59,6 @@ import org.datatransferproject.spi.transfer.types.DestinationMemoryFullException
 import org.datatransferproject.spi.transfer.types.InvalidTokenException;
 import org.datatransferproject.spi.transfer.types.PermissionDeniedException;
 import org.datatransferproject.spi.transfer.types.UploadErrorException;
-import org.datatransferproject.types.common.ImportableItem;
 import org.datatransferproject.types.common.models.photos.PhotoAlbum;
 import org.datatransferproject.types.common.models.photos.PhotoModel;
 import org.datatransferproject.types.common.models.photos.PhotosContainerResource;
@@ -82,6 +81,7 @@ public class GooglePhotosImporter
       GoogleCredentialFactory credentialFactory,
       JobStore jobStore,
       JsonFactory jsonFactory,
+      ConnectionProvider connectionProvider,
       Monitor monitor,
       double writesPerSecond) {
     this(
@@ -90,7 +90,7 @@ public class GooglePhotosImporter
         jsonFactory,
         new HashMap<>(),
         null,
-        new ConnectionProvider(jobStore),
+        connectionProvider,
         monitor,
         writesPerSecond);
   }
@@ -199,13 +199,52 @@ public class GooglePhotosImporter
       IdempotentImportExecutor executor,
       String albumId)
       throws Exception {
+    IOException[] createFailure = {null};
+    Map<String, PhotoResult> importedPhotos =
+        executor.importBatchAndSwallowIOExceptions(
+            photos,
+            batch -> {
+              Map<String, ItemImportResult<PhotoResult>> results = new HashMap<>();
+              try {
+                uploadAndCreatePhotos(jobId, authData, batch, albumId, results);
+              } catch (IOException e) {
+                // Photos that failed to upload keep their own errors, the others are retried
+                createFailure[0] = e;
+              }
+              return results;
+            });
+    if (createFailure[0] != null) {
+      throw createFailure[0];
+    }
+
+    long totalBytes = 0L;
+    for (PhotoModel photo : photos) {
+      PhotoResult photoResult = importedPhotos.get(photo.getIdempotentId());
+      if (photoResult != null && photoResult.getBytes() != null) {
+        totalBytes += photoResult.getBytes();
+      }
+    }
+    return totalBytes;
+  }
+
+  /**
+   * Uploads the content of {@code photos} and creates their media items with a single call, adding
+   * their results to {@code results}. Photos that were never attempted, e.g. because their album no
+   * longer exists, have no result.
+   */
+  private void uploadAndCreatePhotos(
+      UUID jobId,
+      TokensAndUrlAuthData authData,
+      List<PhotoModel> photos,
+      String albumId,
+      Map<String, ItemImportResult<PhotoResult>> results)
+      throws Exception {
     final ArrayList<NewMediaItem> mediaItems = new ArrayList<>();
     final HashMap<String, PhotoModel> uploadTokenToDataId = new HashMap<>();
     final HashMap<String, Long> uploadTokenToLength = new HashMap<>();
 
     // TODO: resumable uploads https://developers.google.com/photos/library/guides/resumable-uploads
-    //  Resumable uploads would allow the upload of larger media that don't fit in memory.  To do
-    //  this however, seems to require knowledge of the total file size.
+    //  Uploads are streamed, resumable uploads would allow them to continue after a failure.
     for (PhotoModel photo : photos) {
       Long size = null;
       try {
@@ -213,8 +252,14 @@ public class GooglePhotosImporter
             .getInputStreamForItem(jobId, photo);
 
         try (InputStream s = streamWrapper.getStream()) {
-          String uploadToken = getOrCreatePhotosInterface(jobId, authData).uploadPhotoContent(s,
-              photo.getSha1());
+          long length = streamWrapper.getBytes() != null ? streamWrapper.getBytes() : -1;
+          String uploadToken =
+              getOrCreatePhotosInterface(jobId, authData)
+                  .uploadPhotoContent(
+                      s,
+                      length,
+                      photo.getSha1(),
+                      () -> connectionProvider.getInputStreamForItem(jobId, photo).getStream());
           String description = GooglePhotosImportUtils.cleanDescription(photo.getDescription());
           mediaItems.add(new NewMediaItem(description, uploadToken));
           uploadTokenToDataId.put(uploadToken, photo);
@@ -225,9 +270,7 @@ public class GooglePhotosImporter
             monitor.severe(
                 () -> format("%s: SHA-1 (%s) mismatch during upload", jobId, photo.getSha1()));
           }
-
-          Long finalSize = size;
-          executor.importAndSwallowIOExceptions(photo, p -> ItemImportResult.error(e, finalSize));
+          results.put(photo.getIdempotentId(), ItemImportResult.error(e, size));
         }
 
         try {
@@ -244,18 +287,15 @@ public class GooglePhotosImporter
               e);
         }
       } catch (IOException exception) {
-        Long finalSize = size;
-        executor.importAndSwallowIOExceptions(
-            photo, p -> ItemImportResult.error(exception, finalSize));
+        results.put(photo.getIdempotentId(), ItemImportResult.error(exception, size));
       }
     }
 
     if (mediaItems.isEmpty()) {
       // Either we were not passed in any videos or we failed upload on all of them.
-      return 0L;
+      return;
     }
 
-    long totalBytes = 0L;
     NewMediaItemUpload uploadItem = new NewMediaItemUpload(albumId, mediaItems);
     try {
       BatchMediaItemResponse photoCreationResponse =
@@ -264,23 +304,21 @@ public class GooglePhotosImporter
       NewMediaItemResult[] mediaItemResults = photoCreationResponse.getResults();
       Preconditions.checkNotNull(mediaItemResults);
       for (NewMediaItemResult mediaItem : mediaItemResults) {
-        PhotoModel photo = uploadTokenToDataId.get(mediaItem.getUploadToken());
-        totalBytes +=
-            processMediaResult(
-                mediaItem, photo, executor, uploadTokenToLength.get(mediaItem.getUploadToken()));
-        uploadTokenToDataId.remove(mediaItem.getUploadToken());
+        PhotoModel photo = uploadTokenToDataId.remove(mediaItem.getUploadToken());
+        if (photo == null) {
+          continue;
+        }
+        results.put(
+            photo.getIdempotentId(),
+            processMediaResult(mediaItem, uploadTokenToLength.get(mediaItem.getUploadToken())));
       }
 
-      if (!uploadTokenToDataId.isEmpty()) {
-        for (Entry<String, PhotoModel> entry : uploadTokenToDataId.entrySet()) {
-          PhotoModel photo = entry.getValue();
-          executor.importAndSwallowIOExceptions(
-              photo,
-              p ->
-                  ItemImportResult.error(
-                      new IOException("Photo was missing from results list."),
-                      uploadTokenToLength.get(entry.getKey())));
-        }
+      for (Entry<String, PhotoModel> entry : uploadTokenToDataId.entrySet()) {
+        results.put(
+            entry.getValue().getIdempotentId(),
+            ItemImportResult.error(
+                new IOException("Photo was missing from results list."),
+                uploadTokenToLength.get(entry.getKey())));
       }
     } catch (IOException e) {
       if (StringUtils.contains(
@@ -295,8 +333,6 @@ public class GooglePhotosImporter
         throw e;
       }
     }
-
-    return totalBytes;
   }
 
   private void logMissingAlbumDetails(
@@ -316,29 +352,19 @@ public class GooglePhotosImporter
     }
   }
 
-  private long processMediaResult(
-      NewMediaItemResult mediaItem,
-      ImportableItem item,
-      IdempotentImportExecutor executor,
-      long bytes)
-      throws Exception {
+  private ItemImportResult<PhotoResult> processMediaResult(
+      NewMediaItemResult mediaItem, long bytes) {
     Status status = mediaItem.getStatus();
     if (status.getCode() == Code.OK_VALUE) {
       PhotoResult photoResult = new PhotoResult(mediaItem.getMediaItem().getId(), bytes);
-      executor.importAndSwallowIOExceptions(
-          item, itemToImport -> ItemImportResult.success(photoResult, bytes));
-      return bytes;
+      return ItemImportResult.success(photoResult, bytes);
     } else {
-      executor.importAndSwallowIOExceptions(
-          item,
-          itemToImport ->
-              ItemImportResult.error(
-                  new IOException(
-                      String.format(
-                          "Media item could not be created. Code: %d Message: %s",
-                          status.getCode(), status.getMessage())),
-                  bytes));
-      return 0;
+      return ItemImportResult.error(
+          new IOException(
+              String.format(
+                  "Media item could not be created. Code: %d Message: %s",
+                  status.getCode(), status.getMessage())),
+          bytes);
     }
   }
 
@@ -20,7 +20,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.FileContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpContent;
 import com.google.api.client.http.HttpRequest;
@@ -33,16 +33,22 @@ import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.http.json.JsonHttpContent;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.util.ArrayMap;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.BaseEncoding;
 import com.google.common.io.CharStreams;
 import com.google.common.util.concurrent.RateLimiter;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
@@ -88,7 +94,7 @@ public class GooglePhotosInterface {
 
   private final ObjectMapper objectMapper =
       new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-  private final HttpTransport httpTransport = new NetHttpTransport();
+  private final HttpTransport httpTransport;
   private Credential credential;
   private final JsonFactory jsonFactory;
   private final Monitor monitor;
@@ -101,6 +107,19 @@ public class GooglePhotosInterface {
       JsonFactory jsonFactory,
       Monitor monitor,
       double writesPerSecond) {
+    this(credentialFactory, credential, jsonFactory, monitor, writesPerSecond,
+        new NetHttpTransport());
+  }
+
+  @VisibleForTesting
+  GooglePhotosInterface(
+      GoogleCredentialFactory credentialFactory,
+      Credential credential,
+      JsonFactory jsonFactory,
+      Monitor monitor,
+      double writesPerSecond,
+      HttpTransport httpTransport) {
+    this.httpTransport = httpTransport;
     this.credential = credential;
     this.jsonFactory = jsonFactory;
     this.monitor = monitor;
@@ -158,17 +177,60 @@ public class GooglePhotosInterface {
 
   String uploadPhotoContent(InputStream inputStream, @Nullable String sha1)
       throws IOException, InvalidTokenException, PermissionDeniedException, UploadErrorException {
+    return uploadPhotoContent(inputStream, -1, sha1, null);
+  }
+
+  /**
+   * Uploads {@code length} bytes of {@code inputStream} without buffering them. A streamed upload
+   * can't be resent, so if the access token expired meanwhile, it is refreshed and the content is
+   * sent once more from a stream opened with {@code reopen}. Streams of unknown length, i.e. a
+   * negative or zero {@code length}, are first copied to a temporary file, which also yields their
+   * SHA-1 when none is given.
+   */
+  String uploadPhotoContent(
+      InputStream inputStream,
+      long length,
+      @Nullable String sha1,
+      @Nullable SupplierWithIO<InputStream> reopen)
+      throws IOException, InvalidTokenException, PermissionDeniedException, UploadErrorException {
     // TODO: add filename
-    InputStreamContent content = new InputStreamContent(null, inputStream);
-    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    content.writeTo(outputStream);
-    byte[] contentBytes = outputStream.toByteArray();
-    if (contentBytes.length == 0) {
-      // Google Photos cannot add an empty photo so gracefully ignore
-      return "EMPTY_PHOTO";
+    if (length > 0) {
+      try {
+        return uploadPhotoContent(
+            new InputStreamContent(null, inputStream).setLength(length), sha1);
+      } catch (StreamedContentNotResentException e) {
+        if (reopen == null) {
+          throw e;
+        }
+        try (InputStream retryStream = reopen.getWithIO()) {
+          return uploadPhotoContent(
+              new InputStreamContent(null, retryStream).setLength(length), sha1);
+        }
+      }
+    }
+
+    File tempFile = File.createTempFile("photo", ".upload");
+    try {
+      MessageDigest digest = newSha1Digest();
+      try (InputStream digestingStream = new DigestInputStream(inputStream, digest)) {
+        Files.copy(digestingStream, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      if (tempFile.length() == 0) {
+        // Google Photos cannot add an empty photo so gracefully ignore
+        return "EMPTY_PHOTO";
+      }
+      if (sha1 == null || sha1.isEmpty()) {
+        sha1 = BaseEncoding.base16().encode(digest.digest());
+      }
+      return uploadPhotoContent(new FileContent(null, tempFile), sha1);
+    } finally {
+      //noinspection ResultOfMethodCallIgnored
+      tempFile.delete();
     }
-    HttpContent httpContent = new ByteArrayContent(null, contentBytes);
+  }
 
+  private String uploadPhotoContent(HttpContent httpContent, @Nullable String sha1)
+      throws IOException, InvalidTokenException, PermissionDeniedException, UploadErrorException {
     // Adding optional fields.
     ImmutableMap.Builder<String, String> headers = ImmutableMap.builder();
     if (sha1 != null && !sha1.isEmpty()) {
@@ -183,6 +245,15 @@ public class GooglePhotosInterface {
         Optional.of(headers.build()), httpContent, String.class);
   }
 
+  private static MessageDigest newSha1Digest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-1
+      throw new IllegalStateException(e);
+    }
+  }
+
   BatchMediaItemResponse createPhotos(NewMediaItemUpload newMediaItemUpload)
       throws IOException, InvalidTokenException, PermissionDeniedException, UploadErrorException {
     HashMap<String, Object> map = createJsonMap(newMediaItemUpload);
@@ -284,9 +355,15 @@ public class GooglePhotosInterface {
       credential = credentialFactory.refreshCredential(credential);
       monitor.info(() -> "Refreshed authorization token successfully");
 
+      // A streamed upload was consumed by the first attempt and can't be sent again
+      HttpRequest retryRequest = httpRequest.getWithIO();
+      if (retryRequest.getContent() != null && !retryRequest.getContent().retrySupported()) {
+        throw new StreamedContentNotResentException(e);
+      }
+
       // if the second attempt throws an error, then something else is wrong, and we bubble up the
       // response errors
-      return httpRequest.getWithIO().execute();
+      return retryRequest.execute();
     }
     // "The caller does not have permission" is potential error for albums.
     // "Google Photos is disabled for the user" is potential error for photos.
@@ -336,7 +413,14 @@ public class GooglePhotosInterface {
     return objectMapper.readValue(objectMapper.writeValueAsString(object), typeRef);
   }
 
-  private interface SupplierWithIO<T> {
+  interface SupplierWithIO<T> {
     T getWithIO() throws IOException;
   }
+
+  /** Thrown when a streamed upload was refused before the token was refreshed. */
+  private static class StreamedContentNotResentException extends IOException {
+    StreamedContentNotResentException(HttpResponseException cause) {
+      super("Unable to resend streamed content after refreshing the token", cause);
+    }
+  }
 }
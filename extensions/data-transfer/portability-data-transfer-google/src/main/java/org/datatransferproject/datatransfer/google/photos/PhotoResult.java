@@ -1,12 +1,16 @@
 package org.datatransferproject.datatransfer.google.photos;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
+import java.util.Objects;
 
 class PhotoResult implements Serializable {
   private String id;
   private Long bytes;
 
-  public PhotoResult(String id, Long bytes) {
+  @JsonCreator
+  public PhotoResult(@JsonProperty("id") String id, @JsonProperty("bytes") Long bytes) {
     this.id = id;
     this.bytes = bytes == null ? 0 : bytes;
   }
@@ -18,4 +22,21 @@ class PhotoResult implements Serializable {
   public Long getBytes() {
     return bytes;
   }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof PhotoResult)) {
+      return false;
+    }
+    PhotoResult that = (PhotoResult) o;
+    return Objects.equals(id, that.id) && Objects.equals(bytes, that.bytes);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, bytes);
+  }
 }
@@ -95,8 +95,11 @@ public class GoogleVideosImporter
   private final Map<UUID, PhotosLibraryClient> clientsMap;
 
   public GoogleVideosImporter(
-      AppCredentials appCredentials, TemporaryPerJobDataStore dataStore, Monitor monitor) {
-    this(appCredentials, dataStore, monitor, new ConnectionProvider(dataStore), new HashMap<>());
+      AppCredentials appCredentials,
+      TemporaryPerJobDataStore dataStore,
+      ConnectionProvider connectionProvider,
+      Monitor monitor) {
+    this(appCredentials, dataStore, monitor, connectionProvider, new HashMap<>());
   }
 
   @VisibleForTesting
@@ -22,6 +22,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atMostOnce;
@@ -136,7 +137,8 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             false,
             SHA1);
-    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), eq(SHA1))).thenReturn("token1");
+    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), anyLong(), eq(SHA1), any()))
+        .thenReturn("token1");
 
     PhotoModel photoModel2 =
         new PhotoModel(
@@ -147,7 +149,7 @@ public class GooglePhotosImporterTest {
             "oldPhotoID2",
             OLD_ALBUM_ID,
             false);
-    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), anyLong(), eq(null), any()))
         .thenReturn("token2");
 
     BatchMediaItemResponse batchMediaItemResponse =
@@ -202,7 +204,7 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             false);
 
-    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), anyLong(), eq(null), any()))
         .thenReturn("token1", "token2");
     BatchMediaItemResponse batchMediaItemResponse =
         new BatchMediaItemResponse(
@@ -240,7 +242,7 @@ public class GooglePhotosImporterTest {
             false,
             SHA1);
 
-    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), eq(SHA1)))
+    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), anyLong(), eq(SHA1), any()))
         .thenThrow(new UploadErrorException("Hash mismatch will be thrown", new Throwable()));
     BatchMediaItemResponse batchMediaItemResponse = new BatchMediaItemResponse(
         new NewMediaItemResult[]{});
@@ -328,7 +330,8 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), eq(null))).thenReturn("token1");
+    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), anyLong(), eq(null), any()))
+        .thenReturn("token1");
     JobStore jobStore = Mockito.mock(LocalJobStore.class);
     Mockito.when(jobStore.getStream(any(), any()))
         .thenReturn(
@@ -369,7 +372,7 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), anyLong(), eq(null), any()))
         .thenThrow(new IOException("Unit Testing"));
     JobStore jobStore = Mockito.mock(LocalJobStore.class);
     Mockito.when(jobStore.getStream(any(), any()))
@@ -410,7 +413,7 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), anyLong(), eq(null), any()))
         .thenReturn("token1", "token2");
     JobStore jobStore = Mockito.mock(LocalJobStore.class);
     Mockito.when(jobStore.getStream(any(), any()))
@@ -445,7 +448,7 @@ public class GooglePhotosImporterTest {
             OLD_ALBUM_ID,
             true);
 
-    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), eq(null)))
+    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), anyLong(), eq(null), any()))
         .thenReturn("token1", "token2");
     JobStore jobStore = Mockito.mock(LocalJobStore.class);
     Mockito.when(jobStore.getStream(any(), any()))
@@ -466,4 +469,42 @@ public class GooglePhotosImporterTest {
         () -> googlePhotosImporter.importPhotos(Lists.newArrayList(photoModel), executor, uuid,
             Mockito.mock(TokensAndUrlAuthData.class)));
   }
+
+  @Test
+  public void importPhotoCreatePhotosOtherExceptionKeepsUploadErrors() throws Exception {
+    PhotoModel photoModel1 =
+        new PhotoModel(
+            PHOTO_TITLE,
+            IMG_URI,
+            PHOTO_DESCRIPTION,
+            JPEG_MEDIA_TYPE,
+            "oldPhotoID1",
+            OLD_ALBUM_ID,
+            false);
+    PhotoModel photoModel2 =
+        new PhotoModel(
+            PHOTO_TITLE,
+            IMG_URI,
+            PHOTO_DESCRIPTION,
+            JPEG_MEDIA_TYPE,
+            "oldPhotoID2",
+            OLD_ALBUM_ID,
+            false);
+
+    Mockito.when(googlePhotosInterface.uploadPhotoContent(any(), anyLong(), eq(null), any()))
+        .thenReturn("token1")
+        .thenThrow(new IOException("Upload failed"));
+    Mockito.when(googlePhotosInterface.createPhotos(any(NewMediaItemUpload.class)))
+        .thenThrow(new IOException("Some other exception"));
+
+    // The page is retried, the photo that failed to upload keeps its error
+    assertThrows(IOException.class,
+        () -> googlePhotosImporter.importPhotos(Lists.newArrayList(photoModel1, photoModel2),
+            executor, uuid, Mockito.mock(TokensAndUrlAuthData.class)));
+
+    ErrorDetail errorDetail = executor.getErrors().iterator().next();
+    assertEquals(1, executor.getErrors().size());
+    assertEquals(String.format("%s-%s", OLD_ALBUM_ID, "oldPhotoID2"), errorDetail.id());
+    assertThat(errorDetail.exception(), CoreMatchers.containsString("Upload failed"));
+  }
 }
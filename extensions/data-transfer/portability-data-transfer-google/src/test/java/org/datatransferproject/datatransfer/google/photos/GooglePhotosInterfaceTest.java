@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.datatransfer.google.photos;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GooglePhotosInterfaceTest {
+  private static final String CONTENT = "photo content";
+
+  private final Queue<MockLowLevelHttpResponse> responses = new ArrayDeque<>();
+  private final List<String> sentContents = new ArrayList<>();
+  private GoogleCredentialFactory credentialFactory;
+  private Credential credential;
+  private GooglePhotosInterface photosInterface;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    credentialFactory = mock(GoogleCredentialFactory.class);
+    credential = mock(Credential.class);
+    when(credential.getAccessToken()).thenReturn("accessToken");
+    when(credentialFactory.refreshCredential(credential)).thenReturn(credential);
+    MockHttpTransport transport =
+        new MockHttpTransport() {
+          @Override
+          public LowLevelHttpRequest buildRequest(String method, String url) {
+            return new MockLowLevelHttpRequest(url) {
+              @Override
+              public LowLevelHttpResponse execute() throws IOException {
+                sentContents.add(getContentAsString());
+                return responses.remove();
+              }
+            };
+          }
+        };
+    photosInterface =
+        new GooglePhotosInterface(
+            credentialFactory, credential, null, mock(Monitor.class), 1000.0, transport);
+  }
+
+  @Test
+  public void streamedUploadIsSentAgainAfterRefreshingTheToken() throws Exception {
+    responses.add(new MockLowLevelHttpResponse().setStatusCode(401));
+    responses.add(new MockLowLevelHttpResponse().setContent("uploadToken"));
+
+    String uploadToken =
+        photosInterface.uploadPhotoContent(
+            stream(), CONTENT.length(), null, GooglePhotosInterfaceTest::stream);
+
+    assertThat(uploadToken).isEqualTo("uploadToken");
+    assertThat(sentContents).containsExactly(CONTENT, CONTENT);
+    verify(credentialFactory).refreshCredential(credential);
+  }
+
+  @Test
+  public void streamedUploadIsSentAgainOnlyOnce() {
+    responses.addAll(
+        Arrays.asList(
+            new MockLowLevelHttpResponse().setStatusCode(401),
+            new MockLowLevelHttpResponse().setStatusCode(401)));
+
+    assertThrows(
+        IOException.class,
+        () ->
+            photosInterface.uploadPhotoContent(
+                stream(), CONTENT.length(), null, GooglePhotosInterfaceTest::stream));
+    assertThat(sentContents).hasSize(2);
+  }
+
+  private static ByteArrayInputStream stream() {
+    return new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8));
+  }
+}
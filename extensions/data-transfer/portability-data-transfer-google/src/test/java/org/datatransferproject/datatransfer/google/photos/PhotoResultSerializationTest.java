@@ -2,6 +2,7 @@ package org.datatransferproject.datatransfer.google.photos;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -25,4 +26,15 @@ public class PhotoResultSerializationTest {
     assertThat(deserialized.getId()).isEqualTo(photoId);
     assertThat(deserialized.getBytes()).isEqualTo(bytes);
   }
+
+  @Test
+  public void testJsonSerialization() throws IOException {
+    // The idempotent executor stores results as JSON if Jackson reads them back as equal values
+    ObjectMapper objectMapper = new ObjectMapper();
+    PhotoResult result = new PhotoResult("photoId", 97397L);
+
+    byte[] json = objectMapper.writeValueAsBytes(result);
+
+    assertThat(objectMapper.readValue(json, PhotoResult.class)).isEqualTo(result);
+  }
 }
@@ -14,7 +14,9 @@ import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 import okhttp3.OkHttpClient;
 import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.types.common.models.DataVertical;
@@ -116,8 +118,22 @@ public class KoofrTransferExtension implements TransferExtension {
             BASE_API_URL, client, fileUploadClient, mapper, monitor, credentialFactory);
 
     ImmutableMap.Builder<DataVertical, Importer> importBuilder = ImmutableMap.builder();
-    importBuilder.put(PHOTOS, new KoofrPhotosImporter(koofrClientFactory, monitor, jobStore));
-    importBuilder.put(VIDEOS, new KoofrVideosImporter(koofrClientFactory, monitor, jobStore));
+    // Item downloads go through the worker's shared client, to reuse its pooled connections
+    OkHttpClient downloadClient = context.getService(OkHttpClient.class);
+    MetricRecorder metricRecorder = context.getService(MetricRecorder.class);
+    importBuilder.put(
+        PHOTOS,
+        new KoofrPhotosImporter(
+            koofrClientFactory,
+            monitor,
+            jobStore,
+            new ConnectionProvider(jobStore, downloadClient, metricRecorder, PHOTOS)));
+    importBuilder.put(
+        VIDEOS,
+        new KoofrVideosImporter(
+            koofrClientFactory,
+            monitor,
+            new ConnectionProvider(jobStore, downloadClient, metricRecorder, VIDEOS)));
     importerMap = importBuilder.build();
 
     ImmutableMap.Builder<DataVertical, Exporter> exportBuilder = ImmutableMap.builder();
@@ -16,7 +16,7 @@
 package org.datatransferproject.transfer.koofr.photos;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
@@ -30,7 +30,6 @@ import org.apache.commons.imaging.common.ImageMetadata;
 import org.apache.commons.imaging.formats.jpeg.JpegImageMetadata;
 import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
 import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
-import org.apache.commons.io.IOUtils;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.JobStore;
@@ -56,6 +55,8 @@ public class KoofrPhotosImporter
 
   private static final String SKIPPED_FILE_RESULT_FORMAT = "skipped-%s";
   private static final String TITLE_DATE_FORMAT = "yyyy-MM-dd HH.mm.ss ";
+  // EXIF data lives in a single APP1 segment of at most 64KB, usually right after the SOI marker
+  private static final int EXIF_PEEK_BYTES = 128 * 1024;
   private final KoofrClientFactory koofrClientFactory;
   private final JobStore jobStore;
   private final ConnectionProvider connectionProvider;
@@ -68,9 +69,12 @@ public class KoofrPhotosImporter
   private volatile HashMap<UUID, SimpleDateFormat> titleDateFormats = new HashMap<>();
 
   public KoofrPhotosImporter(
-      KoofrClientFactory koofrClientFactory, Monitor monitor, JobStore jobStore) {
+      KoofrClientFactory koofrClientFactory,
+      Monitor monitor,
+      JobStore jobStore,
+      ConnectionProvider connectionProvider) {
     this.koofrClientFactory = koofrClientFactory;
-    this.connectionProvider = new ConnectionProvider(jobStore);
+    this.connectionProvider = connectionProvider;
     this.monitor = monitor;
     this.jobStore = jobStore;
   }
@@ -140,11 +144,14 @@ public class KoofrPhotosImporter
       throws IOException, InvalidTokenException, DestinationMemoryFullException {
     monitor.debug(() -> String.format("Import single photo %s", photo.getTitle()));
 
-    try (InputStream inputStream =
-        connectionProvider.getInputStreamForItem(jobId, photo).getStream()) {
-      final byte[] bytes = IOUtils.toByteArray(inputStream);
-
-      Date dateCreated = getDateCreated(photo, bytes);
+    // The photo is only downloaded once we know it's missing, or to read its EXIF header
+    InputStream inputStream = null;
+    try {
+      Date dateCreated = photo.getUploadedTime();
+      if (dateCreated == null) {
+        inputStream = openPhotoStream(jobId, photo);
+        dateCreated = peekDateCreated(photo, inputStream);
+      }
 
       String title = buildPhotoTitle(jobId, photo.getTitle(), dateCreated);
       String description = KoofrClient.trimDescription(photo.getDescription());
@@ -158,13 +165,16 @@ public class KoofrPhotosImporter
         return fullPath;
       }
 
-      final ByteArrayInputStream inMemoryInputStream = new ByteArrayInputStream(bytes);
+      if (inputStream == null) {
+        inputStream = openPhotoStream(jobId, photo);
+      }
+      inputStream = new PhotoUploadStream(jobId, photo, inputStream);
 
       String response;
 
       try {
         response = koofrClient.uploadFile(
-                parentPath, title, inMemoryInputStream, photo.getMediaType(), dateCreated, description);
+                parentPath, title, inputStream, photo.getMediaType(), dateCreated, description);
       } catch (KoofrClientIOException e) {
         if (e.getCode() == 404) {
           monitor.info(() -> String.format("Can't find album during importSingleItem for id: %s", photo.getDataId()), e);
@@ -187,6 +197,10 @@ public class KoofrPhotosImporter
       }
 
       return response;
+    } finally {
+      if (inputStream != null) {
+        inputStream.close();
+      }
     }
   }
 
@@ -199,15 +213,27 @@ public class KoofrPhotosImporter
     return dateFormat.format(dateCreated) + originalTitle;
   }
 
-  private Date getDateCreated(PhotoModel photo, byte[] bytes) {
-    if (photo.getUploadedTime() != null) {
-      return photo.getUploadedTime();
-    }
+  /** Opens the photo content, marked at its first byte so that the EXIF header can be peeked. */
+  private InputStream openPhotoStream(UUID jobId, PhotoModel photo) throws IOException {
+    InputStream inputStream =
+        new BufferedInputStream(
+            connectionProvider.getInputStreamForItem(jobId, photo).getStream(), EXIF_PEEK_BYTES);
+    inputStream.mark(EXIF_PEEK_BYTES);
+    return inputStream;
+  }
+
+  /**
+   * Reads the creation date from the EXIF header at the start of {@code inputStream}, which is then
+   * reset to the first byte. Headers larger than {@link #EXIF_PEEK_BYTES} yield no date.
+   */
+  private Date peekDateCreated(PhotoModel photo, InputStream inputStream) throws IOException {
+    final byte[] header = inputStream.readNBytes(EXIF_PEEK_BYTES);
+    inputStream.reset();
 
     try {
-      final ImageMetadata metadata = Imaging.getMetadata(bytes);
+      final ImageMetadata metadata = Imaging.getMetadata(header);
 
-      if (metadata == null) {
+      if (!(metadata instanceof JpegImageMetadata)) {
         return null;
       }
 
@@ -255,4 +281,35 @@ public class KoofrPhotosImporter
 
     return dateFormat;
   }
+
+  /**
+   * The photo content handed to {@link KoofrClient#uploadFile}, which resets it to send the photo
+   * again when the upload is retried. Resetting downloads the photo again, rather than keeping it
+   * in memory.
+   */
+  private class PhotoUploadStream extends FilterInputStream {
+    private final UUID jobId;
+    private final PhotoModel photo;
+
+    PhotoUploadStream(UUID jobId, PhotoModel photo, InputStream inputStream) {
+      super(inputStream);
+      this.jobId = jobId;
+      this.photo = photo;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public void mark(int readLimit) {}
+
+    @Override
+    public void reset() throws IOException {
+      // The upload may already have closed the stream
+      in.close();
+      in = connectionProvider.getInputStreamForItem(jobId, photo).getStream();
+    }
+  }
 }
@@ -21,7 +21,6 @@ import java.io.InputStream;
 import java.util.UUID;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
-import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
@@ -47,10 +46,12 @@ public class KoofrVideosImporter
   private final ConnectionProvider connectionProvider;
   private final Monitor monitor;
 
-  public KoofrVideosImporter(KoofrClientFactory koofrClientFactory, Monitor monitor,
-      JobStore jobStore) {
+  public KoofrVideosImporter(
+      KoofrClientFactory koofrClientFactory,
+      Monitor monitor,
+      ConnectionProvider connectionProvider) {
     this.koofrClientFactory = koofrClientFactory;
-    this.connectionProvider = new ConnectionProvider(jobStore);
+    this.connectionProvider = connectionProvider;
     this.monitor = monitor;
   }
 
@@ -1,5 +1,6 @@
 package org.datatransferproject.transfer.koofr.photos;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -8,6 +9,7 @@ import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.atMostOnce;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -15,6 +17,7 @@ import static org.mockito.Mockito.when;
 import com.google.common.collect.ImmutableList;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
@@ -30,6 +33,7 @@ import okhttp3.mockwebserver.MockWebServer;
 import okio.Buffer;
 import org.apache.commons.io.IOUtils;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
@@ -78,7 +82,8 @@ public class KoofrPhotosImporterTest {
     monitor = mock(Monitor.class);
     jobStore = mock(JobStore.class);
 
-    importer = new KoofrPhotosImporter(clientFactory, monitor, jobStore);
+    importer =
+        new KoofrPhotosImporter(clientFactory, monitor, jobStore, new ConnectionProvider(jobStore));
 
     executor = mock(IdempotentImportExecutor.class);
     when(executor.executeAndSwallowIOExceptions(any(), any(), any()))
@@ -231,6 +236,37 @@ public class KoofrPhotosImporterTest {
     clientInOrder.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void testExistingPhotoWithUploadedTimeIsNotDownloaded() throws Exception {
+    when(executor.getCachedValue(eq("id1"))).thenReturn("/root/Album 1");
+    when(client.fileExists("/root/Album 1/2020-08-17 11.55.24 pic1.jpg")).thenReturn(true);
+
+    UUID jobId = UUID.randomUUID();
+
+    PortabilityJob job = mock(PortabilityJob.class);
+    when(jobStore.findJob(jobId)).thenReturn(job);
+
+    Collection<PhotoAlbum> albums =
+        ImmutableList.of(new PhotoAlbum("id1", "Album 1", "This is a fake album"));
+
+    Collection<PhotoModel> photos =
+        ImmutableList.of(
+            new PhotoModel(
+                "pic1.jpg",
+                server.url("/1.jpg").toString(),
+                "A pic",
+                "image/jpeg",
+                "p1",
+                "id1",
+                false,
+                new SimpleDateFormat("yyyy:MM:dd HH:mm:ss").parse("2020:08:17 11:55:24")));
+
+    importer.importItem(jobId, executor, authData, new PhotosContainerResource(albums, photos));
+
+    assertEquals(0, server.getRequestCount());
+    verify(client, never()).uploadFile(any(), any(), any(), any(), any(), any());
+  }
+
   @Test
   public void testImportItemFromJobStore() throws Exception {
     ByteArrayInputStream inputStream = new ByteArrayInputStream(new byte[] {0, 1, 2, 3, 4});
@@ -364,6 +400,38 @@ public class KoofrPhotosImporterTest {
     verify(jobStore, atMostOnce()).findJob(jobId);
   }
 
+  @Test
+  public void testRetriedUploadSendsTheWholePhotoAgain() throws Exception {
+    // Larger than the peeked EXIF header
+    byte[] content = new byte[200 * 1024];
+    content[content.length - 1] = 1;
+    when(jobStore.getStream(any(), any()))
+        .thenAnswer(invocation -> new InputStreamWrapper(new ByteArrayInputStream(content), 0L));
+    AtomicReference<byte[]> retriedContent = new AtomicReference<>();
+    when(client.uploadFile(any(), any(), any(), any(), any(), any()))
+        .then(
+            (InvocationOnMock invocation) -> {
+              // Like the client does when the token expired mid-upload
+              InputStream uploaded = invocation.getArgument(2);
+              uploaded.readAllBytes();
+              uploaded.close();
+              uploaded.reset();
+              retriedContent.set(uploaded.readAllBytes());
+              return "/root/Album 1/pic1.jpg";
+            });
+
+    PhotoModel photo =
+        new PhotoModel(
+            "pic1.jpg", "http://fake.com/1.jpg", "A pic", "image/jpeg", "p1", "id1", true);
+    importer.importItem(
+        UUID.randomUUID(),
+        executor,
+        authData,
+        new PhotosContainerResource(ImmutableList.of(), ImmutableList.of(photo)));
+
+    assertArrayEquals(content, retriedContent.get());
+  }
+
   @Test
   public void testSkipNotFoundAlbum() throws Exception {
     ByteArrayInputStream inputStream = new ByteArrayInputStream(new byte[] {0, 1, 2, 3, 4});
@@ -6,6 +6,7 @@ import java.util.Date;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.transfer.koofr.common.KoofrClient;
@@ -58,7 +59,9 @@ public class KoofrVideosImporterTest {
 
     when(clientFactory.create(any())).thenReturn(client);
 
-    importer = new KoofrVideosImporter(clientFactory, monitor, mock(JobStore.class));
+    importer =
+        new KoofrVideosImporter(
+            clientFactory, monitor, new ConnectionProvider(mock(JobStore.class)));
 
     when(executor.executeAndSwallowIOExceptions(any(), any(), any()))
         .then(
@@ -10,7 +10,7 @@ import java.util.List;
   for part-by-part upload to a service, for example to be consumed in an upload session.
 */
 public class DataChunk {
-  private static final int CHUNK_SIZE = 32000 * 1024; // 32000KiB
+  static final int CHUNK_SIZE = 32000 * 1024; // 32000KiB
 
   private final byte[] data;
   private final int size;
@@ -37,6 +37,10 @@ public class DataChunk {
     return rangeStart + size - 1;
   }
 
+  /**
+   * Reads the whole stream into memory, prefer {@link DataChunkReader} which holds one chunk at a
+   * time.
+   */
   public static List<DataChunk> splitData(InputStream inputStream) throws IOException {
     ArrayList<DataChunk> chunksToSend = new ArrayList();
     byte[] data = new byte[CHUNK_SIZE];
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.microsoft;
+
+import static org.datatransferproject.transfer.microsoft.DataChunk.CHUNK_SIZE;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads an InputStream one chunk at a time for part-by-part upload to a service, holding a single
+ * chunk in memory, or two with read-ahead, instead of the whole stream like {@link
+ * DataChunk#splitData}.
+ *
+ * <p>Upload sessions need the total size up front: streams of unknown size are first copied to a
+ * temporary file, deleted on {@link #close}.
+ */
+public class DataChunkReader implements Closeable {
+  // Full size chunk buffers are reused across uploads, smaller ones are sized to the stream
+  private static final BlockingQueue<byte[]> BUFFER_POOL = new ArrayBlockingQueue<>(4);
+  private static final ExecutorService READ_AHEAD_EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setNameFormat("chunk-read-ahead-%d").setDaemon(true).build());
+
+  private final InputStream inputStream;
+  private final long totalSize;
+  private final Path spillFile;
+  private byte[] buffer;
+  private byte[] readAheadBuffer;
+  private Future<Integer> readAhead;
+  private int size;
+  private long start;
+  private long nextStart;
+
+  /**
+   * Creates a reader of {@code inputStream}, of {@code totalSize} bytes if known, or a negative or
+   * zero size otherwise. With {@code readAhead}, the next chunk is read while the current one is
+   * being uploaded.
+   */
+  public static DataChunkReader create(InputStream inputStream, long totalSize, boolean readAhead)
+      throws IOException {
+    if (totalSize > 0) {
+      return new DataChunkReader(inputStream, totalSize, null, readAhead);
+    }
+    Path spillFile = Files.createTempFile("upload", ".chunks");
+    try {
+      Files.copy(inputStream, spillFile, StandardCopyOption.REPLACE_EXISTING);
+      inputStream.close();
+      return new DataChunkReader(
+          Files.newInputStream(spillFile), Files.size(spillFile), spillFile, readAhead);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(spillFile);
+      throw e;
+    }
+  }
+
+  private DataChunkReader(
+      InputStream inputStream, long totalSize, Path spillFile, boolean readAhead) {
+    this.inputStream = inputStream;
+    this.totalSize = totalSize;
+    this.spillFile = spillFile;
+    this.buffer = acquireBuffer(totalSize);
+    // A single chunk has nothing to read ahead
+    if (readAhead && totalSize > CHUNK_SIZE) {
+      this.readAheadBuffer = acquireBuffer(totalSize);
+    }
+  }
+
+  /**
+   * Reads the next chunk, returns false once the stream is exhausted. The data of the previous
+   * chunk isn't valid anymore after this call.
+   */
+  public boolean readNextChunk() throws IOException {
+    if (nextStart >= totalSize) {
+      size = 0;
+      return false;
+    }
+    if (readAhead != null) {
+      size = awaitReadAhead();
+      byte[] readData = readAheadBuffer;
+      readAheadBuffer = buffer;
+      buffer = readData;
+    } else {
+      size = readChunk(buffer, nextStart);
+    }
+    start = nextStart;
+    nextStart += size;
+    if (readAheadBuffer != null && nextStart < totalSize) {
+      byte[] target = readAheadBuffer;
+      long targetStart = nextStart;
+      readAhead = READ_AHEAD_EXECUTOR.submit(() -> readChunk(target, targetStart));
+    } else {
+      readAhead = null;
+    }
+    return true;
+  }
+
+  public byte[] getData() {
+    return buffer;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return start + size - 1;
+  }
+
+  public long getTotalSize() {
+    return totalSize;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (readAhead != null) {
+        // The buffer can only go back to the pool once nothing writes to it anymore
+        try {
+          readAhead.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          // The read may still be running, leave its buffer to the garbage collector
+          readAheadBuffer = null;
+        } catch (ExecutionException e) {
+          // Nothing reads the chunk anymore
+        }
+        readAhead = null;
+      }
+      inputStream.close();
+    } finally {
+      releaseBuffer(buffer);
+      releaseBuffer(readAheadBuffer);
+      buffer = null;
+      readAheadBuffer = null;
+      if (spillFile != null) {
+        Files.deleteIfExists(spillFile);
+      }
+    }
+  }
+
+  private int readChunk(byte[] target, long chunkStart) throws IOException {
+    int chunkSize = (int) Math.min(target.length, totalSize - chunkStart);
+    int offset = 0;
+    while (offset < chunkSize) {
+      int read = inputStream.read(target, offset, chunkSize - offset);
+      if (read == -1) {
+        throw new EOFException(
+            String.format(
+                "Expected %d bytes but the stream ended after %d", totalSize, chunkStart + offset));
+      }
+      offset += read;
+    }
+    return chunkSize;
+  }
+
+  private int awaitReadAhead() throws IOException {
+    try {
+      return readAhead.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading the next chunk", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Unable to read the next chunk", e.getCause());
+    } finally {
+      readAhead = null;
+    }
+  }
+
+  private static byte[] acquireBuffer(long totalSize) {
+    Preconditions.checkArgument(totalSize >= 0, "totalSize must not be negative");
+    if (totalSize < CHUNK_SIZE) {
+      return new byte[(int) totalSize];
+    }
+    byte[] buffer = BUFFER_POOL.poll();
+    return buffer != null ? buffer : new byte[CHUNK_SIZE];
+  }
+
+  private static void releaseBuffer(byte[] buffer) {
+    if (buffer != null && buffer.length == CHUNK_SIZE) {
+      BUFFER_POOL.offer(buffer);
+    }
+  }
+}
@@ -22,10 +22,11 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.Collection;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import okhttp3.MediaType;
@@ -36,13 +37,14 @@ import okhttp3.Response;
 import okhttp3.ResponseBody;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
 import org.datatransferproject.spi.transfer.types.CopyExceptionWithFailureReason;
 import org.datatransferproject.spi.transfer.types.DestinationMemoryFullException;
 import org.datatransferproject.spi.transfer.types.PermissionDeniedException;
-import org.datatransferproject.transfer.microsoft.DataChunk;
+import org.datatransferproject.transfer.microsoft.DataChunkReader;
 import org.datatransferproject.transfer.microsoft.MicrosoftTransmogrificationConfig;
 import org.datatransferproject.transfer.microsoft.common.MicrosoftCredentialFactory;
 import org.datatransferproject.types.common.DownloadableFile;
@@ -200,28 +202,33 @@ public class MicrosoftMediaImporter
   private String importDownloadableItem(
       DownloadableFile item, UUID jobId,
       IdempotentImportExecutor idempotentImportExecutor) throws Exception {
-    BufferedInputStream inputStream = null;
+    InputStream inputStream;
+    long totalSize;
     if (item.isInTempStore()) {
-      inputStream =
-          new BufferedInputStream(jobStore.getStream(jobId, item.getFetchableUrl()).getStream());
+      InputStreamWrapper streamWrapper = jobStore.getStream(jobId, item.getFetchableUrl());
+      inputStream = new BufferedInputStream(streamWrapper.getStream());
+      totalSize = streamWrapper.getBytes() != null ? streamWrapper.getBytes() : -1;
     } else if (item.getFetchableUrl() != null) {
-      inputStream = new BufferedInputStream(new URL(item.getFetchableUrl()).openStream());
+      URLConnection connection = new URL(item.getFetchableUrl()).openConnection();
+      inputStream = new BufferedInputStream(connection.getInputStream());
+      totalSize = connection.getContentLengthLong();
     } else {
       throw new IllegalStateException("Don't know how to get the inputStream for " + item);
     }
 
     String itemUploadUrl = createUploadSession(item, idempotentImportExecutor);
 
-    // Arrange the data to be uploaded in chunks
-    List<DataChunk> chunksToSend = DataChunk.splitData(inputStream);
-    inputStream.close();
-    final int totalFileSize = chunksToSend.stream().map(DataChunk::getSize).reduce(0, Integer::sum);
-    Preconditions.checkState(
-        chunksToSend.size() != 0, "Data was split into zero chunks %s.", item.getName());
-
+    // Upload the data one chunk at a time, reading the next chunk during the upload
     Response chunkResponse = null;
-    for (DataChunk chunk : chunksToSend) {
-      chunkResponse = uploadChunk(chunk, itemUploadUrl, totalFileSize, item.getMimeType());
+    try (DataChunkReader chunks = DataChunkReader.create(inputStream, totalSize, true)) {
+      Preconditions.checkState(
+          chunks.getTotalSize() != 0, "Data was split into zero chunks %s.", item.getName());
+      while (chunks.readNextChunk()) {
+        if (chunkResponse != null) {
+          chunkResponse.close();
+        }
+        chunkResponse = uploadChunk(chunks, itemUploadUrl, item.getMimeType());
+      }
     }
     if (chunkResponse.code() != 200 && chunkResponse.code() != 201) {
       // Once we upload the last chunk, we should have either 200 or 201.
@@ -333,14 +340,14 @@ public class MicrosoftMediaImporter
     return new Request.Builder().url(createSessionUrl);
   }
 
-  // Uploads a single DataChunk to an upload URL
+  // Uploads the current chunk of a DataChunkReader to an upload URL
   // PUT to {photoUploadUrl}
   // HEADERS
   // Content-Length: {chunk size in bytes}
   // Content-Range: bytes {begin}-{end}/{total size}
   // body={bytes}
-  private Response uploadChunk(DataChunk chunk, String photoUploadUrl, int totalFileSize,
-      String mediaType) throws IOException, DestinationMemoryFullException {
+  private Response uploadChunk(DataChunkReader chunk, String photoUploadUrl, String mediaType)
+      throws IOException, DestinationMemoryFullException {
     Request.Builder uploadRequestBuilder = new Request.Builder().url(photoUploadUrl);
     uploadRequestBuilder.header("Authorization", "Bearer " + credential.getAccessToken());
 
@@ -351,7 +358,8 @@ public class MicrosoftMediaImporter
 
     // set chunk data headers, indicating size and chunk range
     final String contentRange =
-        String.format("bytes %d-%d/%d", chunk.getStart(), chunk.getEnd(), totalFileSize);
+        String.format(
+            "bytes %d-%d/%d", chunk.getStart(), chunk.getEnd(), chunk.getTotalSize());
     uploadRequestBuilder.header("Content-Range", contentRange);
     uploadRequestBuilder.header("Content-Length", String.format("%d", chunk.getSize()));
 
@@ -376,9 +384,11 @@ public class MicrosoftMediaImporter
       throw new IOException("Got error code: " + chunkCode + " message: " + chunkResponse.message()
           + " body: " + chunkResponse.body().string());
     } else if (chunkCode == 200 || chunkCode == 201 || chunkCode == 202) {
+      final long start = chunk.getStart();
+      final long end = chunk.getEnd();
       monitor.info(()
                        -> String.format("Uploaded chunk %s-%s successfuly, code %d",
-                           chunk.getStart(), chunk.getEnd(), chunkCode));
+                           start, end, chunkCode));
     }
     return chunkResponse;
   }
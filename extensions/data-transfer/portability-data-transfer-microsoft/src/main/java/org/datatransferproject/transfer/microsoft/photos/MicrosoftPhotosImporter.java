@@ -22,9 +22,10 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import okhttp3.MediaType;
@@ -35,13 +36,14 @@ import okhttp3.Response;
 import okhttp3.ResponseBody;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
 import org.datatransferproject.spi.transfer.types.CopyExceptionWithFailureReason;
 import org.datatransferproject.spi.transfer.types.DestinationMemoryFullException;
 import org.datatransferproject.spi.transfer.types.PermissionDeniedException;
-import org.datatransferproject.transfer.microsoft.DataChunk;
+import org.datatransferproject.transfer.microsoft.DataChunkReader;
 import org.datatransferproject.transfer.microsoft.MicrosoftTransmogrificationConfig;
 import org.datatransferproject.transfer.microsoft.common.MicrosoftCredentialFactory;
 import org.datatransferproject.types.common.models.photos.PhotoAlbum;
@@ -192,27 +194,33 @@ public class MicrosoftPhotosImporter
     PhotoModel photo,
     UUID jobId,
     IdempotentImportExecutor idempotentImportExecutor) throws Exception {
-    BufferedInputStream inputStream = null;
+    InputStream inputStream;
+    long totalSize;
     if (photo.isInTempStore()) {
-      inputStream = new BufferedInputStream(jobStore.getStream(jobId, photo.getFetchableUrl()).getStream());
+      InputStreamWrapper streamWrapper = jobStore.getStream(jobId, photo.getFetchableUrl());
+      inputStream = new BufferedInputStream(streamWrapper.getStream());
+      totalSize = streamWrapper.getBytes() != null ? streamWrapper.getBytes() : -1;
     } else if (photo.getFetchableUrl() != null) {
-      inputStream = new BufferedInputStream(new URL(photo.getFetchableUrl()).openStream());
+      URLConnection connection = new URL(photo.getFetchableUrl()).openConnection();
+      inputStream = new BufferedInputStream(connection.getInputStream());
+      totalSize = connection.getContentLengthLong();
     } else {
       throw new IllegalStateException("Don't know how to get the inputStream for " + photo);
     }
 
     String photoUploadUrl = createUploadSession(photo, idempotentImportExecutor);
 
-    // Arrange the data to be uploaded in chunks
-    List<DataChunk> chunksToSend = DataChunk.splitData(inputStream);
-    inputStream.close();
-    final int totalFileSize = chunksToSend.stream().map(DataChunk::getSize).reduce(0, Integer::sum);
-    Preconditions.checkState(
-        chunksToSend.size() != 0, "Data was split into zero chunks %s.", photo.getTitle());
-
+    // Upload the data one chunk at a time, reading the next chunk during the upload
     Response chunkResponse = null;
-    for (DataChunk chunk : chunksToSend) {
-      chunkResponse = uploadChunk(chunk, photoUploadUrl, totalFileSize, photo.getMediaType());
+    try (DataChunkReader chunks = DataChunkReader.create(inputStream, totalSize, true)) {
+      Preconditions.checkState(
+          chunks.getTotalSize() != 0, "Data was split into zero chunks %s.", photo.getTitle());
+      while (chunks.readNextChunk()) {
+        if (chunkResponse != null) {
+          chunkResponse.close();
+        }
+        chunkResponse = uploadChunk(chunks, photoUploadUrl, photo.getMediaType());
+      }
     }
     if (chunkResponse.code() != 200 && chunkResponse.code() != 201) {
       // Once we upload the last chunk, we should have either 200 or 201.
@@ -318,13 +326,13 @@ public class MicrosoftPhotosImporter
     return (String) responseData.get("uploadUrl");
   }
 
-  // Uploads a single DataChunk to an upload URL
+  // Uploads the current chunk of a DataChunkReader to an upload URL
   // PUT to {photoUploadUrl}
   // HEADERS
   // Content-Length: {chunk size in bytes}
   // Content-Range: bytes {begin}-{end}/{total size}
   // body={bytes}
-  private Response uploadChunk(DataChunk chunk, String photoUploadUrl, int totalFileSize, String mediaType)
+  private Response uploadChunk(DataChunkReader chunk, String photoUploadUrl, String mediaType)
           throws IOException, DestinationMemoryFullException {
 
     Request.Builder uploadRequestBuilder = new Request.Builder().url(photoUploadUrl);
@@ -336,7 +344,8 @@ public class MicrosoftPhotosImporter
 
     // set chunk data headers, indicating size and chunk range
     final String contentRange =
-        String.format("bytes %d-%d/%d", chunk.getStart(), chunk.getEnd(), totalFileSize);
+        String.format(
+            "bytes %d-%d/%d", chunk.getStart(), chunk.getEnd(), chunk.getTotalSize());
     uploadRequestBuilder.header("Content-Range", contentRange);
     uploadRequestBuilder.header("Content-Length", String.format("%d", chunk.getSize()));
 
@@ -368,11 +377,12 @@ public class MicrosoftPhotosImporter
               + " body: "
               + chunkResponse.body().string());
     } else if (chunkCode == 200 || chunkCode == 201 || chunkCode == 202) {
+      final long start = chunk.getStart();
+      final long end = chunk.getEnd();
       monitor.info(
           () ->
               String.format(
-                  "Uploaded chunk %s-%s successfuly, code %d",
-                  chunk.getStart(), chunk.getEnd(), chunkCode));
+                  "Uploaded chunk %s-%s successfuly, code %d", start, end, chunkCode));
     }
     return chunkResponse;
   }
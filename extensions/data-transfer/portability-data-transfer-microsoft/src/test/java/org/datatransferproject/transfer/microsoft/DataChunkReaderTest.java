@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.microsoft;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.datatransferproject.transfer.microsoft.DataChunk.CHUNK_SIZE;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class DataChunkReaderTest {
+
+  @Test
+  public void readsChunksWithReadAhead() throws IOException {
+    byte[] data = new byte[2 * CHUNK_SIZE + 10];
+    Arrays.fill(data, CHUNK_SIZE, 2 * CHUNK_SIZE, (byte) 1);
+    Arrays.fill(data, 2 * CHUNK_SIZE, data.length, (byte) 2);
+
+    try (DataChunkReader reader =
+        DataChunkReader.create(new ByteArrayInputStream(data), data.length, true)) {
+      for (int chunk = 0; chunk < 2; chunk++) {
+        assertThat(reader.readNextChunk()).isTrue();
+        assertThat(reader.getSize()).isEqualTo(CHUNK_SIZE);
+        assertThat(reader.getStart()).isEqualTo((long) chunk * CHUNK_SIZE);
+        assertThat(reader.getData()[0]).isEqualTo((byte) chunk);
+        assertThat(reader.getData()[CHUNK_SIZE - 1]).isEqualTo((byte) chunk);
+      }
+      assertThat(reader.readNextChunk()).isTrue();
+      assertThat(reader.getSize()).isEqualTo(10);
+      assertThat(reader.getEnd()).isEqualTo(data.length - 1L);
+      assertThat(reader.getData()[9]).isEqualTo((byte) 2);
+      assertThat(reader.readNextChunk()).isFalse();
+    }
+  }
+
+  @Test
+  public void smallStreamOfUnknownSizeIsReadInOneChunk() throws IOException {
+    try (DataChunkReader reader =
+        DataChunkReader.create(new ByteArrayInputStream(new byte[100]), -1, true)) {
+      assertThat(reader.getTotalSize()).isEqualTo(100L);
+      assertThat(reader.readNextChunk()).isTrue();
+      assertThat(reader.getData()).hasLength(100);
+      assertThat(reader.readNextChunk()).isFalse();
+    }
+  }
+
+  @Test
+  public void truncatedStreamFails() throws IOException {
+    try (DataChunkReader reader =
+        DataChunkReader.create(new ByteArrayInputStream(new byte[100]), 200, false)) {
+      assertThrows(EOFException.class, reader::readNextChunk);
+    }
+  }
+}
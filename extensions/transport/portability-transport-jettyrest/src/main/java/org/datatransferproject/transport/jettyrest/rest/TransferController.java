@@ -24,6 +24,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 
 /** */
@@ -76,10 +77,12 @@ public class TransferController {
         return reserveWorkerAction.handle(reserveWorker);
     }
 
+    /** With {@code wait}, waits up to that many seconds for the worker to be reserved. */
     @GET
     @Path("worker/{id}")
-    public ReservedWorker getWorker(@PathParam("id") String id) {
-        return getReservedWorkerAction.handle((new GetReservedWorker(id)));
+    public ReservedWorker getWorker(
+            @PathParam("id") String id, @QueryParam("wait") Integer waitSeconds) {
+        return getReservedWorkerAction.handle((new GetReservedWorker(id, waitSeconds)));
     }
 
     @POST
@@ -46,6 +46,12 @@ public interface DtpInternalMetricRecorder {
       String importService,
       Duration duration);
 
+  /**
+   * A worker tried to claim a job that was created {@code jobAge} before. {@code claimed} is false
+   * if another worker claimed it first.
+   **/
+  void jobClaimAttempted(DataVertical dataType, boolean claimed, Duration jobAge);
+
   /** An single attempt to export a page of data finished. **/
   void exportPageAttemptFinished(
       DataVertical dataType,
@@ -66,6 +72,25 @@ public interface DtpInternalMetricRecorder {
   /** An attempt to import a page of data finished including all retires. **/
   void importPageFinished(DataVertical dataType, String service, boolean success, Duration duration);
 
+  // Item level metrics
+
+  /**
+   * The content of an item was downloaded for {@code service}, {@code bytes} of it in {@code
+   * duration}. {@code success} is false if the download failed or was abandoned.
+   **/
+  void itemDownloaded(
+      DataVertical dataType, String service, boolean success, long bytes, Duration duration);
+
+  /**
+   * An item was imported to {@code service}. {@code cached} is true if it had been imported before
+   * and was only looked up, which took {@code duration}.
+   **/
+  void itemImportFinished(
+      DataVertical dataType, String service, boolean success, boolean cached, Duration duration);
+
+  /** A failed attempt to call {@code service} is retried after {@code delay}. **/
+  void retryScheduled(DataVertical dataType, String service, int attempt, Duration delay);
+
   // Metrics from {@link MetricRecorder}
   void recordGenericMetric(DataVertical dataType, String service, String tag);
   void recordGenericMetric(DataVertical dataType, String service, String tag, boolean bool);
@@ -57,4 +57,16 @@ public interface MetricRecorder {
    * @param value    a numeric value related to the event
    */
   void recordMetric(DataVertical dataType, String tag, int value);
+
+  /**
+   * Record the download of the content of an item, e.g. by a
+   * {@code org.datatransferproject.spi.cloud.connection.ConnectionProvider}.
+   *
+   * @param dataType the data type being processed
+   * @param success  false if the download failed or was abandoned
+   * @param bytes    the number of bytes downloaded
+   * @param duration the time from starting the download until the last byte was read
+   */
+  default void recordItemDownload(
+      DataVertical dataType, boolean success, long bytes, Duration duration) {}
 }
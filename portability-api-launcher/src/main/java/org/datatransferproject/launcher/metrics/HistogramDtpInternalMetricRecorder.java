@@ -0,0 +1,443 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.metrics;
+
+import static java.lang.String.format;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.types.common.models.DataVertical;
+
+/**
+ * A {@link DtpInternalMetricRecorder} that keeps latency and size histograms and counters in
+ * memory, and forwards every metric to the recorder it wraps.
+ *
+ * <p>A summary of the histograms is logged periodically, and they can be scraped in the
+ * Prometheus text format from {@code /metrics} on a port of their own.
+ */
+public class HistogramDtpInternalMetricRecorder implements DtpInternalMetricRecorder {
+  /** Whether to keep histograms, false by default. */
+  public static final String ENABLED_SETTING = "histogramMetricsEnabled";
+  /** How often a summary is logged, 0 to only log it on shutdown. */
+  public static final String SUMMARY_INTERVAL_SETTING = "histogramMetricsSummarySeconds";
+  /** The port to serve the Prometheus endpoint on, 0 (the default) to not serve it. */
+  public static final String PROMETHEUS_PORT_SETTING = "histogramMetricsPrometheusPort";
+  /**
+   * The address to serve the Prometheus endpoint on, the loopback address by default. The endpoint
+   * isn't authenticated, so only expose it to networks the scraper is on.
+   */
+  public static final String PROMETHEUS_ADDRESS_SETTING = "histogramMetricsPrometheusAddress";
+
+  private static final String PREFIX = "dtp_";
+  private static final String SECONDS_SUFFIX = "_seconds";
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+  private final DtpInternalMetricRecorder delegate;
+  private final ConcurrentMap<Series, LogLinearHistogram> histograms = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Series, LongAdder> counters = new ConcurrentHashMap<>();
+
+  /**
+   * Wraps the {@link DtpInternalMetricRecorder} registered in the {@link ExtensionContext} in a
+   * HistogramDtpInternalMetricRecorder if enabled by the {@value #ENABLED_SETTING} setting. Call
+   * after {@link LoggingDtpInternalMetricRecorder#registerRecorderIfNeeded}.
+   */
+  public static void registerRecorderIfEnabled(ExtensionContext context) {
+    DtpInternalMetricRecorder registered = context.getService(DtpInternalMetricRecorder.class);
+    if (!context.getSetting(ENABLED_SETTING, false)
+        || registered instanceof HistogramDtpInternalMetricRecorder) {
+      return;
+    }
+    Monitor monitor = context.getMonitor();
+    HistogramDtpInternalMetricRecorder recorder =
+        new HistogramDtpInternalMetricRecorder(registered);
+
+    int summarySeconds = context.getSetting(SUMMARY_INTERVAL_SETTING, 300);
+    if (summarySeconds > 0) {
+      ScheduledExecutorService executor =
+          Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder().setNameFormat("metrics-summary").setDaemon(true).build());
+      executor.scheduleAtFixedRate(
+          () -> recorder.logSummary(monitor), summarySeconds, summarySeconds, TimeUnit.SECONDS);
+    }
+
+    HttpServer prometheusServer = null;
+    int port = context.getSetting(PROMETHEUS_PORT_SETTING, 0);
+    if (port > 0) {
+      String address = context.getSetting(PROMETHEUS_ADDRESS_SETTING, "127.0.0.1");
+      try {
+        prometheusServer = PrometheusMetricsEndpoint.start(address, port, recorder);
+        monitor.info(() -> format("Serving Prometheus metrics on %s:%d", address, port));
+      } catch (IOException e) {
+        monitor.severe(
+            () -> format("Couldn't serve Prometheus metrics on %s:%d", address, port), e);
+      }
+    }
+    HttpServer server = prometheusServer;
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                () -> {
+                  if (server != null) {
+                    server.stop(0);
+                  }
+                  recorder.logSummary(monitor);
+                  monitor.flushLogs();
+                },
+                "metrics-summary-flush"));
+    context.registerService(DtpInternalMetricRecorder.class, recorder);
+  }
+
+  public HistogramDtpInternalMetricRecorder(DtpInternalMetricRecorder delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void startedJob(DataVertical dataType, String exportService, String importService) {
+    delegate.startedJob(dataType, exportService, importService);
+    count(
+        "jobs_started_total",
+        labels(
+            "data_type", dataType,
+            "export_service", exportService,
+            "import_service", importService),
+        1);
+  }
+
+  @Override
+  public void finishedJob(
+      DataVertical dataType,
+      String exportService,
+      String importService,
+      boolean success,
+      Duration duration) {
+    delegate.finishedJob(dataType, exportService, importService, success, duration);
+    recordDuration(
+        "job_duration_seconds",
+        labels(
+            "data_type", dataType,
+            "export_service", exportService,
+            "import_service", importService,
+            "success", success),
+        duration);
+  }
+
+  @Override
+  public void cancelledJob(
+      DataVertical dataType, String exportService, String importService, Duration duration) {
+    delegate.cancelledJob(dataType, exportService, importService, duration);
+    count(
+        "jobs_cancelled_total",
+        labels(
+            "data_type", dataType,
+            "export_service", exportService,
+            "import_service", importService),
+        1);
+  }
+
+  @Override
+  public void jobClaimAttempted(DataVertical dataType, boolean claimed, Duration jobAge) {
+    delegate.jobClaimAttempted(dataType, claimed, jobAge);
+    recordDuration(
+        "job_claim_age_seconds", labels("data_type", dataType, "claimed", claimed), jobAge);
+  }
+
+  @Override
+  public void exportPageAttemptFinished(
+      DataVertical dataType, String service, boolean success, Duration duration) {
+    delegate.exportPageAttemptFinished(dataType, service, success, duration);
+    recordDuration(
+        "export_page_attempt_seconds",
+        labels("data_type", dataType, "service", service, "success", success),
+        duration);
+  }
+
+  @Override
+  public void exportPageFinished(
+      DataVertical dataType, String service, boolean success, Duration duration) {
+    delegate.exportPageFinished(dataType, service, success, duration);
+    recordDuration(
+        "export_page_seconds",
+        labels("data_type", dataType, "service", service, "success", success),
+        duration);
+  }
+
+  @Override
+  public void importPageAttemptFinished(
+      DataVertical dataType, String service, boolean success, Duration duration) {
+    delegate.importPageAttemptFinished(dataType, service, success, duration);
+    recordDuration(
+        "import_page_attempt_seconds",
+        labels("data_type", dataType, "service", service, "success", success),
+        duration);
+  }
+
+  @Override
+  public void importPageFinished(
+      DataVertical dataType, String service, boolean success, Duration duration) {
+    delegate.importPageFinished(dataType, service, success, duration);
+    recordDuration(
+        "import_page_seconds",
+        labels("data_type", dataType, "service", service, "success", success),
+        duration);
+  }
+
+  @Override
+  public void itemDownloaded(
+      DataVertical dataType, String service, boolean success, long bytes, Duration duration) {
+    delegate.itemDownloaded(dataType, service, success, bytes, duration);
+    String labels = labels("data_type", dataType, "service", service, "success", success);
+    recordDuration("item_download_seconds", labels, duration);
+    record("item_download_bytes", labels, bytes);
+  }
+
+  @Override
+  public void itemImportFinished(
+      DataVertical dataType, String service, boolean success, boolean cached, Duration duration) {
+    delegate.itemImportFinished(dataType, service, success, cached, duration);
+    count("item_imports_total", labels("data_type", dataType, "service", service), 1);
+    if (cached) {
+      // Lookups would hide the latency of actual imports
+      count("item_imports_cached_total", labels("data_type", dataType, "service", service), 1);
+    } else {
+      recordDuration(
+          "item_import_seconds",
+          labels("data_type", dataType, "service", service, "success", success),
+          duration);
+    }
+  }
+
+  @Override
+  public void retryScheduled(DataVertical dataType, String service, int attempt, Duration delay) {
+    delegate.retryScheduled(dataType, service, attempt, delay);
+    recordDuration("retry_delay_seconds", labels("data_type", dataType, "service", service), delay);
+  }
+
+  @Override
+  public void recordGenericMetric(DataVertical dataType, String service, String tag) {
+    delegate.recordGenericMetric(dataType, service, tag);
+    count("generic_total", labels("data_type", dataType, "service", service, "tag", tag), 1);
+  }
+
+  @Override
+  public void recordGenericMetric(DataVertical dataType, String service, String tag, boolean bool) {
+    delegate.recordGenericMetric(dataType, service, tag, bool);
+    count(
+        "generic_total",
+        labels("data_type", dataType, "service", service, "tag", tag, "value", bool),
+        1);
+  }
+
+  @Override
+  public void recordGenericMetric(
+      DataVertical dataType, String service, String tag, Duration duration) {
+    delegate.recordGenericMetric(dataType, service, tag, duration);
+    recordDuration(
+        "generic_seconds", labels("data_type", dataType, "service", service, "tag", tag), duration);
+  }
+
+  @Override
+  public void recordGenericMetric(DataVertical dataType, String service, String tag, int value) {
+    delegate.recordGenericMetric(dataType, service, tag, value);
+    count(
+        "generic_value_total",
+        labels("data_type", dataType, "service", service, "tag", tag),
+        value);
+  }
+
+  /** Logs the count and quantiles of each histogram, and the throughput of downloads. */
+  void logSummary(Monitor monitor) {
+    Map<Series, LogLinearHistogram> sortedHistograms = new TreeMap<>(histograms);
+    if (sortedHistograms.isEmpty() && counters.isEmpty()) {
+      return;
+    }
+    StringBuilder summary = new StringBuilder("Metrics summary:");
+    for (Map.Entry<Series, LogLinearHistogram> entry : sortedHistograms.entrySet()) {
+      Series series = entry.getKey();
+      LogLinearHistogram histogram = entry.getValue();
+      summary.append('\n').append(series).append(" count=").append(histogram.getCount());
+      for (double quantile : QUANTILES) {
+        summary
+            .append(" p")
+            .append(Math.round(quantile * 100))
+            .append('=')
+            .append(formatValue(series, histogram.getValueAtQuantile(quantile)));
+      }
+      summary.append(" max=").append(formatValue(series, histogram.getMax()));
+      if (series.name.equals("item_download_bytes")) {
+        LogLinearHistogram durations =
+            histograms.get(new Series("item_download_seconds", series.labels));
+        if (durations != null && durations.getSum() > 0) {
+          double bytesPerSecond =
+              histogram.getSum() / (durations.getSum() / (double) TimeUnit.SECONDS.toNanos(1));
+          summary.append(format(" throughput=%.1fKiB/s", bytesPerSecond / 1024));
+        }
+      }
+    }
+    for (Map.Entry<Series, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+      summary.append('\n').append(entry.getKey()).append(' ').append(entry.getValue().sum());
+    }
+    monitor.info(summary::toString);
+  }
+
+  /** Appends every metric in the Prometheus text exposition format. */
+  void writePrometheus(StringBuilder out) {
+    String typedName = null;
+    for (Map.Entry<Series, LogLinearHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+      Series series = entry.getKey();
+      LogLinearHistogram histogram = entry.getValue();
+      String name = PREFIX + series.name;
+      if (!name.equals(typedName)) {
+        out.append("# TYPE ").append(name).append(" summary\n");
+        typedName = name;
+      }
+      String separator = series.labels.isEmpty() ? "" : ",";
+      for (double quantile : QUANTILES) {
+        out.append(name)
+            .append('{')
+            .append(series.labels)
+            .append(separator)
+            .append("quantile=\"")
+            .append(quantile)
+            .append("\"} ")
+            .append(toExportedValue(series, histogram.getValueAtQuantile(quantile)))
+            .append('\n');
+      }
+      appendSample(out, name + "_sum", series.labels, toExportedValue(series, histogram.getSum()));
+      appendSample(out, name + "_count", series.labels, Long.toString(histogram.getCount()));
+    }
+    for (Map.Entry<Series, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+      Series series = entry.getKey();
+      String name = PREFIX + series.name;
+      if (!name.equals(typedName)) {
+        out.append("# TYPE ").append(name).append(" counter\n");
+        typedName = name;
+      }
+      appendSample(out, name, series.labels, Long.toString(entry.getValue().sum()));
+    }
+  }
+
+  private void recordDuration(String name, String labels, Duration duration) {
+    record(name, labels, duration.toNanos());
+  }
+
+  private void record(String name, String labels, long value) {
+    histograms.computeIfAbsent(new Series(name, labels), series -> new LogLinearHistogram())
+        .record(value);
+  }
+
+  private void count(String name, String labels, long value) {
+    counters.computeIfAbsent(new Series(name, labels), series -> new LongAdder()).add(value);
+  }
+
+  private static void appendSample(StringBuilder out, String name, String labels, String value) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(value).append('\n');
+  }
+
+  // Durations are recorded in nanoseconds, but exported in seconds as Prometheus expects
+  private static String toExportedValue(Series series, long value) {
+    return series.name.endsWith(SECONDS_SUFFIX)
+        ? Double.toString(value / (double) TimeUnit.SECONDS.toNanos(1))
+        : Long.toString(value);
+  }
+
+  private static String formatValue(Series series, long value) {
+    return series.name.endsWith(SECONDS_SUFFIX)
+        ? format("%.1fms", value / (double) TimeUnit.MILLISECONDS.toNanos(1))
+        : Long.toString(value);
+  }
+
+  /** Formats label names and values, e.g. {@code data_type="PHOTOS",success="true"}. */
+  private static String labels(Object... namesAndValues) {
+    StringBuilder labels = new StringBuilder();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      if (i > 0) {
+        labels.append(',');
+      }
+      labels.append(namesAndValues[i]).append("=\"");
+      String value = String.valueOf(namesAndValues[i + 1]);
+      for (int j = 0; j < value.length(); j++) {
+        char c = value.charAt(j);
+        if (c == '"' || c == '\\') {
+          labels.append('\\').append(c);
+        } else if (c == '\n') {
+          labels.append("\\n");
+        } else {
+          labels.append(c);
+        }
+      }
+      labels.append('"');
+    }
+    return labels.toString();
+  }
+
+  /** A metric name with a set of label values. */
+  private static final class Series implements Comparable<Series> {
+    private final String name;
+    private final String labels;
+
+    private Series(String name, String labels) {
+      this.name = name;
+      this.labels = labels;
+    }
+
+    @Override
+    public int compareTo(Series other) {
+      int byName = name.compareTo(other.name);
+      return byName != 0 ? byName : labels.compareTo(other.labels);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Series)) {
+        return false;
+      }
+      Series series = (Series) o;
+      return name.equals(series.name) && labels.equals(series.labels);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(name, labels);
+    }
+
+    @Override
+    public String toString() {
+      return name + "{" + labels + "}";
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative long values, like latencies in nanoseconds or sizes in bytes, with
+ * a bounded relative error, in the manner of HdrHistogram.
+ *
+ * <p>Values below 32 have a bucket each. Above that, each power of two range is split into 32
+ * buckets, so a value is reported as at most ~3% larger than it was. Recording is lock-free and
+ * allocation-free; reads are not atomic with respect to concurrent recording.
+ */
+final class LogLinearHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  // One linear range for values below SUB_BUCKET_COUNT, then one per power of two up to 2^62
+  private static final int BUCKET_COUNT = SUB_BUCKET_COUNT * (64 - SUB_BUCKET_BITS);
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /** Records {@code value}, negative values are recorded as 0. */
+  void record(long value) {
+    value = Math.max(value, 0);
+    counts.incrementAndGet(bucketIndex(value));
+    sum.add(value);
+    max.accumulateAndGet(value, Math::max);
+  }
+
+  /** Returns the number of recorded values. */
+  long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  /** Returns the sum of the recorded values. */
+  long getSum() {
+    return sum.sum();
+  }
+
+  /** Returns the largest recorded value, or 0 if none was recorded. */
+  long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Returns a value that {@code quantile} (between 0 and 1) of the recorded values are at most,
+   * or 0 if none was recorded.
+   */
+  long getValueAtQuantile(double quantile) {
+    long count = getCount();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValueInBucket(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    // The position of the highest bit, at least SUB_BUCKET_BITS
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+    return SUB_BUCKET_COUNT * (shift + 1) + subBucket;
+  }
+
+  static long highestValueInBucket(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long subBucket = index % SUB_BUCKET_COUNT;
+    long lowest = (SUB_BUCKET_COUNT + subBucket) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
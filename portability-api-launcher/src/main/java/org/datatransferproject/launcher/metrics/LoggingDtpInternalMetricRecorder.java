@@ -56,6 +56,15 @@ public class LoggingDtpInternalMetricRecorder implements DtpInternalMetricRecord
                 dataType, exportService, importService));
   }
 
+  @Override
+  public void jobClaimAttempted(DataVertical dataType, boolean claimed, Duration jobAge) {
+    monitor.debug(
+        () ->
+            format(
+                "Metric: jobClaimAttempted, data type: %s, claimed: %s, job age: %s",
+                dataType, claimed, jobAge));
+  }
+
   @Override
   public void exportPageAttemptFinished(
       DataVertical dataType,
@@ -110,6 +119,37 @@ public class LoggingDtpInternalMetricRecorder implements DtpInternalMetricRecord
                 dataType, service, success, duration));
   }
 
+  @Override
+  public void itemDownloaded(
+      DataVertical dataType, String service, boolean success, long bytes, Duration duration) {
+    monitor.debug(
+        () ->
+            format(
+                "Metric: itemDownloaded, data type: %s, service: %s, success: %s, bytes: %s, "
+                    + "duration: %s",
+                dataType, service, success, bytes, duration));
+  }
+
+  @Override
+  public void itemImportFinished(
+      DataVertical dataType, String service, boolean success, boolean cached, Duration duration) {
+    monitor.debug(
+        () ->
+            format(
+                "Metric: itemImportFinished, data type: %s, service: %s, success: %s, cached: %s, "
+                    + "duration: %s",
+                dataType, service, success, cached, duration));
+  }
+
+  @Override
+  public void retryScheduled(DataVertical dataType, String service, int attempt, Duration delay) {
+    monitor.debug(
+        () ->
+            format(
+                "Metric: retryScheduled, data type: %s, service: %s, attempt: %s, delay: %s",
+                dataType, service, attempt, delay));
+  }
+
   @Override
   public void finishedJob(
       DataVertical dataType,
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.metrics;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Serves the metrics of a {@link HistogramDtpInternalMetricRecorder} for Prometheus to scrape.
+ * Uses the JDK's HTTP server, as workers don't run one of their own.
+ */
+final class PrometheusMetricsEndpoint {
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  /** Starts serving {@code /metrics} on {@code port} of {@code address}. */
+  static HttpServer start(String address, int port, HistogramDtpInternalMetricRecorder recorder)
+      throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress(address, port), 0);
+    server.createContext("/metrics", exchange -> respond(exchange, recorder));
+    ThreadFactory threadFactory =
+        new ThreadFactoryBuilder().setNameFormat("prometheus-metrics").setDaemon(true).build();
+    server.setExecutor(Executors.newSingleThreadExecutor(threadFactory));
+    server.start();
+    return server;
+  }
+
+  private static void respond(HttpExchange exchange, HistogramDtpInternalMetricRecorder recorder)
+      throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      StringBuilder metrics = new StringBuilder();
+      recorder.writePrometheus(metrics);
+      byte[] body = metrics.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private PrometheusMetricsEndpoint() {}
+}
@@ -56,4 +56,10 @@ public class ServiceAwareMetricRecorder implements MetricRecorder {
   public void recordMetric(DataVertical dataType, String tag, int value) {
     metricRecorder.recordGenericMetric(dataType, service, tag, value);
   }
+
+  @Override
+  public void recordItemDownload(
+      DataVertical dataType, boolean success, long bytes, Duration duration) {
+    metricRecorder.itemDownloaded(dataType, service, success, bytes, duration);
+  }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.monitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import org.datatransferproject.api.launcher.JobAwareMonitor;
+import org.datatransferproject.launcher.monitor.ConsoleMonitor.Level;
+
+/**
+ * A monitor that only records events on the calling thread, and leaves writing them to a {@link
+ * MonitorEventSink} to a background thread, which hands them over in batches.
+ *
+ * <p>Events below the level of the monitor are skipped before their message is evaluated. Events
+ * are queued in a lock-free ring buffer; when it is full, the {@link OverflowPolicy} decides
+ * whether callers wait or the event is dropped. Severe events are never dropped.
+ */
+public class AsyncMonitor implements JobAwareMonitor {
+  /** What to do with events recorded while the buffer is full. */
+  public enum OverflowPolicy {
+    /** Drops the event, the number of dropped events is reported with the next batch. */
+    DROP,
+    /** Waits for the writer thread to make room. */
+    BLOCK
+  }
+
+  public static final int DEFAULT_CAPACITY = 8192;
+  private static final int BATCH_SIZE = 256;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final long FLUSH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final MonitorEventSink sink;
+  private final Level level;
+  private final OverflowPolicy overflowPolicy;
+  private final MonitorEventRingBuffer buffer;
+  private final AtomicLong droppedEvents = new AtomicLong();
+  private final Thread writer;
+  // The number of buffered events handed to the sink, only advanced by the writer thread
+  private volatile long written = 0;
+  private volatile boolean writerIdle = false;
+  private volatile String jobId;
+
+  public AsyncMonitor(
+      MonitorEventSink sink, Level level, int capacity, OverflowPolicy overflowPolicy) {
+    this.sink = sink;
+    this.level = level;
+    this.overflowPolicy = overflowPolicy;
+    this.buffer = new MonitorEventRingBuffer(capacity);
+    this.writer = new Thread(this::writeEvents, "monitor-writer");
+    writer.setDaemon(true);
+    writer.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(this::flushLogs, "monitor-flush"));
+  }
+
+  @Override
+  public void severe(Supplier<String> supplier, Object... data) {
+    record(Level.SEVERE, supplier, data);
+  }
+
+  @Override
+  public void info(Supplier<String> supplier, Object... data) {
+    record(Level.INFO, supplier, data);
+  }
+
+  @Override
+  public void debug(Supplier<String> supplier, Object... data) {
+    record(Level.DEBUG, supplier, data);
+  }
+
+  @Override
+  public void setJobId(String jobId) {
+    this.jobId = jobId;
+  }
+
+  /** Waits until the events recorded so far are written, then flushes the sink. */
+  @Override
+  public void flushLogs() {
+    long recorded = buffer.added();
+    long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+    while (written < recorded && writer.isAlive() && System.nanoTime() - deadline < 0) {
+      LockSupport.unpark(writer);
+      LockSupport.parkNanos(FULL_PARK_NANOS);
+    }
+    sink.flush();
+  }
+
+  private void record(Level eventLevel, Supplier<String> supplier, Object... data) {
+    if (eventLevel.value < level.value) {
+      return;
+    }
+    Thread thread = Thread.currentThread();
+    MonitorEvent event =
+        new MonitorEvent(
+            eventLevel, System.currentTimeMillis(), thread.getName(), jobId, supplier.get(), data);
+    while (!buffer.offer(event)) {
+      if (overflowPolicy == OverflowPolicy.DROP && eventLevel != Level.SEVERE) {
+        droppedEvents.incrementAndGet();
+        return;
+      }
+      LockSupport.unpark(writer);
+      LockSupport.parkNanos(FULL_PARK_NANOS);
+    }
+    if (writerIdle) {
+      LockSupport.unpark(writer);
+    }
+  }
+
+  private void writeEvents() {
+    List<MonitorEvent> batch = new ArrayList<>(BATCH_SIZE + 1);
+    while (true) {
+      MonitorEvent event;
+      while (batch.size() < BATCH_SIZE && (event = buffer.poll()) != null) {
+        batch.add(event);
+      }
+      long taken = buffer.taken();
+      long dropped = droppedEvents.getAndSet(0);
+      if (dropped > 0) {
+        batch.add(
+            new MonitorEvent(
+                Level.INFO,
+                System.currentTimeMillis(),
+                writer.getName(),
+                jobId,
+                "Dropped " + dropped + " monitor events as the buffer was full",
+                null));
+      }
+      if (batch.isEmpty()) {
+        writerIdle = true;
+        // Events recorded before writerIdle was set didn't wake this thread up
+        if (buffer.taken() == buffer.added()) {
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        writerIdle = false;
+        continue;
+      }
+      try {
+        sink.write(batch);
+      } catch (RuntimeException e) {
+        // There's no other monitor to report this to
+        System.err.println("Couldn't write monitor events: " + e.getMessage());
+        e.printStackTrace(System.err);
+      }
+      written = taken;
+      batch.clear();
+    }
+  }
+}
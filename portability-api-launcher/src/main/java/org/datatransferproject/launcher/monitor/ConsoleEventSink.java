@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.monitor;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/** Writes each batch of events to a stream, e.g. the console, with a single write. */
+public class ConsoleEventSink implements MonitorEventSink {
+  private final PrintStream out;
+  private final MonitorEventEncoder encoder;
+  private final StringBuilder text = new StringBuilder();
+
+  public ConsoleEventSink(PrintStream out, MonitorEventEncoder encoder) {
+    this.out = out;
+    this.encoder = encoder;
+  }
+
+  @Override
+  public void write(List<MonitorEvent> events) {
+    text.setLength(0);
+    for (MonitorEvent event : events) {
+      encoder.encode(event, text);
+    }
+    out.print(text);
+    out.flush();
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.monitor;
+
+import com.google.common.base.Throwables;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import org.datatransferproject.launcher.monitor.events.EventCode;
+
+/**
+ * Encodes each event as a JSON object on a line of its own, for log collectors to index. For
+ * example:
+ *
+ * <pre>{"time":"2020-05-04T10:15:30.123Z","level":"INFO","thread":"main","jobId":"...",
+ * "eventCode":"WORKER_JOB_STARTED","message":"...","data":["..."],"exception":"..."}</pre>
+ *
+ * <p>Only the fields an event has are written. A {@link UUID} data item is written as the job ID,
+ * an {@link EventCode} as the event code, and a {@link Throwable} as the exception stack trace.
+ */
+public class JsonMonitorEventEncoder implements MonitorEventEncoder {
+
+  @Override
+  public void encode(MonitorEvent event, StringBuilder out) {
+    String jobId = event.getJobId();
+    String eventCode = null;
+    Throwable exception = null;
+    boolean hasData = false;
+
+    out.append("{\"time\":\"");
+    DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(event.getTimeMillis()), out);
+    out.append("\",\"level\":\"").append(event.getLevel()).append('"');
+    appendField(out, "thread", event.getThreadName());
+    for (Object datum : event.getData()) {
+      if (datum instanceof UUID) {
+        jobId = datum.toString();
+      } else if (datum instanceof EventCode) {
+        eventCode = datum.toString();
+      } else if (datum instanceof Throwable) {
+        exception = exception == null ? (Throwable) datum : exception;
+      }
+    }
+    appendField(out, "jobId", jobId);
+    appendField(out, "eventCode", eventCode);
+    appendField(out, "message", event.getMessage());
+    for (Object datum : event.getData()) {
+      if (datum == null
+          || datum instanceof UUID
+          || datum instanceof EventCode
+          || datum == exception) {
+        continue;
+      }
+      if (!hasData) {
+        out.append(",\"data\":[");
+        hasData = true;
+      } else {
+        out.append(',');
+      }
+      appendString(out, datum instanceof Throwable
+          ? Throwables.getStackTraceAsString((Throwable) datum)
+          : datum.toString());
+    }
+    if (hasData) {
+      out.append(']');
+    }
+    if (exception != null) {
+      appendField(out, "exception", Throwables.getStackTraceAsString(exception));
+    }
+    out.append("}\n");
+  }
+
+  private static void appendField(StringBuilder out, String name, String value) {
+    if (value == null) {
+      return;
+    }
+    out.append(",\"").append(name).append("\":");
+    appendString(out, value);
+  }
+
+  private static void appendString(StringBuilder out, String value) {
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            out.append(String.format("\\u%04x", (int) c));
+          } else {
+            out.append(c);
+          }
+      }
+    }
+    out.append('"');
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.monitor;
+
+import org.datatransferproject.launcher.monitor.ConsoleMonitor.Level;
+
+/**
+ * A monitor event as recorded on the calling thread, written to a {@link MonitorEventSink} later.
+ * The message is already evaluated; data items are only turned into text by the sink.
+ */
+public final class MonitorEvent {
+  private static final Object[] NO_DATA = new Object[0];
+
+  private final Level level;
+  private final long timeMillis;
+  private final String threadName;
+  private final String jobId;
+  private final String message;
+  private final Object[] data;
+
+  public MonitorEvent(
+      Level level,
+      long timeMillis,
+      String threadName,
+      String jobId,
+      String message,
+      Object[] data) {
+    this.level = level;
+    this.timeMillis = timeMillis;
+    this.threadName = threadName;
+    this.jobId = jobId;
+    this.message = message;
+    this.data = data != null ? data : NO_DATA;
+  }
+
+  public Level getLevel() {
+    return level;
+  }
+
+  public long getTimeMillis() {
+    return timeMillis;
+  }
+
+  public String getThreadName() {
+    return threadName;
+  }
+
+  /** Returns the job ID set on the monitor, or null. */
+  public String getJobId() {
+    return jobId;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public Object[] getData() {
+    return data;
+  }
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.monitor;
+
+/** Turns a {@link MonitorEvent} into text, see {@link ConsoleEventSink}. */
+public interface MonitorEventEncoder {
+
+  /** Appends {@code event} to {@code out}, ending with a line break. */
+  void encode(MonitorEvent event, StringBuilder out);
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.monitor;
+
+import com.google.common.base.Preconditions;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue of events for many producers and a single consumer.
+ *
+ * <p>Each slot has a sequence number telling whose turn it is: a producer may fill slot {@code i}
+ * at position {@code p} once its sequence is {@code p}, and publishes the event by setting it to
+ * {@code p + 1}, which is what the consumer waits for. Taking the event sets it to {@code p +
+ * capacity}, handing the slot to the producer one lap later.
+ */
+final class MonitorEventRingBuffer {
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<MonitorEvent> events;
+  private final AtomicLongArray sequences;
+  // The next position to fill
+  private final AtomicLong tail = new AtomicLong();
+  // The next position to take, only advanced by the consumer
+  private volatile long head = 0;
+
+  /** Creates a buffer of {@code capacity} slots, which must be a power of two. */
+  MonitorEventRingBuffer(int capacity) {
+    Preconditions.checkArgument(
+        capacity > 0 && Integer.bitCount(capacity) == 1, "Capacity must be a power of two");
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.events = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /** Adds {@code event}, returns false if the buffer is full. */
+  boolean offer(MonitorEvent event) {
+    while (true) {
+      long position = tail.get();
+      int index = (int) position & mask;
+      long lag = sequences.get(index) - position;
+      if (lag == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          events.lazySet(index, event);
+          sequences.set(index, position + 1);
+          return true;
+        }
+      } else if (lag < 0) {
+        // The slot still holds the event of the previous lap
+        return false;
+      }
+      // Otherwise another producer took the position first
+    }
+  }
+
+  /** Takes the oldest event, or returns null if there is none. Only called by the consumer. */
+  MonitorEvent poll() {
+    long position = head;
+    int index = (int) position & mask;
+    if (sequences.get(index) != position + 1) {
+      return null;
+    }
+    MonitorEvent event = events.get(index);
+    events.lazySet(index, null);
+    sequences.set(index, position + capacity);
+    head = position + 1;
+    return event;
+  }
+
+  /** Returns the number of events added so far. */
+  long added() {
+    return tail.get();
+  }
+
+  /** Returns the number of events taken so far. */
+  long taken() {
+    return head;
+  }
+}
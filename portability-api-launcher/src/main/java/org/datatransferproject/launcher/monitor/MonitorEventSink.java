@@ -0,0 +1,32 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.monitor;
+
+import java.util.List;
+
+/** Where an {@link AsyncMonitor} writes its events to, a batch at a time. */
+public interface MonitorEventSink {
+
+  /**
+   * Writes {@code events}, in the order they were recorded. Only called by the writer thread of
+   * the monitor, and the list is reused once this returns.
+   */
+  void write(List<MonitorEvent> events);
+
+  /** Makes sure written events are sent. */
+  default void flush() {}
+}
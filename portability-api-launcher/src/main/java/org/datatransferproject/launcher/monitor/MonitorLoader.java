@@ -20,12 +20,27 @@ import org.datatransferproject.api.launcher.MonitorExtension;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.ServiceLoader;
+import org.datatransferproject.launcher.monitor.AsyncMonitor.OverflowPolicy;
+import org.datatransferproject.launcher.monitor.ConsoleMonitor.Level;
 
 import static org.datatransferproject.launcher.monitor.ConsoleMonitor.Level.DEBUG;
 
-/** Helper for loading monitor extensions. */
+/**
+ * Helper for loading monitor extensions.
+ *
+ * <p>Monitors are loaded before any settings are read, so writing events asynchronously is
+ * configured through system properties: {@code dtp.monitor.async} ({@code true} to write on a
+ * background thread), {@code dtp.monitor.format} ({@code text} or {@code json}) and {@code
+ * dtp.monitor.overflow} ({@code drop} or {@code block} when events are recorded faster than they
+ * are written).
+ */
 public class MonitorLoader {
+  private static final String ASYNC_PROPERTY = "dtp.monitor.async";
+  private static final String FORMAT_PROPERTY = "dtp.monitor.format";
+  private static final String OVERFLOW_PROPERTY = "dtp.monitor.overflow";
+
   private static Monitor monitor;
   public static synchronized Monitor loadMonitor() {
     if (monitor == null) {
@@ -44,7 +59,7 @@ public class MonitorLoader {
                   }
                 });
         if (monitors.isEmpty()) {
-          monitor = new ConsoleMonitor(DEBUG);
+          monitor = createConsoleMonitor(DEBUG);
         } else if (monitors.size() == 1) {
           monitor = monitors.get(0);
         } else {
@@ -60,5 +75,33 @@ public class MonitorLoader {
     return monitor;
   }
 
+  /** Returns whether monitors should write events on a background thread. */
+  public static boolean isAsync() {
+    return Boolean.getBoolean(ASYNC_PROPERTY);
+  }
+
+  /** Creates a monitor writing events at or above {@code level} to {@code sink} asynchronously. */
+  public static Monitor createAsyncMonitor(MonitorEventSink sink, Level level) {
+    OverflowPolicy overflowPolicy =
+        OverflowPolicy.valueOf(
+            System.getProperty(OVERFLOW_PROPERTY, "drop").toUpperCase(Locale.ROOT));
+    return new AsyncMonitor(sink, level, AsyncMonitor.DEFAULT_CAPACITY, overflowPolicy);
+  }
+
+  /**
+   * Creates a monitor writing to the console, asynchronously and in the configured format if
+   * {@link #isAsync()}.
+   */
+  public static Monitor createConsoleMonitor(Level level) {
+    if (!isAsync()) {
+      return new ConsoleMonitor(level);
+    }
+    MonitorEventEncoder encoder =
+        "json".equalsIgnoreCase(System.getProperty(FORMAT_PROPERTY))
+            ? new JsonMonitorEventEncoder()
+            : new TextMonitorEventEncoder(!System.getProperty("os.name").contains("Windows"));
+    return createAsyncMonitor(new ConsoleEventSink(System.out, encoder), level);
+  }
+
   private MonitorLoader() {}
 }
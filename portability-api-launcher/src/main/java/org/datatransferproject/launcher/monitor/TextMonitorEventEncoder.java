@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.monitor;
+
+import com.google.common.base.Throwables;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import org.datatransferproject.launcher.monitor.events.EventCode;
+
+/** Encodes events in the format of {@link ConsoleMonitor}, with ANSI colors if enabled. */
+public class TextMonitorEventEncoder implements MonitorEventEncoder {
+  private static final String ANSI_RESET = "\u001B[0m";
+  private static final String ANSI_BLACK = "\u001B[30m";
+  private static final String ANSI_RED = "\u001B[31m";
+  private static final String ANSI_BLUE = "\u001B[34m";
+
+  private final boolean ansi;
+  private final ZoneId zone = ZoneId.systemDefault();
+
+  public TextMonitorEventEncoder(boolean ansi) {
+    this.ansi = ansi;
+  }
+
+  @Override
+  public void encode(MonitorEvent event, StringBuilder out) {
+    if (ansi) {
+      out.append(getColor(event.getLevel()));
+    }
+    out.append(event.getLevel()).append(' ');
+    DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(
+        LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getTimeMillis()), zone), out);
+    out.append(' ').append(event.getMessage());
+    if (ansi) {
+      out.append(ANSI_RESET);
+    }
+    out.append('\n');
+    for (Object datum : event.getData()) {
+      if (datum instanceof Throwable) {
+        out.append(Throwables.getStackTraceAsString((Throwable) datum));
+      } else if (datum instanceof UUID) {
+        out.append("JobId: ").append(datum).append('\n');
+      } else if (datum instanceof EventCode) {
+        out.append("EventCode: ").append(datum).append('\n');
+      } else if (datum != null) {
+        out.append(datum).append('\n');
+      }
+    }
+  }
+
+  private static String getColor(ConsoleMonitor.Level level) {
+    switch (level) {
+      case SEVERE:
+        return ANSI_RED;
+      case INFO:
+        return ANSI_BLUE;
+      default:
+        return ANSI_BLACK;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.types.common.models.DataVertical;
+import org.junit.jupiter.api.Test;
+
+public class HistogramDtpInternalMetricRecorderTest {
+
+  @Test
+  public void histogramQuantilesAreWithinItsPrecision() {
+    LogLinearHistogram histogram = new LogLinearHistogram();
+    for (long value = 1; value <= 10_000; value++) {
+      histogram.record(value * 1000);
+    }
+
+    assertThat(histogram.getCount()).isEqualTo(10_000);
+    assertThat(histogram.getMax()).isEqualTo(10_000_000);
+    assertThat((double) histogram.getValueAtQuantile(0.5)).isWithin(5_000_000 * 0.04)
+        .of(5_000_000);
+    assertThat((double) histogram.getValueAtQuantile(0.99)).isWithin(9_900_000 * 0.04)
+        .of(9_900_000);
+    assertThat(histogram.getValueAtQuantile(1)).isEqualTo(10_000_000);
+  }
+
+  @Test
+  public void bucketsCoverEveryValue() {
+    for (long value : new long[] {0, 31, 32, 63, 64, 1000, 1L << 40, Long.MAX_VALUE}) {
+      int index = LogLinearHistogram.bucketIndex(value);
+      assertThat(LogLinearHistogram.highestValueInBucket(index)).isAtLeast(value);
+      if (index > 0) {
+        assertThat(LogLinearHistogram.highestValueInBucket(index - 1)).isLessThan(value);
+      }
+    }
+  }
+
+  @Test
+  public void metricsAreForwardedAndExported() {
+    DtpInternalMetricRecorder delegate = mock(DtpInternalMetricRecorder.class);
+    HistogramDtpInternalMetricRecorder recorder = new HistogramDtpInternalMetricRecorder(delegate);
+
+    recorder.itemDownloaded(DataVertical.PHOTOS, "example", true, 2048, Duration.ofSeconds(2));
+    recorder.itemImportFinished(DataVertical.PHOTOS, "example", true, true, Duration.ZERO);
+    StringBuilder out = new StringBuilder();
+    recorder.writePrometheus(out);
+
+    verify(delegate)
+        .itemDownloaded(DataVertical.PHOTOS, "example", true, 2048, Duration.ofSeconds(2));
+    String labels = "data_type=\"PHOTOS\",service=\"example\"";
+    assertThat(out.toString()).contains("# TYPE dtp_item_download_seconds summary\n");
+    assertThat(out.toString())
+        .contains("dtp_item_download_seconds_sum{" + labels + ",success=\"true\"} 2.0\n");
+    assertThat(out.toString())
+        .contains("dtp_item_download_bytes_count{" + labels + ",success=\"true\"} 1\n");
+    assertThat(out.toString()).contains("dtp_item_imports_cached_total{" + labels + "} 1\n");
+    assertThat(out.toString()).doesNotContain("dtp_item_import_seconds");
+  }
+}
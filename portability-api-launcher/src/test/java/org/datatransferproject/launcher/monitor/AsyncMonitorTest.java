@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.launcher.monitor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import org.datatransferproject.launcher.monitor.AsyncMonitor.OverflowPolicy;
+import org.datatransferproject.launcher.monitor.ConsoleMonitor.Level;
+import org.junit.jupiter.api.Test;
+
+public class AsyncMonitorTest {
+
+  @Test
+  public void eventsBelowTheLevelAreNotEvaluated() {
+    RecordingSink sink = new RecordingSink();
+    AsyncMonitor monitor = new AsyncMonitor(sink, Level.INFO, 16, OverflowPolicy.BLOCK);
+
+    monitor.debug(
+        () -> {
+          throw new AssertionError("debug message evaluated");
+        });
+    monitor.info(() -> "info");
+    monitor.flushLogs();
+
+    assertThat(sink.messages()).containsExactly("info");
+  }
+
+  @Test
+  public void eventsAreWrittenInOrder() {
+    RecordingSink sink = new RecordingSink();
+    AsyncMonitor monitor = new AsyncMonitor(sink, Level.DEBUG, 8, OverflowPolicy.BLOCK);
+    monitor.setJobId("job");
+
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      String message = "message " + i;
+      expected.add(message);
+      monitor.debug(() -> message);
+    }
+    monitor.flushLogs();
+
+    assertThat(sink.messages()).containsExactlyElementsIn(expected).inOrder();
+    assertThat(sink.events.get(0).getJobId()).isEqualTo("job");
+  }
+
+  @Test
+  public void droppedEventsAreReported() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingSink sink =
+        new RecordingSink() {
+          @Override
+          public synchronized void write(List<MonitorEvent> events) {
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            super.write(events);
+          }
+        };
+    AsyncMonitor monitor = new AsyncMonitor(sink, Level.DEBUG, 2, OverflowPolicy.DROP);
+
+    for (int i = 0; i < 10; i++) {
+      monitor.info(() -> "info");
+    }
+    release.countDown();
+    monitor.severe(() -> "severe");
+    monitor.flushLogs();
+
+    assertThat(sink.messages()).contains("severe");
+    assertThat(sink.messages().stream().anyMatch(message -> message.startsWith("Dropped ")))
+        .isTrue();
+  }
+
+  @Test
+  public void jsonEncoderEscapesStrings() {
+    UUID jobId = UUID.randomUUID();
+    StringBuilder out = new StringBuilder();
+
+    new JsonMonitorEventEncoder()
+        .encode(
+            new MonitorEvent(
+                Level.INFO, 0, "main", null, "a \"quoted\"\nmessage", new Object[] {jobId, "x"}),
+            out);
+
+    assertThat(out.toString())
+        .isEqualTo(
+            "{\"time\":\"1970-01-01T00:00:00Z\",\"level\":\"INFO\",\"thread\":\"main\","
+                + "\"jobId\":\""
+                + jobId
+                + "\",\"message\":\"a \\\"quoted\\\"\\nmessage\",\"data\":[\"x\"]}\n");
+  }
+
+  private static class RecordingSink implements MonitorEventSink {
+    final List<MonitorEvent> events = new ArrayList<>();
+
+    @Override
+    public synchronized void write(List<MonitorEvent> events) {
+      this.events.addAll(events);
+    }
+
+    synchronized List<String> messages() {
+      List<String> messages = new ArrayList<>();
+      for (MonitorEvent event : events) {
+        messages.add(event.getMessage());
+      }
+      return messages;
+    }
+  }
+}
@@ -5,6 +5,7 @@ import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.multibindings.MapBinder;
 import com.google.inject.multibindings.Multibinder;
+import com.google.inject.name.Named;
 import org.datatransferproject.api.action.Action;
 import org.datatransferproject.api.action.datatype.DataTypesAction;
 import org.datatransferproject.api.action.transfer.CreateTransferJobAction;
@@ -20,6 +21,7 @@ import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.api.launcher.TypeManager;
 import org.datatransferproject.config.FlagBindingModule;
+import org.datatransferproject.launcher.metrics.HistogramDtpInternalMetricRecorder;
 import org.datatransferproject.launcher.metrics.LoggingDtpInternalMetricRecorder;
 import org.datatransferproject.security.SymmetricKeyGenerator;
 import org.datatransferproject.spi.api.auth.AuthServiceProviderRegistry;
@@ -29,6 +31,7 @@ import org.datatransferproject.spi.cloud.storage.JobStore;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.TrustManagerFactory;
+import java.time.Duration;
 import java.util.List;
 
 /** */
@@ -90,6 +93,7 @@ public class ApiServicesModule extends FlagBindingModule {
 
     // Ensure a DtpInternalMetricRecorder exists
     LoggingDtpInternalMetricRecorder.registerRecorderIfNeeded(context);
+    HistogramDtpInternalMetricRecorder.registerRecorderIfEnabled(context);
     bind(DtpInternalMetricRecorder.class)
         .toInstance(context.getService(DtpInternalMetricRecorder.class));
 
@@ -116,4 +120,22 @@ public class ApiServicesModule extends FlagBindingModule {
   Monitor getMonitor() {
     return context.getMonitor();
   }
+
+  @Provides
+  @Named("reservedWorkerMaxWait")
+  Duration getReservedWorkerMaxWait() {
+    return Duration.ofSeconds(context.getSetting("reservedWorkerMaxWaitSeconds", 20));
+  }
+
+  @Provides
+  @Named("reservedWorkerRecheckInterval")
+  Duration getReservedWorkerRecheckInterval() {
+    return Duration.ofMillis(context.getSetting("reservedWorkerRecheckMillis", 3000));
+  }
+
+  @Provides
+  @Named("reservedWorkerMaxWaiters")
+  int getReservedWorkerMaxWaiters() {
+    return context.getSetting("reservedWorkerMaxWaiters", 32);
+  }
 }
@@ -2,6 +2,8 @@ package org.datatransferproject.api.action.transfer;
 
 import com.google.api.client.util.Preconditions;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 import org.datatransferproject.api.action.Action;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.launcher.monitor.events.EventCode;
@@ -10,22 +12,45 @@ import org.datatransferproject.spi.cloud.types.PortabilityJob;
 import org.datatransferproject.types.client.transfer.GetReservedWorker;
 import org.datatransferproject.types.client.transfer.ReservedWorker;
 
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.Semaphore;
 
 import static java.lang.String.format;
 import static org.datatransferproject.api.action.ActionUtils.decodeJobId;
 import static org.datatransferproject.spi.cloud.types.JobAuthorization.State.CREDS_ENCRYPTION_KEY_GENERATED;
 
-/** Requests the worker that was reserved for a transfer job. */
+/**
+ * Requests the worker that was reserved for a transfer job.
+ *
+ * <p>Requests that ask to wait are held until the worker is reserved, up to {@code maxWait}, so
+ * that clients don't have to poll. While held, the job is re-read every {@code recheckInterval}
+ * unless the job store reports the reservation earlier.
+ *
+ * <p>Each held request keeps a server thread busy, so at most {@code maxWaiters} are held at once.
+ * Further requests are answered right away, and clients poll again as they would without waiting.
+ */
+@Singleton
 public class GetReservedWorkerAction implements Action<GetReservedWorker, ReservedWorker> {
 
   private final JobStore jobStore;
   private final Monitor monitor;
+  private final Duration maxWait;
+  private final Duration recheckInterval;
+  private final Semaphore waiters;
 
   @Inject
-  public GetReservedWorkerAction(JobStore jobStore, Monitor monitor) {
+  public GetReservedWorkerAction(
+      JobStore jobStore,
+      Monitor monitor,
+      @Named("reservedWorkerMaxWait") Duration maxWait,
+      @Named("reservedWorkerRecheckInterval") Duration recheckInterval,
+      @Named("reservedWorkerMaxWaiters") int maxWaiters) {
     this.jobStore = jobStore;
     this.monitor = monitor;
+    this.maxWait = maxWait;
+    this.recheckInterval = recheckInterval;
+    this.waiters = new Semaphore(Math.max(maxWaiters, 0));
   }
 
   @Override
@@ -38,7 +63,7 @@ public class GetReservedWorkerAction implements Action<GetReservedWorker, Reserv
     String id = workerRequest.getId();
     UUID jobId = decodeJobId(id);
 
-    PortabilityJob job = jobStore.findJob(jobId);
+    PortabilityJob job = findJob(jobId, workerRequest.getWaitSeconds());
     Preconditions.checkNotNull(
         job, "Couldn't lookup worker for job " + id + " because the job doesn't exist");
     if (job.jobAuthorization().state() != CREDS_ENCRYPTION_KEY_GENERATED) {
@@ -55,4 +80,23 @@ public class GetReservedWorkerAction implements Action<GetReservedWorker, Reserv
         jobId, EventCode.API_GOT_RESERVED_WORKER);
     return new ReservedWorker(job.jobAuthorization().authPublicKey());
   }
+
+  private PortabilityJob findJob(UUID jobId, Integer waitSeconds) {
+    if (waitSeconds == null || waitSeconds <= 0 || !waiters.tryAcquire()) {
+      return jobStore.findJob(jobId);
+    }
+    Duration timeout = Duration.ofSeconds(waitSeconds);
+    try {
+      return jobStore.awaitJob(
+          jobId,
+          job -> job.jobAuthorization().state() == CREDS_ENCRYPTION_KEY_GENERATED,
+          timeout.compareTo(maxWait) < 0 ? timeout : maxWait,
+          recheckInterval);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for the worker of job " + jobId, e);
+    } finally {
+      waiters.release();
+    }
+  }
 }
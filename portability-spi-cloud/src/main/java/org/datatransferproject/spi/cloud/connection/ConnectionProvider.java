@@ -1,19 +1,67 @@
 package org.datatransferproject.spi.cloud.connection;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
-import java.net.URL;
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 import org.datatransferproject.types.common.DownloadableItem;
+import org.datatransferproject.types.common.models.DataVertical;
 
+/**
+ * Opens the content of {@link DownloadableItem}s, from the job store or over HTTP with a shared
+ * {@link OkHttpClient}, so downloads from the same host reuse pooled connections.
+ */
 public class ConnectionProvider {
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+  private static final Duration READ_TIMEOUT = Duration.ofSeconds(60);
+  // Used by providers created without a client, e.g. outside of a worker
+  private static final OkHttpClient DEFAULT_CLIENT =
+      new OkHttpClient.Builder()
+          .connectTimeout(CONNECT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+          .readTimeout(READ_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+          .build();
 
   private final TemporaryPerJobDataStore jobStore;
+  private final OkHttpClient client;
+  private final MetricRecorder metricRecorder;
+  private final DataVertical dataType;
 
   public ConnectionProvider(TemporaryPerJobDataStore jobStore) {
+    this(jobStore, DEFAULT_CLIENT);
+  }
+
+  /**
+   * Creates a provider downloading with {@code client}, usually the one registered in the {@link
+   * org.datatransferproject.api.launcher.ExtensionContext}.
+   */
+  public ConnectionProvider(TemporaryPerJobDataStore jobStore, OkHttpClient client) {
+    this(jobStore, client, null, null);
+  }
+
+  /**
+   * Creates a provider downloading with {@code client} that records the latency and size of each
+   * download of a {@code dataType} item to {@code metricRecorder}, usually the one registered in
+   * the {@link org.datatransferproject.api.launcher.ExtensionContext}.
+   */
+  public ConnectionProvider(
+      TemporaryPerJobDataStore jobStore,
+      OkHttpClient client,
+      MetricRecorder metricRecorder,
+      DataVertical dataType) {
     this.jobStore = jobStore;
+    this.client = client != null ? client : DEFAULT_CLIENT;
+    this.metricRecorder = dataType != null ? metricRecorder : null;
+    this.dataType = dataType;
   }
 
   public InputStreamWrapper getInputStreamForItem(UUID jobId, DownloadableItem item)
@@ -23,16 +71,155 @@ public class ConnectionProvider {
     if (item.isInTempStore()) {
       return jobStore.getStream(jobId, fetchableUrl);
     }
+    return getInputStreamForUrl(fetchableUrl);
+  }
+
+  /** Opens the content at {@code fetchableUrl} over HTTP. */
+  public InputStreamWrapper getInputStreamForUrl(String fetchableUrl) throws IOException {
+    long start = System.nanoTime();
+    Response response;
+    try {
+      response = client.newCall(new Request.Builder().url(fetchableUrl).build()).execute();
+    } catch (IOException e) {
+      recordDownload(false, 0, start);
+      throw e;
+    }
+    if (!response.isSuccessful() || response.body() == null) {
+      response.close();
+      recordDownload(false, 0, start);
+      throw new IOException(
+          String.format("Got response code %d downloading %s", response.code(), fetchableUrl));
+    }
+    // Closing the stream releases the connection back to the pool
+    ResponseBody body = response.body();
+    InputStream stream =
+        metricRecorder != null
+            ? new MeasuredInputStream(body.byteStream(), body.contentLength(), start)
+            : body.byteStream();
+    return new InputStreamWrapper(stream, Math.max(body.contentLength(), 0));
+  }
+
+  private void recordDownload(boolean success, long bytes, long startNanos) {
+    if (metricRecorder != null) {
+      metricRecorder.recordItemDownload(
+          dataType, success, bytes, Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+  }
+
+  /**
+   * Returns the size of an item without downloading it, from the job store, a HEAD request, or a
+   * single byte range request, or 0 if none of them reports it.
+   */
+  public long getSizeForItem(UUID jobId, DownloadableItem item) throws IOException {
+    String fetchableUrl = item.getFetchableUrl();
+    if (item.isInTempStore()) {
+      InputStreamWrapper streamWrapper = jobStore.getStream(jobId, fetchableUrl);
+      if (streamWrapper.getStream() != null) {
+        streamWrapper.getStream().close();
+      }
+      return streamWrapper.getBytes() != null ? Math.max(streamWrapper.getBytes(), 0) : 0;
+    }
+
+    Request headRequest = new Request.Builder().url(fetchableUrl).head().build();
+    try (Response response = client.newCall(headRequest).execute()) {
+      long contentLength = parseSize(response.header("Content-Length"));
+      if (response.isSuccessful() && contentLength > 0) {
+        return contentLength;
+      }
+    }
 
-    HttpURLConnection conn = getConnection(fetchableUrl);
-    return new InputStreamWrapper(
-        conn.getInputStream(), Math.max(conn.getContentLengthLong(), 0));
+    // Some hosts don't answer HEAD requests, but report the total size of a range
+    Request rangeRequest =
+        new Request.Builder().url(fetchableUrl).header("Range", "bytes=0-0").build();
+    try (Response response = client.newCall(rangeRequest).execute()) {
+      if (response.code() == HttpURLConnection.HTTP_PARTIAL) {
+        return parseContentRangeSize(response.header("Content-Range"));
+      }
+      return 0;
+    }
   }
 
-  public static HttpURLConnection getConnection(String urlStr) throws IOException {
-    URL url = new URL(urlStr);
-    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-    conn.connect();
-    return conn;
+  // Parses the total size of a "bytes 0-0/1234" content range, 0 when it isn't known
+  private static long parseContentRangeSize(String contentRange) {
+    if (contentRange == null) {
+      return 0;
+    }
+    int separator = contentRange.lastIndexOf('/');
+    if (separator < 0) {
+      return 0;
+    }
+    // The size is "*" when unknown
+    return parseSize(contentRange.substring(separator + 1));
+  }
+
+  private static long parseSize(String size) {
+    if (size == null) {
+      return 0;
+    }
+    try {
+      return Math.max(Long.parseLong(size.trim()), 0);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Counts the bytes read from a download, and records it once it was read to the end or closed.
+   * Importers read the content on their own thread, so a plain counter is enough.
+   */
+  private class MeasuredInputStream extends FilterInputStream {
+    private final long contentLength;
+    private final long startNanos;
+    private long bytes = 0;
+    private boolean recorded = false;
+
+    MeasuredInputStream(InputStream in, long contentLength, long startNanos) {
+      super(in);
+      this.contentLength = contentLength;
+      this.startNanos = startNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b < 0) {
+        finish(true);
+      } else {
+        bytes++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read < 0) {
+        finish(true);
+      } else {
+        bytes += read;
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      bytes += skipped;
+      return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+      // Readers may stop at the announced length without reading the end of the stream
+      finish(contentLength >= 0 && bytes >= contentLength);
+      super.close();
+    }
+
+    private void finish(boolean success) {
+      if (!recorded) {
+        recorded = true;
+        recordDownload(success, bytes, startNanos);
+      }
+    }
   }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.cloud.storage;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.datatransferproject.api.launcher.Monitor;
+
+/**
+ * A {@link JobCounterAggregator} summing counters per job in {@link LongAdder}s and writing the
+ * sums to the {@link JobStore} from a background thread every {@code flushInterval}, and on
+ * {@link #flush} at the end of a job. Updates that weren't flushed yet are lost if the worker dies.
+ */
+public final class BufferedJobCounterAggregator implements JobCounterAggregator {
+  private final JobStore jobStore;
+  private final Monitor monitor;
+  private final Map<UUID, PendingCounters> pendingCounters = new ConcurrentHashMap<>();
+
+  public BufferedJobCounterAggregator(JobStore jobStore, Monitor monitor, Duration flushInterval) {
+    Preconditions.checkArgument(
+        !flushInterval.isNegative() && !flushInterval.isZero(), "flushInterval must be positive");
+    this.jobStore = jobStore;
+    this.monitor = monitor;
+    ScheduledExecutorService flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("counter-flusher").setDaemon(true).build());
+    flusher.scheduleWithFixedDelay(
+        this::flushAll, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void addCounts(UUID jobId, Map<String, Integer> newCounts) {
+    if (newCounts == null) {
+      return;
+    }
+    PendingCounters pending = getPendingCounters(jobId);
+    newCounts.forEach(
+        (dataType, count) ->
+            pending.counts.computeIfAbsent(dataType, k -> new LongAdder()).add(count));
+  }
+
+  @Override
+  public void addBytes(UUID jobId, Long bytes) {
+    if (bytes == null) {
+      return;
+    }
+    getPendingCounters(jobId).bytes.add(bytes);
+  }
+
+  @Override
+  public void addBytes(UUID jobId, Map<String, Long> bytes) {
+    if (bytes == null) {
+      return;
+    }
+    getPendingCounters(jobId).itemBytes.putAll(bytes);
+  }
+
+  @Override
+  public void flush(UUID jobId) {
+    PendingCounters pending = pendingCounters.remove(jobId);
+    if (pending != null) {
+      write(jobId, pending);
+    }
+  }
+
+  private void flushAll() {
+    try {
+      pendingCounters.forEach(this::write);
+    } catch (RuntimeException e) {
+      // Keep the schedule going, the counters are retried on the next flush
+      monitor.severe(() -> "Unable to flush job counters", e);
+    }
+  }
+
+  private PendingCounters getPendingCounters(UUID jobId) {
+    return pendingCounters.computeIfAbsent(jobId, k -> new PendingCounters());
+  }
+
+  /** Writes the sums collected so far, and puts them back if the store rejects them. */
+  private void write(UUID jobId, PendingCounters pending) {
+    // A background flush and the flush at the end of the job mustn't write the same sums
+    synchronized (pending) {
+      Map<String, Integer> counts = new HashMap<>();
+      pending.counts.forEach(
+          (dataType, count) -> {
+            long sum = count.sumThenReset();
+            if (sum != 0) {
+              counts.put(dataType, Math.toIntExact(sum));
+            }
+          });
+      if (!counts.isEmpty()) {
+        try {
+          jobStore.addCounts(jobId, counts);
+        } catch (IOException | RuntimeException e) {
+          monitor.debug(() -> "Unable to add counts to job " + jobId, e);
+          addCounts(jobId, counts);
+        }
+      }
+
+      long bytes = pending.bytes.sumThenReset();
+      if (bytes != 0) {
+        try {
+          jobStore.addBytes(jobId, bytes);
+        } catch (IOException | RuntimeException e) {
+          monitor.debug(() -> "Unable to add bytes to job " + jobId, e);
+          addBytes(jobId, bytes);
+        }
+      }
+
+      if (!pending.itemBytes.isEmpty()) {
+        Map<String, Long> itemBytes = new HashMap<>();
+        for (String id : pending.itemBytes.keySet()) {
+          Long size = pending.itemBytes.remove(id);
+          if (size != null) {
+            itemBytes.put(id, size);
+          }
+        }
+        try {
+          jobStore.addBytes(jobId, itemBytes);
+        } catch (RuntimeException e) {
+          monitor.debug(() -> "Unable to add item bytes to job " + jobId, e);
+          addBytes(jobId, itemBytes);
+        }
+      }
+    }
+  }
+
+  private static final class PendingCounters {
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final LongAdder bytes = new LongAdder();
+    // Sizes are keyed by item, a size measured again replaces the previous one
+    private final Map<String, Long> itemBytes = new ConcurrentHashMap<>();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.cloud.storage;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import org.datatransferproject.api.launcher.Monitor;
+
+/**
+ * Collects the item counts and bytes of jobs on their way to the {@link JobStore}, so copiers
+ * don't have to write them to the store after every page.
+ *
+ * <p>Counters are persisted at least once: a failed write is retried on the next flush, and may
+ * be counted twice if the store applied it nonetheless.
+ */
+public interface JobCounterAggregator {
+
+  /** Adds to the item counts of a job, see {@link JobStore#addCounts}. */
+  void addCounts(UUID jobId, @Nullable Map<String, Integer> newCounts);
+
+  /** Adds to the bytes count of a job, see {@link JobStore#addBytes(UUID, Long)}. */
+  void addBytes(UUID jobId, @Nullable Long bytes);
+
+  /** Adds the sizes of downloadable items of a job, see {@link JobStore#addBytes(UUID, Map)}. */
+  void addBytes(UUID jobId, @Nullable Map<String, Long> bytes);
+
+  /** Persists whatever was collected for the job, called once the job is finished. */
+  void flush(UUID jobId);
+
+  /** Returns an aggregator writing every update to {@code jobStore} right away. */
+  static JobCounterAggregator writeThrough(JobStore jobStore, Monitor monitor) {
+    return new JobCounterAggregator() {
+      @Override
+      public void addCounts(UUID jobId, Map<String, Integer> newCounts) {
+        try {
+          jobStore.addCounts(jobId, newCounts);
+        } catch (IOException e) {
+          monitor.debug(() -> "Unable to add counts to job " + jobId, e);
+        }
+      }
+
+      @Override
+      public void addBytes(UUID jobId, Long bytes) {
+        try {
+          jobStore.addBytes(jobId, bytes);
+        } catch (IOException e) {
+          monitor.debug(() -> "Unable to add bytes to job " + jobId, e);
+        }
+      }
+
+      @Override
+      public void addBytes(UUID jobId, Map<String, Long> bytes) {
+        jobStore.addBytes(jobId, bytes);
+      }
+
+      @Override
+      public void flush(UUID jobId) {}
+    };
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.cloud.storage;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.datatransferproject.spi.cloud.types.PortabilityJob;
+
+/**
+ * Hands the updates a job store makes to jobs to the threads of the same process waiting for them.
+ * Updates made by other processes aren't seen, so waiters should still re-read the job now and
+ * then.
+ */
+public final class JobStateNotifier {
+  // All changes to the set of a job are made while computing its entry
+  private final ConcurrentMap<UUID, Set<CompletableFuture<PortabilityJob>>> waiters =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Returns a future completed with the job at its next update. Subscribe before reading the job,
+   * so that no update made in between is missed, and {@link #unsubscribe} once done.
+   */
+  public CompletableFuture<PortabilityJob> subscribe(UUID jobId) {
+    CompletableFuture<PortabilityJob> update = new CompletableFuture<>();
+    waiters.compute(
+        jobId,
+        (id, jobWaiters) -> {
+          Set<CompletableFuture<PortabilityJob>> updated =
+              jobWaiters == null ? new HashSet<>() : jobWaiters;
+          updated.add(update);
+          return updated;
+        });
+    return update;
+  }
+
+  public void unsubscribe(UUID jobId, CompletableFuture<PortabilityJob> update) {
+    waiters.computeIfPresent(
+        jobId,
+        (id, jobWaiters) -> {
+          jobWaiters.remove(update);
+          return jobWaiters.isEmpty() ? null : jobWaiters;
+        });
+  }
+
+  /** Called once {@code job} is stored, completes the futures of all subscribers of the job. */
+  public void publish(UUID jobId, PortabilityJob job) {
+    Set<CompletableFuture<PortabilityJob>> jobWaiters = waiters.remove(jobId);
+    if (jobWaiters != null) {
+      jobWaiters.forEach(update -> update.complete(job));
+    }
+  }
+}
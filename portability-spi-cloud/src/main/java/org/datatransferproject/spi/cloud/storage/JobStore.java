@@ -1,12 +1,16 @@
 package org.datatransferproject.spi.cloud.storage;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Stack;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
+import org.datatransferproject.spi.cloud.types.JobStackDelta;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
 import org.datatransferproject.spi.cloud.types.PortabilityJob.State;
 import org.datatransferproject.types.common.ExportInformation;
@@ -106,12 +110,66 @@ public interface JobStore extends TemporaryPerJobDataStore {
    */
   PortabilityJob findJob(UUID jobId);
 
+  /**
+   * Returns the state of the job matching {@code jobId}, or null if it isn't found. Running jobs
+   * are watched through this, so stores should override it to read only the state rather than the
+   * whole job with its auth data.
+   */
+  default State findJobState(UUID jobId) {
+    PortabilityJob job = findJob(jobId);
+    return job == null ? null : job.state();
+  }
+
   /**
    * Gets the ID of the first {@link PortabilityJob} in state {@code jobState} in the store, or null
    * if none found.
    */
   UUID findFirst(JobAuthorization.State jobState);
 
+  /**
+   * Returns the ID of the job that has been waiting for a worker the longest, i.e. in state {@code
+   * CREDS_AVAILABLE}, among the jobs no other worker holds a lease on. The job is leased to the
+   * caller for {@code leaseDuration}, so that other workers don't try to claim it meanwhile. If
+   * there is no such job, waits up to {@code timeout} for one, then returns null.
+   *
+   * <p>A lease ends once the job is claimed, is released through {@link #releaseJobLease}, or
+   * expires, e.g. as the worker holding it died before claiming it.
+   *
+   * <p>The default implementation neither waits nor leases, and returns {@link #findFirst}.
+   */
+  default UUID leaseAvailableJob(Duration leaseDuration, Duration timeout)
+      throws InterruptedException {
+    return findFirst(JobAuthorization.State.CREDS_AVAILABLE);
+  }
+
+  /**
+   * Ends the lease on a job returned by {@link #leaseAvailableJob}, e.g. as the worker couldn't
+   * claim it.
+   */
+  default void releaseJobLease(UUID jobId) {}
+
+  /**
+   * Returns the job matching {@code jobId} as soon as it satisfies {@code condition}, waiting up to
+   * {@code timeout} for it to. Returns the job as last read if it doesn't in time, or null if the
+   * job doesn't exist.
+   *
+   * <p>The default implementation re-reads the job every {@code recheckInterval}. Stores that know
+   * of updates as they happen should return without waiting for the next read.
+   */
+  default PortabilityJob awaitJob(
+      UUID jobId, Predicate<PortabilityJob> condition, Duration timeout, Duration recheckInterval)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    while (true) {
+      PortabilityJob job = findJob(jobId);
+      long remaining = deadline - System.nanoTime();
+      if (job == null || condition.test(job) || remaining <= 0) {
+        return job;
+      }
+      TimeUnit.NANOSECONDS.sleep(Math.min(remaining, recheckInterval.toNanos()));
+    }
+  }
+
   /**
    * Updates the counter data.
    *
@@ -161,6 +219,20 @@ public interface JobStore extends TemporaryPerJobDataStore {
    */
   default void storeJobStack(UUID jobId, Stack<ExportInformation> stack) {}
 
+  /**
+   * Records the change a completed copy iteration made to the stack of export information of a
+   * job. After any sequence of calls, {@link #loadJobStack} must return the stack obtained by
+   * applying every recorded delta in order.
+   *
+   * <p>Stores should override this to persist deltas incrementally. The default implementation
+   * rebuilds the whole stack through {@link #loadJobStack} and {@link #storeJobStack}.
+   */
+  default void appendJobStackDelta(UUID jobId, JobStackDelta delta) {
+    Stack<ExportInformation> stack = loadJobStack(jobId).orElseGet(Stack::new);
+    delta.applyTo(stack);
+    storeJobStack(jobId, stack);
+  }
+
   /**
    * Called by a transfer worker when abandoning the job matching {@code jobId}, and do cleanup at their end.
    * Accepts the {@code reason} for abandoning the job (can be derived from but not limited to {@link State})
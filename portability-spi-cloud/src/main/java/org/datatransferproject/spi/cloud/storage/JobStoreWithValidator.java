@@ -7,19 +7,28 @@ import static org.datatransferproject.spi.cloud.types.JobAuthorization.State.CRE
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
 import org.datatransferproject.spi.cloud.types.PortabilityJob.State;
 import org.datatransferproject.types.common.models.DataVertical;
 
 public abstract class JobStoreWithValidator implements JobStore {
+  // Shared by all stores of the process, as the API and the worker each create their own
+  private static final JobStateNotifier notifier = new JobStateNotifier();
 
   @Override
   public void claimJob(UUID jobId, PortabilityJob job) throws IOException {
     updateJob(jobId, job, (previous, updated) ->
         Preconditions.checkState(
             previous.jobAuthorization().state() == JobAuthorization.State.CREDS_AVAILABLE));
+    notifier.publish(jobId, job);
   }
 
   @Override
@@ -33,6 +42,7 @@ public abstract class JobStoreWithValidator implements JobStore {
         jobId,
         job,
         (previous, updated) -> validateForUpdateStateToCredsAvailable(previous));
+    notifier.publish(jobId, job);
   }
 
   private static void validateForUpdateStateToCredsAvailable(PortabilityJob job) {
@@ -60,6 +70,7 @@ public abstract class JobStoreWithValidator implements JobStore {
               previous.jobAuthorization().state() == CREDS_ENCRYPTION_KEY_GENERATED);
           Preconditions.checkState(updated.jobAuthorization().state() == CREDS_STORED);
         }));
+    notifier.publish(jobId, job);
   }
 
   @Override
@@ -76,8 +87,7 @@ public abstract class JobStoreWithValidator implements JobStore {
   @Override
   public void markJobAsTimedOut(UUID jobId) throws IOException {
     PortabilityJob job = findJob(jobId);
-    updateJob(
-        jobId,
+    PortabilityJob updatedJob =
         job.toBuilder()
             .setState(PortabilityJob.State.ERROR)
             .setAndValidateJobAuthorization(
@@ -85,7 +95,51 @@ public abstract class JobStoreWithValidator implements JobStore {
                     .toBuilder()
                     .setState(JobAuthorization.State.TIMED_OUT)
                     .build())
-            .build());
+            .build();
+    updateJob(jobId, updatedJob);
+    notifier.publish(jobId, updatedJob);
+  }
+
+  /**
+   * Returns as soon as a store of this process updates the job so that it satisfies {@code
+   * condition}, and re-reads it every {@code recheckInterval} to see updates made by other
+   * processes.
+   */
+  @Override
+  public PortabilityJob awaitJob(
+      UUID jobId, Predicate<PortabilityJob> condition, Duration timeout, Duration recheckInterval)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    CompletableFuture<PortabilityJob> update = notifier.subscribe(jobId);
+    try {
+      PortabilityJob job = findJob(jobId);
+      long nextRead = System.nanoTime() + recheckInterval.toNanos();
+      while (job != null && !condition.test(job)) {
+        long now = System.nanoTime();
+        if (now - deadline >= 0) {
+          return job;
+        }
+        if (now - nextRead >= 0) {
+          job = findJob(jobId);
+          nextRead = now + recheckInterval.toNanos();
+          continue;
+        }
+        try {
+          PortabilityJob updated =
+              update.get(Math.min(deadline, nextRead) - now, TimeUnit.NANOSECONDS);
+          notifier.unsubscribe(jobId, update);
+          update = notifier.subscribe(jobId);
+          job = updated;
+        } catch (TimeoutException e) {
+          // Time to read the job again, or to give up
+        } catch (ExecutionException e) {
+          throw new IllegalStateException("Job updates are never failed", e);
+        }
+      }
+      return job;
+    } finally {
+      notifier.unsubscribe(jobId, update);
+    }
   }
 
   /**
@@ -122,6 +176,7 @@ public abstract class JobStoreWithValidator implements JobStore {
           Preconditions.checkState(previous.state() == prevState);
           Preconditions.checkState(previous.jobAuthorization().state() == prevAuthState);
         }));
+    notifier.publish(jobId, updatedJob);
   }
 
   public void addFailureReasonToJob(
@@ -130,6 +185,7 @@ public abstract class JobStoreWithValidator implements JobStore {
     PortabilityJob existingJob = findJob(jobId);
     PortabilityJob updatedJob = existingJob.toBuilder().setFailureReason(failureReason).build();
     updateJob(jobId, updatedJob);
+    notifier.publish(jobId, updatedJob);
   }
 
   public interface JobUpdateValidator {
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.cloud.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
+
+/**
+ * Keeps JSON data stored in a {@link TemporaryPerJobDataStore} in memory, so it is written once
+ * and read at most once per job instead of on every page of a transfer.
+ *
+ * <p>Cached values are shared with the callers and must not be modified. Providers aren't told
+ * when a job finishes, so entries are dropped once unused for {@code expireAfterAccess}, or when
+ * more than {@code maximumSize} are cached.
+ */
+public class TemporaryPerJobDataCache {
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final TemporaryPerJobDataStore store;
+  private final Cache<String, Optional<Object>> values;
+
+  public TemporaryPerJobDataCache(
+      TemporaryPerJobDataStore store, long maximumSize, Duration expireAfterAccess) {
+    this.store = store;
+    this.values =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterAccess(expireAfterAccess)
+            .build();
+  }
+
+  /** Stores {@code value} as JSON under {@code key} and caches it. */
+  public void create(UUID jobId, String key, Object value) throws IOException {
+    byte[] json = OBJECT_MAPPER.writeValueAsBytes(value);
+    store.create(jobId, key, new ByteArrayInputStream(json));
+    values.put(cacheKey(jobId, key), Optional.of(value));
+  }
+
+  /**
+   * Returns the value stored under {@code key}, read from the store the first time it's needed,
+   * or null if there is none.
+   */
+  @Nullable
+  public <T> T get(UUID jobId, String key, Class<T> type) throws IOException {
+    try {
+      Optional<Object> value = values.get(cacheKey(jobId, key), () -> load(jobId, key, type));
+      return value.map(type::cast).orElse(null);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Unable to load " + key + " of job " + jobId, e.getCause());
+    }
+  }
+
+  private Optional<Object> load(UUID jobId, String key, Class<?> type) throws IOException {
+    InputStreamWrapper streamWrapper = store.getStream(jobId, key);
+    if (streamWrapper == null || streamWrapper.getStream() == null) {
+      return Optional.empty();
+    }
+    try (InputStream stream = streamWrapper.getStream()) {
+      return Optional.of(OBJECT_MAPPER.readValue(stream, type));
+    }
+  }
+
+  private static String cacheKey(UUID jobId, String key) {
+    return jobId + "/" + key;
+  }
+}
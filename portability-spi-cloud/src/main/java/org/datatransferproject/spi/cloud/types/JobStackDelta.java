@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.cloud.types;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Stack;
+import javax.annotation.Nullable;
+import org.datatransferproject.types.common.ExportInformation;
+
+/**
+ * The change a single completed copy iteration made to the stack of export information of a job:
+ * the entry that was copied is removed and the entries derived from its continuation data are
+ * pushed. Replaying every delta of a job in order onto an empty stack yields the job's remaining
+ * work.
+ */
+@AutoValue
+public abstract class JobStackDelta implements Serializable {
+  public static JobStackDelta create(
+      @Nullable ExportInformation completedEntry, List<ExportInformation> pushedEntries) {
+    return new org.datatransferproject.spi.cloud.types.AutoValue_JobStackDelta(
+        completedEntry, ImmutableList.copyOf(pushedEntries));
+  }
+
+  /**
+   * The entry whose copy iteration completed, or null for the first iteration of a job, which
+   * doesn't come from the stack.
+   */
+  @Nullable
+  public abstract ExportInformation completedEntry();
+
+  /** The entries pushed after the iteration, in push order. */
+  public abstract ImmutableList<ExportInformation> pushedEntries();
+
+  /** Applies this delta to {@code stack}, whose top is its last element. */
+  public void applyTo(Stack<ExportInformation> stack) {
+    if (completedEntry() != null) {
+      int index = stack.lastIndexOf(completedEntry());
+      if (index >= 0) {
+        stack.remove(index);
+      }
+    }
+    pushedEntries().forEach(stack::push);
+  }
+}
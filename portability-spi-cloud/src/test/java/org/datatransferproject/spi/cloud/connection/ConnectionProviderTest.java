@@ -1,17 +1,30 @@
 package org.datatransferproject.spi.cloud.connection;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.UUID;
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 import org.datatransferproject.types.common.DownloadableItem;
+import org.datatransferproject.types.common.models.DataVertical;
 import org.datatransferproject.types.common.models.photos.PhotoModel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -43,4 +56,71 @@ public class ConnectionProviderTest {
     Truth.assertThat(streamWrapper.getBytes()).isEqualTo(expectedBytes);
     verify(jobStore).getStream(eq(jobId), eq(fetchableUrl));
   }
+
+  @Test
+  public void recordsDownloadReadToTheEnd() throws Exception {
+    MetricRecorder metricRecorder = mock(MetricRecorder.class);
+    ConnectionProvider measuredProvider =
+        new ConnectionProvider(
+            jobStore, clientResponding(200, new byte[5]), metricRecorder, DataVertical.PHOTOS);
+
+    try (InputStream stream =
+        measuredProvider.getInputStreamForItem(UUID.randomUUID(), remoteItem()).getStream()) {
+      Truth.assertThat(stream.readAllBytes()).hasLength(5);
+    }
+
+    verify(metricRecorder)
+        .recordItemDownload(
+            eq(DataVertical.PHOTOS), eq(true), eq(5L), argThat(duration -> !duration.isNegative()));
+  }
+
+  @Test
+  public void recordsAbandonedDownloadAsFailed() throws Exception {
+    MetricRecorder metricRecorder = mock(MetricRecorder.class);
+    ConnectionProvider measuredProvider =
+        new ConnectionProvider(
+            jobStore, clientResponding(200, new byte[5]), metricRecorder, DataVertical.PHOTOS);
+
+    try (InputStream stream =
+        measuredProvider.getInputStreamForItem(UUID.randomUUID(), remoteItem()).getStream()) {
+      Truth.assertThat(stream.readNBytes(2)).hasLength(2);
+    }
+
+    verify(metricRecorder).recordItemDownload(eq(DataVertical.PHOTOS), eq(false), eq(2L), any());
+  }
+
+  @Test
+  public void recordsFailedResponse() throws Exception {
+    MetricRecorder metricRecorder = mock(MetricRecorder.class);
+    ConnectionProvider measuredProvider =
+        new ConnectionProvider(
+            jobStore, clientResponding(404, new byte[0]), metricRecorder, DataVertical.PHOTOS);
+
+    assertThrows(
+        IOException.class,
+        () -> measuredProvider.getInputStreamForItem(UUID.randomUUID(), remoteItem()));
+
+    verify(metricRecorder).recordItemDownload(eq(DataVertical.PHOTOS), eq(false), eq(0L), any());
+  }
+
+  private static DownloadableItem remoteItem() {
+    return new PhotoModel(
+        "title", "https://example.com/photo.jpg", "description", "jpeg", "123", "album", false);
+  }
+
+  private static OkHttpClient clientResponding(int code, byte[] body) throws IOException {
+    Response response =
+        new Response.Builder()
+            .request(new Request.Builder().url("https://example.com/photo.jpg").build())
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("")
+            .body(ResponseBody.create(MediaType.parse("image/jpeg"), body))
+            .build();
+    Call call = mock(Call.class);
+    when(call.execute()).thenReturn(response);
+    OkHttpClient client = mock(OkHttpClient.class);
+    when(client.newCall(any())).thenReturn(call);
+    return client;
+  }
 }
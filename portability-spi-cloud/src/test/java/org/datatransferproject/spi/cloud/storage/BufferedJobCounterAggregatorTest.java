@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.cloud.storage;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+import org.datatransferproject.api.launcher.Monitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BufferedJobCounterAggregatorTest {
+  private static final UUID JOB_ID = UUID.randomUUID();
+
+  private JobStore jobStore;
+  private BufferedJobCounterAggregator aggregator;
+
+  @BeforeEach
+  public void setUp() {
+    jobStore = mock(JobStore.class);
+    // Long enough for the background flush to never run during a test
+    aggregator = new BufferedJobCounterAggregator(jobStore, new Monitor() {}, Duration.ofHours(1));
+  }
+
+  @Test
+  public void countersAreSummedUntilFlushed() throws IOException {
+    aggregator.addCounts(JOB_ID, ImmutableMap.of("photos", 2, "albums", 1));
+    aggregator.addBytes(JOB_ID, 10L);
+    aggregator.addCounts(JOB_ID, ImmutableMap.of("photos", 3));
+    aggregator.addBytes(JOB_ID, 5L);
+    aggregator.addBytes(JOB_ID, ImmutableMap.of("photo1", 7L));
+    verify(jobStore, never()).addCounts(any(), anyMap());
+
+    aggregator.flush(JOB_ID);
+
+    verify(jobStore).addCounts(JOB_ID, ImmutableMap.of("photos", 5, "albums", 1));
+    verify(jobStore).addBytes(JOB_ID, 15L);
+    verify(jobStore).addBytes(JOB_ID, ImmutableMap.of("photo1", 7L));
+    aggregator.flush(JOB_ID);
+    verifyNoMoreInteractions(jobStore);
+  }
+
+  @Test
+  public void failedWritesAreRetried() throws IOException {
+    doThrow(new IOException("unavailable"))
+        .doNothing()
+        .when(jobStore)
+        .addCounts(eq(JOB_ID), anyMap());
+    aggregator.addCounts(JOB_ID, ImmutableMap.of("photos", 2));
+
+    aggregator.flush(JOB_ID);
+    aggregator.addCounts(JOB_ID, ImmutableMap.of("photos", 1));
+    aggregator.flush(JOB_ID);
+
+    verify(jobStore).addCounts(JOB_ID, ImmutableMap.of("photos", 3));
+  }
+}
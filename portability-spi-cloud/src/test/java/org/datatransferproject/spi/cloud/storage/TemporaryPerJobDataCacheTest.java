@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.cloud.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TemporaryPerJobDataCacheTest {
+  private static final UUID JOB_ID = UUID.randomUUID();
+  private static final String KEY = "tempData";
+
+  private TemporaryPerJobDataStore store;
+  private TemporaryPerJobDataCache cache;
+
+  @BeforeEach
+  public void setUp() {
+    store = mock(TemporaryPerJobDataStore.class);
+    cache = new TemporaryPerJobDataCache(store, 10, Duration.ofHours(1));
+  }
+
+  @Test
+  public void storedDataIsReadOnce() throws IOException {
+    when(store.getStream(JOB_ID, KEY)).thenReturn(new InputStreamWrapper(json("\"value\"")));
+
+    assertThat(cache.get(JOB_ID, KEY, String.class)).isEqualTo("value");
+    assertThat(cache.get(JOB_ID, KEY, String.class)).isEqualTo("value");
+    verify(store, times(1)).getStream(JOB_ID, KEY);
+  }
+
+  @Test
+  public void createdDataIsNotReadBack() throws IOException {
+    cache.create(JOB_ID, KEY, "value");
+
+    assertThat(cache.get(JOB_ID, KEY, String.class)).isEqualTo("value");
+    verify(store).create(eq(JOB_ID), eq(KEY), any(InputStream.class));
+    verify(store, never()).getStream(any(), any());
+  }
+
+  @Test
+  public void missingDataIsNull() throws IOException {
+    when(store.getStream(JOB_ID, KEY)).thenReturn(new InputStreamWrapper(null));
+
+    assertThat(cache.get(JOB_ID, KEY, String.class)).isNull();
+  }
+
+  private static InputStream json(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+}
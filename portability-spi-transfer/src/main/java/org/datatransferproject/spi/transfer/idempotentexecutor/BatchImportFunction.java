@@ -0,0 +1,18 @@
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports a batch of items with a single call, e.g. to a destination's batch create API.
+ *
+ * @see IdempotentImportExecutor#importBatchAndSwallowIOExceptions
+ */
+@FunctionalInterface
+public interface BatchImportFunction<T, R> {
+  /**
+   * Imports {@code items} and returns their results keyed by idempotent id. Items without a
+   * result are considered not attempted.
+   */
+  Map<String, ItemImportResult<R>> apply(List<T> items) throws Exception;
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import static java.lang.String.format;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.types.common.ImportableItem;
+import org.datatransferproject.types.transfer.errors.ErrorDetail;
+
+/**
+ * A {@link IdempotentImportExecutor} storing known values in memory, like {@link
+ * InMemoryIdempotentImportExecutor}, but with bounded heap usage for large jobs:
+ *
+ * <ul>
+ *   <li>idempotent ids are only kept as 128-bit hashes, see {@link IdempotentIdTable}
+ *   <li>only the first {@code maxValuesInMemory} values are kept on the heap, the following ones
+ *       are spilled to a temporary file in {@code spillDirectory}
+ *   <li>identical stack traces of errors are stored once
+ * </ul>
+ *
+ * <p>As ids are hashed, {@link #getCachedValue} can't list the known ids of a failed lookup.
+ */
+public class CompactIdempotentImportExecutor implements IdempotentImportExecutor {
+  /** Whether workers without an idempotent executor extension use this executor. */
+  public static final String COMPACT_EXECUTOR_SETTING = "compactIdempotentExecutor";
+
+  /** Number of values kept on the heap before spilling to disk. */
+  public static final String MAX_VALUES_IN_MEMORY_SETTING = "idempotentMaxValuesInMemory";
+
+  /** Directory for spilled values, the system temp directory by default. */
+  public static final String SPILL_DIRECTORY_SETTING = "idempotentSpillDirectory";
+
+  // Shared by all jobs of a worker, as the same failures tend to repeat across them
+  private static final Interner<String> STACK_TRACES = Interners.newWeakInterner();
+
+  private final IdempotentIdTable knownIds = new IdempotentIdTable();
+  private final SpillingValueStore knownValues;
+  private final Map<String, ErrorDetail> errors = new HashMap<>();
+  private final Map<String, ErrorDetail> recentErrors = new HashMap<>();
+  private final Monitor monitor;
+  private UUID jobId;
+
+  public CompactIdempotentImportExecutor(
+      Monitor monitor, int maxValuesInMemory, Path spillDirectory) {
+    Preconditions.checkArgument(maxValuesInMemory >= 0, "maxValuesInMemory must not be negative");
+    this.monitor = monitor;
+    this.knownValues = new SpillingValueStore(maxValuesInMemory, spillDirectory);
+  }
+
+  @Override
+  public <T extends Serializable> T executeAndSwallowIOExceptions(
+      String idempotentId, String itemName, Callable<T> callable) throws Exception {
+    try {
+      return executeOrThrowException(idempotentId, itemName, callable);
+    } catch (IOException e) {
+      // Note all errors are logged in executeOrThrowException so no need to re-log them here.
+      return null;
+    }
+  }
+
+  @Override
+  public <T extends Serializable> T executeOrThrowException(
+      String idempotentId, String itemName, Callable<T> callable) throws Exception {
+    // Callables may return null, so whether an item was imported depends on its id only
+    long reference = referenceOf(idempotentId);
+    if (reference != IdempotentIdTable.NO_REFERENCE) {
+      String jobIdPrefix = "Job " + jobId + ": ";
+      monitor.debug(
+          () ->
+              jobIdPrefix
+                  + format("Using cached key %s from cache for %s", idempotentId, itemName));
+      return valueAt(idempotentId, reference);
+    }
+    IdempotentImportExecutor.checkNotInterrupted(itemName);
+    // Calls run unlocked, as copiers may run several import iterations of a job at once
+    try {
+      T result = callable.call();
+      addResult(idempotentId, itemName, result);
+      return result;
+    } catch (Exception e) {
+      addError(idempotentId, itemName, e);
+      throw e;
+    }
+  }
+
+  @Override
+  public <T extends ImportableItem, R extends Serializable> void recordResults(
+      List<T> items, Map<String, ItemImportResult<R>> results) {
+    for (T item : items) {
+      ItemImportResult<R> result = results.get(item.getIdempotentId());
+      if (result == null) {
+        continue;
+      }
+      if (result.getStatus() == ItemImportResult.Status.SUCCESS) {
+        addResult(item.getIdempotentId(), item.getName(), result.getData());
+      } else {
+        addError(item.getIdempotentId(), item.getName(), result.getException());
+      }
+    }
+  }
+
+  @Override
+  public <T extends Serializable> T getCachedValue(String idempotentId) {
+    long reference = referenceOf(idempotentId);
+    if (reference == IdempotentIdTable.NO_REFERENCE) {
+      throw new IllegalArgumentException(idempotentId + " is not a known key");
+    }
+    return valueAt(idempotentId, reference);
+  }
+
+  @Override
+  public boolean isKeyCached(String idempotentId) {
+    return referenceOf(idempotentId) != IdempotentIdTable.NO_REFERENCE;
+  }
+
+  @Override
+  public synchronized Collection<ErrorDetail> getErrors() {
+    return ImmutableList.copyOf(errors.values());
+  }
+
+  @Override
+  public void setJobId(UUID jobId) {
+    this.jobId = jobId;
+  }
+
+  @Override
+  public synchronized Collection<ErrorDetail> getRecentErrors() {
+    return ImmutableList.copyOf(recentErrors.values());
+  }
+
+  @Override
+  public synchronized void resetRecentErrors() {
+    recentErrors.clear();
+  }
+
+  private synchronized long referenceOf(String idempotentId) {
+    return knownIds.get(idempotentId);
+  }
+
+  /** Returns the value stored under {@code reference}, which may be null. */
+  @SuppressWarnings("unchecked")
+  private synchronized <T extends Serializable> T valueAt(String idempotentId, long reference) {
+    try {
+      return (T) knownValues.get(reference);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read the known value of " + idempotentId, e);
+    }
+  }
+
+  private synchronized void addResult(String idempotentId, String itemName, Serializable result) {
+    String jobIdPrefix = "Job " + jobId + ": ";
+    long reference;
+    try {
+      reference = knownValues.add(result);
+    } catch (IOException e) {
+      // Forgetting the result would import the item again, so rather exceed the memory bound
+      monitor.severe(() -> jobIdPrefix + "Unable to spill value of " + idempotentId, e);
+      reference = knownValues.addInMemory(result);
+    }
+    knownIds.put(idempotentId, reference);
+    monitor.debug(
+        () -> jobIdPrefix + format("Storing key %s in cache for %s", idempotentId, itemName));
+    errors.remove(idempotentId);
+  }
+
+  private synchronized void addError(String idempotentId, String itemName, Exception e) {
+    ErrorDetail errorDetail =
+        ErrorDetail.builder()
+            .setId(idempotentId)
+            .setTitle(itemName)
+            .setException(STACK_TRACES.intern(Throwables.getStackTraceAsString(e)))
+            .build();
+    errors.put(idempotentId, errorDetail);
+    recentErrors.put(idempotentId, errorDetail);
+    String jobIdPrefix = "Job " + jobId + ": ";
+    monitor.severe(() -> jobIdPrefix + "Problem with importing item: " + errorDetail);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An open addressing hash table from idempotent ids to {@code long} references, keeping only the
+ * 128-bit murmur3 hash of each id in primitive arrays, i.e. 24 bytes per slot instead of a
+ * {@code String} and a map entry per id.
+ *
+ * <p>Two ids only collide if their 128-bit hashes are equal, which is negligible for the number
+ * of items of a job. Not thread-safe.
+ */
+final class IdempotentIdTable {
+  /** Returned by {@link #get} for ids without a reference. */
+  static final long NO_REFERENCE = Long.MIN_VALUE;
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+  private static final int INITIAL_CAPACITY = 1 << 10;
+  private static final double MAX_LOAD_FACTOR = 0.6;
+
+  private long[] hashHighs;
+  private long[] hashLows;
+  // NO_REFERENCE marks an empty slot
+  private long[] references;
+  private int size;
+
+  IdempotentIdTable() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /** Returns the reference stored for {@code idempotentId}, or {@link #NO_REFERENCE}. */
+  long get(String idempotentId) {
+    ByteBuffer hash = hash(idempotentId);
+    int slot = findSlot(hash.getLong(0), hash.getLong(8));
+    return references[slot];
+  }
+
+  /** Stores {@code reference}, which mustn't be {@link #NO_REFERENCE}, for {@code idempotentId}. */
+  void put(String idempotentId, long reference) {
+    if (reference == NO_REFERENCE) {
+      throw new IllegalArgumentException("Invalid reference for " + idempotentId);
+    }
+    ByteBuffer hash = hash(idempotentId);
+    long hashHigh = hash.getLong(0);
+    long hashLow = hash.getLong(8);
+    int slot = findSlot(hashHigh, hashLow);
+    if (references[slot] == NO_REFERENCE) {
+      if (size + 1 > references.length * MAX_LOAD_FACTOR) {
+        resize();
+        slot = findSlot(hashHigh, hashLow);
+      }
+      hashHighs[slot] = hashHigh;
+      hashLows[slot] = hashLow;
+      size++;
+    }
+    references[slot] = reference;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Returns the slot holding the given hash, or the empty slot it would be stored in. */
+  private int findSlot(long hashHigh, long hashLow) {
+    int mask = references.length - 1;
+    int slot = (int) hashLow & mask;
+    while (references[slot] != NO_REFERENCE
+        && (hashHighs[slot] != hashHigh || hashLows[slot] != hashLow)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void resize() {
+    long[] oldHashHighs = hashHighs;
+    long[] oldHashLows = hashLows;
+    long[] oldReferences = references;
+    allocate(oldReferences.length * 2);
+    for (int i = 0; i < oldReferences.length; i++) {
+      if (oldReferences[i] != NO_REFERENCE) {
+        int slot = findSlot(oldHashHighs[i], oldHashLows[i]);
+        hashHighs[slot] = oldHashHighs[i];
+        hashLows[slot] = oldHashLows[i];
+        references[slot] = oldReferences[i];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    hashHighs = new long[capacity];
+    hashLows = new long[capacity];
+    references = new long[capacity];
+    Arrays.fill(references, NO_REFERENCE);
+  }
+
+  private static ByteBuffer hash(String idempotentId) {
+    return ByteBuffer.wrap(
+        HASH_FUNCTION.hashString(idempotentId, StandardCharsets.UTF_8).asBytes());
+  }
+}
@@ -16,8 +16,14 @@
 
 package org.datatransferproject.spi.transfer.idempotentexecutor;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.datatransferproject.types.common.ImportableItem;
 
@@ -46,16 +52,131 @@ public interface IdempotentImportExecutor extends CachingExecutor {
         });
   }
 
+  /**
+   * Throws if the calling thread was interrupted, e.g. as its job was canceled. Executors call this
+   * before importing an item, so that a canceled job stops in the middle of a page.
+   */
+  static void checkNotInterrupted(String itemName) throws InterruptedException {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterruptedException("Interrupted before importing " + itemName);
+    }
+  }
+
+  /**
+   * Returns the exception {@link #getCachedValue} throws for an unknown key. {@code knownValues}
+   * must be a synchronized map, its keys are listed while holding its lock.
+   */
+  static IllegalArgumentException unknownKey(String idempotentId, Map<String, ?> knownValues) {
+    synchronized (knownValues) {
+      return new IllegalArgumentException(
+          idempotentId
+              + " is not a known key, known keys: "
+              + String.join(", ", knownValues.keySet()));
+    }
+  }
+
+  /**
+   * Hints that {@link #isKeyCached} will be called for {@code idempotentIds}, so executors that
+   * look results up on demand can fetch them in one batch.
+   */
+  default void prefetchKeys(Collection<String> idempotentIds) {}
+
+  /**
+   * Persists results and errors the executor may have buffered. Copiers call this once a page of
+   * items has been imported.
+   */
+  default void flush() {}
+
+  /**
+   * Imports the items of {@code items} that haven't been imported yet with a single call to
+   * {@code function}, then records all of their results with {@link #recordResults}.
+   *
+   * <p>Like {@link #importAndSwallowIOExceptions}, items that failed with an {@link IOException}
+   * are only recorded as errors, while the first other exception is thrown once every result has
+   * been recorded. If {@code function} itself throws, its exception is recorded for every item it
+   * was passed, and only rethrown if it isn't an {@link IOException}.
+   *
+   * @return the results of the successfully imported items, including the ones imported before,
+   *     keyed by idempotent id
+   */
   default <T extends ImportableItem, R extends Serializable>
-      List<R> importBatchAndSwallowIOExceptions(
-          List<T> items, ImportFunction<List<T>, List<R>> function) {
+      Map<String, R> importBatchAndSwallowIOExceptions(
+          List<T> items, BatchImportFunction<T, R> function) throws Exception {
+    prefetchKeys(
+        items.stream().map(ImportableItem::getIdempotentId).collect(Collectors.toList()));
+    Map<String, R> importedValues = new LinkedHashMap<>();
+    List<T> pendingItems = new ArrayList<>();
+    for (T item : items) {
+      String idempotentId = item.getIdempotentId();
+      if (isKeyCached(idempotentId)) {
+        importedValues.put(idempotentId, getCachedValue(idempotentId));
+      } else {
+        pendingItems.add(item);
+      }
+    }
+    if (pendingItems.isEmpty()) {
+      return importedValues;
+    }
+
+    Map<String, ItemImportResult<R>> results;
+    try {
+      results = function.apply(pendingItems);
+    } catch (Exception e) {
+      Map<String, ItemImportResult<R>> failures = new LinkedHashMap<>();
+      for (T item : pendingItems) {
+        failures.put(item.getIdempotentId(), ItemImportResult.error(e, null));
+      }
+      recordResults(pendingItems, failures);
+      if (e instanceof IOException) {
+        return importedValues;
+      }
+      throw e;
+    }
+    recordResults(pendingItems, results);
 
-    // The general idea is:
-    //   1. go through the items, filter out isKeyCached(item)
-    //   2. pass the remaining ones to function
-    //   3. save the resulting objects to cache, one by one
-    //   4. return the result that function returned
+    Exception firstFailure = null;
+    for (T item : pendingItems) {
+      ItemImportResult<R> result = results.get(item.getIdempotentId());
+      if (result == null) {
+        continue;
+      }
+      if (result.getStatus() == ItemImportResult.Status.SUCCESS) {
+        importedValues.put(item.getIdempotentId(), result.getData());
+      } else if (firstFailure == null && !(result.getException() instanceof IOException)) {
+        firstFailure = result.getException();
+      }
+    }
+    if (firstFailure != null) {
+      throw firstFailure;
+    }
+    return importedValues;
+  }
 
-    throw new UnsupportedOperationException();
+  /**
+   * Records the results of items imported outside of {@link #executeOrThrowException}, skipping
+   * items without a result in {@code results}. Executors backed by a store should override this
+   * to persist all of them in one operation.
+   */
+  default <T extends ImportableItem, R extends Serializable> void recordResults(
+      List<T> items, Map<String, ItemImportResult<R>> results) {
+    for (T item : items) {
+      ItemImportResult<R> result = results.get(item.getIdempotentId());
+      if (result == null) {
+        continue;
+      }
+      try {
+        executeOrThrowException(
+            item.getIdempotentId(),
+            item.getName(),
+            () -> {
+              if (result.getStatus() == ItemImportResult.Status.SUCCESS) {
+                return result.getData();
+              }
+              throw result.getException();
+            });
+      } catch (Exception e) {
+        // Recorded as the item's error, it is up to the caller whether to rethrow it
+      }
+    }
   }
 }
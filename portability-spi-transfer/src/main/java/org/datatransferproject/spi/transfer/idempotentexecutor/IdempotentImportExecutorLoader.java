@@ -1,6 +1,7 @@
 package org.datatransferproject.spi.transfer.idempotentexecutor;
 
 import com.google.common.collect.ImmutableList;
+import java.nio.file.Paths;
 import java.util.ServiceLoader;
 import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.Monitor;
@@ -14,7 +15,7 @@ public class IdempotentImportExecutorLoader {
         .forEachRemaining(builder::add);
     ImmutableList<IdempotentImportExecutorExtension> executors = builder.build();
     if (executors.isEmpty()) {
-      return new InMemoryIdempotentImportExecutor(extensionContext.getMonitor());
+      return loadInMemory(extensionContext);
     } else if (executors.size() == 1) {
       IdempotentImportExecutorExtension extension = executors.get(0);
       extension.initialize();
@@ -24,6 +25,21 @@ public class IdempotentImportExecutorLoader {
     }
   }
 
+  private static IdempotentImportExecutor loadInMemory(ExtensionContext extensionContext) {
+    if (!extensionContext.getSetting(CompactIdempotentImportExecutor.COMPACT_EXECUTOR_SETTING,
+        false)) {
+      return new InMemoryIdempotentImportExecutor(extensionContext.getMonitor());
+    }
+    String spillDirectory = extensionContext.getSetting(
+        CompactIdempotentImportExecutor.SPILL_DIRECTORY_SETTING,
+        System.getProperty("java.io.tmpdir"));
+    return new CompactIdempotentImportExecutor(
+        extensionContext.getMonitor(),
+        extensionContext.getSetting(
+            CompactIdempotentImportExecutor.MAX_VALUES_IN_MEMORY_SETTING, 100_000),
+        Paths.get(spillDirectory));
+  }
+
   private IdempotentImportExecutorLoader() {
   }
 }
@@ -18,26 +18,31 @@ package org.datatransferproject.spi.transfer.idempotentexecutor;
 
 import static java.lang.String.format;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import java.util.UUID;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.types.common.ImportableItem;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
 /** A {@link IdempotentImportExecutor} that stores known values in memory. */
 public class InMemoryIdempotentImportExecutor implements IdempotentImportExecutor {
-  private final Map<String, Serializable> knownValues = new HashMap<>();
-  private final Map<String, ErrorDetail> errors = new HashMap<>();
-  private final Map<String, ErrorDetail> recentErrors = new HashMap<>();
+  // Synchronized as copiers may run several import iterations of a job at once
+  private final Map<String, Serializable> knownValues =
+      Collections.synchronizedMap(new HashMap<>());
+  private final Map<String, ErrorDetail> errors = Collections.synchronizedMap(new HashMap<>());
+  private final Map<String, ErrorDetail> recentErrors =
+      Collections.synchronizedMap(new HashMap<>());
   private final Monitor monitor;
   private UUID jobId;
 
@@ -69,35 +74,59 @@ public class InMemoryIdempotentImportExecutor implements IdempotentImportExecuto
                   + format("Using cached key %s from cache for %s", idempotentId, itemName));
       return (T) knownValues.get(idempotentId);
     }
+    IdempotentImportExecutor.checkNotInterrupted(itemName);
     try {
       T result = callable.call();
-      knownValues.put(idempotentId, result);
-      monitor.debug(
-          () -> jobIdPrefix + format("Storing key %s in cache for %s", idempotentId, itemName));
-      errors.remove(idempotentId);
+      addResult(idempotentId, itemName, result);
       return result;
     } catch (Exception e) {
-      ErrorDetail errorDetail =
-          ErrorDetail.builder()
-              .setId(idempotentId)
-              .setTitle(itemName)
-              .setException(Throwables.getStackTraceAsString(e))
-              .build();
-      errors.put(idempotentId, errorDetail);
-      recentErrors.put(idempotentId, errorDetail);
-      monitor.severe(() -> jobIdPrefix + "Problem with importing item: " + errorDetail);
+      addError(idempotentId, itemName, e);
       throw e;
     }
   }
 
+  @Override
+  public <T extends ImportableItem, R extends Serializable> void recordResults(
+      List<T> items, Map<String, ItemImportResult<R>> results) {
+    for (T item : items) {
+      ItemImportResult<R> result = results.get(item.getIdempotentId());
+      if (result == null) {
+        continue;
+      }
+      if (result.getStatus() == ItemImportResult.Status.SUCCESS) {
+        addResult(item.getIdempotentId(), item.getName(), result.getData());
+      } else {
+        addError(item.getIdempotentId(), item.getName(), result.getException());
+      }
+    }
+  }
+
+  private void addResult(String idempotentId, String itemName, Serializable result) {
+    knownValues.put(idempotentId, result);
+    String jobIdPrefix = "Job " + jobId + ": ";
+    monitor.debug(
+        () -> jobIdPrefix + format("Storing key %s in cache for %s", idempotentId, itemName));
+    errors.remove(idempotentId);
+  }
+
+  private void addError(String idempotentId, String itemName, Exception e) {
+    ErrorDetail errorDetail =
+        ErrorDetail.builder()
+            .setId(idempotentId)
+            .setTitle(itemName)
+            .setException(Throwables.getStackTraceAsString(e))
+            .build();
+    errors.put(idempotentId, errorDetail);
+    recentErrors.put(idempotentId, errorDetail);
+    String jobIdPrefix = "Job " + jobId + ": ";
+    monitor.severe(() -> jobIdPrefix + "Problem with importing item: " + errorDetail);
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public <T extends Serializable> T getCachedValue(String idempotentId) {
     if (!knownValues.containsKey(idempotentId)) {
-      throw new IllegalArgumentException(
-          idempotentId
-              + " is not a known key, known keys: "
-              + Joiner.on(", ").join(knownValues.keySet()));
+      throw IdempotentImportExecutor.unknownKey(idempotentId, knownValues);
     }
     return (T) knownValues.get(idempotentId);
   }
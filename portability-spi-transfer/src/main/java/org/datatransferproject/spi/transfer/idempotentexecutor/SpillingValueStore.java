@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.lang.ref.Cleaner;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores values on the heap until {@code maxValuesInMemory} are stored, then appends further ones
+ * to a temporary file. Values are addressed by the non-negative index of an in-memory value, or
+ * the negative {@code -(offset + 1)} of a spilled one. Not thread-safe.
+ *
+ * <p>The spill file is created on the first spill and deleted once the store is garbage
+ * collected, e.g. after the job of a long-lived worker finished, or when the worker exits.
+ */
+final class SpillingValueStore {
+  private static final Cleaner CLEANER = Cleaner.create();
+  private static final byte STRING_VALUE = 0;
+  private static final byte SERIALIZED_VALUE = 1;
+
+  private final int maxValuesInMemory;
+  private final Path spillDirectory;
+  private final List<Serializable> values = new ArrayList<>();
+  private SpillFile spillFile;
+
+  SpillingValueStore(int maxValuesInMemory, Path spillDirectory) {
+    this.maxValuesInMemory = maxValuesInMemory;
+    this.spillDirectory = spillDirectory;
+  }
+
+  /** Stores {@code value} and returns its reference. */
+  long add(Serializable value) throws IOException {
+    if (values.size() < maxValuesInMemory) {
+      return addInMemory(value);
+    }
+    if (spillFile == null) {
+      spillFile = new SpillFile(Files.createTempFile(spillDirectory, "idempotent-values", ".tmp"));
+      CLEANER.register(this, spillFile);
+    }
+    return -spillFile.append(encode(value)) - 1;
+  }
+
+  /** Stores {@code value} on the heap regardless of {@code maxValuesInMemory}. */
+  long addInMemory(Serializable value) {
+    values.add(value);
+    return values.size() - 1;
+  }
+
+  Serializable get(long reference) throws IOException {
+    if (reference >= 0) {
+      return values.get((int) reference);
+    }
+    return decode(spillFile.read(-(reference + 1)));
+  }
+
+  private static byte[] encode(Serializable value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    // Results are mostly ids of the created items, which don't need Java serialization
+    if (value instanceof String) {
+      bytes.write(STRING_VALUE);
+      bytes.write(((String) value).getBytes(StandardCharsets.UTF_8));
+    } else {
+      bytes.write(SERIALIZED_VALUE);
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(value);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Serializable decode(byte[] bytes) throws IOException {
+    if (bytes[0] == STRING_VALUE) {
+      return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+    }
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+      return (Serializable) in.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Unable to read spilled value", e);
+    }
+  }
+
+  /** The spill file, also the action deleting it, so it mustn't reference the store. */
+  private static final class SpillFile implements Runnable {
+    private final Path path;
+    private final RandomAccessFile file;
+
+    private SpillFile(Path path) throws IOException {
+      this.path = path;
+      this.file = new RandomAccessFile(path.toFile(), "rw");
+      path.toFile().deleteOnExit();
+    }
+
+    /** Appends a length-prefixed record and returns its offset. */
+    private long append(byte[] record) throws IOException {
+      long offset = file.length();
+      file.seek(offset);
+      file.writeInt(record.length);
+      file.write(record);
+      return offset;
+    }
+
+    private byte[] read(long offset) throws IOException {
+      file.seek(offset);
+      byte[] record = new byte[file.readInt()];
+      file.readFully(record);
+      return record;
+    }
+
+    @Override
+    public void run() {
+      try {
+        file.close();
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        // Left behind in the temp directory
+      }
+    }
+  }
+}
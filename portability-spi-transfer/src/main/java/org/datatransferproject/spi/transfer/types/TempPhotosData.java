@@ -57,7 +57,9 @@ public class TempPhotosData extends DataModel {
     this.jobId = jobId;
     this.tempPhotoAlbums = tempPhotoAlbums;
     this.newAlbumIds = newAlbumIds;
-    this.containedPhotoIds = containedPhotoIds;
+    // Deserialized as a list otherwise, making every isContainedPhotoId call a linear scan
+    this.containedPhotoIds =
+        containedPhotoIds == null ? new LinkedHashSet<>() : new LinkedHashSet<>(containedPhotoIds);
   }
 
   public TempPhotosData(@JsonProperty("jobId") UUID jobId) {
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.types.common.ImportableItem;
+import org.datatransferproject.types.transfer.errors.ErrorDetail;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CompactIdempotentImportExecutorTest {
+  @TempDir Path spillDirectory;
+
+  private CompactIdempotentImportExecutor executor;
+
+  @BeforeEach
+  public void setUp() {
+    executor = new CompactIdempotentImportExecutor(new Monitor() {}, 2, spillDirectory);
+    executor.setJobId(UUID.randomUUID());
+  }
+
+  @Test
+  public void valuesPastThresholdAreSpilled() throws Exception {
+    for (int i = 0; i < 3000; i++) {
+      String value = "value" + i;
+      executor.executeOrThrowException("id" + i, "item" + i, () -> value);
+    }
+    executor.executeOrThrowException("list", "list", () -> ImmutableList.of("a", "b"));
+
+    try (Stream<Path> spillFiles = Files.list(spillDirectory)) {
+      assertThat(spillFiles.count()).isEqualTo(1);
+    }
+    for (int i = 0; i < 3000; i++) {
+      assertThat(executor.isKeyCached("id" + i)).isTrue();
+      assertThat((String) executor.getCachedValue("id" + i)).isEqualTo("value" + i);
+    }
+    assertThat((Iterable<?>) executor.getCachedValue("list")).containsExactly("a", "b");
+    assertThat(executor.isKeyCached("unknown")).isFalse();
+    assertThrows(IllegalArgumentException.class, () -> executor.getCachedValue("unknown"));
+  }
+
+  @Test
+  public void cachedValuesAreNotRecomputed() throws Exception {
+    executor.executeOrThrowException("id", "item", () -> "first");
+
+    String value = executor.executeOrThrowException("id", "item", () -> "second");
+
+    assertThat(value).isEqualTo("first");
+  }
+
+  @Test
+  public void nullValuesAreNotRecomputed() throws Exception {
+    int[] calls = {0};
+    Callable<String> importItem =
+        () -> {
+          calls[0]++;
+          return null;
+        };
+
+    assertThat(executor.executeOrThrowException("id", "item", importItem)).isNull();
+    assertThat(executor.executeOrThrowException("id", "item", importItem)).isNull();
+
+    assertThat(calls[0]).isEqualTo(1);
+    assertThat(executor.isKeyCached("id")).isTrue();
+    assertThat((String) executor.getCachedValue("id")).isNull();
+  }
+
+  @Test
+  public void identicalStackTracesAreStoredOnce() {
+    IOException failure = new IOException("failed");
+    ImportableItem item1 = () -> "id1";
+    ImportableItem item2 = () -> "id2";
+
+    executor.recordResults(
+        ImmutableList.of(item1, item2),
+        ImmutableMap.of(
+            "id1", ItemImportResult.<String>error(failure, null),
+            "id2", ItemImportResult.<String>error(failure, null)));
+
+    Iterator<ErrorDetail> errors = executor.getErrors().iterator();
+    String firstStackTrace = errors.next().exception();
+    String secondStackTrace = errors.next().exception();
+    assertThat(secondStackTrace).isEqualTo(firstStackTrace);
+    assertThat(secondStackTrace).isSameAs(firstStackTrace);
+  }
+
+  @Test
+  public void successClearsError() throws Exception {
+    assertThrows(
+        IOException.class,
+        () ->
+            executor.executeOrThrowException(
+                "id",
+                "item",
+                () -> {
+                  throw new IOException("failed");
+                }));
+    assertThat(executor.getErrors()).hasSize(1);
+
+    executor.executeOrThrowException("id", "item", () -> "value");
+
+    assertThat(executor.getErrors()).isEmpty();
+    assertThat(executor.getRecentErrors()).hasSize(1);
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.types.common.ImportableItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class InMemoryIdempotentImportExecutorTest {
+  private static final ImportableItem ITEM_1 = () -> "id1";
+  private static final ImportableItem ITEM_2 = () -> "id2";
+  private static final ImportableItem ITEM_3 = () -> "id3";
+
+  private InMemoryIdempotentImportExecutor executor;
+
+  @BeforeEach
+  public void setUp() {
+    executor = new InMemoryIdempotentImportExecutor(new Monitor() {});
+    executor.setJobId(UUID.randomUUID());
+  }
+
+  @Test
+  public void importBatchSkipsCachedItemsAndRecordsResults() throws Exception {
+    executor.executeOrThrowException("id1", "item1", () -> "cached1");
+    List<ImportableItem> attempted = new ArrayList<>();
+
+    Map<String, String> imported =
+        executor.importBatchAndSwallowIOExceptions(
+            ImmutableList.of(ITEM_1, ITEM_2, ITEM_3),
+            items -> {
+              attempted.addAll(items);
+              return ImmutableMap.of(
+                  "id2", ItemImportResult.success("new2"),
+                  "id3", ItemImportResult.error(new IOException("failed"), null));
+            });
+
+    assertThat(attempted).containsExactly(ITEM_2, ITEM_3);
+    assertThat(imported).containsExactly("id1", "cached1", "id2", "new2");
+    assertThat(executor.isKeyCached("id2")).isTrue();
+    assertThat(executor.isKeyCached("id3")).isFalse();
+    assertThat(executor.getErrors()).hasSize(1);
+    assertThat(executor.getErrors().iterator().next().id()).isEqualTo("id3");
+  }
+
+  @Test
+  public void importBatchThrowsOtherExceptionsAfterRecordingResults() {
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            executor.importBatchAndSwallowIOExceptions(
+                ImmutableList.of(ITEM_1, ITEM_2),
+                items ->
+                    ImmutableMap.of(
+                        "id1", ItemImportResult.error(new IllegalStateException("boom"), null),
+                        "id2", ItemImportResult.success("new2"))));
+
+    assertThat(executor.isKeyCached("id2")).isTrue();
+    assertThat(executor.getErrors()).hasSize(1);
+  }
+
+  @Test
+  public void importBatchRecordsIOFailureOfWholeBatch() throws Exception {
+    executor.executeOrThrowException("id1", "item1", () -> "cached1");
+
+    Map<String, String> imported =
+        executor.<ImportableItem, String>importBatchAndSwallowIOExceptions(
+            ImmutableList.of(ITEM_1, ITEM_2, ITEM_3),
+            items -> {
+              throw new IOException("batch failed");
+            });
+
+    assertThat(imported).containsExactly("id1", "cached1");
+    assertThat(executor.getErrors()).hasSize(2);
+  }
+
+  @Test
+  public void importBatchThrowsOtherFailureOfWholeBatch() {
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            executor.<ImportableItem, String>importBatchAndSwallowIOExceptions(
+                ImmutableList.of(ITEM_1, ITEM_2),
+                items -> {
+                  throw new IllegalStateException("batch failed");
+                }));
+
+    assertThat(executor.getErrors()).hasSize(2);
+  }
+
+  @Test
+  public void interruptedThreadStopsBeforeImporting() throws Exception {
+    executor.executeOrThrowException("id1", "item1", () -> "cached1");
+    List<String> imported = new ArrayList<>();
+
+    Thread.currentThread().interrupt();
+    try {
+      assertThat((String) executor.executeAndSwallowIOExceptions("id1", "item1", () -> "new1"))
+          .isEqualTo("cached1");
+      assertThrows(
+          InterruptedException.class,
+          () -> executor.executeAndSwallowIOExceptions("id2", "item2", () -> imported.add("id2")));
+    } finally {
+      Thread.interrupted();
+    }
+
+    assertThat(imported).isEmpty();
+    assertThat(executor.getErrors()).isEmpty();
+  }
+}
@@ -1,51 +1,107 @@
 package org.datatransferproject.transfer;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 import org.datatransferproject.types.common.DownloadableItem;
 
+/**
+ * Computes the sizes of items, preferring sizes reported without downloading them, see {@link
+ * ConnectionProvider#getSizeForItem}, and reading them in full only as a last resort. Items are
+ * sized concurrently on a bounded pool shared by all jobs of the worker.
+ */
 public class CallableSizeCalculator implements Callable<Map<String, Long>> {
+  private static final int PARALLELISM = 8;
+  private static final ExecutorService SIZING_EXECUTOR =
+      Executors.newFixedThreadPool(
+          PARALLELISM,
+          new ThreadFactoryBuilder().setNameFormat("size-calculator-%d").setDaemon(true).build());
 
   private final UUID jobId;
   private final ConnectionProvider connectionProvider;
   private final Collection<? extends DownloadableItem> items;
+  private final ExecutorService executor;
 
   public CallableSizeCalculator(
       UUID jobId, ConnectionProvider connectionProvider, Collection<? extends DownloadableItem> items) {
+    this(jobId, connectionProvider, items, SIZING_EXECUTOR);
+  }
+
+  public CallableSizeCalculator(
+      UUID jobId,
+      ConnectionProvider connectionProvider,
+      Collection<? extends DownloadableItem> items,
+      ExecutorService executor) {
     this.jobId = Objects.requireNonNull(jobId);
     this.connectionProvider = Objects.requireNonNull(connectionProvider);
     this.items = Objects.requireNonNull(items);
+    this.executor = Objects.requireNonNull(executor);
   }
 
   @Override
   public Map<String, Long> call() throws Exception {
-    Map<String, Long> result = new LinkedHashMap<>();
+    List<Future<Long>> sizes = new ArrayList<>(items.size());
     for (DownloadableItem item : items) {
-      InputStreamWrapper stream = connectionProvider.getInputStreamForItem(jobId, item);
-      long size = stream.getBytes();
-      if (size <= 0) {
-        size = computeSize(stream);
-      }
+      sizes.add(executor.submit(JobMetadata.withCurrentJob(() -> computeSize(item))));
+    }
 
-      result.put(item.getIdempotentId(), size);
+    Map<String, Long> result = new LinkedHashMap<>();
+    try {
+      int i = 0;
+      for (DownloadableItem item : items) {
+        result.put(item.getIdempotentId(), sizes.get(i++).get());
+      }
+    } catch (ExecutionException e) {
+      sizes.forEach(size -> size.cancel(true));
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    } catch (InterruptedException e) {
+      sizes.forEach(size -> size.cancel(true));
+      throw e;
     }
 
     return result;
   }
 
+  private long computeSize(DownloadableItem item) throws IOException {
+    long size = connectionProvider.getSizeForItem(jobId, item);
+    if (size > 0) {
+      return size;
+    }
+
+    InputStreamWrapper stream = connectionProvider.getInputStreamForItem(jobId, item);
+    size = stream.getBytes() != null ? stream.getBytes() : 0;
+    if (size > 0) {
+      // The connection is released even when its content isn't needed
+      if (stream.getStream() != null) {
+        stream.getStream().close();
+      }
+      return size;
+    }
+    return readSize(stream);
+  }
+
   // Reads the input stream in full
-  private Long computeSize(InputStreamWrapper stream) throws IOException {
+  private static long readSize(InputStreamWrapper stream) throws IOException {
     long size = 0;
     try (InputStream inStream = stream.getStream()) {
-      byte[] buffer = new byte[1024 * 1024]; // 1MB
+      byte[] buffer = new byte[64 * 1024];
       int chunkBytesRead;
       while ((chunkBytesRead = inStream.read(buffer)) != -1) {
         size += chunkBytesRead;
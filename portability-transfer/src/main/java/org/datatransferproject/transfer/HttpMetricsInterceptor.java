@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer;
+
+import java.io.IOException;
+import java.time.Duration;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.types.common.models.DataVertical;
+
+/**
+ * Records the latency until response headers, and the number of bytes read from the body, of
+ * requests made by the worker's shared {@link okhttp3.OkHttpClient}, tagged by host.
+ */
+class HttpMetricsInterceptor implements Interceptor {
+  static final String LATENCY_TAG = "http_latency";
+  static final String BYTES_TAG = "http_bytes";
+
+  private final ExtensionContext context;
+
+  HttpMetricsInterceptor(ExtensionContext context) {
+    this.context = context;
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    long start = System.nanoTime();
+    Response response = chain.proceed(chain.request());
+    Duration latency = Duration.ofNanos(System.nanoTime() - start);
+
+    // The recorder is registered after the client, and requests may run outside of a job
+    DtpInternalMetricRecorder metricRecorder = context.getService(DtpInternalMetricRecorder.class);
+    if (metricRecorder == null || !JobMetadata.isInitialized()) {
+      return response;
+    }
+    String host = chain.request().url().host();
+    DataVertical dataType = JobMetadata.getDataType();
+    metricRecorder.recordGenericMetric(dataType, host, LATENCY_TAG, latency);
+    ResponseBody body = response.body();
+    if (body == null) {
+      return response;
+    }
+    // The body is read after this returns, possibly only in part, so count it as it is read
+    Source countingSource = new CountingSource(body.source(), metricRecorder, dataType, host);
+    return response
+        .newBuilder()
+        .body(
+            ResponseBody.create(
+                body.contentType(), body.contentLength(), Okio.buffer(countingSource)))
+        .build();
+  }
+
+  /** Records the bytes read from a response body once it is exhausted or closed. */
+  private static class CountingSource extends ForwardingSource {
+    private final DtpInternalMetricRecorder metricRecorder;
+    private final DataVertical dataType;
+    private final String host;
+    private long bytes = 0;
+    private boolean recorded = false;
+
+    CountingSource(
+        Source delegate,
+        DtpInternalMetricRecorder metricRecorder,
+        DataVertical dataType,
+        String host) {
+      super(delegate);
+      this.metricRecorder = metricRecorder;
+      this.dataType = dataType;
+      this.host = host;
+    }
+
+    @Override
+    public long read(Buffer sink, long byteCount) throws IOException {
+      long read = super.read(sink, byteCount);
+      if (read < 0) {
+        record();
+      } else {
+        bytes += read;
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      record();
+      super.close();
+    }
+
+    private void record() {
+      if (!recorded) {
+        recorded = true;
+        metricRecorder.recordGenericMetric(
+            dataType, host, BYTES_TAG, (int) Math.min(bytes, Integer.MAX_VALUE));
+      }
+    }
+  }
+}
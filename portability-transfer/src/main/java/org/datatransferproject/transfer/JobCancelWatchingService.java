@@ -23,12 +23,19 @@ import org.datatransferproject.launcher.monitor.events.EventCode;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
 
-/** A service that polls storage to see if a job is canceled, if it is it kills the binary. */
+/**
+ * A service that polls storage to see if a job is canceled. If it is, it interrupts the thread
+ * processing the job, which stops the copier at its next item or copy iteration.
+ *
+ * <p>Only the state of the job is read, see {@link JobStore#findJobState}.
+ */
 class JobCancelWatchingService extends AbstractScheduledService {
   private final JobStore store;
   private final Scheduler scheduler;
   private final Monitor monitor;
   private final DtpInternalMetricRecorder dtpInternalMetricRecorder;
+  private JobMetadata watchedJob = null;
+  private Thread jobThread = null;
 
   @Inject
   JobCancelWatchingService(
@@ -40,50 +47,64 @@ class JobCancelWatchingService extends AbstractScheduledService {
     this.dtpInternalMetricRecorder = dtpInternalMetricRecorder;
   }
 
+  /**
+   * Watches {@code job}, which is processed by {@code jobThread}. Must be called before the service
+   * is started.
+   */
+  void watch(JobMetadata job, Thread jobThread) {
+    this.watchedJob = job;
+    this.jobThread = jobThread;
+  }
+
   @Override
   protected void runOneIteration() {
-    if (!JobMetadata.isInitialized()) {
+    JobMetadata job = watchedJob;
+    if (job == null) {
       return;
     }
     monitor.debug(() -> "polling for job to check cancellation");
-    PortabilityJob currentJob = store.findJob(JobMetadata.getJobId());
-    switch (currentJob.state()) {
+    PortabilityJob.State state = store.findJobState(job.jobId());
+    if (state == null) {
+      monitor.debug(() -> String.format("Job %s has no state to check", job.jobId()));
+      return;
+    }
+    switch (state) {
       case CANCELED:
         monitor.info(
-            () -> String.format("Job %s is canceled", JobMetadata.getJobId()),
+            () -> String.format("Job %s is canceled", job.jobId()),
             EventCode.WORKER_JOB_CANCELED);
         dtpInternalMetricRecorder.cancelledJob(
-            JobMetadata.getDataType(),
-            JobMetadata.getExportService(),
-            JobMetadata.getImportService(),
-            JobMetadata.getStopWatch().elapsed());
+            job.dataType(),
+            job.exportService(),
+            job.importService(),
+            job.stopWatch().elapsed());
         monitor.flushLogs();
-        store.abandonJob(JobMetadata.getJobId(), PortabilityJob.State.CANCELED.toString());
-        System.exit(0);
+        store.abandonJob(job.jobId(), PortabilityJob.State.CANCELED.toString());
+        stopJob();
         break;
       case ERROR:
         monitor.severe(
-            () -> String.format("Job %s is errored", JobMetadata.getJobId()),
+            () -> String.format("Job %s is errored", job.jobId()),
             EventCode.WATCHING_SERVICE_JOB_ERRORED);
-        recordGeneralMetric(PortabilityJob.State.ERROR.toString());
+        recordGeneralMetric(job, PortabilityJob.State.ERROR.toString());
         monitor.flushLogs();
-        store.abandonJob(JobMetadata.getJobId(), PortabilityJob.State.ERROR.toString());
-        System.exit(0);
+        store.abandonJob(job.jobId(), PortabilityJob.State.ERROR.toString());
+        stopJob();
         break;
       case PREEMPTED:
         monitor.info(
-            () -> String.format("Job %s is preempted", JobMetadata.getJobId()),
+            () -> String.format("Job %s is preempted", job.jobId()),
             EventCode.WATCHING_SERVICE_JOB_PREEMPTED);
-        recordGeneralMetric(PortabilityJob.State.PREEMPTED.toString());
+        recordGeneralMetric(job, PortabilityJob.State.PREEMPTED.toString());
         monitor.flushLogs();
-        store.abandonJob(JobMetadata.getJobId(), PortabilityJob.State.PREEMPTED.toString());
-        System.exit(0);
+        store.abandonJob(job.jobId(), PortabilityJob.State.PREEMPTED.toString());
+        stopJob();
         break;
       default:
         monitor.debug(
             () ->
                 String.format(
-                    "Job %s is not canceled or errored or preempted", JobMetadata.getJobId()));
+                    "Job %s is not canceled or errored or preempted", job.jobId()));
     }
   }
 
@@ -92,11 +113,16 @@ class JobCancelWatchingService extends AbstractScheduledService {
     return scheduler;
   }
 
-    private void recordGeneralMetric(String jobState) {
+  private void stopJob() {
+    jobThread.interrupt();
+    stopAsync();
+  }
+
+    private void recordGeneralMetric(JobMetadata job, String jobState) {
       dtpInternalMetricRecorder.recordGenericMetric(
-              JobMetadata.getDataType(),
-              JobMetadata.getExportService(),
+              job.dataType(),
+              job.exportService(),
               jobState,
-              JobMetadata.getStopWatch().elapsed());
+              job.stopWatch().elapsed());
     }
 }
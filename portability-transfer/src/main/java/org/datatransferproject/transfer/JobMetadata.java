@@ -19,33 +19,60 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import org.datatransferproject.types.common.models.DataVertical;
 
 /**
- * A class that contains metadata for a transfer worker's job.
+ * Metadata of the job a transfer worker is processing.
  *
- * <p>
- *
- * <p>This class is completely static to ensure it is a singleton within each transfer worker
- * instance.
+ * <p>A worker that processes a single job initializes it once for the whole process. A long-lived
+ * worker running several jobs at once instead {@link #bind binds} each job to the thread
+ * processing it. The binding isn't inherited, as pools may be created lazily by a job thread and
+ * then shared by all jobs; tasks the job submits to a pool are wrapped with {@link
+ * #withCurrentJob} instead, so the static getters return the metadata of the job the caller works
+ * on.
  */
 @SuppressWarnings("WeakerAccess")
 // We make the class and various methods public so they can be accessed from Monitors
 public final class JobMetadata {
-  private static byte[] encodedPrivateKey = null;
-  private static UUID jobId = null;
-  private static DataVertical dataType = null;
-  private static String exportService = null;
-  private static String importService = null;
-  private static Stopwatch stopWatch = null;
+  private static final ThreadLocal<JobMetadata> BOUND_JOB = new ThreadLocal<>();
+  private static volatile JobMetadata processJob = null;
+
+  private final byte[] encodedPrivateKey;
+  private final UUID jobId;
+  private final DataVertical dataType;
+  private final String exportService;
+  private final String importService;
+  private final Stopwatch stopWatch;
+
+  private JobMetadata(
+      UUID jobId,
+      byte[] encodedPrivateKey,
+      DataVertical dataType,
+      String exportService,
+      String importService,
+      Stopwatch stopWatch) {
+    this.jobId = Preconditions.checkNotNull(jobId);
+    this.encodedPrivateKey = Preconditions.checkNotNull(encodedPrivateKey);
+    this.dataType = Preconditions.checkNotNull(dataType);
+    this.exportService = Preconditions.checkNotNull(exportService);
+    this.importService = Preconditions.checkNotNull(importService);
+    this.stopWatch = Preconditions.checkNotNull(stopWatch);
+  }
+
+  static JobMetadata create(
+      UUID jobId,
+      byte[] encodedPrivateKey,
+      DataVertical dataType,
+      String exportService,
+      String importService,
+      Stopwatch stopWatch) {
+    return new JobMetadata(
+        jobId, encodedPrivateKey, dataType, exportService, importService, stopWatch);
+  }
 
   public static boolean isInitialized() {
-    return (jobId != null
-        && encodedPrivateKey != null
-        && dataType != null
-        && exportService != null
-        && importService != null
-        && stopWatch != null);
+    return current() != null;
   }
 
   static void init(
@@ -55,52 +82,120 @@ public final class JobMetadata {
       String initExportService,
       String initImportService,
       Stopwatch initStopWatch) {
+    init(
+        create(
+            initJobId,
+            initEncodedPrivateKey,
+            initDataType,
+            initExportService,
+            initImportService,
+            initStopWatch));
+  }
+
+  /** Makes {@code job} the job of the whole process. */
+  static synchronized void init(JobMetadata job) {
     Preconditions.checkState(!isInitialized(), "JobMetadata cannot be initialized twice");
-    jobId = initJobId;
-    encodedPrivateKey = initEncodedPrivateKey;
-    dataType = initDataType;
-    exportService = initExportService;
-    importService = initImportService;
-    stopWatch = initStopWatch;
+    processJob = job;
+  }
+
+  /** Makes {@code job} the job of the calling thread. */
+  static void bind(JobMetadata job) {
+    Preconditions.checkState(BOUND_JOB.get() == null, "A job is already bound to this thread");
+    BOUND_JOB.set(job);
+  }
+
+  /** Clears the job of the calling thread, if any. */
+  static void unbind() {
+    BOUND_JOB.remove();
+  }
+
+  /**
+   * Returns a task running {@code task} with the job bound to the calling thread, if any, bound to
+   * the thread that runs it.
+   */
+  public static <T> Callable<T> withCurrentJob(Callable<T> task) {
+    JobMetadata job = BOUND_JOB.get();
+    if (job == null) {
+      return task;
+    }
+    return () -> {
+      JobMetadata previous = BOUND_JOB.get();
+      BOUND_JOB.set(job);
+      try {
+        return task.call();
+      } finally {
+        if (previous != null) {
+          BOUND_JOB.set(previous);
+        } else {
+          BOUND_JOB.remove();
+        }
+      }
+    };
   }
 
   // TODO: remove this
+  /** Clears the job of the calling thread if one is bound, otherwise the job of the process. */
   static synchronized void reset() {
-    jobId = null;
-    encodedPrivateKey = null;
-    dataType = null;
-    exportService = null;
-    importService = null;
-    stopWatch = null;
+    if (BOUND_JOB.get() != null) {
+      BOUND_JOB.remove();
+    } else {
+      processJob = null;
+    }
+  }
+
+  /** Returns the job of the calling thread, or null if there is none. */
+  static JobMetadata current() {
+    JobMetadata boundJob = BOUND_JOB.get();
+    return boundJob != null ? boundJob : processJob;
+  }
+
+  private static JobMetadata checkedCurrent() {
+    JobMetadata job = current();
+    Preconditions.checkState(job != null, "JobMetadata must be initialized");
+    return job;
   }
 
   static byte[] getPrivateKey() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return encodedPrivateKey;
+    return checkedCurrent().encodedPrivateKey;
   }
 
   public static UUID getJobId() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return jobId;
+    return checkedCurrent().jobId;
   }
 
   public static DataVertical getDataType() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return dataType;
+    return checkedCurrent().dataType;
   }
 
   public static String getExportService() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return exportService;
+    return checkedCurrent().exportService;
   }
 
   public static String getImportService() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return importService;
+    return checkedCurrent().importService;
   }
 
   public static Stopwatch getStopWatch() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
+    return checkedCurrent().stopWatch;
+  }
+
+  UUID jobId() {
+    return jobId;
+  }
+
+  DataVertical dataType() {
+    return dataType;
+  }
+
+  String exportService() {
+    return exportService;
+  }
+
+  String importService() {
+    return importService;
+  }
+
+  Stopwatch stopWatch() {
     return stopWatch;
   }
 }
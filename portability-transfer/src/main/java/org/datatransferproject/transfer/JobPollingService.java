@@ -23,8 +23,11 @@ import com.google.common.base.Strings;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.google.inject.Inject;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.JobAwareMonitor;
 import org.datatransferproject.api.launcher.Monitor;
@@ -42,6 +45,9 @@ import org.datatransferproject.spi.transfer.types.FailureReasons;
  * A service that polls storage for a job to process in two steps: <br> (1) find an unassigned job
  * for this transfer worker <br> (2) wait until the job is ready to process (i.e. creds are
  * available)
+ *
+ * <p>Unassigned jobs are leased from the store before claiming them, so that workers don't race to
+ * claim the same job, and the store may hold the request until a job becomes available.
  */
 class JobPollingService extends AbstractScheduledService {
 
@@ -50,8 +56,13 @@ class JobPollingService extends AbstractScheduledService {
   private final PublicKeySerializer publicKeySerializer;
   private final Scheduler scheduler;
   private final Monitor monitor;
+  private final DtpInternalMetricRecorder metricRecorder;
+  private final Duration jobLease;
+  private final Duration availableJobWait;
   private final Stopwatch stopwatch = Stopwatch.createUnstarted();
   private final int credsTimeoutSeconds;
+  private volatile JobMetadata claimedJob = null;
+  private boolean publishClaimedJob = true;
 
   @Inject
   JobPollingService(
@@ -60,6 +71,7 @@ class JobPollingService extends AbstractScheduledService {
       PublicKeySerializer publicKeySerializer,
       Scheduler scheduler,
       Monitor monitor,
+      DtpInternalMetricRecorder metricRecorder,
       ExtensionContext context) {
     monitor.debug(() -> "initializing JobPollingService");
     this.store = store;
@@ -67,16 +79,33 @@ class JobPollingService extends AbstractScheduledService {
     this.publicKeySerializer = publicKeySerializer;
     this.scheduler = scheduler;
     this.monitor = monitor;
+    this.metricRecorder = metricRecorder;
     this.credsTimeoutSeconds = context.getSetting("credTimeoutSeconds", 300);
+    this.jobLease = Duration.ofSeconds(context.getSetting("jobLeaseSeconds", 60));
+    this.availableJobWait = Duration.ofMillis(context.getSetting("availableJobWaitMillis", 10000));
     monitor.debug(() -> "initialized JobPollingService");
   }
 
+  /**
+   * Keeps the claimed job to this service, available through {@link #getClaimedJob}, instead of
+   * initializing the process wide {@link JobMetadata}. Used by long-lived workers, which run a
+   * polling service per job slot.
+   */
+  void keepClaimedJobLocal() {
+    publishClaimedJob = false;
+  }
+
+  /** Returns the job claimed by this service, or null if it hasn't claimed one. */
+  JobMetadata getClaimedJob() {
+    return claimedJob;
+  }
+
   @Override
   protected void runOneIteration() {
-    monitor.debug(() -> "JobMetadata.isInitialized(): " + JobMetadata.isInitialized());
-    if (JobMetadata.isInitialized()) {
+    monitor.debug(() -> "Claimed job: " + (claimedJob != null));
+    if (claimedJob != null) {
       if (stopwatch.elapsed(TimeUnit.SECONDS) > credsTimeoutSeconds) {
-        UUID jobId = JobMetadata.getJobId();
+        UUID jobId = claimedJob.jobId();
         markJobTimedOut(jobId);
         String message =
             format(
@@ -118,14 +147,20 @@ class JobPollingService extends AbstractScheduledService {
    * object for this running instance of the transfer worker.
    */
   private void pollForUnassignedJob() {
-    UUID jobId = store.findFirst(JobAuthorization.State.CREDS_AVAILABLE);
     monitor.debug(() -> "Polling for a job in state CREDS_AVAILABLE");
+    UUID jobId;
+    try {
+      jobId = store.leaseAvailableJob(jobLease, availableJobWait);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
     if (jobId == null) {
       monitor.debug(() -> "Did not find job after polling");
       return;
     }
     monitor.debug(() -> format("Found job %s", jobId));
-    Preconditions.checkState(!JobMetadata.isInitialized());
+    Preconditions.checkState(claimedJob == null);
     WorkerKeyPair keyPair = transferKeyGenerator.generate();
     // TODO: Back up private key (keyPair.getPrivate()) in case this transfer worker dies mid-copy,
     // so we don't have to make the user start from scratch. Some options are to manage this key
@@ -142,6 +177,8 @@ class JobPollingService extends AbstractScheduledService {
                   "Updated job %s to CREDS_ENCRYPTION_KEY_GENERATED, publicKey length: %s",
                   jobId, keyPair.getEncodedPublicKey().length));
       stopwatch.start();
+    } else {
+      store.releaseJobLease(jobId);
     }
   }
 
@@ -156,6 +193,7 @@ class JobPollingService extends AbstractScheduledService {
     // Verify no transfer worker key
     if (existingJob.jobAuthorization().authPublicKey() != null) {
       monitor.debug(() -> "A public key cannot be persisted again");
+      recordClaimAttempt(existingJob, false);
       return false;
     }
 
@@ -201,33 +239,45 @@ class JobPollingService extends AbstractScheduledService {
                       + " worker. Error msg: %s",
                   jobId, e.getMessage()),
           e);
-
+      recordClaimAttempt(existingJob, false);
       return false;
     }
+    recordClaimAttempt(existingJob, true);
 
-    if (monitor instanceof JobAwareMonitor) {
+    // The monitor is shared by every job slot of a long-lived worker
+    if (publishClaimedJob && monitor instanceof JobAwareMonitor) {
       ((JobAwareMonitor) monitor).setJobId(jobId.toString());
     }
 
-    JobMetadata.init(
-        jobId,
-        keyPair.getEncodedPrivateKey(),
-        existingJob.transferDataType(),
-        existingJob.exportService(),
-        existingJob.importService(),
-        Stopwatch.createUnstarted());
+    JobMetadata job =
+        JobMetadata.create(
+            jobId,
+            keyPair.getEncodedPrivateKey(),
+            existingJob.transferDataType(),
+            existingJob.exportService(),
+            existingJob.importService(),
+            Stopwatch.createUnstarted());
+    if (publishClaimedJob) {
+      JobMetadata.init(job);
+    }
+    claimedJob = job;
     monitor.debug(
         () -> format("Stored updated job: tryToClaimJob: JobMetadata initialized: %s", jobId));
 
     return true;
   }
 
+  private void recordClaimAttempt(PortabilityJob job, boolean claimed) {
+    Duration jobAge = Duration.between(job.createdTimestamp(), Instant.now());
+    metricRecorder.jobClaimAttempted(job.transferDataType(), claimed, jobAge);
+  }
+
   /**
    * Polls for job with populated auth data and stops this service when found.
    */
   private void pollUntilJobIsReady() {
     monitor.debug(() -> "pollUntilJobIsReady");
-    UUID jobId = JobMetadata.getJobId();
+    UUID jobId = claimedJob.jobId();
     PortabilityJob job = store.findJob(jobId);
     if (job == null) {
       monitor.severe(
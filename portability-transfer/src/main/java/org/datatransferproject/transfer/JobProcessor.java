@@ -28,6 +28,7 @@ import javax.annotation.Nullable;
 import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.launcher.monitor.events.EventCode;
+import org.datatransferproject.spi.cloud.storage.JobCounterAggregator;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
@@ -57,6 +58,7 @@ final class JobProcessor {
   private final AuthDataDecryptService decryptService;
   private final Monitor monitor;
   private final DtpInternalMetricRecorder dtpInternalMetricRecorder;
+  private final JobCounterAggregator counterAggregator;
 
   @Inject
   JobProcessor(
@@ -66,7 +68,8 @@ final class JobProcessor {
       InMemoryDataCopier copier,
       AuthDataDecryptService decryptService,
       Monitor monitor,
-      DtpInternalMetricRecorder dtpInternalMetricRecorder) {
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      JobCounterAggregator counterAggregator) {
     this.store = store;
     this.hooks = hooks;
     this.objectMapper = objectMapper;
@@ -74,6 +77,7 @@ final class JobProcessor {
     this.decryptService = decryptService;
     this.monitor = monitor;
     this.dtpInternalMetricRecorder = dtpInternalMetricRecorder;
+    this.counterAggregator = counterAggregator;
   }
 
   /** Process our job, whose metadata is available via {@link JobMetadata}. */
@@ -154,6 +158,7 @@ final class JobProcessor {
       monitor.severe(() -> "Error processing jobId: " + jobId, e, EventCode.WORKER_JOB_ERRORED);
     } finally {
       monitor.debug(() -> "Finished processing jobId: " + jobId, EventCode.WORKER_JOB_FINISHED);
+      counterAggregator.flush(jobId);
       addErrorsAndMarkJobFinished(jobId, success, errors);
       hooks.jobFinished(jobId, success);
       dtpInternalMetricRecorder.finishedJob(
@@ -185,7 +190,8 @@ final class JobProcessor {
     }
     try {
       store.markJobAsFinished(jobId, success ? State.COMPLETE : State.ERROR);
-    } catch (IOException e) {
+    } catch (IOException | IllegalStateException e) {
+      // IllegalStateException: the job was canceled, errored or preempted while being processed
       monitor.severe(() -> format("Could not mark job %s as finished.", jobId));
     }
   }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.spi.transfer.idempotentexecutor.BatchImportFunction;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.ItemImportResult;
+import org.datatransferproject.types.common.ImportableItem;
+import org.datatransferproject.types.transfer.errors.ErrorDetail;
+
+/**
+ * Records the latency of each item imported through an {@link IdempotentImportExecutor}, and
+ * whether it was only looked up in the executor's cache, for the job of the calling thread.
+ */
+class MeasuredIdempotentImportExecutor implements IdempotentImportExecutor {
+  private final IdempotentImportExecutor delegate;
+  private final DtpInternalMetricRecorder metricRecorder;
+
+  MeasuredIdempotentImportExecutor(
+      IdempotentImportExecutor delegate, DtpInternalMetricRecorder metricRecorder) {
+    this.delegate = delegate;
+    this.metricRecorder = metricRecorder;
+  }
+
+  @Override
+  public <T extends Serializable> T executeAndSwallowIOExceptions(
+      String idempotentId, String itemName, Callable<T> callable) throws Exception {
+    try {
+      return executeOrThrowException(idempotentId, itemName, callable);
+    } catch (IOException e) {
+      // Executors log and record the error themselves
+      return null;
+    }
+  }
+
+  @Override
+  public <T extends Serializable> T executeOrThrowException(
+      String idempotentId, String itemName, Callable<T> callable) throws Exception {
+    // The executor only calls the callable if the item wasn't imported before
+    boolean[] called = {false};
+    boolean success = false;
+    long start = System.nanoTime();
+    try {
+      T result =
+          delegate.executeOrThrowException(
+              idempotentId,
+              itemName,
+              () -> {
+                called[0] = true;
+                return callable.call();
+              });
+      success = true;
+      return result;
+    } finally {
+      if (JobMetadata.isInitialized()) {
+        metricRecorder.itemImportFinished(
+            JobMetadata.getDataType(),
+            JobMetadata.getImportService(),
+            success,
+            !called[0],
+            Duration.ofNanos(System.nanoTime() - start));
+      }
+    }
+  }
+
+  @Override
+  public <T extends Serializable> T getCachedValue(String idempotentId) {
+    return delegate.getCachedValue(idempotentId);
+  }
+
+  @Override
+  public boolean isKeyCached(String idempotentId) {
+    return delegate.isKeyCached(idempotentId);
+  }
+
+  @Override
+  public Collection<ErrorDetail> getErrors() {
+    return delegate.getErrors();
+  }
+
+  @Override
+  public void setJobId(UUID jobId) {
+    delegate.setJobId(jobId);
+  }
+
+  @Override
+  public Collection<ErrorDetail> getRecentErrors() {
+    return delegate.getRecentErrors();
+  }
+
+  @Override
+  public void resetRecentErrors() {
+    delegate.resetRecentErrors();
+  }
+
+  @Override
+  public void prefetchKeys(Collection<String> idempotentIds) {
+    delegate.prefetchKeys(idempotentIds);
+  }
+
+  @Override
+  public void flush() {
+    delegate.flush();
+  }
+
+  @Override
+  public <T extends ImportableItem, R extends Serializable>
+      Map<String, R> importBatchAndSwallowIOExceptions(
+          List<T> items, BatchImportFunction<T, R> function) throws Exception {
+    return delegate.importBatchAndSwallowIOExceptions(items, function);
+  }
+
+  @Override
+  public <T extends ImportableItem, R extends Serializable> void recordResults(
+      List<T> items, Map<String, ItemImportResult<R>> results) {
+    delegate.recordResults(items, results);
+  }
+}
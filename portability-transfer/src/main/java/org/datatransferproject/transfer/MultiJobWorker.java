@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer;
+
+import static java.lang.String.format;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.Monitor;
+
+/**
+ * A long-lived worker that processes jobs in a fixed number of slots, so the JVM startup, Guice
+ * injection and extension loading are paid once rather than for every job.
+ *
+ * <p>Each slot claims a job with its own {@link JobPollingService}, and so its own key pair, binds
+ * the job's {@link JobMetadata} to the slot thread, and processes it while a {@link
+ * JobCancelWatchingService} watches it. Canceling a job interrupts its slot thread instead of
+ * exiting the process.
+ */
+final class MultiJobWorker {
+  /** Whether the worker keeps processing jobs instead of exiting after its first job. */
+  static final String LONG_LIVED_WORKER_SETTING = "longLivedWorker";
+
+  /** Number of jobs a long-lived worker processes at once. */
+  static final String JOB_SLOTS_SETTING = "workerJobSlots";
+
+  private final Provider<JobPollingService> jobPollingServiceProvider;
+  private final Provider<JobCancelWatchingService> jobCancelWatchingServiceProvider;
+  private final Provider<JobProcessor> jobProcessorProvider;
+  private final Monitor monitor;
+  private final int jobSlots;
+  private volatile boolean running = true;
+
+  @Inject
+  MultiJobWorker(
+      Provider<JobPollingService> jobPollingServiceProvider,
+      Provider<JobCancelWatchingService> jobCancelWatchingServiceProvider,
+      Provider<JobProcessor> jobProcessorProvider,
+      Monitor monitor,
+      ExtensionContext context) {
+    this.jobPollingServiceProvider = jobPollingServiceProvider;
+    this.jobCancelWatchingServiceProvider = jobCancelWatchingServiceProvider;
+    this.jobProcessorProvider = jobProcessorProvider;
+    this.monitor = monitor;
+    this.jobSlots = context.getSetting(JOB_SLOTS_SETTING, 1);
+    Preconditions.checkArgument(jobSlots > 0, "%s must be positive", JOB_SLOTS_SETTING);
+  }
+
+  /** Processes jobs until the calling thread is interrupted. */
+  void doWork() {
+    ExecutorService slots =
+        Executors.newFixedThreadPool(
+            jobSlots, new ThreadFactoryBuilder().setNameFormat("job-slot-%d").build());
+    for (int i = 0; i < jobSlots; i++) {
+      slots.execute(this::runSlot);
+    }
+    try {
+      slots.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      running = false;
+      slots.shutdownNow();
+    }
+  }
+
+  private void runSlot() {
+    // Slot threads are also interrupted to cancel their current job, so they can't stop on that
+    while (running) {
+      try {
+        processNextJob();
+      } catch (RuntimeException e) {
+        monitor.severe(() -> "Error in job slot " + Thread.currentThread().getName(), e);
+      }
+    }
+  }
+
+  private void processNextJob() {
+    JobPollingService jobPollingService = jobPollingServiceProvider.get();
+    jobPollingService.keepClaimedJobLocal();
+    jobPollingService.startAsync();
+    try {
+      jobPollingService.awaitTerminated();
+    } catch (IllegalStateException e) {
+      // e.g. the creds of the claimed job never showed up, the job has been marked as timed out
+      monitor.severe(() -> "Polling for a job failed", e);
+      return;
+    }
+    JobMetadata job = jobPollingService.getClaimedJob();
+    if (job == null) {
+      return;
+    }
+
+    JobMetadata.bind(job);
+    JobCancelWatchingService jobCancelWatchingService = jobCancelWatchingServiceProvider.get();
+    jobCancelWatchingService.watch(job, Thread.currentThread());
+    jobCancelWatchingService.startAsync();
+    try {
+      jobProcessorProvider.get().processJob();
+    } finally {
+      JobMetadata.unbind();
+      stopWatching(jobCancelWatchingService);
+      // Clear a cancellation that came in too late to stop the job, it mustn't hit the next one
+      if (Thread.interrupted()) {
+        monitor.info(() -> format("Stopped processing job %s", job.jobId()));
+      }
+    }
+  }
+
+  private void stopWatching(JobCancelWatchingService jobCancelWatchingService) {
+    try {
+      jobCancelWatchingService.stopAsync().awaitTerminated();
+    } catch (IllegalStateException e) {
+      monitor.severe(() -> "Watching a job for cancellation failed", e);
+    }
+  }
+}
@@ -35,6 +35,8 @@ final class Worker {
 
   void doWork() {
     jobPoller.pollJob();
+    // Canceling the job interrupts this thread rather than exiting the process
+    jobCancelWatchingService.watch(JobMetadata.current(), Thread.currentThread());
     jobCancelWatchingService.startAsync();
     jobProcessor.processJob();
   }
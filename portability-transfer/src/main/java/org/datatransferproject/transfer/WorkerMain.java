@@ -31,7 +31,12 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import java.util.List;
 import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.config.extension.SettingsExtension;
 import org.datatransferproject.security.AesSymmetricKeyGenerator;
@@ -56,6 +61,7 @@ import org.datatransferproject.spi.transfer.security.SecurityExtensionLoader;
 public class WorkerMain {
 
   private Worker worker;
+  private MultiJobWorker multiJobWorker;
 
   public static void main(String[] args) {
     Thread.setDefaultUncaughtExceptionHandler(UncaughtExceptionHandlers.systemExit());
@@ -77,7 +83,7 @@ public class WorkerMain {
 
     // TODO this should be moved into a service extension
     extensionContext.registerService(HttpTransport.class, new NetHttpTransport());
-    extensionContext.registerService(OkHttpClient.class, new OkHttpClient.Builder().build());
+    extensionContext.registerService(OkHttpClient.class, createHttpClient(extensionContext));
     extensionContext.registerService(JsonFactory.class, GsonFactory.getDefaultInstance());
 
     ServiceLoader.load(ServiceExtension.class)
@@ -130,14 +136,45 @@ public class WorkerMain {
       monitor.severe(() -> "Unable to initialize Guice in Worker", e);
       throw e;
     }
-    worker = injector.getInstance(Worker.class);
+    if (extensionContext.getSetting(MultiJobWorker.LONG_LIVED_WORKER_SETTING, false)) {
+      multiJobWorker = injector.getInstance(MultiJobWorker.class);
+    } else {
+      worker = injector.getInstance(Worker.class);
+    }
 
     // Reset the JobMetadata in case set previously when running SingleVMMain
     JobMetadata.reset();
   }
 
+  /**
+   * Creates the HTTP client shared by the extensions, pooling keep-alive connections per host and
+   * negotiating HTTP/2 where the server supports it.
+   */
+  private static OkHttpClient createHttpClient(ExtensionContext context) {
+    int maxIdleConnections = context.getSetting("httpMaxIdleConnections", 32);
+    long keepAliveMillis = context.getSetting("httpKeepAliveMillis", 300_000);
+    // Only bounds asynchronous calls; item downloads run synchronously on the copier's threads
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequestsPerHost(context.getSetting("httpMaxRequestsPerHost", 16));
+    return new OkHttpClient.Builder()
+        .connectionPool(
+            new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS))
+        .dispatcher(dispatcher)
+        .protocols(ImmutableList.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+        .connectTimeout(
+            context.getSetting("httpConnectTimeoutMillis", 10_000), TimeUnit.MILLISECONDS)
+        .readTimeout(context.getSetting("httpReadTimeoutMillis", 60_000), TimeUnit.MILLISECONDS)
+        .addNetworkInterceptor(new HttpMetricsInterceptor(context))
+        .build();
+  }
+
   public void poll() {
-    worker.doWork();
+    if (multiJobWorker != null) {
+      // Only returns once interrupted
+      multiJobWorker.doWork();
+    } else {
+      worker.doWork();
+    }
   }
 
   private static List<TransferExtension> getTransferExtensions(Monitor monitor) {
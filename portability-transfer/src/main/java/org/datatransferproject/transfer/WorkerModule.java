@@ -27,24 +27,32 @@ import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
 import org.datatransferproject.api.launcher.DelegatingExtensionContext;
 import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.config.FlagBindingModule;
+import org.datatransferproject.launcher.metrics.HistogramDtpInternalMetricRecorder;
 import org.datatransferproject.launcher.metrics.LoggingDtpInternalMetricRecorder;
 import org.datatransferproject.launcher.metrics.ServiceAwareMetricRecorder;
 import org.datatransferproject.security.SymmetricKeyGenerator;
+import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
 import org.datatransferproject.spi.cloud.extension.CloudExtension;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
+import org.datatransferproject.spi.cloud.storage.BufferedJobCounterAggregator;
+import org.datatransferproject.spi.cloud.storage.JobCounterAggregator;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.transfer.extension.TransferExtension;
 import org.datatransferproject.spi.transfer.hooks.JobHooks;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutorLoader;
 import org.datatransferproject.spi.transfer.provider.Exporter;
 import org.datatransferproject.spi.transfer.provider.Importer;
 import org.datatransferproject.spi.transfer.provider.TransferCompatibilityProvider;
@@ -54,19 +62,26 @@ import org.datatransferproject.spi.transfer.security.SecurityExtension;
 import org.datatransferproject.spi.transfer.security.TransferKeyGenerator;
 import org.datatransferproject.transfer.copier.InMemoryDataCopier;
 import org.datatransferproject.transfer.copier.InMemoryDataCopierClassLoader;
+import org.datatransferproject.types.common.models.DataVertical;
 import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
 import org.datatransferproject.types.transfer.serviceconfig.TransferServiceConfig;
 
 final class WorkerModule extends FlagBindingModule {
+  static final String COUNTER_FLUSH_INTERVAL_SETTING = "counterFlushIntervalMillis";
 
   private final CloudExtension cloudExtension;
   private final ExtensionContext context;
   private final List<TransferExtension> transferExtensions;
   private final SecurityExtension securityExtension;
   private final IdempotentImportExecutor idempotentImportExecutor;
+  private volatile IdempotentImportExecutor measuredIdempotentImportExecutor;
   private final SymmetricKeyGenerator symmetricKeyGenerator;
   private final JobHooks jobHooks;
   private final TransferCompatibilityProvider compatibilityProvider;
+  private final boolean longLivedWorker;
+  // Keyed by service and data type, as a long-lived worker runs jobs of many service pairs
+  private final ConcurrentHashMap<String, Exporter> exporters = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Importer> importers = new ConcurrentHashMap<>();
 
   WorkerModule(
       ExtensionContext context,
@@ -85,6 +100,7 @@ final class WorkerModule extends FlagBindingModule {
     this.symmetricKeyGenerator = symmetricKeyGenerator;
     this.jobHooks = jobHooks;
     this.compatibilityProvider = transferCompatibilityProvider;
+    this.longLivedWorker = context.getSetting(MultiJobWorker.LONG_LIVED_WORKER_SETTING, false);
   }
 
   @VisibleForTesting
@@ -118,6 +134,7 @@ final class WorkerModule extends FlagBindingModule {
 
     // Ensure a DtpInternalMetricRecorder exists
     LoggingDtpInternalMetricRecorder.registerRecorderIfNeeded(context);
+    HistogramDtpInternalMetricRecorder.registerRecorderIfEnabled(context);
     bind(DtpInternalMetricRecorder.class)
         .toInstance(context.getService(DtpInternalMetricRecorder.class));
   }
@@ -152,6 +169,24 @@ final class WorkerModule extends FlagBindingModule {
     return cloudExtension.getJobStore();
   }
 
+  @Provides
+  @Singleton
+  JobCounterAggregator getJobCounterAggregator(JobStore jobStore) {
+    // 0 writes the counters of every imported page to the job store right away
+    long flushInterval = context.getSetting(COUNTER_FLUSH_INTERVAL_SETTING, 0);
+    if (flushInterval <= 0) {
+      return JobCounterAggregator.writeThrough(jobStore, getMonitor());
+    }
+    return new BufferedJobCounterAggregator(
+        jobStore, getMonitor(), Duration.ofMillis(flushInterval));
+  }
+
+  @Provides
+  @Singleton
+  ConnectionProvider getConnectionProvider(JobStore jobStore) {
+    return new ConnectionProvider(jobStore, context.getService(OkHttpClient.class));
+  }
+
   @Provides
   @Singleton
   AppCredentialStore getBucketStore() {
@@ -159,10 +194,19 @@ final class WorkerModule extends FlagBindingModule {
   }
 
   @Provides
-  @Singleton
   Exporter getExporter(ImmutableList<TransferExtension> transferExtensions) {
-    TransferExtension extension =
-        findTransferExtension(transferExtensions, JobMetadata.getExportService());
+    String exportService = JobMetadata.getExportService();
+    DataVertical dataType = JobMetadata.getDataType();
+    return exporters.computeIfAbsent(
+        exportService.toLowerCase() + "/" + dataType,
+        key -> createExporter(transferExtensions, exportService, dataType));
+  }
+
+  private Exporter createExporter(
+      ImmutableList<TransferExtension> transferExtensions,
+      String exportService,
+      DataVertical dataType) {
+    TransferExtension extension = findTransferExtension(transferExtensions, exportService);
     DelegatingExtensionContext serviceSpecificContext = new DelegatingExtensionContext(context);
     serviceSpecificContext.registerOverrideService(
         MetricRecorder.class,
@@ -174,14 +218,23 @@ final class WorkerModule extends FlagBindingModule {
         getTransferServiceConfig(extension));
     extension.initialize(serviceSpecificContext);
 
-    return compatibilityProvider.getCompatibleExporter(extension, JobMetadata.getDataType());
+    return compatibilityProvider.getCompatibleExporter(extension, dataType);
   }
 
   @Provides
-  @Singleton
   Importer getImporter(ImmutableList<TransferExtension> transferExtensions) {
-    TransferExtension extension =
-        findTransferExtension(transferExtensions, JobMetadata.getImportService());
+    String importService = JobMetadata.getImportService();
+    DataVertical dataType = JobMetadata.getDataType();
+    return importers.computeIfAbsent(
+        importService.toLowerCase() + "/" + dataType,
+        key -> createImporter(transferExtensions, importService, dataType));
+  }
+
+  private Importer createImporter(
+      ImmutableList<TransferExtension> transferExtensions,
+      String importService,
+      DataVertical dataType) {
+    TransferExtension extension = findTransferExtension(transferExtensions, importService);
     DelegatingExtensionContext serviceSpecificContext = new DelegatingExtensionContext(context);
     serviceSpecificContext.registerOverrideService(
         MetricRecorder.class,
@@ -192,7 +245,7 @@ final class WorkerModule extends FlagBindingModule {
         TransferServiceConfig.class,
         getTransferServiceConfig(extension));
     extension.initialize(serviceSpecificContext);
-    return compatibilityProvider.getCompatibleImporter(extension, JobMetadata.getDataType());
+    return compatibilityProvider.getCompatibleImporter(extension, dataType);
   }
 
   @Provides
@@ -222,7 +275,7 @@ final class WorkerModule extends FlagBindingModule {
   @Annotations.CancelScheduler
   Scheduler getCancelCheckingScheduler() {
     // TODO: parse a Duration from the settings
-    long interval = context.getSetting("cancelCheckPollInterval", 60000); // Default: poll every 1m
+    long interval = context.getSetting("cancelCheckPollInterval", 10000); // Default: poll every 10s
     return AbstractScheduledService.Scheduler.newFixedDelaySchedule(
         0, interval, TimeUnit.MILLISECONDS);
   }
@@ -259,8 +312,17 @@ final class WorkerModule extends FlagBindingModule {
   }
 
   @Provides
-  @Singleton
-  public IdempotentImportExecutor getIdempotentImportExecutor() {
-    return idempotentImportExecutor;
+  public IdempotentImportExecutor getIdempotentImportExecutor(
+      DtpInternalMetricRecorder metricRecorder) {
+    // An executor tracks a single job, so jobs of a long-lived worker each get their own
+    if (longLivedWorker) {
+      return new MeasuredIdempotentImportExecutor(
+          IdempotentImportExecutorLoader.load(context), metricRecorder);
+    }
+    if (measuredIdempotentImportExecutor == null) {
+      measuredIdempotentImportExecutor =
+          new MeasuredIdempotentImportExecutor(idempotentImportExecutor, metricRecorder);
+    }
+    return measuredIdempotentImportExecutor;
   }
 }
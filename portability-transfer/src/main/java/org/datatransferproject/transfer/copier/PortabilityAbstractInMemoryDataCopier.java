@@ -29,6 +29,7 @@ import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.launcher.monitor.events.EventCode;
 import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
+import org.datatransferproject.spi.cloud.storage.JobCounterAggregator;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
 import org.datatransferproject.spi.cloud.types.PortabilityJob.TransferMode;
@@ -68,6 +69,8 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
   protected final Monitor monitor;
   protected final DtpInternalMetricRecorder metricRecorder;
   protected final JobStore jobStore;
+  protected final JobCounterAggregator counterAggregator;
+  protected final ConnectionProvider connectionProvider;
 
   public PortabilityAbstractInMemoryDataCopier(
       Provider<Exporter> exporterProvider,
@@ -77,6 +80,28 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
       IdempotentImportExecutor idempotentImportExecutor,
       DtpInternalMetricRecorder dtpInternalMetricRecorder,
       JobStore jobStore) {
+    this(
+        exporterProvider,
+        importerProvider,
+        retryStrategyLibraryProvider,
+        monitor,
+        idempotentImportExecutor,
+        dtpInternalMetricRecorder,
+        jobStore,
+        JobCounterAggregator.writeThrough(jobStore, monitor),
+        new ConnectionProvider(jobStore));
+  }
+
+  public PortabilityAbstractInMemoryDataCopier(
+      Provider<Exporter> exporterProvider,
+      Provider<Importer> importerProvider,
+      Provider<RetryStrategyLibrary> retryStrategyLibraryProvider,
+      Monitor monitor,
+      IdempotentImportExecutor idempotentImportExecutor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      JobStore jobStore,
+      JobCounterAggregator counterAggregator,
+      ConnectionProvider connectionProvider) {
     this.exporterProvider = exporterProvider;
     this.importerProvider = importerProvider;
     this.retryStrategyLibraryProvider = retryStrategyLibraryProvider;
@@ -84,6 +109,8 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
     this.idempotentImportExecutor = idempotentImportExecutor;
     this.metricRecorder = dtpInternalMetricRecorder;
     this.jobStore = jobStore;
+    this.counterAggregator = counterAggregator;
+    this.connectionProvider = connectionProvider;
   }
 
   public abstract void resetCopyIterationCounter();
@@ -109,36 +136,58 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
 
     ExportResult<?> exportResult =
         exportIteration(jobId, exportAuthData, exportInformation, jobIdPrefix, copyIteration);
+    processExportResult(jobId, importAuthData, exportResult, jobIdPrefix, copyIteration);
 
+    return exportResult;
+  }
+
+  /**
+   * Imports (or sizes, depending on the job's {@link TransferMode}) the data exported in copy
+   * iteration {@code copyIteration}. This is the second half of {@link #copyIteration} and is
+   * exposed separately so copiers may overlap it with the export of a later iteration.
+   */
+  protected void processExportResult(
+      UUID jobId,
+      AuthData importAuthData,
+      ExportResult<?> exportResult,
+      String jobIdPrefix,
+      int copyIteration)
+      throws CopyException {
     DataModel exportedData = exportResult.getExportedData();
-    if (exportedData != null) {
-      PortabilityJob job = jobStore.findJob(jobId);
-      TransferMode transferMode =
-          job.transferMode() == null ? TransferMode.DATA_TRANSFER : job.transferMode();
-      switch (transferMode) {
-        case DATA_TRANSFER:
-          importIteration(jobId, importAuthData, jobIdPrefix, copyIteration, exportedData);
-          break;
-        case SIZE_CALCULATION:
-          sizeCalculationIteration(jobId, jobIdPrefix, exportedData);
-          break;
-        default:
-          throw new IllegalStateException(
-              "Job mode " + transferMode.name() + " is not supported by "
-                  + getClass().getSimpleName());
-      }
+    if (exportedData == null) {
+      return;
+    }
+    PortabilityJob job = jobStore.findJob(jobId);
+    TransferMode transferMode =
+        job.transferMode() == null ? TransferMode.DATA_TRANSFER : job.transferMode();
+    switch (transferMode) {
+      case DATA_TRANSFER:
+        importIteration(jobId, importAuthData, jobIdPrefix, copyIteration, exportedData);
+        break;
+      case SIZE_CALCULATION:
+        sizeCalculationIteration(jobId, jobIdPrefix, exportedData);
+        break;
+      default:
+        throw new IllegalStateException(
+            "Job mode " + transferMode.name() + " is not supported by "
+                + getClass().getSimpleName());
     }
-
-    return exportResult;
   }
 
-  private ExportResult<?> exportIteration(
+  /** Exports a single page of data, the first half of {@link #copyIteration}. */
+  protected ExportResult<?> exportIteration(
       UUID jobId,
       AuthData exportAuthData,
       Optional<ExportInformation> exportInformation,
       String jobIdPrefix,
       int copyIteration)
       throws CopyException {
+    // Long-lived workers cancel a job by interrupting the thread copying it
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CopyException(
+          jobIdPrefix + "Interrupted before copy iteration " + copyIteration,
+          new InterruptedException());
+    }
 
     monitor.debug(
         () -> jobIdPrefix + "Starting export, copy iteration: " + copyIteration,
@@ -154,7 +203,8 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
             Clock.systemUTC(),
             monitor,
             JobMetadata.getDataType(),
-            JobMetadata.getExportService());
+            JobMetadata.getExportService(),
+            metricRecorder);
     boolean exportSuccess = false;
     Stopwatch exportStopwatch = Stopwatch.createStarted();
     try {
@@ -202,19 +252,16 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
             Clock.systemUTC(),
             monitor,
             JobMetadata.getDataType(),
-            JobMetadata.getImportService());
+            JobMetadata.getImportService(),
+            metricRecorder);
     boolean importSuccess = false;
     Stopwatch importStopwatch = Stopwatch.createStarted();
     try {
       ImportResult importResult = retryingImporter.call();
       importSuccess = importResult.getType() == ImportResult.ResultType.OK;
       if (importSuccess) {
-        try {
-          jobStore.addCounts(jobId, importResult.getCounts().orElse(null));
-          jobStore.addBytes(jobId, importResult.getBytes().orElse(null));
-        } catch (IOException e) {
-          monitor.debug(() -> jobIdPrefix + "Unable to add counts to job: ", e);
-        }
+        counterAggregator.addCounts(jobId, importResult.getCounts().orElse(null));
+        counterAggregator.addBytes(jobId, importResult.getBytes().orElse(null));
       }
       monitor.debug(
           () -> jobIdPrefix + "Finished import, copy iteration: " + copyIteration,
@@ -222,6 +269,7 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
     } catch (RetryException | RuntimeException e) {
       throw convertToCopyException(jobIdPrefix, "import", e);
     } finally {
+      idempotentImportExecutor.flush();
       metricRecorder.importPageFinished(
           JobMetadata.getDataType(),
           JobMetadata.getImportService(),
@@ -247,7 +295,7 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
     }
 
     CallableSizeCalculator callableSizeCalculator =
-        new CallableSizeCalculator(jobId, new ConnectionProvider(jobStore), items);
+        new CallableSizeCalculator(jobId, connectionProvider, items);
     try {
       RetryingCallable<Map<String, Long>> retryingImporter =
           new RetryingCallable<>(
@@ -256,8 +304,9 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
               Clock.systemUTC(),
               monitor,
               JobMetadata.getDataType(),
-              JobMetadata.getImportService());
-      jobStore.addBytes(jobId, retryingImporter.call());
+              JobMetadata.getImportService(),
+              metricRecorder);
+      counterAggregator.addBytes(jobId, retryingImporter.call());
     } catch (RetryException | RuntimeException e) {
       throw convertToCopyException(jobIdPrefix, "size estimation", e);
     }
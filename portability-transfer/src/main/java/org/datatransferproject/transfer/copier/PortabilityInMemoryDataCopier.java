@@ -26,6 +26,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.connection.ConnectionProvider;
+import org.datatransferproject.spi.cloud.storage.JobCounterAggregator;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
@@ -45,7 +47,6 @@ public class PortabilityInMemoryDataCopier extends PortabilityAbstractInMemoryDa
 
   private static final AtomicInteger COPY_ITERATION_COUNTER = new AtomicInteger();
 
-  @Inject
   public PortabilityInMemoryDataCopier(
       Provider<Exporter> exporterProvider,
       Provider<Importer> importerProvider,
@@ -64,6 +65,29 @@ public class PortabilityInMemoryDataCopier extends PortabilityAbstractInMemoryDa
         jobStore);
   }
 
+  @Inject
+  public PortabilityInMemoryDataCopier(
+      Provider<Exporter> exporterProvider,
+      Provider<Importer> importerProvider,
+      Provider<RetryStrategyLibrary> retryStrategyLibraryProvider,
+      Monitor monitor,
+      IdempotentImportExecutor idempotentImportExecutor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      JobStore jobStore,
+      JobCounterAggregator counterAggregator,
+      ConnectionProvider connectionProvider) {
+    super(
+        exporterProvider,
+        importerProvider,
+        retryStrategyLibraryProvider,
+        monitor,
+        idempotentImportExecutor,
+        dtpInternalMetricRecorder,
+        jobStore,
+        counterAggregator,
+        connectionProvider);
+  }
+
   @Override
   public void resetCopyIterationCounter() {
     COPY_ITERATION_COUNTER.set(0);
@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.truth.Truth;
@@ -82,6 +84,19 @@ public class CallableSizeCalculatorTest {
     Truth.assertThat(nextByte).isEqualTo(-1);
   }
 
+  @Test
+  public void testReportedSizeAvoidsDownload() throws Exception {
+    DownloadableItem item = createItem("1-" + nextInt(100, 9999));
+    long size = nextLong(1, 100000);
+    when(connectionProvider.getSizeForItem(eq(jobId), eq(item))).thenReturn(size);
+
+    Map<String, Long> actual = new CallableSizeCalculator(jobId, connectionProvider,
+        Collections.singleton(item)).call();
+
+    Truth.assertThat(actual).containsExactly(item.getIdempotentId(), size);
+    verify(connectionProvider, never()).getInputStreamForItem(any(), any());
+  }
+
   @Test
   public void testExceptionIsThrown() throws Exception {
     when(connectionProvider.getInputStreamForItem(any(), any()))
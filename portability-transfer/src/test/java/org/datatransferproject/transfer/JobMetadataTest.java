@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.truth.Truth;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.datatransferproject.types.common.models.DataVertical;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class JobMetadataTest {
+
+  @AfterEach
+  public void tearDown() {
+    JobMetadata.unbind();
+  }
+
+  @Test
+  public void poolThreadsSeeOnlyTheJobOfWrappedTasks() throws Exception {
+    JobMetadata job =
+        JobMetadata.create(
+            UUID.randomUUID(),
+            new byte[0],
+            DataVertical.PHOTOS,
+            "exporter",
+            "importer",
+            Stopwatch.createUnstarted());
+    JobMetadata.bind(job);
+    // The pool thread is created while the job is bound, like a lazily created shared pool
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Truth.assertThat(pool.submit(JobMetadata.withCurrentJob(JobMetadata::current)).get())
+          .isSameInstanceAs(job);
+      Truth.assertThat(pool.submit(JobMetadata::isInitialized).get()).isFalse();
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
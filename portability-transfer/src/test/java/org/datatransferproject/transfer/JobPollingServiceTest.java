@@ -22,6 +22,7 @@ import static org.mockito.Mockito.when;
 import com.google.common.util.concurrent.AbstractScheduledService.Scheduler;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.cloud.local.LocalJobStore;
@@ -92,9 +93,11 @@ public class JobPollingServiceTest {
     };
     ExtensionContext extensionContext = mock(ExtensionContext.class);
     when(extensionContext.getSetting("credTimeoutSeconds", 300)).thenReturn(300);
+    when(extensionContext.getSetting("jobLeaseSeconds", 60)).thenReturn(60);
+    when(extensionContext.getSetting("availableJobWaitMillis", 10000)).thenReturn(0);
     jobPollingService =
         new JobPollingService(store, asymmetricKeyGenerator, serializer, scheduler, monitor,
-            extensionContext);
+            mock(DtpInternalMetricRecorder.class), extensionContext);
   }
 
   // TODO(data-transfer-project/issues/43): Make this an integration test which uses both the API
@@ -181,4 +184,34 @@ public class JobPollingServiceTest {
 
     store.remove(TEST_ID);
   }
+
+  @Test
+  public void claimedJobIsKeptLocalForJobSlots() throws Exception {
+    when(asymmetricKeyGenerator.generate()).thenReturn(TEST_KEY_PAIR);
+    UUID jobId = UUID.randomUUID();
+    PortabilityJob job =
+        PortabilityJob.builder()
+            .setTransferDataType(DataVertical.PHOTOS)
+            .setExportService("DummyExportService")
+            .setImportService("DummyImportService")
+            .setAndValidateJobAuthorization(
+                JobAuthorization.builder()
+                    .setEncryptionScheme("cleartext")
+                    .setState(State.INITIAL)
+                    .setSessionSecretKey("fooBar")
+                    .build())
+            .build();
+    store.createJob(jobId, job);
+    store.updateJobAuthStateToCredsAvailable(jobId);
+    jobPollingService.keepClaimedJobLocal();
+
+    jobPollingService.runOneIteration();
+
+    JobMetadata claimedJob = jobPollingService.getClaimedJob();
+    assertThat(claimedJob).isNotNull();
+    assertThat(claimedJob.jobId()).isEqualTo(jobId);
+    assertThat(JobMetadata.current()).isNotSameAs(claimedJob);
+
+    store.remove(jobId);
+  }
 }
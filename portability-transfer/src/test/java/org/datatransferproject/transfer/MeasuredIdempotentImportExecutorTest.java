@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.util.UUID;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.InMemoryIdempotentImportExecutor;
+import org.datatransferproject.types.common.models.DataVertical;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MeasuredIdempotentImportExecutorTest {
+
+  private DtpInternalMetricRecorder metricRecorder;
+  private MeasuredIdempotentImportExecutor executor;
+
+  @BeforeEach
+  public void setUp() {
+    metricRecorder = mock(DtpInternalMetricRecorder.class);
+    executor =
+        new MeasuredIdempotentImportExecutor(
+            new InMemoryIdempotentImportExecutor(mock(Monitor.class)), metricRecorder);
+    JobMetadata.bind(
+        JobMetadata.create(
+            UUID.randomUUID(),
+            new byte[0],
+            DataVertical.PHOTOS,
+            "exporter",
+            "importer",
+            Stopwatch.createUnstarted()));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    JobMetadata.unbind();
+  }
+
+  @Test
+  public void recordsFirstImportAsNotCached() throws Exception {
+    Truth.assertThat(executor.executeOrThrowException("id", "item", () -> "result"))
+        .isEqualTo("result");
+
+    verify(metricRecorder)
+        .itemImportFinished(eq(DataVertical.PHOTOS), eq("importer"), eq(true), eq(false), any());
+  }
+
+  @Test
+  public void recordsRepeatedImportAsCached() throws Exception {
+    executor.executeOrThrowException("id", "item", () -> "result");
+    Truth.assertThat(executor.executeOrThrowException("id", "item", () -> "other"))
+        .isEqualTo("result");
+
+    verify(metricRecorder)
+        .itemImportFinished(eq(DataVertical.PHOTOS), eq("importer"), eq(true), eq(true), any());
+  }
+
+  @Test
+  public void recordsFailedImport() throws Exception {
+    assertThrows(
+        IOException.class,
+        () ->
+            executor.executeOrThrowException(
+                "id",
+                "item",
+                () -> {
+                  throw new IOException("failed");
+                }));
+
+    verify(metricRecorder)
+        .itemImportFinished(eq(DataVertical.PHOTOS), eq("importer"), eq(false), eq(false), any());
+  }
+}
@@ -16,6 +16,8 @@
 
 package org.datatransferproject.transfer.copier;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -24,7 +26,9 @@ import java.util.Stack;
 import java.util.UUID;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.copier.stack.PortabilityStackInMemoryDataCopier;
+import org.datatransferproject.copier.stack.StackCopierSettings;
 import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.cloud.types.JobStackDelta;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.spi.transfer.types.CopyException;
@@ -87,7 +91,70 @@ public class PortabilityInMemoryDataCopierTest {
           Mockito.mock(Monitor.class),
           new FakeIdempotentImportExecutor(),
           null,
-          (Mockito.mock(JobStore.class)));
+          (Mockito.mock(JobStore.class)),
+          StackCopierSettings.sequential());
+    }
+
+    protected ExportResult<?> copyIteration(
+        UUID jobId,
+        AuthData exportAuthData,
+        AuthData importAuthData,
+        Optional<ExportInformation> exportInformation,
+        String jobIdPrefix,
+        int copyIteration)
+        throws CopyException {
+      return Mockito.mock(ExportResult.class);
+    }
+  }
+
+  private static class TestPipelinedStackInMemoryDataCopier
+      extends PortabilityStackInMemoryDataCopier {
+
+    public TestPipelinedStackInMemoryDataCopier() {
+      super(
+          null,
+          null,
+          null,
+          Mockito.mock(Monitor.class),
+          new FakeIdempotentImportExecutor(),
+          null,
+          (Mockito.mock(JobStore.class)),
+          new StackCopierSettings(2, 1, ImmutableMap.of()));
+    }
+
+    @Override
+    protected ExportResult<?> exportIteration(
+        UUID jobId,
+        AuthData exportAuthData,
+        Optional<ExportInformation> exportInformation,
+        String jobIdPrefix,
+        int copyIteration)
+        throws CopyException {
+      return Mockito.mock(ExportResult.class);
+    }
+
+    @Override
+    protected void processExportResult(
+        UUID jobId,
+        AuthData importAuthData,
+        ExportResult<?> exportResult,
+        String jobIdPrefix,
+        int copyIteration) {}
+  }
+
+  private static class TestConcurrentStackInMemoryDataCopier
+      extends PortabilityStackInMemoryDataCopier {
+
+    public TestConcurrentStackInMemoryDataCopier() {
+      super(
+          null,
+          null,
+          null,
+          Mockito.mock(Monitor.class),
+          new FakeIdempotentImportExecutor(),
+          null,
+          (Mockito.mock(JobStore.class)),
+          new StackCopierSettings(0, 2, ImmutableMap.of()));
     }
 
     protected ExportResult<?> copyIteration(
@@ -424,11 +491,6 @@ public class PortabilityInMemoryDataCopierTest {
     ExportInformation subResource1ExportInfo = new ExportInformation(null, subResource1);
     ExportInformation subResource2ExportInfo = new ExportInformation(null, subResource2);
 
-    Stack<ExportInformation> jobStack = new Stack<>();
-    jobStack.push(subResource2ExportInfo);
-    jobStack.push(subResource1ExportInfo);
-    jobStack.push(paginationExportInfo);
-
     Mockito.when(continuationData.getPaginationData()).thenReturn(paginationData);
     Mockito.when(continuationData.getContainerResources())
         .thenReturn(Arrays.asList(subResource1, subResource2));
@@ -441,13 +503,162 @@ public class PortabilityInMemoryDataCopierTest {
     stackInMemoryDataCopier.copy(exportAuthData, importAuthData, jobId, Optional.of(exportInfo));
 
     InOrder orderVerifier = Mockito.inOrder(stackInMemoryDataCopier.jobStore);
-    orderVerifier.verify(stackInMemoryDataCopier.jobStore).storeJobStack(jobId, jobStack);
-    jobStack.pop();
-    orderVerifier.verify(stackInMemoryDataCopier.jobStore).storeJobStack(jobId, jobStack);
-    jobStack.pop();
-    orderVerifier.verify(stackInMemoryDataCopier.jobStore).storeJobStack(jobId, jobStack);
-    jobStack.pop();
-    orderVerifier.verify(stackInMemoryDataCopier.jobStore).storeJobStack(jobId, jobStack);
+    orderVerifier.verify(stackInMemoryDataCopier.jobStore)
+        .appendJobStackDelta(
+            jobId,
+            JobStackDelta.create(
+                null,
+                Arrays.asList(
+                    subResource2ExportInfo, subResource1ExportInfo, paginationExportInfo)));
+    orderVerifier.verify(stackInMemoryDataCopier.jobStore)
+        .appendJobStackDelta(jobId, JobStackDelta.create(paginationExportInfo, ImmutableList.of()));
+    orderVerifier.verify(stackInMemoryDataCopier.jobStore)
+        .appendJobStackDelta(
+            jobId, JobStackDelta.create(subResource1ExportInfo, ImmutableList.of()));
+    orderVerifier.verify(stackInMemoryDataCopier.jobStore)
+        .appendJobStackDelta(
+            jobId, JobStackDelta.create(subResource2ExportInfo, ImmutableList.of()));
+    Mockito.verify(stackInMemoryDataCopier.jobStore, Mockito.never())
+        .storeJobStack(Mockito.any(UUID.class), Mockito.any(Stack.class));
+  }
+
+  @Test
+  public void pipelinedCopyExportsAndImportsInSequentialOrder() throws CopyException, IOException {
+    TestPipelinedStackInMemoryDataCopier pipelinedCopier =
+        Mockito.spy(new TestPipelinedStackInMemoryDataCopier());
+    pipelinedCopier.resetCopyIterationCounter();
+    PaginationData paginationData = Mockito.mock(PaginationData.class);
+    ContainerResource subResource1 = Mockito.mock(ContainerResource.class);
+    ContainerResource subResource2 = Mockito.mock(ContainerResource.class);
+
+    ExportInformation paginationExportInfo = new ExportInformation(paginationData, null);
+    ExportInformation subResource1ExportInfo = new ExportInformation(null, subResource1);
+    ExportInformation subResource2ExportInfo = new ExportInformation(null, subResource2);
+
+    Mockito.when(continuationData.getPaginationData()).thenReturn(paginationData);
+    Mockito.when(continuationData.getContainerResources())
+        .thenReturn(Arrays.asList(subResource1, subResource2));
+    Mockito.when(initialExportResult.getContinuationData()).thenReturn(continuationData);
+    Mockito.doReturn(initialExportResult)
+        .when(pipelinedCopier)
+        .exportIteration(jobId, exportAuthData, Optional.of(exportInfo), jobIdPrefix, 1);
+
+    pipelinedCopier.copy(exportAuthData, importAuthData, jobId, Optional.of(exportInfo));
+
+    InOrder exportOrderVerifier = Mockito.inOrder(pipelinedCopier);
+    exportOrderVerifier.verify(pipelinedCopier)
+        .exportIteration(jobId, exportAuthData, Optional.of(exportInfo), jobIdPrefix, 1);
+    exportOrderVerifier.verify(pipelinedCopier)
+        .exportIteration(jobId, exportAuthData, Optional.of(paginationExportInfo), jobIdPrefix, 2);
+    exportOrderVerifier.verify(pipelinedCopier)
+        .exportIteration(
+            jobId, exportAuthData, Optional.of(subResource1ExportInfo), jobIdPrefix, 3);
+    exportOrderVerifier.verify(pipelinedCopier)
+        .exportIteration(
+            jobId, exportAuthData, Optional.of(subResource2ExportInfo), jobIdPrefix, 4);
+
+    InOrder importOrderVerifier = Mockito.inOrder(pipelinedCopier);
+    importOrderVerifier.verify(pipelinedCopier)
+        .processExportResult(jobId, importAuthData, initialExportResult, jobIdPrefix, 1);
+    for (int copyIteration = 2; copyIteration <= 4; copyIteration++) {
+      importOrderVerifier.verify(pipelinedCopier)
+          .processExportResult(
+              Mockito.eq(jobId),
+              Mockito.eq(importAuthData),
+              Mockito.any(ExportResult.class),
+              Mockito.eq(jobIdPrefix),
+              Mockito.eq(copyIteration));
+    }
+  }
+
+  @Test
+  public void pipelinedCopyStoresSameStackDeltasAsSequentialCopy()
+      throws CopyException, IOException {
+    TestPipelinedStackInMemoryDataCopier pipelinedCopier =
+        Mockito.spy(new TestPipelinedStackInMemoryDataCopier());
+    pipelinedCopier.resetCopyIterationCounter();
+    PaginationData paginationData = Mockito.mock(PaginationData.class);
+    ContainerResource subResource1 = Mockito.mock(ContainerResource.class);
+    ContainerResource subResource2 = Mockito.mock(ContainerResource.class);
+
+    ExportInformation paginationExportInfo = new ExportInformation(paginationData, null);
+    ExportInformation subResource1ExportInfo = new ExportInformation(null, subResource1);
+    ExportInformation subResource2ExportInfo = new ExportInformation(null, subResource2);
+
+    Mockito.when(continuationData.getPaginationData()).thenReturn(paginationData);
+    Mockito.when(continuationData.getContainerResources())
+        .thenReturn(Arrays.asList(subResource1, subResource2));
+    Mockito.when(initialExportResult.getContinuationData()).thenReturn(continuationData);
+    Mockito.doReturn(initialExportResult)
+        .when(pipelinedCopier)
+        .exportIteration(jobId, exportAuthData, Optional.of(exportInfo), jobIdPrefix, 1);
+
+    pipelinedCopier.copy(exportAuthData, importAuthData, jobId, Optional.of(exportInfo));
+
+    InOrder orderVerifier = Mockito.inOrder(pipelinedCopier.jobStore);
+    orderVerifier.verify(pipelinedCopier.jobStore)
+        .appendJobStackDelta(
+            jobId,
+            JobStackDelta.create(
+                null,
+                Arrays.asList(
+                    subResource2ExportInfo, subResource1ExportInfo, paginationExportInfo)));
+    orderVerifier.verify(pipelinedCopier.jobStore)
+        .appendJobStackDelta(jobId, JobStackDelta.create(paginationExportInfo, ImmutableList.of()));
+    orderVerifier.verify(pipelinedCopier.jobStore)
+        .appendJobStackDelta(
+            jobId, JobStackDelta.create(subResource1ExportInfo, ImmutableList.of()));
+    orderVerifier.verify(pipelinedCopier.jobStore)
+        .appendJobStackDelta(
+            jobId, JobStackDelta.create(subResource2ExportInfo, ImmutableList.of()));
+  }
+
+  @Test
+  public void concurrentCopyCopiesEverySiblingContainer() throws CopyException, IOException {
+    TestConcurrentStackInMemoryDataCopier concurrentCopier =
+        Mockito.spy(new TestConcurrentStackInMemoryDataCopier());
+    concurrentCopier.resetCopyIterationCounter();
+    ContainerResource subResource1 = Mockito.mock(ContainerResource.class);
+    ContainerResource subResource2 = Mockito.mock(ContainerResource.class);
+    ContainerResource subResource3 = Mockito.mock(ContainerResource.class);
+
+    Mockito.when(continuationData.getContainerResources())
+        .thenReturn(Arrays.asList(subResource1, subResource2, subResource3));
+    Mockito.when(initialExportResult.getContinuationData()).thenReturn(continuationData);
+    Mockito.doReturn(initialExportResult)
+        .when(concurrentCopier)
+        .copyIteration(
+            jobId, exportAuthData, importAuthData, Optional.of(exportInfo), jobIdPrefix, 1);
+
+    concurrentCopier.copy(exportAuthData, importAuthData, jobId, Optional.of(exportInfo));
+
+    for (ContainerResource subResource : Arrays.asList(subResource1, subResource2, subResource3)) {
+      Mockito.verify(concurrentCopier)
+          .copyIteration(
+              Mockito.eq(jobId),
+              Mockito.eq(exportAuthData),
+              Mockito.eq(importAuthData),
+              Mockito.eq(Optional.of(new ExportInformation(null, subResource))),
+              Mockito.eq(jobIdPrefix),
+              Mockito.anyInt());
+    }
+    Mockito.verify(concurrentCopier, Mockito.times(4))
+        .copyIteration(
+            Mockito.any(UUID.class),
+            Mockito.any(AuthData.class),
+            Mockito.any(AuthData.class),
+            Mockito.any(Optional.class),
+            Mockito.anyString(),
+            Mockito.anyInt());
+    Mockito.verify(concurrentCopier.jobStore, Mockito.times(4))
+        .appendJobStackDelta(Mockito.eq(jobId), Mockito.any(JobStackDelta.class));
+    // Each sibling only leaves the checkpointed stack once its own iteration completed
+    for (ContainerResource subResource : Arrays.asList(subResource1, subResource2, subResource3)) {
+      Mockito.verify(concurrentCopier.jobStore)
+          .appendJobStackDelta(
+              jobId,
+              JobStackDelta.create(new ExportInformation(null, subResource), ImmutableList.of()));
+    }
   }
 
   @Test
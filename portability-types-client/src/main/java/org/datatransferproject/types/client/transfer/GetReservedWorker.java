@@ -23,13 +23,29 @@ import io.swagger.annotations.ApiModel;
 @ApiModel(description = "Returns the worker reserved for a given transfer job")
 public class GetReservedWorker {
     private final String id;
+    private final Integer waitSeconds;
 
+    public GetReservedWorker(String id) {
+        this(id, null);
+    }
+
+    /**
+     * With {@code waitSeconds}, the request waits up to that long for a worker to be reserved
+     * rather than returning right away.
+     */
     @JsonCreator
-    public GetReservedWorker(@JsonProperty(value = "id", required = true) String id) {
+    public GetReservedWorker(
+            @JsonProperty(value = "id", required = true) String id,
+            @JsonProperty("waitSeconds") Integer waitSeconds) {
         this.id = id;
+        this.waitSeconds = waitSeconds;
     }
 
     public String getId() {
         return id;
     }
+
+    public Integer getWaitSeconds() {
+        return waitSeconds;
+    }
 }
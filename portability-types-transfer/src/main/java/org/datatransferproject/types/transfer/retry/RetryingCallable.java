@@ -22,6 +22,7 @@ import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.Callable;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.types.common.models.DataVertical;
 
@@ -38,6 +39,7 @@ public class RetryingCallable<T> implements Callable<T> {
   private final Monitor monitor;
   private final DataVertical dataType;
   private final String service;
+  private final DtpInternalMetricRecorder metricRecorder;
 
   private volatile int attempts;
   private volatile Exception mostRecentException;
@@ -49,12 +51,25 @@ public class RetryingCallable<T> implements Callable<T> {
       Monitor monitor,
       DataVertical dataType,
       String service) {
+    this(callable, retryStrategyLibrary, clock, monitor, dataType, service, null);
+  }
+
+  /** Creates a callable that also records the delay before each retry to {@code metricRecorder}. */
+  public RetryingCallable(
+      Callable<T> callable,
+      RetryStrategyLibrary retryStrategyLibrary,
+      Clock clock,
+      Monitor monitor,
+      DataVertical dataType,
+      String service,
+      DtpInternalMetricRecorder metricRecorder) {
     this.callable = callable;
     this.retryStrategyLibrary = retryStrategyLibrary;
     this.clock = clock;
     this.monitor = monitor;
     this.dataType = dataType;
     this.service = service;
+    this.metricRecorder = metricRecorder;
     this.attempts = 0;
   }
 
@@ -78,6 +93,10 @@ public class RetryingCallable<T> implements Callable<T> {
       } catch (Exception e) {
         mostRecentException = e;
         monitor.info(() -> "RetryingCallable caught an exception", e);
+        if (currentThread().isInterrupted()) {
+          // e.g. the job was canceled, the call isn't wanted anymore
+          throw new RetryException(attempts, mostRecentException);
+        }
         long elapsedMillis = Duration.between(start, clock.instant()).toMillis();
         // TODO: do we want to reset anything (eg, number of retries) if we see a different
         // RetryStrategy?
@@ -95,6 +114,13 @@ public class RetryingCallable<T> implements Callable<T> {
                   String.format(
                       "Strategy has %d remainingIntervalMillis after %d elapsedMillis",
                       nextAttemptIntervalMillis, elapsedMillis));
+          if (metricRecorder != null) {
+            metricRecorder.retryScheduled(
+                dataType,
+                service,
+                attempts,
+                Duration.ofMillis(Math.max(nextAttemptIntervalMillis, 0L)));
+          }
           if (nextAttemptIntervalMillis > 0L) {
             try {
               Thread.sleep(nextAttemptIntervalMillis);
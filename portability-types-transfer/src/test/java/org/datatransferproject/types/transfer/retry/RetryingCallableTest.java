@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.types.transfer.retry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.types.common.models.DataVertical;
+import org.junit.jupiter.api.Test;
+
+public class RetryingCallableTest {
+
+  // A fixed clock, so every attempt takes no time and the whole interval remains
+  private final Clock clock = Clock.fixed(Instant.EPOCH, ZoneOffset.UTC);
+
+  @Test
+  public void recordsEachScheduledRetry() throws Exception {
+    DtpInternalMetricRecorder metricRecorder = mock(DtpInternalMetricRecorder.class);
+    RetryStrategyLibrary library =
+        new RetryStrategyLibrary(
+            Collections.emptyList(), new UniformRetryStrategy(3, 1, "uniform"));
+
+    String result =
+        new RetryingCallable<>(
+                failingTimes(2), library, clock, mock(Monitor.class), DataVertical.PHOTOS,
+                "service", metricRecorder)
+            .call();
+
+    assertEquals("result", result);
+    verify(metricRecorder)
+        .retryScheduled(DataVertical.PHOTOS, "service", 1, Duration.ofMillis(1));
+    verify(metricRecorder)
+        .retryScheduled(DataVertical.PHOTOS, "service", 2, Duration.ofMillis(1));
+  }
+
+  @Test
+  public void doesNotRecordRetryWhenGivingUp() {
+    DtpInternalMetricRecorder metricRecorder = mock(DtpInternalMetricRecorder.class);
+    RetryStrategyLibrary library =
+        new RetryStrategyLibrary(Collections.emptyList(), new NoRetryStrategy());
+
+    assertThrows(
+        RetryException.class,
+        () ->
+            new RetryingCallable<>(
+                    failingTimes(1), library, clock, mock(Monitor.class), DataVertical.PHOTOS,
+                    "service", metricRecorder)
+                .call());
+
+    verify(metricRecorder, never()).retryScheduled(any(), anyString(), anyInt(), any());
+  }
+
+  private static Callable<String> failingTimes(int failures) {
+    int[] calls = {0};
+    return () -> {
+      if (calls[0]++ < failures) {
+        throw new IOException("failed");
+      }
+      return "result";
+    };
+  }
+}